@@ -0,0 +1,62 @@
+package org.edgefogcloud.benchmarks;
+
+import org.edgefogcloud.data.DataPacket;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Cloud tier: analytics over the data store filled by the fog tier in a second, at once or packet
+ * by packet. performAnalytics is private, so it is measured through processData.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CloudDataCenterBenchmark {
+
+    /**
+     * Topology whose cloud data store holds the fog output of one emission per device
+     */
+    @State(Scope.Thread)
+    public static class FilledCloud extends TierTopology {
+        List<DataPacket> storedPackets;
+
+        @Setup(Level.Invocation)
+        public void fill() {
+            createPackets();
+            deliverPackets();
+            processEdgeTier(0);
+            processFogTier(0);
+            storedPackets = new ArrayList<>();
+            for (Set<DataPacket> packets : cloudDataCenter.getStoredPackets().values()) {
+                storedPackets.addAll(packets);
+            }
+        }
+    }
+
+    @Benchmark
+    public void performAnalytics(FilledCloud topology) {
+        topology.cloudDataCenter.processData(0);
+    }
+
+    @Benchmark
+    public int analyzePacket(FilledCloud topology) {
+        int analyzed = 0;
+        for (DataPacket packet : topology.storedPackets) {
+            if (topology.cloudDataCenter.analyzePacket(packet, 0.0)) {
+                analyzed++;
+            }
+        }
+        return analyzed;
+    }
+}
@@ -0,0 +1,23 @@
+package org.edgefogcloud.benchmarks;
+
+import org.edgefogcloud.data.DataPacket;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+/**
+ * Packet generation, the first step of every device emission
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class DataGeneratorBenchmark {
+
+    @Benchmark
+    public DataPacket generateDataPacket(TierTopology topology) {
+        return topology.dataGenerator.generateDataPacket("IoT-Device-0", 0);
+    }
+}
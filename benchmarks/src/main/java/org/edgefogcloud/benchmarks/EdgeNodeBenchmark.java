@@ -0,0 +1,73 @@
+package org.edgefogcloud.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Edge tier: buffering one packet per device, then filtering and forwarding the buffers at once
+ * or packet by packet. Each operation covers every device of the topology.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class EdgeNodeBenchmark {
+
+    /**
+     * Topology whose downstream tiers are drained after each operation
+     */
+    @State(Scope.Thread)
+    public static class EmptyEdge extends TierTopology {
+        @Setup(Level.Invocation)
+        public void renew() {
+            createPackets();
+        }
+
+        @TearDown(Level.Invocation)
+        public void drain() {
+            processEdgeTier(0);
+            processFogTier(0);
+            cloudDataCenter.processData(0);
+        }
+    }
+
+    /**
+     * Topology whose edge buffers hold one packet per device before each operation
+     */
+    @State(Scope.Thread)
+    public static class BufferedEdge extends TierTopology {
+        @Setup(Level.Invocation)
+        public void fill() {
+            createPackets();
+            deliverPackets();
+        }
+
+        @TearDown(Level.Invocation)
+        public void drain() {
+            processFogTier(0);
+            cloudDataCenter.processData(0);
+        }
+    }
+
+    @Benchmark
+    public void receiveData(EmptyEdge topology) {
+        topology.deliverPackets();
+    }
+
+    @Benchmark
+    public void processData(BufferedEdge topology) {
+        topology.processEdgeTier(0);
+    }
+
+    @Benchmark
+    public int filterPacket(BufferedEdge topology) {
+        return topology.filterPackets(0.0).size();
+    }
+}
@@ -0,0 +1,114 @@
+package org.edgefogcloud.benchmarks;
+
+import org.edgefogcloud.data.DataPacket;
+import org.edgefogcloud.fog.FogNode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Fog tier: aggregation by data type of the packets the edge tier forwarded in a second, at once
+ * or packet by packet into aggregation windows. Every edge node of the topology forwards to
+ * its single fog node.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class FogNodeBenchmark {
+
+    /**
+     * Topology whose fog buffers hold the edge output of one emission per device
+     */
+    @State(Scope.Thread)
+    public static class BufferedFog extends TierTopology {
+        @Setup(Level.Invocation)
+        public void fill() {
+            createPackets();
+            deliverPackets();
+            processEdgeTier(0);
+        }
+
+        @TearDown(Level.Invocation)
+        public void drain() {
+            cloudDataCenter.processData(0);
+        }
+    }
+
+    /**
+     * Topology whose fog buffers hold the packets the edge tier filtered one by one
+     */
+    @State(Scope.Thread)
+    public static class ForwardedFog extends TierTopology {
+        List<DataPacket> forwardedPackets;
+
+        @Setup(Level.Invocation)
+        public void fill() {
+            createPackets();
+            deliverPackets();
+            forwardedPackets = filterPackets(0.0);
+        }
+
+        @TearDown(Level.Invocation)
+        public void drain() {
+            processFogTier(0);
+            cloudDataCenter.processData(0);
+        }
+    }
+
+    /**
+     * Topology whose fog node has an aggregation window open per data type of the forwarded packets
+     */
+    @State(Scope.Thread)
+    public static class OpenWindows extends TierTopology {
+        List<FogNode.AggregationWindow> windows;
+
+        @Setup(Level.Invocation)
+        public void fill() {
+            createPackets();
+            deliverPackets();
+            for (DataPacket packet : filterPackets(0.0)) {
+                fogNodes.get(0).aggregatePacket(packet, 0.0);
+            }
+            windows = new ArrayList<>(fogNodes.get(0).getOpenWindows());
+        }
+
+        @TearDown(Level.Invocation)
+        public void drain() {
+            cloudDataCenter.processData(0);
+        }
+    }
+
+    @Benchmark
+    public void processData(BufferedFog topology) {
+        topology.processFogTier(0);
+    }
+
+    @Benchmark
+    public int aggregatePacket(ForwardedFog topology) {
+        FogNode fogNode = topology.fogNodes.get(0);
+        for (DataPacket packet : topology.forwardedPackets) {
+            fogNode.aggregatePacket(packet, 0.0);
+        }
+        return fogNode.getOpenWindows().size();
+    }
+
+    @Benchmark
+    public long closeWindow(OpenWindows topology) {
+        FogNode fogNode = topology.fogNodes.get(0);
+        long forwardedBytes = 0;
+        for (FogNode.AggregationWindow window : topology.windows) {
+            forwardedBytes += fogNode.closeWindow(window, 1.0).getSize();
+        }
+        return forwardedBytes;
+    }
+}
@@ -0,0 +1,85 @@
+package org.edgefogcloud.benchmarks;
+
+import org.edgefogcloud.utils.ConfigManager;
+import org.edgefogcloud.utils.SimulationLog;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Per-packet cost of the edge tier's receive message: eager string concatenation as the tiers
+ * used to log it, against a {@link SimulationLog} category, with FINE disabled and enabled.
+ * Enabled records go to a handler discarding them, so only the logging path itself is measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class LoggingBenchmark {
+    private static final Logger LOGGER = Logger.getLogger(LoggingBenchmark.class.getName());
+
+    @Param({"INFO", "FINE"})
+    public String level;
+
+    private SimulationLog.Category packetLog;
+    private SimulationLog.Category sampledPacketLog;
+    private String nodeId;
+    private String deviceId;
+
+    @Setup
+    public void setUp() {
+        LOGGER.setUseParentHandlers(false);
+        LOGGER.addHandler(new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        LOGGER.setLevel(Level.parse(level));
+
+        ConfigManager configManager = new ConfigManager();
+        configManager.setProperty("logging.sample.packet", "1");
+        configManager.setProperty("logging.rate_limit.packet", "0");
+        configManager.setProperty("logging.sample.sampled_packet", "100");
+        configManager.setProperty("logging.rate_limit.sampled_packet", "50");
+        SimulationLog.configure(configManager);
+        packetLog = SimulationLog.category(LoggingBenchmark.class, "packet", Level.FINE);
+        sampledPacketLog = SimulationLog.category(LoggingBenchmark.class, "sampled_packet", Level.FINE);
+
+        nodeId = "Edge-Node-3";
+        deviceId = "IoT-Device-42";
+    }
+
+    @Benchmark
+    public void concatenated() {
+        LOGGER.fine("Edge Node " + nodeId + " received data packet from " + deviceId);
+    }
+
+    @Benchmark
+    public void category() {
+        packetLog.log(() -> "Edge Node " + nodeId + " received data packet from " + deviceId);
+    }
+
+    @Benchmark
+    public void sampledCategory() {
+        sampledPacketLog.log(() -> "Edge Node " + nodeId + " received data packet from " + deviceId);
+    }
+}
@@ -0,0 +1,23 @@
+package org.edgefogcloud.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+/**
+ * Per-second metrics collection over every device and node of the topology
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MetricsCollectorBenchmark {
+
+    @Benchmark
+    public void collectMetrics(TierTopology topology) {
+        // Always the same second, so the series do not grow across operations
+        topology.metricsCollector.collectMetrics(0, topology.devices, topology.edgeNodes,
+                topology.fogNodes, topology.cloudDataCenter);
+    }
+}
@@ -0,0 +1,39 @@
+package org.edgefogcloud.benchmarks;
+
+import org.edgefogcloud.data.DataPacket;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+/**
+ * Latency of every packet of a second along the IoT -> edge -> fog -> cloud path
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class NetworkModelBenchmark {
+
+    @Benchmark
+    public double calculateLayerLatencies(TierTopology topology) {
+        double total = 0.0;
+        for (DataPacket packet : topology.packets) {
+            int size = packet.getSize();
+            total += topology.networkModel.calculateIoTToEdgeLatency(size);
+            total += topology.networkModel.calculateEdgeToFogLatency(size);
+            total += topology.networkModel.calculateFogToCloudLatency(size);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public double calculateTransferLatency(TierTopology topology) {
+        double total = 0.0;
+        for (DataPacket packet : topology.packets) {
+            total += topology.networkModel.calculateTransferLatency("IoT", "Cloud", packet.getSize());
+        }
+        return total;
+    }
+}
@@ -0,0 +1,318 @@
+package org.edgefogcloud.benchmarks;
+
+import org.edgefogcloud.simulation.EdgeFogCloudSimulation;
+import org.edgefogcloud.utils.ConfigManager;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * End-to-end scaling benchmark of {@link EdgeFogCloudSimulation}.
+ * Runs the simulation at increasing device and edge node counts, seeded with the scales of the
+ * minimal and medium runners, and records setup time, simulated seconds per wall-clock second,
+ * events per second, peak heap and GC pauses. Results are written as JSON and CSV; given a
+ * baseline CSV, every metric that degrades beyond the threshold is flagged as a regression.
+ * <p>
+ * Usage: ScalingBenchmark [--max-devices N] [--time seconds] [--output dir]
+ * [--baseline results.csv] [--threshold 0.10]
+ */
+public class ScalingBenchmark {
+    private static final int[] DEVICE_COUNTS = {1_000, 10_000, 100_000, 1_000_000};
+    private static final int[] EDGE_NODE_COUNTS = {1, 10, 100, 1_000};
+
+    private static final String CSV_HEADER = "point,devices,edge_nodes,fog_nodes,setup_s,wall_s,simulated_s,"
+            + "sim_s_per_wall_s,events,events_per_s,peak_heap_mb,gc_pause_ms,gc_count";
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = parseOptions(args);
+        int maxDevices = Integer.parseInt(options.getOrDefault("max-devices", "1000000"));
+        int simulationTime = Integer.parseInt(options.getOrDefault("time", "60"));
+        double threshold = Double.parseDouble(options.getOrDefault("threshold", "0.10"));
+        Path outputDir = Paths.get(options.getOrDefault("output", "results/benchmarks"));
+
+        // The simulator logs every packet at FINE and every node at INFO
+        Logger.getLogger("").setLevel(Level.WARNING);
+
+        List<ScalingPoint> points = new ArrayList<>();
+        // Seed cases: the scales of MinimalSimulationRunner and MediumSimulationRunner
+        points.add(new ScalingPoint("minimal", 3, 1, 1));
+        points.add(new ScalingPoint("medium", 100, 5, 2));
+        for (int devices : DEVICE_COUNTS) {
+            for (int edges : EDGE_NODE_COUNTS) {
+                if (devices <= maxDevices) {
+                    points.add(new ScalingPoint(devices + "d-" + edges + "e", devices, edges, 1));
+                }
+            }
+        }
+
+        List<PointResult> results = new ArrayList<>();
+        for (ScalingPoint point : points) {
+            System.out.printf("Running %s (%d devices, %d edge nodes)...\n", point.name, point.devices, point.edgeNodes);
+            PointResult result = run(point, simulationTime);
+            results.add(result);
+            System.out.printf("  setup %.2f s, %.2f simulated s per wall s, %.0f events/s, peak heap %.1f MB, GC %d ms\n",
+                    result.setupSeconds, result.getSimulatedSecondsPerWallSecond(), result.getEventsPerSecond(),
+                    result.peakHeapMb, result.gcPauseMs);
+        }
+
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
+        Files.createDirectories(outputDir);
+        Path csvFile = outputDir.resolve("scaling_" + timestamp + ".csv");
+        Path jsonFile = outputDir.resolve("scaling_" + timestamp + ".json");
+        writeCsv(csvFile, results);
+        writeJson(jsonFile, results, simulationTime);
+        System.out.println("Results written to " + csvFile + " and " + jsonFile);
+
+        if (options.containsKey("baseline")) {
+            int regressions = compareWithBaseline(Paths.get(options.get("baseline")), results, threshold);
+            if (regressions > 0) {
+                System.exit(1);
+            }
+        }
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+
+    private static PointResult run(ScalingPoint point, int simulationTime) {
+        ConfigManager configManager = new ConfigManager();
+        configManager.setProperty("simulation.time", String.valueOf(simulationTime));
+        configManager.setProperty("simulation.num_iot_devices", String.valueOf(point.devices));
+        configManager.setProperty("simulation.num_edge_nodes", String.valueOf(point.edgeNodes));
+        configManager.setProperty("simulation.num_fog_nodes", String.valueOf(point.fogNodes));
+        configManager.setProperty("checkpoint.enabled", "false");
+        configManager.setProperty("warmstart.enabled", "false");
+
+        // Start every point from a collected heap with fresh peaks
+        System.gc();
+        List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+                heapPools.add(pool);
+            }
+        }
+        long gcTimeBefore = getGcTime();
+        long gcCountBefore = getGcCount();
+
+        PointResult result = new PointResult(point);
+        PrintStream console = System.out;
+        try {
+            // The simulation reports are not part of the measurement
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+            long start = System.nanoTime();
+            EdgeFogCloudSimulation simulation = new EdgeFogCloudSimulation(configManager);
+            simulation.setupSimulation();
+            long[] events = new long[1];
+            simulation.getSimulation().addOnEventProcessingListener(event -> events[0]++);
+            long setupEnd = System.nanoTime();
+            simulation.runSimulation();
+            long runEnd = System.nanoTime();
+
+            result.setupSeconds = (setupEnd - start) / 1e9;
+            result.wallSeconds = (runEnd - setupEnd) / 1e9;
+            result.simulatedSeconds = simulation.getSimulation().clock();
+            result.events = events[0];
+        } catch (IOException | RuntimeException | OutOfMemoryError e) {
+            result.failure = e.toString();
+        } finally {
+            System.setOut(console);
+        }
+
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            peakHeap += pool.getPeakUsage().getUsed();
+        }
+        result.peakHeapMb = peakHeap / (1024.0 * 1024.0);
+        result.gcPauseMs = getGcTime() - gcTimeBefore;
+        result.gcCount = getGcCount() - gcCountBefore;
+        if (result.failure != null) {
+            System.out.println("  failed: " + result.failure);
+        }
+        return result;
+    }
+
+    private static long getGcTime() {
+        long total = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, collector.getCollectionTime());
+        }
+        return total;
+    }
+
+    private static long getGcCount() {
+        long total = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, collector.getCollectionCount());
+        }
+        return total;
+    }
+
+    private static void writeCsv(Path file, List<PointResult> results) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add(CSV_HEADER);
+        for (PointResult result : results) {
+            lines.add(String.format(Locale.ROOT, "%s,%d,%d,%d,%.4f,%.4f,%.2f,%.4f,%d,%.2f,%.2f,%d,%d",
+                    result.point.name, result.point.devices, result.point.edgeNodes, result.point.fogNodes,
+                    result.setupSeconds, result.wallSeconds, result.simulatedSeconds,
+                    result.getSimulatedSecondsPerWallSecond(), result.events, result.getEventsPerSecond(),
+                    result.peakHeapMb, result.gcPauseMs, result.gcCount));
+        }
+        Files.write(file, lines, StandardCharsets.UTF_8);
+    }
+
+    private static void writeJson(Path file, List<PointResult> results, int simulationTime) throws IOException {
+        JSONArray points = new JSONArray();
+        for (PointResult result : results) {
+            JSONObject point = new JSONObject()
+                    .put("point", result.point.name)
+                    .put("devices", result.point.devices)
+                    .put("edgeNodes", result.point.edgeNodes)
+                    .put("fogNodes", result.point.fogNodes)
+                    .put("setupSeconds", result.setupSeconds)
+                    .put("wallSeconds", result.wallSeconds)
+                    .put("simulatedSeconds", result.simulatedSeconds)
+                    .put("simulatedSecondsPerWallSecond", result.getSimulatedSecondsPerWallSecond())
+                    .put("events", result.events)
+                    .put("eventsPerSecond", result.getEventsPerSecond())
+                    .put("peakHeapMb", result.peakHeapMb)
+                    .put("gcPauseMs", result.gcPauseMs)
+                    .put("gcCount", result.gcCount);
+            if (result.failure != null) {
+                point.put("failure", result.failure);
+            }
+            points.put(point);
+        }
+        JSONObject report = new JSONObject()
+                .put("timestamp", LocalDateTime.now().toString())
+                .put("javaVersion", System.getProperty("java.version"))
+                .put("maxHeapMb", Runtime.getRuntime().maxMemory() / (1024 * 1024))
+                .put("simulationTime", simulationTime)
+                .put("points", points);
+        Files.write(file, report.toString(2).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Prints the metrics that degraded beyond the threshold against a baseline CSV
+     *
+     * @return Number of regressions
+     */
+    private static int compareWithBaseline(Path baselineFile, List<PointResult> results, double threshold)
+            throws IOException {
+        List<String> lines = Files.readAllLines(baselineFile, StandardCharsets.UTF_8);
+        if (lines.isEmpty() || !lines.get(0).equals(CSV_HEADER)) {
+            throw new IOException(baselineFile + " is not a scaling benchmark CSV");
+        }
+        Map<String, String[]> baseline = new HashMap<>();
+        for (String line : lines.subList(1, lines.size())) {
+            String[] fields = line.split(",");
+            baseline.put(fields[0], fields);
+        }
+
+        System.out.printf("\n=== Comparison with %s (threshold %.0f%%) ===\n", baselineFile, threshold * 100);
+        int regressions = 0;
+        for (PointResult result : results) {
+            String[] fields = baseline.get(result.point.name);
+            if (fields == null || result.failure != null) {
+                continue;
+            }
+            regressions += check(result.point.name, "setup_s", Double.parseDouble(fields[4]),
+                    result.setupSeconds, false, threshold);
+            regressions += check(result.point.name, "sim_s_per_wall_s", Double.parseDouble(fields[7]),
+                    result.getSimulatedSecondsPerWallSecond(), true, threshold);
+            regressions += check(result.point.name, "events_per_s", Double.parseDouble(fields[9]),
+                    result.getEventsPerSecond(), true, threshold);
+            regressions += check(result.point.name, "peak_heap_mb", Double.parseDouble(fields[10]),
+                    result.peakHeapMb, false, threshold);
+        }
+        System.out.println(regressions == 0 ? "No regressions" : regressions + " regressions");
+        return regressions;
+    }
+
+    private static int check(String point, String metric, double baseline, double current,
+                             boolean higherIsBetter, double threshold) {
+        if (baseline <= 0) {
+            return 0;
+        }
+        double change = (current - baseline) / baseline;
+        boolean regressed = higherIsBetter ? change < -threshold : change > threshold;
+        if (regressed) {
+            System.out.printf("REGRESSION %s %s: %.4f -> %.4f (%+.1f%%)\n", point, metric, baseline, current, change * 100);
+        }
+        return regressed ? 1 : 0;
+    }
+
+    /**
+     * Topology of a scaling point
+     */
+    private static class ScalingPoint {
+        private final String name;
+        private final int devices;
+        private final int edgeNodes;
+        private final int fogNodes;
+
+        ScalingPoint(String name, int devices, int edgeNodes, int fogNodes) {
+            this.name = name;
+            this.devices = devices;
+            this.edgeNodes = edgeNodes;
+            this.fogNodes = fogNodes;
+        }
+    }
+
+    /**
+     * Measurements of a scaling point
+     */
+    private static class PointResult {
+        private final ScalingPoint point;
+        private double setupSeconds;
+        private double wallSeconds;
+        private double simulatedSeconds;
+        private long events;
+        private double peakHeapMb;
+        private long gcPauseMs;
+        private long gcCount;
+        private String failure;
+
+        PointResult(ScalingPoint point) {
+            this.point = point;
+        }
+
+        double getSimulatedSecondsPerWallSecond() {
+            return wallSeconds > 0 ? simulatedSeconds / wallSeconds : 0.0;
+        }
+
+        double getEventsPerSecond() {
+            return wallSeconds > 0 ? events / wallSeconds : 0.0;
+        }
+    }
+}
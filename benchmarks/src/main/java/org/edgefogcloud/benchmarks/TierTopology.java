@@ -0,0 +1,143 @@
+package org.edgefogcloud.benchmarks;
+
+import org.edgefogcloud.cloud.CloudDataCenter;
+import org.edgefogcloud.data.DataGenerator;
+import org.edgefogcloud.data.DataPacket;
+import org.edgefogcloud.devices.DevicePopulation;
+import org.edgefogcloud.devices.IoTDevice;
+import org.edgefogcloud.edge.EdgeNode;
+import org.edgefogcloud.fog.FogNode;
+import org.edgefogcloud.network.NetworkModel;
+import org.edgefogcloud.utils.ConfigManager;
+import org.edgefogcloud.utils.MetricsCollector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Edge-fog-cloud topology shared by the benchmarks, parameterized by device count and by the
+ * device type whose data-type mix the packets follow (SENSOR: mostly sensor data,
+ * WEARABLE: sensor data and audio, SMARTPHONE: uniform mix including video).
+ */
+@State(Scope.Thread)
+public class TierTopology {
+    static final int DEVICES_PER_EDGE = 100;
+
+    @Param({"100", "1000", "10000"})
+    public int deviceCount;
+
+    @Param({"SENSOR", "WEARABLE", "SMARTPHONE"})
+    public String dataTypeMix;
+
+    ConfigManager configManager;
+    DataGenerator dataGenerator;
+    NetworkModel networkModel;
+    MetricsCollector metricsCollector;
+    List<IoTDevice> devices;
+    List<EdgeNode> edgeNodes;
+    List<FogNode> fogNodes;
+    CloudDataCenter cloudDataCenter;
+
+    // One packet per device, as emitted in a simulated second; renewed before each delivery
+    DataPacket[] packets;
+
+    @Setup
+    public void setUp() {
+        // The simulator logs every packet at FINE and every node at INFO
+        Logger.getLogger("").setLevel(Level.WARNING);
+
+        configManager = new ConfigManager();
+        dataGenerator = new DataGenerator(dataTypeMix, configManager);
+        networkModel = new NetworkModel(configManager);
+        metricsCollector = new MetricsCollector();
+        cloudDataCenter = new CloudDataCenter(configManager);
+        devices = new ArrayList<>();
+        edgeNodes = new ArrayList<>();
+        fogNodes = new ArrayList<>();
+
+        FogNode fogNode = new FogNode("Fog-Node-0", configManager);
+        fogNode.setCloudDataCenter(cloudDataCenter);
+        cloudDataCenter.addFogNode(fogNode);
+        fogNodes.add(fogNode);
+
+        int edgeCount = Math.max(1, deviceCount / DEVICES_PER_EDGE);
+        for (int e = 0; e < edgeCount; e++) {
+            EdgeNode edgeNode = new EdgeNode("Edge-Node-" + e, configManager);
+            edgeNode.setAssignedFogNode(fogNode);
+            fogNode.addAssignedEdgeNode(edgeNode);
+            edgeNodes.add(edgeNode);
+        }
+
+        DevicePopulation population = new DevicePopulation(configManager, deviceCount);
+        packets = new DataPacket[deviceCount];
+        for (int d = 0; d < deviceCount; d++) {
+            IoTDevice device = population.createDevice("IoT-Device-" + d);
+            EdgeNode edgeNode = edgeNodes.get(d % edgeCount);
+            device.setAssignedEdgeNode(edgeNode);
+            edgeNode.addAssignedDevice(device);
+            devices.add(device);
+        }
+        createPackets();
+    }
+
+    /**
+     * Generates a new packet per device, as the tiers keep the packets they are sent
+     * until they process them
+     */
+    void createPackets() {
+        for (int d = 0; d < deviceCount; d++) {
+            packets[d] = dataGenerator.generateDataPacket(devices.get(d).getDeviceId(), 0);
+        }
+    }
+
+    /**
+     * Delivers one packet per device to the edge tier
+     */
+    void deliverPackets() {
+        for (int d = 0; d < deviceCount; d++) {
+            devices.get(d).getAssignedEdgeNode().receiveData(packets[d], devices.get(d));
+        }
+    }
+
+    /**
+     * Filters the delivered packets one by one, as their edge filtering stages finish
+     *
+     * @return The packets forwarded to the fog tier
+     */
+    List<DataPacket> filterPackets(double currentTime) {
+        List<DataPacket> forwarded = new ArrayList<>();
+        for (int d = 0; d < deviceCount; d++) {
+            IoTDevice device = devices.get(d);
+            DataPacket packet = device.getAssignedEdgeNode().filterPacket(packets[d], device, currentTime);
+            if (packet != null) {
+                forwarded.add(packet);
+            }
+        }
+        return forwarded;
+    }
+
+    /**
+     * Processes the edge tier, filling the fog buffers
+     */
+    void processEdgeTier(int currentTime) {
+        for (EdgeNode edgeNode : edgeNodes) {
+            edgeNode.processData(currentTime);
+        }
+    }
+
+    /**
+     * Processes the fog tier, filling the cloud data store
+     */
+    void processFogTier(int currentTime) {
+        for (FogNode fogNode : fogNodes) {
+            fogNode.processData(currentTime);
+        }
+    }
+}
@@ -1,21 +1,38 @@
 package org.edgefogcloud.cloud;
 
 import org.edgefogcloud.data.DataPacket;
+import org.edgefogcloud.events.CloudAnalyticsEvent;
 import org.edgefogcloud.fog.FogNode;
+import org.edgefogcloud.utils.CheckpointStreams;
 import org.edgefogcloud.utils.ConfigManager;
+import org.edgefogcloud.utils.SimulationLog;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Represents a Cloud Data Center that receives data from Fog nodes
- * and performs complex analytics and long-term storage
+ * and performs complex analytics and long-term storage.
+ * A packet is stored until the cloud analytics stage of its pipeline has run,
+ * see {@link #analyzePacket(DataPacket, double)}.
  */
 public class CloudDataCenter {
     private static final Logger LOGGER = Logger.getLogger(CloudDataCenter.class.getName());
+    private static final SimulationLog.Category PACKET_LOG =
+            SimulationLog.category(CloudDataCenter.class, "packet", Level.FINE);
+    private static final SimulationLog.Category TIER_LOG =
+            SimulationLog.category(CloudDataCenter.class, "tier", Level.FINE);
     
     private String datacenterId;
     private List<FogNode> connectedFogNodes;
@@ -28,7 +45,7 @@ public class CloudDataCenter {
     private double bandwidth; // in Gbps
     
     // Data storage and analytics
-    private Map<String, List<DataPacket>> dataStore;
+    private Map<String, Set<DataPacket>> dataStore; // insertion ordered, indexed for the removal of analyzed packets
     
     // Metrics
     private int totalPacketsReceived;
@@ -69,7 +86,7 @@ public class CloudDataCenter {
         for (DataPacket packet : dataPackets) {
             String dataType = packet.getDataType();
             if (!dataStore.containsKey(dataType)) {
-                dataStore.put(dataType, new ArrayList<>());
+                dataStore.put(dataType, new LinkedHashSet<>());
             }
             dataStore.get(dataType).add(packet);
         }
@@ -83,16 +100,37 @@ public class CloudDataCenter {
         }
         totalBandwidthUsed += totalDataSize / (1024.0 * 1024.0 * 1024.0); // Convert to GB
         
-        LOGGER.fine("Cloud Data Center received " + dataPackets.size() + 
+        PACKET_LOG.log(() -> "Cloud Data Center received " + dataPackets.size() + 
                 " data packets from Fog Node " + sourceFog.getNodeId());
     }
     
+    /**
+     * Runs the analytics of a packet once the cloud analytics stage of its pipeline has run
+     * 
+     * @param packet A packet a fog node forwarded to the cloud
+     * @param currentTime Time (in seconds) the stage finished
+     * @return true if the packet was stored here
+     */
+    public boolean analyzePacket(DataPacket packet, double currentTime) {
+        Set<DataPacket> packetsOfType = dataStore.get(packet.getDataType());
+        if (packetsOfType == null || !packetsOfType.remove(packet)) {
+            return false;
+        }
+        performAnalytics(Collections.singletonList(packet), packet.getDataType(), (int) currentTime);
+        return true;
+    }
+    
+    /**
+     * Runs the analytics of every stored packet at once, outside of their pipelines
+     * 
+     * @param currentTime Time (in seconds) of the processing
+     */
     public void processData(int currentTime) {
-        LOGGER.fine("Cloud Data Center processing data at time " + currentTime);
+        TIER_LOG.log(() -> "Cloud Data Center processing data at time " + currentTime);
         
         // Process data for each data type
         for (String dataType : dataStore.keySet()) {
-            List<DataPacket> packetsOfType = dataStore.get(dataType);
+            Set<DataPacket> packetsOfType = dataStore.get(dataType);
             
             // Only process if we have new data
             if (!packetsOfType.isEmpty()) {
@@ -106,7 +144,10 @@ public class CloudDataCenter {
         }
     }
     
-    private void performAnalytics(List<DataPacket> packets, String dataType, int currentTime) {
+    private void performAnalytics(Collection<DataPacket> packets, String dataType, int currentTime) {
+        CloudAnalyticsEvent event = new CloudAnalyticsEvent();
+        event.begin();
+        
         // Calculate total size of all packets
         int totalSize = 0;
         for (DataPacket packet : packets) {
@@ -122,8 +163,15 @@ public class CloudDataCenter {
         double energyUsed = calculateEnergyConsumption(processingTime);
         totalEnergyConsumed += energyUsed;
         
-        LOGGER.fine("Cloud Data Center performed analytics on " + packets.size() + 
+        TIER_LOG.log(() -> "Cloud Data Center performed analytics on " + packets.size() + 
                 " packets of type " + dataType + " at time " + currentTime);
+        
+        event.end();
+        if (event.shouldCommit()) {
+            event.setActivity(datacenterId, "Cloud", currentTime, packets.size(), totalSize);
+            event.setDataType(dataType);
+            event.commit();
+        }
     }
     
     private double calculateProcessingTime(int dataSize, String dataType) {
@@ -186,6 +234,15 @@ public class CloudDataCenter {
         return totalBandwidthUsed;
     }
     
+    /**
+     * Gets the packets waiting for their analytics stage, e.g. to resume their pipelines
+     * 
+     * @return Read-only view of the stored packets by data type, in arrival order
+     */
+    public Map<String, Set<DataPacket>> getStoredPackets() {
+        return Collections.unmodifiableMap(dataStore);
+    }
+    
     public Map<String, Integer> getDataTypeDistribution() {
         Map<String, Integer> distribution = new HashMap<>();
         
@@ -195,4 +252,34 @@ public class CloudDataCenter {
         
         return distribution;
     }
+    
+    /**
+     * Writes the data store and counters for a checkpoint
+     * 
+     * @param out Checkpoint stream
+     * @throws IOException If the state cannot be written
+     */
+    public void saveState(DataOutput out) throws IOException {
+        CheckpointStreams.writePacketBuffers(out, dataStore);
+        out.writeInt(totalPacketsReceived);
+        out.writeInt(totalPacketsProcessed);
+        out.writeDouble(totalProcessingTime);
+        out.writeDouble(totalEnergyConsumed);
+        out.writeDouble(totalBandwidthUsed);
+    }
+    
+    /**
+     * Restores the data store and counters from a checkpoint
+     * 
+     * @param in Checkpoint stream
+     * @throws IOException If the state cannot be read
+     */
+    public void restoreState(DataInput in) throws IOException {
+        CheckpointStreams.readPacketBuffers(in, dataStore);
+        totalPacketsReceived = in.readInt();
+        totalPacketsProcessed = in.readInt();
+        totalProcessingTime = in.readDouble();
+        totalEnergyConsumed = in.readDouble();
+        totalBandwidthUsed = in.readDouble();
+    }
 }
@@ -1,5 +1,6 @@
 package org.edgefogcloud.data;
 
+import org.edgefogcloud.devices.DeviceProfile;
 import org.edgefogcloud.utils.ConfigManager;
 
 import java.util.Random;
@@ -11,67 +12,23 @@ import java.util.logging.Logger;
 public class DataGenerator {
     private static final Logger LOGGER = Logger.getLogger(DataGenerator.class.getName());
     
-    private String deviceType;
-    private ConfigManager configManager;
-    private Random random;
-    
-    // Data type probabilities based on device type
-    private double[] dataTypeProbabilities;
-    private String[] dataTypes = {"SENSOR_DATA", "IMAGE_DATA", "VIDEO_DATA", "AUDIO_DATA", "TEXT_DATA"};
+    private final DeviceProfile profile;
+    private final Random random;
     
     public DataGenerator(String deviceType, ConfigManager configManager) {
-        this.deviceType = deviceType;
-        this.configManager = configManager;
-        this.random = new Random();
-        
-        // Initialize data type probabilities based on device type
-        initializeDataTypeProbabilities();
+        this(DeviceProfile.of(deviceType), new Random());
     }
     
-    private void initializeDataTypeProbabilities() {
-        dataTypeProbabilities = new double[dataTypes.length];
-        
-        switch (deviceType) {
-            case "SENSOR":
-                // Sensors mostly generate sensor data
-                dataTypeProbabilities[0] = 0.9;  // SENSOR_DATA
-                dataTypeProbabilities[1] = 0.05; // IMAGE_DATA
-                dataTypeProbabilities[2] = 0.0;  // VIDEO_DATA
-                dataTypeProbabilities[3] = 0.0;  // AUDIO_DATA
-                dataTypeProbabilities[4] = 0.05; // TEXT_DATA
-                break;
-            case "ACTUATOR":
-                // Actuators mostly generate sensor data and text data
-                dataTypeProbabilities[0] = 0.7;  // SENSOR_DATA
-                dataTypeProbabilities[1] = 0.0;  // IMAGE_DATA
-                dataTypeProbabilities[2] = 0.0;  // VIDEO_DATA
-                dataTypeProbabilities[3] = 0.0;  // AUDIO_DATA
-                dataTypeProbabilities[4] = 0.3;  // TEXT_DATA
-                break;
-            case "SMARTPHONE":
-                // Smartphones generate all types of data
-                dataTypeProbabilities[0] = 0.2;  // SENSOR_DATA
-                dataTypeProbabilities[1] = 0.2;  // IMAGE_DATA
-                dataTypeProbabilities[2] = 0.2;  // VIDEO_DATA
-                dataTypeProbabilities[3] = 0.2;  // AUDIO_DATA
-                dataTypeProbabilities[4] = 0.2;  // TEXT_DATA
-                break;
-            case "WEARABLE":
-                // Wearables mostly generate sensor data and some audio
-                dataTypeProbabilities[0] = 0.7;  // SENSOR_DATA
-                dataTypeProbabilities[1] = 0.1;  // IMAGE_DATA
-                dataTypeProbabilities[2] = 0.0;  // VIDEO_DATA
-                dataTypeProbabilities[3] = 0.15; // AUDIO_DATA
-                dataTypeProbabilities[4] = 0.05; // TEXT_DATA
-                break;
-            default:
-                // Default distribution
-                dataTypeProbabilities[0] = 0.4;  // SENSOR_DATA
-                dataTypeProbabilities[1] = 0.15; // IMAGE_DATA
-                dataTypeProbabilities[2] = 0.15; // VIDEO_DATA
-                dataTypeProbabilities[3] = 0.15; // AUDIO_DATA
-                dataTypeProbabilities[4] = 0.15; // TEXT_DATA
-        }
+    /**
+     * Creates a generator for the devices of a type
+     * 
+     * @param profile The type, giving the mix of data types generated
+     * @param random Random generator shared with the caller, which checkpoints it
+     */
+    public DataGenerator(DeviceProfile profile, Random random) {
+        this.profile = profile;
+        this.random = random;
+        LOGGER.fine("Created data generator for device type: " + profile.getType());
     }
     
     public DataPacket generateDataPacket(String sourceId, int timestamp) {
@@ -97,10 +54,10 @@ public class DataGenerator {
         double randomValue = random.nextDouble();
         double cumulativeProbability = 0.0;
         
-        for (int i = 0; i < dataTypeProbabilities.length; i++) {
-            cumulativeProbability += dataTypeProbabilities[i];
+        for (int i = 0; i < DeviceProfile.DATA_TYPES.length; i++) {
+            cumulativeProbability += profile.getDataTypeProbability(i);
             if (randomValue <= cumulativeProbability) {
-                return dataTypes[i];
+                return DeviceProfile.DATA_TYPES[i];
             }
         }
         
@@ -0,0 +1,314 @@
+package org.edgefogcloud.data;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Reads a recorded packet trace lazily, one record at a time, in file order.
+ * The file is memory-mapped one chunk at a time and records are decoded in place, so traces
+ * larger than the heap, or the physical memory, are replayed without being loaded.
+ * <p>
+ * Two formats are read:
+ * <ul>
+ * <li>CSV, one packet per line: {@code timestamp,device,type,size}, timestamp in seconds.
+ *     A first line that does not start with a number is taken as a header.</li>
+ * <li>Binary, as written by {@link PacketTraceWriter}: the {@code EFCTRACE} magic, then
+ *     device definitions and fixed-size packet records in little-endian order.</li>
+ * </ul>
+ * The reader is a cursor: {@link #next()} decodes the following packet, whose fields are then
+ * available through the getters until the next call.
+ */
+public class PacketTraceReader implements Closeable {
+    private static final Logger LOGGER = Logger.getLogger(PacketTraceReader.class.getName());
+
+    static final byte[] MAGIC = "EFCTRACE".getBytes(StandardCharsets.US_ASCII);
+    static final int VERSION = 1;
+    static final byte DEVICE_RECORD = 0;
+    static final byte PACKET_RECORD = 1;
+    static final int PACKET_RECORD_SIZE = 1 + 8 + 4 + 1 + 4;
+    static final int MAX_DEVICE_RECORD_SIZE = 1 + 4 + 2 + 65535;
+    static final String[] DATA_TYPES = {"SENSOR_DATA", "IMAGE_DATA", "VIDEO_DATA", "AUDIO_DATA", "TEXT_DATA"};
+
+    /**
+     * Trace file formats
+     */
+    public enum Format {
+        CSV, BINARY;
+
+        /**
+         * Picks the format from the file name: {@code .csv} files are CSV, others binary
+         */
+        public static Format of(Path file) {
+            return file.getFileName().toString().toLowerCase().endsWith(".csv") ? CSV : BINARY;
+        }
+    }
+
+    private final Path file;
+    private final Format format;
+    private final FileChannel channel;
+    private final long fileSize;
+    private final int chunkSize;
+    private final List<String> devices; // binary traces, by index
+
+    private MappedByteBuffer chunk;
+    private long chunkStart;
+    private long recordsRead;
+
+    // Current record
+    private double timestamp;
+    private String device;
+    private String dataType;
+    private int size;
+
+    /**
+     * Opens a trace
+     *
+     * @param file The trace file
+     * @param format Its format
+     * @param chunkSize Bytes mapped at a time, at least the size of the longest CSV line
+     * @throws IOException If the file cannot be opened or is not a trace
+     */
+    public PacketTraceReader(Path file, Format format, int chunkSize) throws IOException {
+        this.file = file;
+        this.format = format;
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.fileSize = channel.size();
+        this.chunkSize = Math.max(MAX_DEVICE_RECORD_SIZE, chunkSize);
+        this.devices = new ArrayList<>();
+        map(0);
+
+        if (format == Format.BINARY) {
+            readHeader();
+        } else if (chunk.hasRemaining() && !isNumberStart(chunk.get(chunk.position()))) {
+            skipLine();
+        }
+        LOGGER.info("Replaying " + format + " trace " + file + " (" + fileSize + " bytes)");
+    }
+
+    private void readHeader() throws IOException {
+        if (chunk.remaining() < MAGIC.length + 4) {
+            throw new IOException(file + " is not a packet trace");
+        }
+        for (byte expected : MAGIC) {
+            if (chunk.get() != expected) {
+                throw new IOException(file + " is not a packet trace");
+            }
+        }
+        int version = chunk.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported packet trace version " + version + " in " + file);
+        }
+    }
+
+    /**
+     * Maps the chunk starting at a file position
+     */
+    private void map(long position) throws IOException {
+        chunkStart = position;
+        chunk = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(chunkSize, fileSize - position));
+        chunk.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Remaps from the current position if fewer than the given bytes are left in the chunk
+     * and the file holds more
+     */
+    private void ensureAvailable(int bytes) throws IOException {
+        if (chunk.remaining() < bytes && chunkStart + chunk.limit() < fileSize) {
+            map(getPosition());
+        }
+    }
+
+    /**
+     * Decodes the next packet
+     *
+     * @return false once the trace is exhausted
+     * @throws IOException If the trace is malformed
+     */
+    public boolean next() throws IOException {
+        boolean decoded = format == Format.BINARY ? nextBinary() : nextCsv();
+        if (decoded) {
+            recordsRead++;
+        }
+        return decoded;
+    }
+
+    private boolean nextBinary() throws IOException {
+        while (true) {
+            ensureAvailable(PACKET_RECORD_SIZE);
+            if (!chunk.hasRemaining()) {
+                return false;
+            }
+            byte kind = chunk.get(chunk.position());
+            if (kind == PACKET_RECORD) {
+                if (chunk.remaining() < PACKET_RECORD_SIZE) {
+                    throw new IOException("Truncated packet record at byte " + getPosition() + " of " + file);
+                }
+                chunk.get();
+                timestamp = chunk.getDouble();
+                int deviceIndex = chunk.getInt();
+                int typeIndex = chunk.get();
+                size = chunk.getInt();
+                if (deviceIndex < 0 || deviceIndex >= devices.size()) {
+                    throw new IOException("Undefined device " + deviceIndex + " at byte " + getPosition() + " of " + file);
+                }
+                device = devices.get(deviceIndex);
+                dataType = typeIndex >= 0 && typeIndex < DATA_TYPES.length ? DATA_TYPES[typeIndex] : "UNKNOWN";
+                return true;
+            } else if (kind == DEVICE_RECORD) {
+                ensureAvailable(MAX_DEVICE_RECORD_SIZE);
+                chunk.get();
+                int deviceIndex = chunk.getInt();
+                byte[] name = new byte[chunk.getShort() & 0xFFFF];
+                chunk.get(name);
+                if (deviceIndex != devices.size()) {
+                    throw new IOException("Device " + deviceIndex + " defined out of order in " + file);
+                }
+                devices.add(new String(name, StandardCharsets.UTF_8));
+            } else {
+                throw new IOException("Unknown record " + kind + " at byte " + getPosition() + " of " + file);
+            }
+        }
+    }
+
+    private boolean nextCsv() throws IOException {
+        while (true) {
+            int end = findLineEnd();
+            if (end < 0) {
+                return false;
+            }
+            int start = chunk.position();
+            chunk.position(end < chunk.limit() ? end + 1 : end);
+            if (end > start && !(end - start == 1 && chunk.get(start) == '\r')) {
+                parseCsvLine(start, end);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Finds the end of the line at the current position, remapping so that the line is entirely
+     * in the chunk
+     *
+     * @return Index of the line's newline, or the chunk's limit for an unterminated last line,
+     * -1 at the end of the trace
+     */
+    private int findLineEnd() throws IOException {
+        if (!chunk.hasRemaining()) {
+            if (chunkStart + chunk.limit() >= fileSize) {
+                return -1;
+            }
+            map(getPosition());
+        }
+        for (int attempt = 0; attempt < 2; attempt++) {
+            for (int i = chunk.position(); i < chunk.limit(); i++) {
+                if (chunk.get(i) == '\n') {
+                    return i;
+                }
+            }
+            if (chunkStart + chunk.limit() >= fileSize) {
+                return chunk.limit();
+            }
+            // The line continues past the chunk
+            map(getPosition());
+        }
+        throw new IOException("Line longer than " + chunkSize + " bytes at byte " + getPosition() + " of " + file);
+    }
+
+    private void skipLine() throws IOException {
+        int end = findLineEnd();
+        if (end >= 0) {
+            chunk.position(end < chunk.limit() ? end + 1 : end);
+        }
+    }
+
+    private void parseCsvLine(int start, int end) throws IOException {
+        if (chunk.get(end - 1) == '\r') {
+            end--;
+        }
+        int[] commas = new int[3];
+        int found = 0;
+        for (int i = start; i < end && found < 3; i++) {
+            if (chunk.get(i) == ',') {
+                commas[found++] = i;
+            }
+        }
+        if (found < 3) {
+            throw new IOException("Expected timestamp,device,type,size at byte " + (chunkStart + start) + " of " + file);
+        }
+        try {
+            timestamp = Double.parseDouble(text(start, commas[0]));
+            device = text(commas[0] + 1, commas[1]);
+            dataType = dataType(text(commas[1] + 1, commas[2]));
+            size = Integer.parseInt(text(commas[2] + 1, end));
+        } catch (NumberFormatException e) {
+            throw new IOException("Malformed record at byte " + (chunkStart + start) + " of " + file, e);
+        }
+    }
+
+    private String text(int start, int end) {
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = chunk.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8).trim();
+    }
+
+    /**
+     * Shares the known data type names instead of keeping a copy per packet
+     */
+    private static String dataType(String name) {
+        for (String known : DATA_TYPES) {
+            if (known.equals(name)) {
+                return known;
+            }
+        }
+        return name;
+    }
+
+    private static boolean isNumberStart(byte b) {
+        return (b >= '0' && b <= '9') || b == '-' || b == '+' || b == '.';
+    }
+
+    /**
+     * Byte offset of the next record, e.g. to resume a replay from a checkpoint
+     */
+    public long getPosition() {
+        return chunkStart + chunk.position();
+    }
+
+    public double getTimestamp() {
+        return timestamp;
+    }
+
+    public String getDevice() {
+        return device;
+    }
+
+    public String getDataType() {
+        return dataType;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public long getRecordsRead() {
+        return recordsRead;
+    }
+
+    @Override
+    public void close() throws IOException {
+        chunk = null;
+        channel.close();
+    }
+}
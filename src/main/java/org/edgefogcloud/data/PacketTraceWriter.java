@@ -0,0 +1,110 @@
+package org.edgefogcloud.data;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Writes packet traces in the binary format of {@link PacketTraceReader}.
+ * A device is defined by a record of its own before its first packet, so traces are written
+ * in a single pass. Run as a program to convert a CSV trace:
+ * <pre>
+ * java -cp target/classes org.edgefogcloud.data.PacketTraceWriter traffic.csv traffic.trace
+ * </pre>
+ */
+public class PacketTraceWriter implements Closeable {
+    private static final Logger LOGGER = Logger.getLogger(PacketTraceWriter.class.getName());
+
+    private final OutputStream out;
+    private final Map<String, Integer> deviceIndex;
+    private final ByteBuffer record;
+    private long packetsWritten;
+
+    /**
+     * Creates a trace, replacing an existing file
+     *
+     * @param file The trace file
+     * @throws IOException If the file cannot be created
+     */
+    public PacketTraceWriter(Path file) throws IOException {
+        this.out = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16);
+        this.deviceIndex = new HashMap<>();
+        this.record = ByteBuffer.allocate(PacketTraceReader.MAX_DEVICE_RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+        record.put(PacketTraceReader.MAGIC).putInt(PacketTraceReader.VERSION);
+        flushRecord();
+    }
+
+    /**
+     * Appends a packet. Packets should be appended in timestamp order.
+     *
+     * @param timestamp Time the packet was recorded, in seconds
+     * @param device Device that sent it
+     * @param dataType One of the data types of {@link DataGenerator}
+     * @param size Size in bytes
+     * @throws IOException If the packet cannot be written
+     */
+    public void write(double timestamp, String device, String dataType, int size) throws IOException {
+        Integer index = deviceIndex.get(device);
+        if (index == null) {
+            index = deviceIndex.size();
+            byte[] name = device.getBytes(StandardCharsets.UTF_8);
+            if (name.length > 0xFFFF) {
+                throw new IOException("Device name too long: " + device.substring(0, 64) + "...");
+            }
+            record.put(PacketTraceReader.DEVICE_RECORD).putInt(index).putShort((short) name.length).put(name);
+            flushRecord();
+            deviceIndex.put(device, index);
+        }
+
+        int typeIndex = -1;
+        for (int i = 0; i < PacketTraceReader.DATA_TYPES.length; i++) {
+            if (PacketTraceReader.DATA_TYPES[i].equals(dataType)) {
+                typeIndex = i;
+            }
+        }
+        record.put(PacketTraceReader.PACKET_RECORD).putDouble(timestamp).putInt(index)
+                .put((byte) typeIndex).putInt(size);
+        flushRecord();
+        packetsWritten++;
+    }
+
+    private void flushRecord() throws IOException {
+        out.write(record.array(), 0, record.position());
+        record.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+        LOGGER.info(packetsWritten + " packets from " + deviceIndex.size() + " devices written");
+    }
+
+    /**
+     * Converts a CSV trace to the binary format
+     *
+     * @param args CSV trace and binary trace
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: PacketTraceWriter <trace.csv> <trace.bin>");
+            System.exit(1);
+        }
+        try (PacketTraceReader reader = new PacketTraceReader(Paths.get(args[0]), PacketTraceReader.Format.CSV, 64 << 20);
+             PacketTraceWriter writer = new PacketTraceWriter(Paths.get(args[1]))) {
+            while (reader.next()) {
+                writer.write(reader.getTimestamp(), reader.getDevice(), reader.getDataType(), reader.getSize());
+            }
+        }
+    }
+}
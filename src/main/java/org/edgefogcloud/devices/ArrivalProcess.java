@@ -0,0 +1,331 @@
+package org.edgefogcloud.devices;
+
+import org.edgefogcloud.utils.ConfigManager;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Times the packet emissions of a device.
+ * Each arrival is drawn directly from the inverse CDF of the time to the next one, so a device
+ * costs one draw per packet whatever its rate, and may emit several packets within a second.
+ * Every process averages the device's configured rate in the long run:
+ * <ul>
+ * <li>{@code DETERMINISTIC}: one packet every 1/rate seconds, starting at time 0</li>
+ * <li>{@code POISSON}: exponential inter-arrival times</li>
+ * <li>{@code MMPP}: Poisson arrivals modulated by a two-state Markov chain alternating
+ *     between a quiet and a bursty rate</li>
+ * <li>{@code DIURNAL}: Poisson arrivals whose rate follows a daily cosine</li>
+ * <li>{@code ON_OFF}: Poisson arrivals during Pareto-distributed ON periods separated by
+ *     Pareto-distributed OFF periods; aggregated over many devices, the heavy tails make the
+ *     traffic self-similar</li>
+ * </ul>
+ * Processes draw from a random generator owned, and checkpointed, by their caller, and draw
+ * nothing until their first arrival is requested.
+ */
+public abstract class ArrivalProcess {
+    protected final double rate; // packets per second
+    protected final Random random;
+
+    protected ArrivalProcess(double rate, Random random) {
+        this.rate = rate;
+        this.random = random;
+    }
+
+    /**
+     * Creates the configured arrival process of a device
+     *
+     * @param rate Average packets per second
+     * @param configManager Configuration of the process
+     * @param random Random generator the process draws from
+     * @return A new process
+     */
+    public static ArrivalProcess create(double rate, ConfigManager configManager, Random random) {
+        switch (configManager.getArrivalProcess()) {
+            case "POISSON":
+                return new Poisson(rate, random);
+            case "MMPP":
+                return new Mmpp(rate, random, configManager.getMmppBurstRatio(), configManager.getMmppBurstFraction(),
+                        configManager.getMmppMeanBurstDuration());
+            case "DIURNAL":
+                return new Diurnal(rate, random, configManager.getDiurnalAmplitude(), configManager.getDiurnalPeriod(),
+                        configManager.getDiurnalPeakTime());
+            case "ON_OFF":
+                return new OnOff(rate, random, configManager.getOnOffShape(), configManager.getOnOffMeanOnTime(),
+                        configManager.getOnOffMeanOffTime());
+            default:
+                return new Deterministic(rate, random);
+        }
+    }
+
+    /**
+     * Whether the process keeps state between arrivals, so that every device needs an instance
+     * of its own; processes without it are shared by the devices of a type
+     */
+    public boolean hasDeviceState() {
+        return false;
+    }
+
+    /**
+     * Time of the first arrival
+     */
+    public double firstArrivalTime() {
+        return nextArrivalTime(0.0);
+    }
+
+    /**
+     * Draws the time of the arrival following one at the given time
+     *
+     * @param time Time of the previous arrival (in seconds)
+     * @return Time of the next arrival, after the given one
+     */
+    public abstract double nextArrivalTime(double time);
+
+    /**
+     * Draws an exponential duration by inversion
+     */
+    protected double exponential(double mean) {
+        return -mean * Math.log(1.0 - random.nextDouble());
+    }
+
+    /**
+     * Writes the process state, without its random generator, for a checkpoint
+     *
+     * @param out Checkpoint stream
+     * @throws IOException If the state cannot be written
+     */
+    public void saveState(DataOutput out) throws IOException {
+    }
+
+    /**
+     * Restores the process state from a checkpoint
+     *
+     * @param in Checkpoint stream
+     * @throws IOException If the state cannot be read
+     */
+    public void restoreState(DataInput in) throws IOException {
+    }
+
+    static final class Deterministic extends ArrivalProcess {
+        Deterministic(double rate, Random random) {
+            super(rate, random);
+        }
+
+        @Override
+        public double firstArrivalTime() {
+            return 0.0;
+        }
+
+        @Override
+        public double nextArrivalTime(double time) {
+            return time + 1.0 / rate;
+        }
+    }
+
+    static final class Poisson extends ArrivalProcess {
+        Poisson(double rate, Random random) {
+            super(rate, random);
+        }
+
+        @Override
+        public double nextArrivalTime(double time) {
+            return time + exponential(1.0 / rate);
+        }
+    }
+
+    /**
+     * Two-state Markov-modulated Poisson process. The state sojourns are exponential, so the
+     * time left in the current state is kept between arrivals rather than redrawn.
+     */
+    static final class Mmpp extends ArrivalProcess {
+        private final double[] stateRates; // quiet, bursty
+        private final double[] meanSojourns;
+        private int state;
+        private double sojournLeft;
+
+        /**
+         * @param burstRatio Bursty rate over quiet rate
+         * @param burstFraction Long-run share of the time spent bursting
+         * @param meanBurstDuration Mean length of a burst (in seconds)
+         */
+        Mmpp(double rate, Random random, double burstRatio, double burstFraction, double meanBurstDuration) {
+            super(rate, random);
+            double quietRate = rate / (1.0 - burstFraction + burstFraction * burstRatio);
+            this.stateRates = new double[] {quietRate, quietRate * burstRatio};
+            this.meanSojourns = new double[] {meanBurstDuration * (1.0 - burstFraction) / burstFraction, meanBurstDuration};
+        }
+
+        @Override
+        public boolean hasDeviceState() {
+            return true;
+        }
+
+        @Override
+        public double firstArrivalTime() {
+            // Starts in the stationary distribution of the chain
+            state = random.nextDouble() < meanSojourns[1] / (meanSojourns[0] + meanSojourns[1]) ? 1 : 0;
+            sojournLeft = exponential(meanSojourns[state]);
+            return nextArrivalTime(0.0);
+        }
+
+        @Override
+        public double nextArrivalTime(double time) {
+            while (true) {
+                double interArrival = exponential(1.0 / stateRates[state]);
+                if (interArrival < sojournLeft) {
+                    sojournLeft -= interArrival;
+                    return time + interArrival;
+                }
+                // No arrival before the switch; arrivals are memoryless, so draw again in the next state
+                time += sojournLeft;
+                state = 1 - state;
+                sojournLeft = exponential(meanSojourns[state]);
+            }
+        }
+
+        @Override
+        public void saveState(DataOutput out) throws IOException {
+            super.saveState(out);
+            out.writeInt(state);
+            out.writeDouble(sojournLeft);
+        }
+
+        @Override
+        public void restoreState(DataInput in) throws IOException {
+            super.restoreState(in);
+            state = in.readInt();
+            sojournLeft = in.readDouble();
+        }
+    }
+
+    /**
+     * Non-homogeneous Poisson process with rate {@code rate * (1 + amplitude * cos(2pi (t - peak) / period))}.
+     * The next arrival solves {@code Lambda(t, t + x) = E} for an exponential E, where Lambda is
+     * the integrated rate, by Newton's method kept within the bracket given by the rate bounds.
+     */
+    static final class Diurnal extends ArrivalProcess {
+        private static final int MAX_ITERATIONS = 50;
+        private static final double TOLERANCE = 1e-9;
+
+        private final double amplitude;
+        private final double period; // in seconds
+        private final double peakTime; // in seconds
+        private final double angularFrequency;
+
+        Diurnal(double rate, Random random, double amplitude, double period, double peakTime) {
+            super(rate, random);
+            this.amplitude = Math.min(Math.max(amplitude, 0.0), 0.99);
+            this.period = period;
+            this.peakTime = peakTime;
+            this.angularFrequency = 2.0 * Math.PI / period;
+        }
+
+        private double rateAt(double time) {
+            return rate * (1.0 + amplitude * Math.cos(angularFrequency * (time - peakTime)));
+        }
+
+        private double integratedRate(double from, double to) {
+            return rate * (to - from + amplitude / angularFrequency
+                    * (Math.sin(angularFrequency * (to - peakTime)) - Math.sin(angularFrequency * (from - peakTime))));
+        }
+
+        @Override
+        public double nextArrivalTime(double time) {
+            double target = exponential(1.0);
+            double low = target / (rate * (1.0 + amplitude));
+            double high = target / (rate * (1.0 - amplitude));
+            double x = target / rateAt(time);
+            x = Math.min(Math.max(x, low), high);
+            for (int i = 0; i < MAX_ITERATIONS; i++) {
+                double error = integratedRate(time, time + x) - target;
+                if (Math.abs(error) < TOLERANCE * target) {
+                    break;
+                }
+                if (error > 0) {
+                    high = x;
+                } else {
+                    low = x;
+                }
+                double next = x - error / rateAt(time + x);
+                // Fall back to bisection when Newton leaves the bracket
+                x = next > low && next < high ? next : (low + high) / 2.0;
+            }
+            return time + x;
+        }
+    }
+
+    /**
+     * ON/OFF source with Pareto-distributed periods, drawn by inversion as {@code xm / U^(1/shape)}
+     */
+    static final class OnOff extends ArrivalProcess {
+        private final double shape;
+        private final double onScale;
+        private final double offScale;
+        private final double onRate;
+        private final double onFraction;
+        private boolean on;
+        private double periodLeft;
+
+        /**
+         * @param shape Pareto shape, between 1 and 2 for self-similar traffic
+         * @param meanOnTime Mean ON period (in seconds)
+         * @param meanOffTime Mean OFF period (in seconds)
+         */
+        OnOff(double rate, Random random, double shape, double meanOnTime, double meanOffTime) {
+            super(rate, random);
+            this.shape = Math.max(shape, 1.01);
+            this.onScale = meanOnTime * (this.shape - 1.0) / this.shape;
+            this.offScale = meanOffTime * (this.shape - 1.0) / this.shape;
+            this.onRate = rate * (meanOnTime + meanOffTime) / meanOnTime;
+            this.onFraction = meanOnTime / (meanOnTime + meanOffTime);
+        }
+
+        @Override
+        public boolean hasDeviceState() {
+            return true;
+        }
+
+        @Override
+        public double firstArrivalTime() {
+            on = random.nextDouble() < onFraction;
+            periodLeft = pareto(on ? onScale : offScale);
+            return nextArrivalTime(0.0);
+        }
+
+        private double pareto(double scale) {
+            return scale / Math.pow(1.0 - random.nextDouble(), 1.0 / shape);
+        }
+
+        @Override
+        public double nextArrivalTime(double time) {
+            while (true) {
+                if (on) {
+                    double interArrival = exponential(1.0 / onRate);
+                    if (interArrival < periodLeft) {
+                        periodLeft -= interArrival;
+                        return time + interArrival;
+                    }
+                }
+                time += periodLeft;
+                on = !on;
+                periodLeft = pareto(on ? onScale : offScale);
+            }
+        }
+
+        @Override
+        public void saveState(DataOutput out) throws IOException {
+            super.saveState(out);
+            out.writeBoolean(on);
+            out.writeDouble(periodLeft);
+        }
+
+        @Override
+        public void restoreState(DataInput in) throws IOException {
+            super.restoreState(in);
+            on = in.readBoolean();
+            periodLeft = in.readDouble();
+        }
+    }
+}
@@ -0,0 +1,902 @@
+package org.edgefogcloud.devices;
+
+import org.edgefogcloud.data.DataGenerator;
+import org.edgefogcloud.utils.CheckpointStreams;
+import org.edgefogcloud.utils.ConfigManager;
+import org.edgefogcloud.utils.IndexedMinHeap;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.logging.Logger;
+
+/**
+ * Mutable state of a population of IoT devices, stored column by column in primitive arrays
+ * indexed by device, so that a device costs a few dozen bytes and millions of devices fit in the heap.
+ * {@link IoTDevice} objects are thin handles on a slot of the population, and everything shared by
+ * the devices of a type (their {@link DeviceProfile}, data generator and, for processes without
+ * per-device state, arrival process) exists once per population.
+ * <p>
+ * The population also runs the devices' lifecycle (see {@link DeviceState}). Devices that stop
+ * emitting leave a bitset of active devices and their counters are folded into running totals,
+ * so per-step aggregation only iterates the active devices. Timed transitions (recharged battery,
+ * leaving and rejoining the network) wait in a queue ordered by time and are applied as the clock
+ * reaches them, so offline devices cost nothing in between. Likewise, the energy harvested and
+ * drawn while idle under the {@link EnergyModel} is integrated in closed form when a device has
+ * an event, not at every step.
+ * <p>
+ * A population, like its devices, is used by a single thread.
+ */
+public class DevicePopulation {
+    private static final Logger LOGGER = Logger.getLogger(DevicePopulation.class.getName());
+    private static final DeviceState[] STATES = DeviceState.values();
+
+    private final ConfigManager configManager;
+    private final double wirelessBaseLatency; // in ms
+    private final double wirelessBandwidth; // in bytes per ms
+    private final boolean perDeviceArrivals;
+    private Random random;
+    private Map<DeviceProfile, DataGenerator> dataGenerators;
+    private Map<DeviceProfile, ArrivalProcess> sharedArrivalProcesses;
+
+    // Lifecycle parameters
+    private final double lowPowerThreshold; // share of battery capacity
+    private final double lowPowerDutyCycle;
+    private final double rechargeTime; // in seconds, 0: never recharged
+    private final double meanSession; // in seconds, 0: no churn
+    private final double meanAbsence; // in seconds
+    private final EnergyModel energyModel;
+
+    private int size;
+    private DeviceProfile[] profiles;
+    private double[] batteryLevels; // in mAh
+    private int[] packetsGenerated;
+    private int[] packetsTransmitted;
+    private double[] energyConsumed; // in mWh
+    private double[] latencySums; // in ms
+    private double[] nextGenerationTimes; // in seconds
+    private double[] attachTimes; // end of the last handover between edge nodes, in seconds
+    private ArrivalProcess[] arrivalProcesses; // only for processes with per-device state
+
+    // Lifecycle state, by device index
+    private byte[] states;
+    private double[] stateSince; // time the device went offline, in seconds
+    private double[] offlineUntil; // end of the pending or current offline period, in seconds
+    private double[] leaveTimes; // end of the current session, in seconds
+    private double[] energySettledAt; // time up to which harvesting and idle drain are accounted, in seconds
+    private final BitSet active;
+    private final IndexedMinHeap transitions; // pending transition time by device
+    private final int[] stateCounts;
+    private final Totals inactiveTotals;
+    private final Map<String, double[]> lostSecondsByType; // by state
+    private final Map<String, TypeEnergy> energyByType;
+    private long packetsDropped;
+    private long packetsDelayedByHandover;
+    private double time;
+    private double finishTime;
+
+    /**
+     * Creates an empty population
+     *
+     * @param configManager Configuration of the wireless link, the arrival processes and the lifecycle
+     * @param expectedSize Number of devices expected, to size the arrays
+     */
+    public DevicePopulation(ConfigManager configManager, int expectedSize) {
+        this.configManager = configManager;
+        this.wirelessBaseLatency = configManager.getWirelessBaseLatency();
+        this.wirelessBandwidth = configManager.getWirelessBandwidth();
+        this.random = configManager.createRandom("devices");
+        this.perDeviceArrivals = ArrivalProcess.create(1.0, configManager, random).hasDeviceState();
+        createSharedState();
+
+        this.lowPowerThreshold = configManager.getLowPowerThreshold();
+        this.lowPowerDutyCycle = Math.min(Math.max(configManager.getLowPowerDutyCycle(), 0.01), 1.0);
+        this.rechargeTime = configManager.getRechargeTime();
+        this.meanSession = configManager.getChurnMeanSession();
+        this.meanAbsence = configManager.getChurnMeanAbsence();
+        this.energyModel = new EnergyModel(configManager);
+
+        int capacity = Math.max(1, expectedSize);
+        this.profiles = new DeviceProfile[capacity];
+        this.batteryLevels = new double[capacity];
+        this.packetsGenerated = new int[capacity];
+        this.packetsTransmitted = new int[capacity];
+        this.energyConsumed = new double[capacity];
+        this.latencySums = new double[capacity];
+        this.nextGenerationTimes = new double[capacity];
+        this.attachTimes = new double[capacity];
+        this.arrivalProcesses = perDeviceArrivals ? new ArrivalProcess[capacity] : null;
+        this.states = new byte[capacity];
+        this.stateSince = new double[capacity];
+        this.offlineUntil = new double[capacity];
+        this.leaveTimes = new double[capacity];
+        this.energySettledAt = new double[capacity];
+        this.active = new BitSet(capacity);
+        this.transitions = new IndexedMinHeap(capacity);
+        this.stateCounts = new int[STATES.length];
+        this.inactiveTotals = new Totals();
+        this.lostSecondsByType = new LinkedHashMap<>();
+        this.energyByType = new LinkedHashMap<>();
+    }
+
+    private void createSharedState() {
+        dataGenerators = new IdentityHashMap<>();
+        sharedArrivalProcesses = new IdentityHashMap<>();
+    }
+
+    /**
+     * Creates a device of a random type
+     *
+     * @param deviceId The device's ID
+     * @return A new device
+     */
+    public IoTDevice createDevice(String deviceId) {
+        return createDevice(deviceId, DeviceProfile.of(configManager.getRandomIoTDeviceType()));
+    }
+
+    /**
+     * Creates a device
+     *
+     * @param deviceId The device's ID
+     * @param profile The characteristics of its type
+     * @return A new device
+     */
+    public IoTDevice createDevice(String deviceId, DeviceProfile profile) {
+        return new IoTDevice(deviceId, this, allocate(profile));
+    }
+
+    /**
+     * Takes the next slot of the population for an active device of the given type
+     *
+     * @return Index of the slot
+     */
+    int allocate(DeviceProfile profile) {
+        if (size == profiles.length) {
+            grow();
+        }
+        int index = size++;
+        states[index] = (byte) DeviceState.ACTIVE.ordinal();
+        stateCounts[DeviceState.ACTIVE.ordinal()]++;
+        active.set(index);
+        reset(index, profile);
+        return index;
+    }
+
+    private void grow() {
+        int capacity = profiles.length * 2;
+        profiles = Arrays.copyOf(profiles, capacity);
+        batteryLevels = Arrays.copyOf(batteryLevels, capacity);
+        packetsGenerated = Arrays.copyOf(packetsGenerated, capacity);
+        packetsTransmitted = Arrays.copyOf(packetsTransmitted, capacity);
+        energyConsumed = Arrays.copyOf(energyConsumed, capacity);
+        latencySums = Arrays.copyOf(latencySums, capacity);
+        nextGenerationTimes = Arrays.copyOf(nextGenerationTimes, capacity);
+        attachTimes = Arrays.copyOf(attachTimes, capacity);
+        if (arrivalProcesses != null) {
+            arrivalProcesses = Arrays.copyOf(arrivalProcesses, capacity);
+        }
+        states = Arrays.copyOf(states, capacity);
+        stateSince = Arrays.copyOf(stateSince, capacity);
+        offlineUntil = Arrays.copyOf(offlineUntil, capacity);
+        leaveTimes = Arrays.copyOf(leaveTimes, capacity);
+        energySettledAt = Arrays.copyOf(energySettledAt, capacity);
+        transitions.grow(capacity);
+        LOGGER.fine("Device population grown to " + capacity + " devices");
+    }
+
+    /**
+     * Gives an active device its type and a fresh state: full battery, no packets
+     */
+    void reset(int index, DeviceProfile profile) {
+        profiles[index] = profile;
+        batteryLevels[index] = profile.getBatteryCapacity();
+        packetsGenerated[index] = 0;
+        packetsTransmitted[index] = 0;
+        energyConsumed[index] = 0.0;
+        latencySums[index] = 0.0;
+        attachTimes[index] = 0.0;
+        if (arrivalProcesses != null) {
+            arrivalProcesses[index] = ArrivalProcess.create(profile.getDataGenerationRate(), configManager, random);
+        }
+        nextGenerationTimes[index] = getArrivalProcess(index).firstArrivalTime();
+        leaveTimes[index] = meanSession > 0 ? exponential(meanSession) : Double.POSITIVE_INFINITY;
+        energySettledAt[index] = time;
+    }
+
+    DataGenerator getDataGenerator(int index) {
+        return dataGenerators.computeIfAbsent(profiles[index], profile -> new DataGenerator(profile, random));
+    }
+
+    ArrivalProcess getArrivalProcess(int index) {
+        if (arrivalProcesses != null) {
+            return arrivalProcesses[index];
+        }
+        return sharedArrivalProcesses.computeIfAbsent(profiles[index],
+                profile -> ArrivalProcess.create(profile.getDataGenerationRate(), configManager, random));
+    }
+
+    private double exponential(double mean) {
+        return -mean * Math.log(1.0 - random.nextDouble());
+    }
+
+    /**
+     * Draws the time of a device's next emission, taking its lifecycle into account: low-power
+     * devices emit less often, recharging devices emit again once recharged, a device whose
+     * session ends before the emission leaves the network and emits again after rejoining,
+     * and packets due while a device sleeps are lost
+     *
+     * @param index The device
+     * @param emissionTime Time of the previous emission (in seconds)
+     * @return Emission time in seconds, infinite once the device never emits again
+     */
+    double nextEmissionTime(int index, double emissionTime) {
+        DeviceState state = getState(index);
+        if (state == DeviceState.DEPLETED) {
+            return Double.POSITIVE_INFINITY;
+        }
+        ArrivalProcess arrivalProcess = getArrivalProcess(index);
+        if (!state.isEmitting()) {
+            double resumeTime = offlineUntil[index];
+            if (state == DeviceState.RECHARGING) {
+                // The session clock stops while the battery recharges
+                leaveTimes[index] += resumeTime - stateSince[index];
+            }
+            return skipSleep(index, arrivalProcess.nextArrivalTime(resumeTime));
+        }
+
+        double next = arrivalProcess.nextArrivalTime(emissionTime);
+        if (state == DeviceState.LOW_POWER) {
+            next = emissionTime + (next - emissionTime) / lowPowerDutyCycle;
+        }
+        if (next >= leaveTimes[index]) {
+            // Sessions shorter than the gap between two emissions end at the previous emission
+            double leaveTime = Math.max(leaveTimes[index], emissionTime);
+            double rejoinTime = leaveTime + exponential(meanAbsence);
+            offlineUntil[index] = rejoinTime;
+            leaveTimes[index] = rejoinTime + exponential(meanSession);
+            transitions.schedule(index, leaveTime);
+            next = arrivalProcess.nextArrivalTime(rejoinTime);
+        }
+        return skipSleep(index, next);
+    }
+
+    /**
+     * Moves an emission due while the device sleeps to its first arrival once awake,
+     * counting the packets it would have sent meanwhile as lost
+     */
+    private double skipSleep(int index, double next) {
+        DeviceProfile profile = profiles[index];
+        if (!energyModel.sleeps(profile)) {
+            return next;
+        }
+        double rate = profile.getDataGenerationRate();
+        if (getState(index) == DeviceState.LOW_POWER) {
+            rate *= lowPowerDutyCycle;
+        }
+        while (next < Double.POSITIVE_INFINITY && !energyModel.isAwake(next, index)) {
+            double wakeTime = energyModel.wakeTime(next, index);
+            getTypeEnergy(profile).packetsSlept += 1 + (long) ((wakeTime - next) * rate);
+            next = getArrivalProcess(index).nextArrivalTime(wakeTime);
+        }
+        return next;
+    }
+
+    /**
+     * Whether a device emits at the given time, as far as its current state tells
+     */
+    boolean isEmittingAt(int index, double time) {
+        DeviceState state = getState(index);
+        boolean online = state.isEmitting() || (state != DeviceState.DEPLETED && offlineUntil[index] <= time);
+        return online && (!energyModel.sleeps(profiles[index]) || energyModel.isAwake(time, index));
+    }
+
+    /**
+     * Drains the battery of a device after a transmission, switching it to low power
+     * or taking it offline as its battery runs out
+     *
+     * @return false if the battery ran out
+     */
+    boolean drainBattery(int index, double energy) {
+        settleEnergy(index, time);
+        if (!getState(index).isEmitting()) {
+            // Ran out while idle
+            return false;
+        }
+        energyConsumed[index] += energy;
+        return updateBattery(index, batteryLevels[index] - energy, time);
+    }
+
+    /**
+     * Accounts the energy harvested and drawn while idle by a powered device since its last event
+     */
+    private void settleEnergy(int index, double currentTime) {
+        double from = energySettledAt[index];
+        if (currentTime <= from) {
+            return;
+        }
+        energySettledAt[index] = currentTime;
+        DeviceProfile profile = profiles[index];
+        DeviceState state = getState(index);
+        if (state == DeviceState.DEPLETED || state == DeviceState.RECHARGING || !energyModel.appliesTo(profile)) {
+            return;
+        }
+        double harvested = energyModel.harvestedEnergy(from, currentTime);
+        double idle = energyModel.idleEnergy(from, currentTime, index);
+        if (harvested == 0 && idle == 0) {
+            return;
+        }
+        TypeEnergy typeEnergy = getTypeEnergy(profile);
+        typeEnergy.harvested += harvested;
+        typeEnergy.idle += idle;
+        energyConsumed[index] += idle;
+        if (!state.isEmitting()) {
+            inactiveTotals.energyConsumed += idle;
+        }
+        updateBattery(index, batteryLevels[index] + harvested - idle, currentTime);
+    }
+
+    /**
+     * Sets the battery level of a powered device, switching its power mode
+     * or taking it offline once empty
+     *
+     * @return false if the battery ran out
+     */
+    private boolean updateBattery(int index, double level, double currentTime) {
+        double capacity = profiles[index].getBatteryCapacity();
+        if (level <= 0) {
+            batteryLevels[index] = 0;
+            takeOffline(index, currentTime);
+            return false;
+        }
+        batteryLevels[index] = Math.min(level, capacity);
+        boolean lowPower = level < lowPowerThreshold * capacity;
+        DeviceState state = getState(index);
+        if (state == DeviceState.ACTIVE && lowPower) {
+            setState(index, DeviceState.LOW_POWER, currentTime);
+        } else if (state == DeviceState.LOW_POWER && !lowPower) {
+            setState(index, DeviceState.ACTIVE, currentTime);
+        }
+        return true;
+    }
+
+    /**
+     * Stops a device whose battery ran out, until it has harvested enough energy
+     * or been recharged if it can be
+     */
+    private void takeOffline(int index, double currentTime) {
+        DeviceProfile profile = profiles[index];
+        if (energyModel.harvests(profile)) {
+            setState(index, DeviceState.RECHARGING, currentTime);
+            offlineUntil[index] = energyModel.harvestTime(currentTime,
+                    energyModel.getWakeLevel() * profile.getBatteryCapacity());
+            transitions.schedule(index, offlineUntil[index]);
+        } else if (rechargeTime > 0) {
+            setState(index, DeviceState.RECHARGING, currentTime);
+            offlineUntil[index] = currentTime + rechargeTime;
+            transitions.schedule(index, offlineUntil[index]);
+        } else {
+            setState(index, DeviceState.DEPLETED, currentTime);
+        }
+    }
+
+    /**
+     * Applies the timed transitions due up to the given time
+     *
+     * @param currentTime Simulation time (in seconds)
+     */
+    public void advanceTo(double currentTime) {
+        while (transitions.isDue(currentTime)) {
+            double transitionTime = transitions.peekTime();
+            int index = transitions.poll();
+            DeviceProfile profile = profiles[index];
+            if (getState(index) == DeviceState.RECHARGING) {
+                batteryLevels[index] = energyModel.harvests(profile)
+                        ? energyModel.getWakeLevel() * profile.getBatteryCapacity() : profile.getBatteryCapacity();
+                energySettledAt[index] = transitionTime;
+            } else {
+                settleEnergy(index, transitionTime);
+            }
+
+            DeviceState state = getState(index);
+            if (state.isEmitting()) {
+                // End of the session: offline until the rejoin drawn with the leave
+                setState(index, DeviceState.DETACHED, transitionTime);
+                transitions.schedule(index, offlineUntil[index]);
+            } else if (state != DeviceState.DEPLETED && !transitions.isScheduled(index)) {
+                // Recharged or rejoined, unless the battery ran out while detached
+                boolean lowPower = batteryLevels[index] < lowPowerThreshold * profile.getBatteryCapacity();
+                setState(index, lowPower ? DeviceState.LOW_POWER : DeviceState.ACTIVE, transitionTime);
+            }
+        }
+        time = Math.max(time, currentTime);
+    }
+
+    private void setState(int index, DeviceState state, double transitionTime) {
+        DeviceState previous = getState(index);
+        if (previous.isEmitting() && !state.isEmitting()) {
+            active.clear(index);
+            inactiveTotals.add(this, index, 1);
+        } else if (!previous.isEmitting()) {
+            addLostTime(index, previous, transitionTime - stateSince[index]);
+            if (state.isEmitting()) {
+                active.set(index);
+                inactiveTotals.add(this, index, -1);
+            }
+        }
+        if (!state.isEmitting()) {
+            stateSince[index] = transitionTime;
+        }
+        stateCounts[previous.ordinal()]--;
+        stateCounts[state.ordinal()]++;
+        states[index] = (byte) state.ordinal();
+    }
+
+    private void addLostTime(int index, DeviceState state, double seconds) {
+        lostSecondsByType.computeIfAbsent(profiles[index].getType(),
+                type -> new double[STATES.length])[state.ordinal()] += seconds;
+    }
+
+    private TypeEnergy getTypeEnergy(DeviceProfile profile) {
+        return energyByType.computeIfAbsent(profile.getType(), type -> new TypeEnergy());
+    }
+
+    /**
+     * Counts a packet released by a device that had gone offline
+     */
+    void dropPacket() {
+        packetsDropped++;
+    }
+
+    /**
+     * Starts the handover of a device to another edge node; its transmissions wait until it is attached
+     */
+    void startHandover(int index, double attachTime) {
+        attachTimes[index] = attachTime;
+    }
+
+    /**
+     * Delay of a transmission waiting for the device's handover to complete, counting the delayed packets
+     *
+     * @return Delay in ms
+     */
+    double takeHandoverDelay(int index) {
+        double delay = attachTimes[index] - time;
+        if (delay <= 0) {
+            return 0.0;
+        }
+        packetsDelayedByHandover++;
+        return delay * 1000.0;
+    }
+
+    // Per-device state, by device index
+    DeviceProfile getProfile(int index) {
+        return profiles[index];
+    }
+
+    DeviceState getState(int index) {
+        return STATES[states[index]];
+    }
+
+    double getBatteryLevel(int index) {
+        return batteryLevels[index];
+    }
+
+    int getPacketsGenerated(int index) {
+        return packetsGenerated[index];
+    }
+
+    void incrementPacketsGenerated(int index) {
+        packetsGenerated[index]++;
+    }
+
+    int getPacketsTransmitted(int index) {
+        return packetsTransmitted[index];
+    }
+
+    void recordTransmission(int index, double latency) {
+        packetsTransmitted[index]++;
+        latencySums[index] += latency;
+    }
+
+    double getEnergyConsumed(int index) {
+        return energyConsumed[index];
+    }
+
+    double getLatencySum(int index) {
+        return latencySums[index];
+    }
+
+    double getNextGenerationTime(int index) {
+        return nextGenerationTimes[index];
+    }
+
+    void setNextGenerationTime(int index, double time) {
+        nextGenerationTimes[index] = time;
+    }
+
+    double getWirelessBaseLatency() {
+        return wirelessBaseLatency;
+    }
+
+    double getWirelessBandwidth() {
+        return wirelessBandwidth;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Number of devices currently emitting, i.e. active or in low power
+     */
+    public int getActiveDeviceCount() {
+        return active.cardinality();
+    }
+
+    /**
+     * Index of the next emitting device
+     *
+     * @param fromIndex First index checked
+     * @return The device index, -1 if no emitting device follows
+     */
+    public int nextActiveDevice(int fromIndex) {
+        int index = active.nextSetBit(fromIndex);
+        return index < size ? index : -1;
+    }
+
+    /**
+     * Number of devices in a lifecycle state
+     */
+    public int getDeviceCount(DeviceState state) {
+        return stateCounts[state.ordinal()];
+    }
+
+    /**
+     * Number of packets dropped because their device had gone offline when they were released
+     */
+    public long getPacketsDropped() {
+        return packetsDropped;
+    }
+
+    /**
+     * Number of packets transmitted while their device was handed over between edge nodes
+     */
+    public long getPacketsDelayedByHandover() {
+        return packetsDelayedByHandover;
+    }
+
+    /**
+     * Sums the counters of every device. Only the emitting devices are iterated; the others
+     * contribute the totals they had when they went offline.
+     *
+     * @return A new snapshot of the totals
+     */
+    public Totals getTotals() {
+        Totals totals = new Totals();
+        totals.addAll(inactiveTotals);
+        for (int index = nextActiveDevice(0); index >= 0; index = nextActiveDevice(index + 1)) {
+            totals.add(this, index, 1);
+        }
+        return totals;
+    }
+
+    /**
+     * Device-hours lost to each offline state, by device type
+     *
+     * @return Hours indexed by {@link DeviceState#ordinal()}, by device type
+     */
+    public Map<String, double[]> getDeviceHoursLost() {
+        Map<String, double[]> hours = new LinkedHashMap<>();
+        for (Map.Entry<String, double[]> entry : lostSecondsByType.entrySet()) {
+            double[] byState = entry.getValue().clone();
+            for (int i = 0; i < byState.length; i++) {
+                byState[i] /= 3600.0;
+            }
+            hours.put(entry.getKey(), byState);
+        }
+        return hours;
+    }
+
+    /**
+     * Applies the transitions due by the end of the run and accounts the offline periods still
+     * open at that time, e.g. of devices depleted for good
+     *
+     * @param endTime End of the simulated period (in seconds)
+     */
+    public void finish(double endTime) {
+        advanceTo(endTime);
+        for (int index = 0; index < size; index++) {
+            settleEnergy(index, endTime);
+        }
+        finishTime = endTime;
+        for (int index = active.nextClearBit(0); index < size; index = active.nextClearBit(index + 1)) {
+            if (stateSince[index] < endTime) {
+                addLostTime(index, getState(index), endTime - stateSince[index]);
+                stateSince[index] = endTime;
+            }
+        }
+    }
+
+    /**
+     * Displays the lifecycle states of the devices and the device-hours lost by type
+     */
+    public void displayLifecycleReport() {
+        System.out.println("\n=== Device Lifecycle ===");
+        for (DeviceState state : STATES) {
+            System.out.printf("%s: %d devices\n", state, getDeviceCount(state));
+        }
+        System.out.println("Packets dropped by offline devices: " + packetsDropped);
+
+        System.out.println("Type | Device-Hours Lost | Depleted | Recharging | Detached");
+        for (Map.Entry<String, double[]> entry : getDeviceHoursLost().entrySet()) {
+            double[] hours = entry.getValue();
+            double depleted = hours[DeviceState.DEPLETED.ordinal()];
+            double recharging = hours[DeviceState.RECHARGING.ordinal()];
+            double detached = hours[DeviceState.DETACHED.ordinal()];
+            System.out.printf("%s | %.2f | %.2f | %.2f | %.2f\n",
+                    entry.getKey(), depleted + recharging + detached, depleted, recharging, detached);
+        }
+    }
+
+    /**
+     * Displays, by device type, the uptime, the packets lost while asleep, the energy harvested
+     * and drawn while idle, the battery lifetime projected from the consumption of the run, and
+     * the emission interval at which the harvest would cover the consumption
+     */
+    public void displayEnergyReport() {
+        Map<String, double[]> byType = new LinkedHashMap<>(); // devices, battery, consumed, transmitted
+        for (int index = 0; index < size; index++) {
+            double[] sums = byType.computeIfAbsent(profiles[index].getType(), type -> new double[4]);
+            sums[0]++;
+            sums[1] += profiles[index].getBatteryCapacity();
+            sums[2] += energyConsumed[index];
+            sums[3] += packetsTransmitted[index];
+        }
+
+        System.out.println("\n=== Device Energy ===");
+        System.out.println("Type | Uptime | Packets Lost to Sleep | Harvested | Idle Drain | Full-Battery Lifetime | Energy-Neutral Interval");
+        for (Map.Entry<String, double[]> entry : byType.entrySet()) {
+            double[] sums = entry.getValue();
+            double deviceSeconds = sums[0] * finishTime;
+            TypeEnergy typeEnergy = energyByType.getOrDefault(entry.getKey(), new TypeEnergy());
+            double[] lostSeconds = lostSecondsByType.get(entry.getKey());
+            double lost = lostSeconds == null ? 0.0 : Arrays.stream(lostSeconds).sum();
+            double uptime = deviceSeconds > 0 ? 1.0 - lost / deviceSeconds : 1.0;
+
+            // Rates per device, in mWh per second
+            double netDrain = deviceSeconds > 0 ? (sums[2] - typeEnergy.harvested) / deviceSeconds : 0.0;
+            double harvestRate = deviceSeconds > 0 ? typeEnergy.harvested / deviceSeconds : 0.0;
+            double idleRate = deviceSeconds > 0 ? typeEnergy.idle / deviceSeconds : 0.0;
+            double packetEnergy = sums[3] > 0 ? (sums[2] - typeEnergy.idle) / sums[3] : 0.0;
+            String lifetime = netDrain > 0
+                    ? String.format("%.2f days", sums[1] / sums[0] / netDrain / 86400.0) : "energy-neutral";
+            String neutralInterval = harvestRate > 0 && harvestRate > idleRate && packetEnergy > 0
+                    ? String.format("%.2f s", packetEnergy / (harvestRate - idleRate)) : "n/a";
+            System.out.printf("%s | %.2f%% | %d | %.3f mWh | %.3f mWh | %s | %s\n", entry.getKey(), uptime * 100,
+                    typeEnergy.packetsSlept, typeEnergy.harvested, typeEnergy.idle, lifetime, neutralInterval);
+        }
+    }
+
+    /**
+     * Writes the state of one device for a checkpoint
+     */
+    void saveDeviceState(DataOutput out, int index) throws IOException {
+        out.writeUTF(profiles[index].getType());
+        out.writeDouble(batteryLevels[index]);
+        out.writeInt(packetsGenerated[index]);
+        out.writeInt(packetsTransmitted[index]);
+        out.writeDouble(energyConsumed[index]);
+        out.writeDouble(latencySums[index]);
+        out.writeDouble(nextGenerationTimes[index]);
+        out.writeDouble(attachTimes[index]);
+        if (arrivalProcesses != null) {
+            arrivalProcesses[index].saveState(out);
+        }
+        out.writeByte(states[index]);
+        out.writeDouble(stateSince[index]);
+        out.writeDouble(offlineUntil[index]);
+        out.writeDouble(leaveTimes[index]);
+        out.writeDouble(energySettledAt[index]);
+        out.writeDouble(transitions.getTime(index));
+    }
+
+    /**
+     * Restores the state of one device from a checkpoint.
+     * The shared state must have been restored by {@link #restoreState(DataInput)} beforehand.
+     */
+    void restoreDeviceState(DataInput in, int index) throws IOException {
+        profiles[index] = DeviceProfile.of(in.readUTF());
+        batteryLevels[index] = in.readDouble();
+        packetsGenerated[index] = in.readInt();
+        packetsTransmitted[index] = in.readInt();
+        energyConsumed[index] = in.readDouble();
+        latencySums[index] = in.readDouble();
+        nextGenerationTimes[index] = in.readDouble();
+        attachTimes[index] = in.readDouble();
+        if (arrivalProcesses != null) {
+            arrivalProcesses[index] = ArrivalProcess.create(profiles[index].getDataGenerationRate(), configManager, random);
+            arrivalProcesses[index].restoreState(in);
+        }
+
+        stateCounts[states[index]]--;
+        states[index] = in.readByte();
+        stateCounts[states[index]]++;
+        stateSince[index] = in.readDouble();
+        offlineUntil[index] = in.readDouble();
+        leaveTimes[index] = in.readDouble();
+        energySettledAt[index] = in.readDouble();
+        double transitionTime = in.readDouble();
+        if (transitionTime < Double.POSITIVE_INFINITY) {
+            transitions.schedule(index, transitionTime);
+        }
+        if (getState(index).isEmitting()) {
+            active.set(index);
+        } else {
+            active.clear(index);
+            inactiveTotals.add(this, index, 1);
+        }
+    }
+
+    /**
+     * Writes the state shared by the devices (the random generator of their packets and arrivals,
+     * and the lifecycle statistics) for a checkpoint; the devices' own state is written by
+     * {@link IoTDevice#saveState(DataOutput)}
+     *
+     * @param out Checkpoint stream
+     * @throws IOException If the state cannot be written
+     */
+    public void saveState(DataOutput out) throws IOException {
+        CheckpointStreams.writeRandom(out, random);
+        out.writeBoolean(perDeviceArrivals);
+        out.writeDouble(time);
+        out.writeLong(packetsDropped);
+        out.writeLong(packetsDelayedByHandover);
+        out.writeInt(lostSecondsByType.size());
+        for (Map.Entry<String, double[]> entry : lostSecondsByType.entrySet()) {
+            out.writeUTF(entry.getKey());
+            for (double seconds : entry.getValue()) {
+                out.writeDouble(seconds);
+            }
+        }
+        out.writeInt(energyByType.size());
+        for (Map.Entry<String, TypeEnergy> entry : energyByType.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeDouble(entry.getValue().harvested);
+            out.writeDouble(entry.getValue().idle);
+            out.writeLong(entry.getValue().packetsSlept);
+        }
+    }
+
+    /**
+     * Restores the state shared by the devices from a checkpoint.
+     * Must be called before the devices restore their own state.
+     *
+     * @param in Checkpoint stream
+     * @throws IOException If the state cannot be read or was saved with another kind of arrival process
+     */
+    public void restoreState(DataInput in) throws IOException {
+        random = CheckpointStreams.readRandom(in);
+        if (in.readBoolean() != perDeviceArrivals) {
+            throw new IOException("Checkpoint was taken with another arrival process");
+        }
+        // Shared generators and processes are recreated on the restored random generator
+        createSharedState();
+
+        time = in.readDouble();
+        packetsDropped = in.readLong();
+        packetsDelayedByHandover = in.readLong();
+        lostSecondsByType.clear();
+        int types = in.readInt();
+        for (int i = 0; i < types; i++) {
+            String type = in.readUTF();
+            double[] seconds = new double[STATES.length];
+            for (int j = 0; j < seconds.length; j++) {
+                seconds[j] = in.readDouble();
+            }
+            lostSecondsByType.put(type, seconds);
+        }
+        energyByType.clear();
+        types = in.readInt();
+        for (int i = 0; i < types; i++) {
+            TypeEnergy typeEnergy = new TypeEnergy();
+            energyByType.put(in.readUTF(), typeEnergy);
+            typeEnergy.harvested = in.readDouble();
+            typeEnergy.idle = in.readDouble();
+            typeEnergy.packetsSlept = in.readLong();
+        }
+        // Rebuilt as the devices restore their state
+        transitions.clear();
+        inactiveTotals.clear();
+    }
+
+    /**
+     * Counters summed over devices
+     */
+    public static final class Totals {
+        private double energyConsumed; // in mWh
+        private long packetsGenerated;
+        private long packetsTransmitted;
+        private double averageLatencySum; // in ms
+        private int transmittingDevices;
+
+        /**
+         * Sums the counters of a list of devices
+         *
+         * @param devices The devices, possibly of several populations
+         * @return The totals
+         */
+        public static Totals of(List<IoTDevice> devices) {
+            Totals totals = new Totals();
+            for (IoTDevice device : devices) {
+                totals.add(device.getPopulation(), device.getIndex(), 1);
+            }
+            return totals;
+        }
+
+        void add(DevicePopulation population, int index, int sign) {
+            energyConsumed += sign * population.energyConsumed[index];
+            packetsGenerated += sign * population.packetsGenerated[index];
+            int transmitted = population.packetsTransmitted[index];
+            packetsTransmitted += sign * transmitted;
+            if (transmitted > 0) {
+                averageLatencySum += sign * population.latencySums[index] / transmitted;
+                transmittingDevices += sign;
+            }
+        }
+
+        void addAll(Totals other) {
+            energyConsumed += other.energyConsumed;
+            packetsGenerated += other.packetsGenerated;
+            packetsTransmitted += other.packetsTransmitted;
+            averageLatencySum += other.averageLatencySum;
+            transmittingDevices += other.transmittingDevices;
+        }
+
+        void clear() {
+            energyConsumed = 0.0;
+            packetsGenerated = 0;
+            packetsTransmitted = 0;
+            averageLatencySum = 0.0;
+            transmittingDevices = 0;
+        }
+
+        public double getEnergyConsumed() {
+            return energyConsumed;
+        }
+
+        public long getPacketsGenerated() {
+            return packetsGenerated;
+        }
+
+        public long getPacketsTransmitted() {
+            return packetsTransmitted;
+        }
+
+        /**
+         * Sum of the average transmission latencies of the devices that transmitted
+         */
+        public double getAverageLatencySum() {
+            return averageLatencySum;
+        }
+
+        public int getTransmittingDevices() {
+            return transmittingDevices;
+        }
+    }
+
+    /**
+     * Energy statistics of a device type
+     */
+    private static final class TypeEnergy {
+        private double harvested; // in mWh
+        private double idle; // in mWh
+        private long packetsSlept;
+    }
+}
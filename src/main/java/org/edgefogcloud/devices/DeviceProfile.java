@@ -0,0 +1,97 @@
+package org.edgefogcloud.devices;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Characteristics shared by every IoT device of a type: battery, processing and transmission
+ * capacity, data generation rate and the mix of data types generated.
+ * Profiles are immutable and a single instance exists per type, so devices only hold a reference.
+ */
+public final class DeviceProfile {
+    /**
+     * Data types generated by devices, in the order of {@link #getDataTypeProbability(int)}
+     */
+    public static final String[] DATA_TYPES = {"SENSOR_DATA", "IMAGE_DATA", "VIDEO_DATA", "AUDIO_DATA", "TEXT_DATA"};
+
+    private static final Map<String, DeviceProfile> PROFILES = new HashMap<>();
+    private static final DeviceProfile DEFAULT;
+
+    static {
+        // Sensors mostly generate sensor data
+        register(new DeviceProfile("SENSOR", 2000.0, 100.0, 50.0, 1.0,
+                new double[] {0.9, 0.05, 0.0, 0.0, 0.05}));
+        // Actuators mostly generate sensor data and text data
+        register(new DeviceProfile("ACTUATOR", 3000.0, 200.0, 100.0, 0.5,
+                new double[] {0.7, 0.0, 0.0, 0.0, 0.3}));
+        // Smartphones generate all types of data
+        register(new DeviceProfile("SMARTPHONE", 4000.0, 2000.0, 200.0, 5.0,
+                new double[] {0.2, 0.2, 0.2, 0.2, 0.2}));
+        // Wearables mostly generate sensor data and some audio
+        register(new DeviceProfile("WEARABLE", 500.0, 500.0, 30.0, 2.0,
+                new double[] {0.7, 0.1, 0.0, 0.15, 0.05}));
+        DEFAULT = new DeviceProfile("DEFAULT", 1000.0, 100.0, 50.0, 1.0,
+                new double[] {0.4, 0.15, 0.15, 0.15, 0.15});
+    }
+
+    private final String type;
+    private final double batteryCapacity; // in mAh
+    private final double processingPower; // in MIPS
+    private final double transmissionPower; // in mW
+    private final double dataGenerationRate; // packets per second
+    private final double[] dataTypeProbabilities;
+
+    private DeviceProfile(String type, double batteryCapacity, double processingPower, double transmissionPower,
+                          double dataGenerationRate, double[] dataTypeProbabilities) {
+        this.type = type;
+        this.batteryCapacity = batteryCapacity;
+        this.processingPower = processingPower;
+        this.transmissionPower = transmissionPower;
+        this.dataGenerationRate = dataGenerationRate;
+        this.dataTypeProbabilities = dataTypeProbabilities;
+    }
+
+    private static void register(DeviceProfile profile) {
+        PROFILES.put(profile.type, profile);
+    }
+
+    /**
+     * Gets the profile of a device type
+     *
+     * @param type SENSOR, ACTUATOR, SMARTPHONE or WEARABLE
+     * @return The shared profile, a default one for other types
+     */
+    public static DeviceProfile of(String type) {
+        return PROFILES.getOrDefault(type, DEFAULT);
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public double getBatteryCapacity() {
+        return batteryCapacity;
+    }
+
+    public double getProcessingPower() {
+        return processingPower;
+    }
+
+    public double getTransmissionPower() {
+        return transmissionPower;
+    }
+
+    public double getDataGenerationRate() {
+        return dataGenerationRate;
+    }
+
+    /**
+     * Probability that a packet of this type of device carries a data type
+     *
+     * @param dataType Index in {@link #DATA_TYPES}
+     * @return The probability
+     */
+    public double getDataTypeProbability(int dataType) {
+        return dataTypeProbabilities[dataType];
+    }
+}
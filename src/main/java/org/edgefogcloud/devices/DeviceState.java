@@ -0,0 +1,30 @@
+package org.edgefogcloud.devices;
+
+/**
+ * Lifecycle state of an IoT device
+ */
+public enum DeviceState {
+    /** Emits at the rate of its arrival process */
+    ACTIVE(true),
+    /** Battery below the low-power threshold: emits at a fraction of its rate */
+    LOW_POWER(true),
+    /** Battery empty, and never recharged */
+    DEPLETED(false),
+    /** Battery empty, emitting again once fully recharged */
+    RECHARGING(false),
+    /** Left the network, emitting again once it rejoins */
+    DETACHED(false);
+
+    private final boolean emitting;
+
+    DeviceState(boolean emitting) {
+        this.emitting = emitting;
+    }
+
+    /**
+     * Whether a device in this state generates and transmits packets
+     */
+    public boolean isEmitting() {
+        return emitting;
+    }
+}
@@ -0,0 +1,185 @@
+package org.edgefogcloud.devices;
+
+import org.edgefogcloud.utils.ConfigManager;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Energy income and sleep/wake duty cycle of battery-powered device types.
+ * Both are periodic with closed-form integrals, so the energy harvested and drained between
+ * two events of a device is computed in constant time whatever the gap, and devices cost
+ * nothing while idle:
+ * <ul>
+ * <li>{@code SOLAR} harvesting follows {@code peak * sin(2pi (t - sunrise) / period)} during the
+ *     first half of each period and yields nothing during the second half</li>
+ * <li>{@code CONSTANT} harvesting yields the peak power all the time</li>
+ * <li>devices are awake for a fraction of each duty cycle period, drawing the awake power, and
+ *     draw the sleep power otherwise; devices are staggered so that they do not all wake together</li>
+ * </ul>
+ * Energies are in mWh, powers in mW and times in seconds.
+ */
+public final class EnergyModel {
+    private static final double GOLDEN_RATIO_FRACTION = 0.6180339887498949;
+
+    private final Set<DeviceProfile> profiles;
+    private final String harvestProfile;
+    private final double peakPower;
+    private final double period;
+    private final double sunrise;
+    private final double wakeLevel;
+    private final double dutyCyclePeriod;
+    private final double awakeTime; // per duty cycle period
+    private final double awakePower;
+    private final double sleepPower;
+
+    /**
+     * Creates the energy model of the configured device types
+     *
+     * @param configManager Configuration of the harvesting and the duty cycle
+     */
+    public EnergyModel(ConfigManager configManager) {
+        this.profiles = new HashSet<>();
+        for (String type : configManager.getEnergyModelTypes()) {
+            profiles.add(DeviceProfile.of(type));
+        }
+        this.harvestProfile = configManager.getHarvestProfile();
+        this.peakPower = "NONE".equals(harvestProfile) ? 0.0 : configManager.getHarvestPeakPower();
+        this.period = configManager.getHarvestPeriod();
+        this.sunrise = configManager.getHarvestSunrise();
+        this.wakeLevel = Math.min(Math.max(configManager.getHarvestWakeLevel(), 0.0), 1.0);
+        this.dutyCyclePeriod = configManager.getDutyCyclePeriod();
+        this.awakeTime = dutyCyclePeriod * Math.min(Math.max(configManager.getDutyCycleAwakeFraction(), 0.01), 1.0);
+        this.awakePower = configManager.getAwakePower();
+        this.sleepPower = configManager.getSleepPower();
+    }
+
+    /**
+     * Whether the devices of a type follow this model
+     */
+    public boolean appliesTo(DeviceProfile profile) {
+        return profiles.contains(profile);
+    }
+
+    /**
+     * Whether the devices of a type harvest energy
+     */
+    public boolean harvests(DeviceProfile profile) {
+        return peakPower > 0 && appliesTo(profile);
+    }
+
+    /**
+     * Whether the devices of a type sleep part of the time
+     */
+    public boolean sleeps(DeviceProfile profile) {
+        return awakeTime < dutyCyclePeriod && appliesTo(profile);
+    }
+
+    /**
+     * Share of its battery capacity a depleted device harvests before restarting
+     */
+    public double getWakeLevel() {
+        return wakeLevel;
+    }
+
+    /**
+     * Energy harvested between two times
+     */
+    public double harvestedEnergy(double from, double to) {
+        return (cumulativeHarvest(to) - cumulativeHarvest(from)) / 3600.0;
+    }
+
+    /**
+     * Harvest since an arbitrary origin, in mW.s
+     */
+    private double cumulativeHarvest(double time) {
+        if (!"SOLAR".equals(harvestProfile)) {
+            return peakPower * time;
+        }
+        double phase = time - sunrise;
+        double periods = Math.floor(phase / period);
+        double offset = phase - periods * period;
+        return periods * dailyHarvest() + dayHarvest(Math.min(offset, period / 2.0));
+    }
+
+    /**
+     * Harvest of a whole period, in mW.s
+     */
+    private double dailyHarvest() {
+        return peakPower * period / Math.PI;
+    }
+
+    /**
+     * Harvest from sunrise to the given time of day, within the day, in mW.s
+     */
+    private double dayHarvest(double offset) {
+        return peakPower * period / (2.0 * Math.PI) * (1.0 - Math.cos(2.0 * Math.PI * offset / period));
+    }
+
+    /**
+     * Earliest time at which a given energy has been harvested, inverting the harvest integral
+     *
+     * @param from Start of the harvest (in seconds)
+     * @param energy Energy to harvest (in mWh)
+     * @return Time in seconds, infinite if nothing is harvested
+     */
+    public double harvestTime(double from, double energy) {
+        if (peakPower <= 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double target = cumulativeHarvest(from) + energy * 3600.0;
+        if (!"SOLAR".equals(harvestProfile)) {
+            return target / peakPower;
+        }
+        double periods = Math.ceil(target / dailyHarvest()) - 1.0;
+        double remainder = target - periods * dailyHarvest();
+        double cosine = Math.min(Math.max(1.0 - 2.0 * Math.PI * remainder / (peakPower * period), -1.0), 1.0);
+        return sunrise + periods * period + period / (2.0 * Math.PI) * Math.acos(cosine);
+    }
+
+    /**
+     * Energy drawn by an idle device between two times
+     *
+     * @param index Device index, staggering its duty cycle
+     */
+    public double idleEnergy(double from, double to, int index) {
+        if (awakePower == 0 && sleepPower == 0) {
+            return 0.0;
+        }
+        double awake = awakeTime(to, index) - awakeTime(from, index);
+        return Math.max(awakePower * awake + sleepPower * (to - from - awake), 0.0) / 3600.0;
+    }
+
+    /**
+     * Time spent awake since an arbitrary origin
+     */
+    private double awakeTime(double time, int index) {
+        double phase = time + stagger(index);
+        double periods = Math.floor(phase / dutyCyclePeriod);
+        return periods * awakeTime + Math.min(phase - periods * dutyCyclePeriod, awakeTime);
+    }
+
+    private double stagger(int index) {
+        double fraction = index * GOLDEN_RATIO_FRACTION;
+        return (fraction - Math.floor(fraction)) * dutyCyclePeriod;
+    }
+
+    /**
+     * Whether a device is awake at the given time
+     */
+    public boolean isAwake(double time, int index) {
+        double phase = time + stagger(index);
+        return phase - Math.floor(phase / dutyCyclePeriod) * dutyCyclePeriod < awakeTime;
+    }
+
+    /**
+     * Time at which a sleeping device wakes up
+     *
+     * @param time A time at which the device sleeps
+     */
+    public double wakeTime(double time, int index) {
+        double phase = time + stagger(index);
+        return time + (Math.floor(phase / dutyCyclePeriod) + 1.0) * dutyCyclePeriod - phase;
+    }
+
+}
@@ -1,126 +1,110 @@
 package org.edgefogcloud.devices;
 
-import org.edgefogcloud.data.DataGenerator;
 import org.edgefogcloud.data.DataPacket;
 import org.edgefogcloud.edge.EdgeNode;
 import org.edgefogcloud.utils.ConfigManager;
+import org.edgefogcloud.utils.SimulationLog;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
- * Represents an IoT device that generates data and sends it to an edge node
+ * Represents an IoT device that generates data and sends it to an edge node.
+ * The characteristics of the device come from the {@link DeviceProfile} of its type and its
+ * state (battery, counters) is kept by its {@link DevicePopulation}, so the object itself
+ * only identifies the device.
  */
 public class IoTDevice {
     private static final Logger LOGGER = Logger.getLogger(IoTDevice.class.getName());
+    private static final SimulationLog.Category PACKET_LOG =
+            SimulationLog.category(IoTDevice.class, "packet", Level.FINE);
+    private static final SimulationLog.Category BATTERY_LOG =
+            SimulationLog.category(IoTDevice.class, "battery", Level.WARNING);
     
-    private String deviceId;
-    private String deviceType;
-    private DataGenerator dataGenerator;
+    private final String deviceId;
+    private final DevicePopulation population;
+    private final int index; // in the population
     private EdgeNode assignedEdgeNode;
-    private ConfigManager configManager;
     
-    // Device characteristics
-    private double batteryCapacity; // in mAh
-    private double currentBatteryLevel; // in mAh
-    private double processingPower; // in MIPS
-    private double transmissionPower; // in mW
-    private double dataGenerationRate; // packets per second
+    /**
+     * Creates a standalone device of a random type, in a population of its own.
+     * Large numbers of devices should be created by {@link DevicePopulation#createDevice(String)}.
+     */
+    public IoTDevice(String deviceId, ConfigManager configManager) {
+        this(deviceId, standalonePopulation(configManager), 0);
+    }
     
-    // Metrics
-    private int totalPacketsGenerated;
-    private int totalPacketsTransmitted;
-    private double totalEnergyConsumed; // in mWh
-    private List<Double> transmissionLatencies; // in ms
+    private static DevicePopulation standalonePopulation(ConfigManager configManager) {
+        DevicePopulation population = new DevicePopulation(configManager, 1);
+        population.allocate(DeviceProfile.of(configManager.getRandomIoTDeviceType()));
+        return population;
+    }
     
-    public IoTDevice(String deviceId, ConfigManager configManager) {
+    IoTDevice(String deviceId, DevicePopulation population, int index) {
         this.deviceId = deviceId;
-        this.configManager = configManager;
-        this.deviceType = configManager.getRandomIoTDeviceType();
-        this.totalPacketsGenerated = 0;
-        this.totalPacketsTransmitted = 0;
-        this.totalEnergyConsumed = 0.0;
-        this.transmissionLatencies = new ArrayList<>();
-        
-        // Initialize device characteristics based on device type
-        initializeDeviceCharacteristics();
+        this.population = population;
+        this.index = index;
         
-        LOGGER.fine("Created IoT device: " + deviceId + " of type: " + deviceType);
-    }
-    
-    private void initializeDeviceCharacteristics() {
-        // Set device characteristics based on device type
-        switch (deviceType) {
-            case "SENSOR":
-                this.batteryCapacity = 2000.0; // 2000 mAh
-                this.processingPower = 100.0; // 100 MIPS
-                this.transmissionPower = 50.0; // 50 mW
-                this.dataGenerationRate = 1.0; // 1 packet per second
-                break;
-            case "ACTUATOR":
-                this.batteryCapacity = 3000.0; // 3000 mAh
-                this.processingPower = 200.0; // 200 MIPS
-                this.transmissionPower = 100.0; // 100 mW
-                this.dataGenerationRate = 0.5; // 0.5 packets per second
-                break;
-            case "SMARTPHONE":
-                this.batteryCapacity = 4000.0; // 4000 mAh
-                this.processingPower = 2000.0; // 2000 MIPS
-                this.transmissionPower = 200.0; // 200 mW
-                this.dataGenerationRate = 5.0; // 5 packets per second
-                break;
-            case "WEARABLE":
-                this.batteryCapacity = 500.0; // 500 mAh
-                this.processingPower = 500.0; // 500 MIPS
-                this.transmissionPower = 30.0; // 30 mW
-                this.dataGenerationRate = 2.0; // 2 packets per second
-                break;
-            default:
-                this.batteryCapacity = 1000.0; // 1000 mAh
-                this.processingPower = 100.0; // 100 MIPS
-                this.transmissionPower = 50.0; // 50 mW
-                this.dataGenerationRate = 1.0; // 1 packet per second
-        }
-        
-        this.currentBatteryLevel = this.batteryCapacity;
+        LOGGER.fine("Created IoT device: " + deviceId + " of type: " + getDeviceType());
     }
     
-    public void initializeDataGenerator() {
-        this.dataGenerator = new DataGenerator(deviceType, configManager);
+    /**
+     * Generates the packet of a single emission without transmitting it,
+     * e.g. to derive the workload of the CloudSim Plus pipeline from it
+     *
+     * @param currentTime Time of the emission
+     * @return A new data packet
+     */
+    public DataPacket createDataPacket(int currentTime) {
+        return population.getDataGenerator(index).generateDataPacket(deviceId, currentTime);
     }
     
     public void generateData(int currentTime) {
-        // Check if we should generate data at this time step based on data generation rate
-        if (shouldGenerateData(currentTime)) {
-            DataPacket dataPacket = dataGenerator.generateDataPacket(deviceId, currentTime);
-            totalPacketsGenerated++;
-            
-            // Transmit data to edge node
-            transmitData(dataPacket);
+        // Every arrival of the time step, possibly several for fast devices
+        double nextGenerationTime = population.getNextGenerationTime(index);
+        while (nextGenerationTime < currentTime + 1) {
+            population.advanceTo(nextGenerationTime);
+            DataPacket dataPacket = createDataPacket(currentTime);
+            releaseDataPacket(dataPacket);
+            nextGenerationTime = getNextEmissionTime(nextGenerationTime);
             
-            // Update energy consumption
-            updateEnergyConsumption(dataPacket.getSize());
-            
-            LOGGER.fine(deviceId + " generated and transmitted data packet at time " + currentTime);
+            PACKET_LOG.log(() -> deviceId + " generated and transmitted data packet at time " + currentTime);
         }
+        population.setNextGenerationTime(index, nextGenerationTime);
     }
     
-    private boolean shouldGenerateData(int currentTime) {
-        // Simple implementation: generate data based on data generation rate
-        // For example, if rate is 0.5 packets per second, generate data every 2 seconds
-        return currentTime % (1.0 / dataGenerationRate) < 1;
+    /**
+     * Transmits a generated packet to the assigned edge node and accounts for its energy
+     *
+     * @param dataPacket The packet, e.g. from {@link #createDataPacket(int)}
+     */
+    public void releaseDataPacket(DataPacket dataPacket) {
+        if (!getState().isEmitting()) {
+            // Went offline after the packet was scheduled
+            population.dropPacket();
+            return;
+        }
+        population.incrementPacketsGenerated(index);
+        
+        // Transmit data to edge node
+        transmitData(dataPacket);
+        
+        // Update energy consumption
+        updateEnergyConsumption(dataPacket.getSize());
     }
     
     private void transmitData(DataPacket dataPacket) {
         if (assignedEdgeNode != null) {
-            // Calculate transmission latency based on packet size and network conditions
-            double latency = calculateTransmissionLatency(dataPacket.getSize());
-            transmissionLatencies.add(latency);
+            // Calculate transmission latency based on packet size and network conditions,
+            // waiting for a handover in progress to complete
+            double latency = calculateTransmissionLatency(dataPacket.getSize()) + population.takeHandoverDelay(index);
             
             // Send data packet to edge node
             assignedEdgeNode.receiveData(dataPacket, this);
-            totalPacketsTransmitted++;
+            population.recordTransmission(index, latency);
         } else {
             LOGGER.warning(deviceId + " has no assigned edge node. Data packet discarded.");
         }
@@ -128,23 +112,20 @@ public class IoTDevice {
     
     private double calculateTransmissionLatency(int packetSize) {
         // Simple latency model: latency = base latency + (packet size / bandwidth)
-        double baseLatency = configManager.getWirelessBaseLatency(); // in ms
-        double bandwidth = configManager.getWirelessBandwidth(); // in bytes per ms
+        double baseLatency = population.getWirelessBaseLatency(); // in ms
+        double bandwidth = population.getWirelessBandwidth(); // in bytes per ms
         
         return baseLatency + (packetSize / bandwidth);
     }
     
     private void updateEnergyConsumption(int packetSize) {
         // Energy consumption model: E = transmission power * transmission time
-        double transmissionTime = packetSize / configManager.getWirelessBandwidth(); // in ms
-        double energyForTransmission = transmissionPower * transmissionTime / 3600.0; // convert to mWh
-        
-        totalEnergyConsumed += energyForTransmission;
-        currentBatteryLevel -= energyForTransmission;
+        double transmissionTime = packetSize / population.getWirelessBandwidth(); // in ms
+        double energyForTransmission = getProfile().getTransmissionPower() * transmissionTime / 3600.0; // convert to mWh
         
-        if (currentBatteryLevel < 0) {
-            currentBatteryLevel = 0;
-            LOGGER.warning(deviceId + " battery depleted!");
+        // Switches to low power, or goes offline, as the battery runs down
+        if (!population.drainBattery(index, energyForTransmission)) {
+            BATTERY_LOG.log(() -> deviceId + " battery depleted!");
         }
     }
     
@@ -154,7 +135,33 @@ public class IoTDevice {
     }
     
     public String getDeviceType() {
-        return deviceType;
+        return getProfile().getType();
+    }
+    
+    public DeviceProfile getProfile() {
+        return population.getProfile(index);
+    }
+    
+    public DevicePopulation getPopulation() {
+        return population;
+    }
+    
+    int getIndex() {
+        return index;
+    }
+    
+    public DeviceState getState() {
+        return population.getState(index);
+    }
+    
+    /**
+     * Whether the device emits at the given time, e.g. to replay a traced packet;
+     * offline devices emit again once their battery is recharged or they rejoin the network
+     *
+     * @param time Simulation time (in seconds), not before the current one
+     */
+    public boolean isEmittingAt(double time) {
+        return population.isEmittingAt(index, time);
     }
     
     public void setAssignedEdgeNode(EdgeNode assignedEdgeNode) {
@@ -165,36 +172,98 @@ public class IoTDevice {
         return assignedEdgeNode;
     }
     
+    /**
+     * Hands the device over to another edge node, e.g. as it moves. The packets the previous
+     * node has not processed yet are re-routed to the new one, and packets transmitted before
+     * the attach time wait for the handover to complete.
+     *
+     * @param target The new edge node
+     * @param attachTime Time (in seconds) the device is attached to the new node
+     * @return Number of packets re-routed
+     */
+    public int handOver(EdgeNode target, double attachTime) {
+        int rerouted = 0;
+        if (assignedEdgeNode != null) {
+            rerouted = assignedEdgeNode.handOver(this, target);
+        } else {
+            target.addIoTDevice(this);
+        }
+        assignedEdgeNode = target;
+        population.startHandover(index, attachTime);
+        return rerouted;
+    }
+    
     public int getTotalPacketsGenerated() {
-        return totalPacketsGenerated;
+        return population.getPacketsGenerated(index);
     }
     
     public int getTotalPacketsTransmitted() {
-        return totalPacketsTransmitted;
+        return population.getPacketsTransmitted(index);
     }
     
     public double getTotalEnergyConsumed() {
-        return totalEnergyConsumed;
+        return population.getEnergyConsumed(index);
     }
     
     public double getCurrentBatteryLevel() {
-        return currentBatteryLevel;
+        return population.getBatteryLevel(index);
+    }
+    
+    /**
+     * Draws the time of this device's first data emission from its arrival process
+     *
+     * @return Emission time in seconds
+     */
+    public double getFirstEmissionTime() {
+        return population.getArrivalProcess(index).firstArrivalTime();
+    }
+    
+    /**
+     * Draws the time of the data emission following one at the given time, once the device
+     * is back online if its battery ran out or it is about to leave the network
+     *
+     * @param emissionTime Time of the previous emission (in seconds)
+     * @return Emission time in seconds, infinite if the device never emits again
+     */
+    public double getNextEmissionTime(double emissionTime) {
+        return population.nextEmissionTime(index, emissionTime);
     }
     
     public double getBatteryPercentage() {
-        return (currentBatteryLevel / batteryCapacity) * 100.0;
+        return (getCurrentBatteryLevel() / getProfile().getBatteryCapacity()) * 100.0;
     }
     
     public double getAverageTransmissionLatency() {
-        if (transmissionLatencies.isEmpty()) {
+        int transmitted = getTotalPacketsTransmitted();
+        if (transmitted == 0) {
             return 0.0;
         }
-        
-        double sum = 0.0;
-        for (Double latency : transmissionLatencies) {
-            sum += latency;
+        return population.getLatencySum(index) / transmitted;
+    }
+    
+    /**
+     * Writes the device state (type, battery, counters and arrival process) for a checkpoint.
+     * The state shared with the rest of the population is written by {@link DevicePopulation#saveState(DataOutput)}.
+     *
+     * @param out Checkpoint stream
+     * @throws IOException If the state cannot be written
+     */
+    public void saveState(DataOutput out) throws IOException {
+        out.writeUTF(deviceId);
+        population.saveDeviceState(out, index);
+    }
+    
+    /**
+     * Restores the device state from a checkpoint
+     *
+     * @param in Checkpoint stream
+     * @throws IOException If the state cannot be read or belongs to another device
+     */
+    public void restoreState(DataInput in) throws IOException {
+        String savedId = in.readUTF();
+        if (!deviceId.equals(savedId)) {
+            throw new IOException("Checkpoint state of " + savedId + " cannot be restored into " + deviceId);
         }
-        
-        return sum / transmissionLatencies.size();
+        population.restoreDeviceState(in, index);
     }
 }
@@ -2,23 +2,42 @@ package org.edgefogcloud.edge;
 
 import org.edgefogcloud.data.DataPacket;
 import org.edgefogcloud.devices.IoTDevice;
+import org.edgefogcloud.events.EdgeFilterEvent;
 import org.edgefogcloud.fog.FogNode;
+import org.edgefogcloud.utils.CheckpointStreams;
 import org.edgefogcloud.utils.ConfigManager;
+import org.edgefogcloud.utils.SimulationLog;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
- * Represents an Edge Node that processes data from IoT devices and forwards filtered data to Fog nodes
+ * Represents an Edge Node that processes data from IoT devices and forwards filtered data to Fog nodes.
+ * A packet waits in its device's buffer until the edge filtering stage of its pipeline has run,
+ * see {@link #filterPacket(DataPacket, IoTDevice, double)}.
  */
 public class EdgeNode {
     private static final Logger LOGGER = Logger.getLogger(EdgeNode.class.getName());
+    private static final SimulationLog.Category PACKET_LOG =
+            SimulationLog.category(EdgeNode.class, "packet", Level.FINE);
+    private static final SimulationLog.Category TIER_LOG =
+            SimulationLog.category(EdgeNode.class, "tier", Level.FINE);
+    private static final SimulationLog.Category ROUTING_LOG =
+            SimulationLog.category(EdgeNode.class, "routing", Level.WARNING);
     
     private String nodeId;
-    private List<IoTDevice> assignedDevices;
+    private Set<IoTDevice> assignedDevices;
     private FogNode assignedFogNode;
     private ConfigManager configManager;
     
@@ -29,7 +48,9 @@ public class EdgeNode {
     
     // Data processing parameters
     private double filteringRatio; // percentage of data filtered out at edge
-    private Map<String, List<DataPacket>> deviceDataBuffer;
+    private Map<String, Set<DataPacket>> deviceDataBuffer; // insertion ordered, indexed for the removal of filtered packets
+    private Random random; // decides which packets are filtered out
+    private int bufferedPacketCount;
     
     // Metrics
     private int totalPacketsReceived;
@@ -41,7 +62,7 @@ public class EdgeNode {
     public EdgeNode(String nodeId, ConfigManager configManager) {
         this.nodeId = nodeId;
         this.configManager = configManager;
-        this.assignedDevices = new ArrayList<>();
+        this.assignedDevices = new LinkedHashSet<>();
         this.deviceDataBuffer = new HashMap<>();
         
         // Initialize edge node characteristics
@@ -49,6 +70,7 @@ public class EdgeNode {
         this.storageCapacity = configManager.getEdgeNodeStorageCapacity();
         this.energyConsumption = configManager.getEdgeNodeEnergyConsumption();
         this.filteringRatio = configManager.getEdgeFilteringRatio();
+        this.random = configManager.createRandom("edge:" + nodeId);
         
         // Initialize metrics
         this.totalPacketsReceived = 0;
@@ -62,7 +84,7 @@ public class EdgeNode {
     
     public void addIoTDevice(IoTDevice device) {
         assignedDevices.add(device);
-        deviceDataBuffer.put(device.getDeviceId(), new ArrayList<>());
+        deviceDataBuffer.put(device.getDeviceId(), new LinkedHashSet<>());
         LOGGER.fine("IoT Device " + device.getDeviceId() + " assigned to Edge Node " + nodeId);
     }
     
@@ -74,33 +96,110 @@ public class EdgeNode {
         addIoTDevice(device);
     }
     
+    /**
+     * Moves a device to another edge node, re-routing the packets it sent that this node
+     * has not processed yet
+     * 
+     * @param device A device assigned to this node
+     * @param target The node taking the device over
+     * @return Number of packets re-routed
+     */
+    public int handOver(IoTDevice device, EdgeNode target) {
+        assignedDevices.remove(device);
+        Set<DataPacket> buffered = deviceDataBuffer.remove(device.getDeviceId());
+        // The buffer moves with the device
+        target.assignedDevices.add(device);
+        target.deviceDataBuffer.put(device.getDeviceId(), buffered != null ? buffered : new LinkedHashSet<>());
+        if (buffered == null || buffered.isEmpty()) {
+            return 0;
+        }
+        totalPacketsReceived -= buffered.size();
+        target.totalPacketsReceived += buffered.size();
+        bufferedPacketCount -= buffered.size();
+        target.bufferedPacketCount += buffered.size();
+        PACKET_LOG.log(() -> "Edge Node " + nodeId + " re-routed " + buffered.size() + " packets of "
+                + device.getDeviceId() + " to " + target.nodeId);
+        return buffered.size();
+    }
+    
     public void receiveData(DataPacket dataPacket, IoTDevice sourceDevice) {
         // Store received data packet in buffer
         String deviceId = sourceDevice.getDeviceId();
         if (deviceDataBuffer.containsKey(deviceId)) {
             deviceDataBuffer.get(deviceId).add(dataPacket);
             totalPacketsReceived++;
-            LOGGER.fine("Edge Node " + nodeId + " received data packet from " + deviceId);
+            bufferedPacketCount++;
+            PACKET_LOG.log(() -> "Edge Node " + nodeId + " received data packet from " + deviceId);
         } else {
-            LOGGER.warning("Edge Node " + nodeId + " received data from unassigned device " + deviceId);
+            ROUTING_LOG.log(() -> "Edge Node " + nodeId + " received data from unassigned device " + deviceId);
         }
     }
     
+    /**
+     * Filters a packet once the edge filtering stage of its pipeline has run,
+     * forwarding the processed packet to the fog node if it is kept
+     * 
+     * @param packet A packet the device sent to this node, left unchanged
+     * @param sourceDevice The device
+     * @param currentTime Time (in seconds) the stage finished
+     * @return The processed packet forwarded to the assigned fog node, null if the packet was filtered out
+     * or is not buffered here
+     */
+    public DataPacket filterPacket(DataPacket packet, IoTDevice sourceDevice, double currentTime) {
+        Set<DataPacket> deviceBuffer = deviceDataBuffer.get(sourceDevice.getDeviceId());
+        if (deviceBuffer == null || !deviceBuffer.remove(packet)) {
+            return null;
+        }
+        bufferedPacketCount--;
+        EdgeFilterEvent event = new EdgeFilterEvent();
+        event.begin();
+        
+        DataPacket forwarded = null;
+        if (shouldProcessPacket(packet)) {
+            DataPacket processedPacket = processPacket(packet);
+            totalPacketsProcessed++;
+            if (forwardProcessedData(Collections.singletonList(processedPacket))) {
+                forwarded = processedPacket;
+            }
+        }
+        
+        event.end();
+        if (event.shouldCommit()) {
+            event.setActivity(nodeId, "Edge", (int) currentTime, 1, packet.getSize());
+            event.setForwarded(forwarded != null ? 1 : 0, forwarded != null ? forwarded.getSize() : 0);
+            event.commit();
+        }
+        return forwarded;
+    }
+    
+    /**
+     * Filters every buffered packet at once, outside of their pipelines
+     * 
+     * @param currentTime Time (in seconds) of the processing
+     */
     public void processData(int currentTime) {
-        LOGGER.fine("Edge Node " + nodeId + " processing data at time " + currentTime);
+        TIER_LOG.log(() -> "Edge Node " + nodeId + " processing data at time " + currentTime);
+        EdgeFilterEvent event = new EdgeFilterEvent();
+        event.begin();
         
         List<DataPacket> processedPackets = new ArrayList<>();
+        int bufferedPackets = 0;
+        long bufferedBytes = 0;
+        long processedBytes = 0;
         
         // Process data from each device's buffer
         for (String deviceId : deviceDataBuffer.keySet()) {
-            List<DataPacket> deviceBuffer = deviceDataBuffer.get(deviceId);
+            Set<DataPacket> deviceBuffer = deviceDataBuffer.get(deviceId);
             
             // Process all packets in the buffer
             for (DataPacket packet : deviceBuffer) {
+                bufferedPackets++;
+                bufferedBytes += packet.getSize();
                 // Apply edge filtering and processing
                 if (shouldProcessPacket(packet)) {
                     DataPacket processedPacket = processPacket(packet);
                     processedPackets.add(processedPacket);
+                    processedBytes += processedPacket.getSize();
                     totalPacketsProcessed++;
                 }
             }
@@ -108,15 +207,23 @@ public class EdgeNode {
             // Clear the buffer after processing
             deviceBuffer.clear();
         }
+        bufferedPacketCount = 0;
         
         // Forward processed packets to fog node
         forwardProcessedData(processedPackets);
+        
+        event.end();
+        if (event.shouldCommit()) {
+            event.setActivity(nodeId, "Edge", currentTime, bufferedPackets, bufferedBytes);
+            event.setForwarded(processedPackets.size(), processedBytes);
+            event.commit();
+        }
     }
     
     private boolean shouldProcessPacket(DataPacket packet) {
         // Implement edge filtering logic
         // For simplicity, we use a probabilistic approach based on filtering ratio
-        return Math.random() > filteringRatio;
+        return random.nextDouble() > filteringRatio;
     }
     
     private DataPacket processPacket(DataPacket originalPacket) {
@@ -129,15 +236,13 @@ public class EdgeNode {
         totalEnergyConsumed += energyUsed;
         
         // Create processed packet (with reduced size due to edge processing)
-        DataPacket processedPacket = new DataPacket(
+        return new DataPacket(
                 originalPacket.getSourceId(),
                 originalPacket.getTimestamp(),
                 (int)(originalPacket.getSize() * 0.7), // Reduce size by 30%
                 originalPacket.getDataType(),
                 "EDGE_PROCESSED"
         );
-        
-        return processedPacket;
     }
     
     private double calculateProcessingTime(int packetSize) {
@@ -151,12 +256,14 @@ public class EdgeNode {
         return energyConsumption * (processingTime / 3600000.0);
     }
     
-    private void forwardProcessedData(List<DataPacket> processedPackets) {
+    private boolean forwardProcessedData(List<DataPacket> processedPackets) {
         if (assignedFogNode != null && !processedPackets.isEmpty()) {
             assignedFogNode.receiveData(processedPackets, this);
             totalPacketsForwarded += processedPackets.size();
-            LOGGER.fine("Edge Node " + nodeId + " forwarded " + processedPackets.size() + " packets to Fog Node");
+            TIER_LOG.log(() -> "Edge Node " + nodeId + " forwarded " + processedPackets.size() + " packets to Fog Node");
+            return true;
         }
+        return false;
     }
     
     // Getters and setters
@@ -168,6 +275,15 @@ public class EdgeNode {
         this.assignedFogNode = fogNode;
     }
     
+    /**
+     * Gets the packets waiting for their filtering stage, e.g. to resume their pipelines
+     * 
+     * @return Read-only view of the buffered packets by device ID, in arrival order
+     */
+    public Map<String, Set<DataPacket>> getBufferedPackets() {
+        return Collections.unmodifiableMap(deviceDataBuffer);
+    }
+    
     public FogNode getAssignedFogNode() {
         return assignedFogNode;
     }
@@ -180,6 +296,15 @@ public class EdgeNode {
         return totalPacketsReceived;
     }
     
+    /**
+     * Gets the number of packets received from the devices and not processed yet
+     * 
+     * @return Number of buffered packets
+     */
+    public int getBufferedPacketCount() {
+        return bufferedPacketCount;
+    }
+    
     public int getTotalPacketsProcessed() {
         return totalPacketsProcessed;
     }
@@ -206,4 +331,40 @@ public class EdgeNode {
         }
         return 1.0 - ((double) totalPacketsForwarded / totalPacketsReceived);
     }
+    
+    /**
+     * Writes the buffered packets, the random generator and counters for a checkpoint
+     * 
+     * @param out Checkpoint stream
+     * @throws IOException If the state cannot be written
+     */
+    public void saveState(DataOutput out) throws IOException {
+        CheckpointStreams.writePacketBuffers(out, deviceDataBuffer);
+        CheckpointStreams.writeRandom(out, random);
+        out.writeInt(totalPacketsReceived);
+        out.writeInt(totalPacketsProcessed);
+        out.writeInt(totalPacketsForwarded);
+        out.writeDouble(totalProcessingTime);
+        out.writeDouble(totalEnergyConsumed);
+    }
+    
+    /**
+     * Restores the buffered packets, the random generator and counters from a checkpoint
+     * 
+     * @param in Checkpoint stream
+     * @throws IOException If the state cannot be read
+     */
+    public void restoreState(DataInput in) throws IOException {
+        CheckpointStreams.readPacketBuffers(in, deviceDataBuffer);
+        random = CheckpointStreams.readRandom(in);
+        bufferedPacketCount = 0;
+        for (Set<DataPacket> deviceBuffer : deviceDataBuffer.values()) {
+            bufferedPacketCount += deviceBuffer.size();
+        }
+        totalPacketsReceived = in.readInt();
+        totalPacketsProcessed = in.readInt();
+        totalPacketsForwarded = in.readInt();
+        totalProcessingTime = in.readDouble();
+        totalEnergyConsumed = in.readDouble();
+    }
 }
@@ -0,0 +1,20 @@
+package org.edgefogcloud.events;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The cloud data center running analytics on the packets stored for one data type
+ */
+@Name("org.edgefogcloud.CloudAnalytics")
+@Label("Cloud Analytics Batch")
+@Description("The cloud ran analytics on a batch of packets of one data type")
+public class CloudAnalyticsEvent extends SimulationActivityEvent {
+    @Label("Data Type")
+    private String dataType;
+
+    public void setDataType(String dataType) {
+        this.dataType = dataType;
+    }
+}
@@ -0,0 +1,27 @@
+package org.edgefogcloud.events;
+
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * An edge node filtering the packets buffered from its devices.
+ * The packet count and bytes are those buffered; the forwarded ones are reported separately.
+ */
+@Name("org.edgefogcloud.EdgeFilter")
+@Label("Edge Filter Pass")
+@Description("An edge node filtered its device buffers and forwarded the result to fog")
+public class EdgeFilterEvent extends SimulationActivityEvent {
+    @Label("Forwarded Packets")
+    private int forwardedPackets;
+
+    @Label("Forwarded Bytes")
+    @DataAmount
+    private long forwardedBytes;
+
+    public void setForwarded(int forwardedPackets, long forwardedBytes) {
+        this.forwardedPackets = forwardedPackets;
+        this.forwardedBytes = forwardedBytes;
+    }
+}
@@ -0,0 +1,26 @@
+package org.edgefogcloud.events;
+
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A fog node aggregating the packets buffered from its edge nodes and flushing them to the cloud
+ */
+@Name("org.edgefogcloud.FogAggregation")
+@Label("Fog Aggregation Flush")
+@Description("A fog node aggregated its edge buffers by data type and forwarded the result to cloud")
+public class FogAggregationEvent extends SimulationActivityEvent {
+    @Label("Aggregated Packets")
+    private int aggregatedPackets;
+
+    @Label("Aggregated Bytes")
+    @DataAmount
+    private long aggregatedBytes;
+
+    public void setAggregated(int aggregatedPackets, long aggregatedBytes) {
+        this.aggregatedPackets = aggregatedPackets;
+        this.aggregatedBytes = aggregatedBytes;
+    }
+}
@@ -0,0 +1,25 @@
+package org.edgefogcloud.events;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The metrics collector sampling every node for one simulated second.
+ * The packet count and bytes are the totals the cloud has received so far.
+ */
+@Name("org.edgefogcloud.MetricsSample")
+@Label("Metrics Sample")
+@Description("The metrics of every node were sampled for one simulated second")
+public class MetricsSampleEvent extends SimulationActivityEvent {
+    @Label("Nodes Sampled")
+    private int nodesSampled;
+
+    @Label("Latency (ms)")
+    private double latency;
+
+    public void setSample(int nodesSampled, double latency) {
+        this.nodesSampled = nodesSampled;
+        this.latency = latency;
+    }
+}
@@ -0,0 +1,25 @@
+package org.edgefogcloud.events;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A periodic congestion spike on a network link. The node id is the link type,
+ * e.g. "Edge-to-Fog"; the network model does not carry packets, so the counts are zero.
+ */
+@Name("org.edgefogcloud.NetworkCongestion")
+@Label("Network Congestion Spike")
+@Description("The congestion factor of a network link spiked")
+public class NetworkCongestionEvent extends SimulationActivityEvent {
+    @Label("Congestion Factor")
+    private double congestionFactor;
+
+    @Label("Link Quality")
+    private double linkQuality;
+
+    public void setLinkState(double congestionFactor, double linkQuality) {
+        this.congestionFactor = congestionFactor;
+        this.linkQuality = linkQuality;
+    }
+}
@@ -0,0 +1,27 @@
+package org.edgefogcloud.events;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A device emitting data, covering the creation of the packet and of its pipeline cloudlets
+ */
+@Name("org.edgefogcloud.PacketGeneration")
+@Label("Packet Generation")
+@Description("A device emitted data and its pipeline was submitted")
+public class PacketGenerationEvent extends SimulationActivityEvent {
+    @Label("Data Type")
+    private String dataType;
+
+    @Label("Cloudlets")
+    private int cloudletCount;
+
+    public void setDataType(String dataType) {
+        this.dataType = dataType;
+    }
+
+    public void setCloudletCount(int cloudletCount) {
+        this.cloudletCount = cloudletCount;
+    }
+}
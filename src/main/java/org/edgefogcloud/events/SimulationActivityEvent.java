@@ -0,0 +1,52 @@
+package org.edgefogcloud.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/**
+ * Base of the Java Flight Recorder events describing simulated activity.
+ * Every event carries the node and tier it happened on and the packets and bytes it handled,
+ * so JDK Mission Control can line up the simulator's own cost with the simulated load.
+ * <p>
+ * Callers check {@link #shouldCommit()} before filling an event, which keeps the events free
+ * when no recording is running.
+ */
+@Category("Edge-Fog-Cloud Simulation")
+@StackTrace(false)
+public abstract class SimulationActivityEvent extends Event {
+    @Label("Node Id")
+    protected String nodeId;
+
+    @Label("Tier")
+    protected String tier;
+
+    @Label("Simulation Time")
+    protected int simulationTime;
+
+    @Label("Packet Count")
+    protected int packetCount;
+
+    @Label("Bytes")
+    @DataAmount
+    protected long bytes;
+
+    /**
+     * Sets the fields common to every simulation event
+     *
+     * @param nodeId Node the activity happened on
+     * @param tier Layer of the node: "IoT", "Edge", "Fog", "Cloud" or "Network"
+     * @param simulationTime Simulated time (in seconds) of the activity
+     * @param packetCount Packets handled
+     * @param bytes Bytes handled
+     */
+    public void setActivity(String nodeId, String tier, int simulationTime, int packetCount, long bytes) {
+        this.nodeId = nodeId;
+        this.tier = tier;
+        this.simulationTime = simulationTime;
+        this.packetCount = packetCount;
+        this.bytes = bytes;
+    }
+}
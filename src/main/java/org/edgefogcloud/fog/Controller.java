@@ -1,5 +1,6 @@
 package org.edgefogcloud.fog;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
@@ -24,6 +25,8 @@ public class Controller {
     private CloudSim simulation;
     private Map<String, List<Vm>> fogVms;
     private Map<String, List<Cloudlet>> fogCloudlets;
+    private FogVmVerticalScaler verticalScaler;
+    private List<Vm> verticallyScaledVms;
     
     /**
      * Creates a new controller for managing fog devices using CloudSim Plus
@@ -74,6 +77,43 @@ public class Controller {
         broker.bindCloudletToVm(cloudlet, vm);
     }
     
+    /**
+     * Enables vertical scaling of fog VMs under load.
+     * Must be called before the simulation starts, while the VMs are not created yet.
+     * 
+     * @param vms The fog VMs to scale
+     * @param interval Interval (in seconds) between two scaling decisions
+     * @param scalingFactor Share of the initial VM size added or removed at each step
+     * @param growBacklog Number of unfinished cloudlets above which a VM grows
+     */
+    public void enableVerticalScaling(List<Vm> vms, double interval, double scalingFactor, int growBacklog) {
+        verticalScaler = new FogVmVerticalScaler(simulation, interval, scalingFactor, growBacklog);
+        for (Vm vm : vms) {
+            verticalScaler.attach(vm);
+        }
+        verticallyScaledVms = vms;
+        verticalScaler.start();
+        LOGGER.info("Vertical scaling enabled for " + vms.size() + " fog VMs every " + interval + " s");
+    }
+    
+    /**
+     * Prints the vertical scaling report, if vertical scaling is enabled
+     */
+    public void displayVerticalScalingReport() {
+        if (verticalScaler != null) {
+            verticalScaler.displayScalingReport();
+        }
+    }
+    
+    /**
+     * Gets the fog VMs under vertical scaling
+     * 
+     * @return The scaled VMs, empty if vertical scaling is disabled
+     */
+    public List<Vm> getVerticallyScaledVms() {
+        return verticallyScaledVms != null ? verticallyScaledVms : Collections.emptyList();
+    }
+    
     /**
      * Gets the name of the controller
      * 
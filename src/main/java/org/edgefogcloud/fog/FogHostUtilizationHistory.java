@@ -15,7 +15,14 @@ import java.util.List;
  */
 public class FogHostUtilizationHistory extends HostSimple {
     
+    // Weight in the smoothed utilization of a scheduling interval at the latest utilization
+    private static final double SMOOTHING_FACTOR = 0.3;
+    // Interval the smoothing factor applies to when the host has no scheduling interval
+    private static final double MIN_INTERVAL = 1.0;
+    
     private double schedulingInterval;
+    private double smoothedCpuUtilization;
+    private double lastUpdateTime;
     
     /**
      * Creates a fog host with utilization history tracking
@@ -61,4 +68,29 @@ public class FogHostUtilizationHistory extends HostSimple {
     public double getSchedulingInterval() {
         return schedulingInterval;
     }
+    
+    @Override
+    public double updateProcessing(double currentTime) {
+        // The host ran at the utilization of the previous update since then
+        double utilization = getCpuPercentUtilization();
+        double elapsed = currentTime - lastUpdateTime;
+        double nextEventDelay = super.updateProcessing(currentTime);
+        if (elapsed > 0) {
+            // Exponentially weighted moving average over time rather than over updates,
+            // so short spikes do not trigger migrations however often the host is updated
+            double weight = 1 - Math.pow(1 - SMOOTHING_FACTOR, elapsed / Math.max(schedulingInterval, MIN_INTERVAL));
+            smoothedCpuUtilization = weight * utilization + (1 - weight) * smoothedCpuUtilization;
+            lastUpdateTime = currentTime;
+        }
+        return nextEventDelay;
+    }
+    
+    /**
+     * Gets the CPU utilization smoothed over the recent scheduling intervals
+     * 
+     * @return the smoothed CPU utilization, between 0 and 1
+     */
+    public double getSmoothedCpuUtilization() {
+        return smoothedCpuUtilization;
+    }
 }
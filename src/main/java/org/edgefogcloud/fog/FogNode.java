@@ -3,20 +3,41 @@ package org.edgefogcloud.fog;
 import org.edgefogcloud.cloud.CloudDataCenter;
 import org.edgefogcloud.data.DataPacket;
 import org.edgefogcloud.edge.EdgeNode;
+import org.edgefogcloud.events.FogAggregationEvent;
+import org.edgefogcloud.utils.CheckpointStreams;
 import org.edgefogcloud.utils.ConfigManager;
+import org.edgefogcloud.utils.SimulationLog;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Represents a Fog Node that aggregates and processes data from Edge nodes
- * before forwarding to the Cloud
+ * before forwarding to the Cloud.
+ * A packet waits in the buffer of its edge node until the fog processing stage of its pipeline
+ * has run, see {@link #aggregatePacket(DataPacket, double)}. It then joins the aggregation window
+ * of its data type, whose packets are merged into a single packet for the cloud once the window closes.
  */
 public class FogNode {
     private static final Logger LOGGER = Logger.getLogger(FogNode.class.getName());
+    private static final SimulationLog.Category PACKET_LOG =
+            SimulationLog.category(FogNode.class, "packet", Level.FINE);
+    private static final SimulationLog.Category TIER_LOG =
+            SimulationLog.category(FogNode.class, "tier", Level.FINE);
+    private static final SimulationLog.Category ROUTING_LOG =
+            SimulationLog.category(FogNode.class, "routing", Level.WARNING);
     
     private String nodeId;
     private List<EdgeNode> assignedEdgeNodes;
@@ -31,7 +52,9 @@ public class FogNode {
     
     // Data processing parameters
     private double aggregationRatio; // data size reduction due to aggregation
-    private Map<String, List<DataPacket>> edgeDataBuffer;
+    private double aggregationWindow; // in seconds
+    private Map<String, Set<DataPacket>> edgeDataBuffer; // insertion ordered, indexed for the removal of aggregated packets
+    private Map<String, AggregationWindow> openWindows; // by data type
     
     // Metrics
     private int totalPacketsReceived;
@@ -46,6 +69,7 @@ public class FogNode {
         this.configManager = configManager;
         this.assignedEdgeNodes = new ArrayList<>();
         this.edgeDataBuffer = new HashMap<>();
+        this.openWindows = new LinkedHashMap<>();
         
         // Initialize fog node characteristics
         this.processingCapacity = configManager.getFogNodeProcessingCapacity();
@@ -53,6 +77,7 @@ public class FogNode {
         this.energyConsumption = configManager.getFogNodeEnergyConsumption();
         this.bandwidth = configManager.getFogNodeBandwidth();
         this.aggregationRatio = configManager.getFogAggregationRatio();
+        this.aggregationWindow = configManager.getFogAggregationWindow();
         
         // Initialize metrics
         this.totalPacketsReceived = 0;
@@ -67,7 +92,7 @@ public class FogNode {
     
     public void addEdgeNode(EdgeNode edgeNode) {
         assignedEdgeNodes.add(edgeNode);
-        edgeDataBuffer.put(edgeNode.getNodeId(), new ArrayList<>());
+        edgeDataBuffer.put(edgeNode.getNodeId(), new LinkedHashSet<>());
         LOGGER.fine("Edge Node " + edgeNode.getNodeId() + " assigned to Fog Node " + nodeId);
     }
     
@@ -93,22 +118,92 @@ public class FogNode {
             }
             totalBandwidthUsed += totalDataSize / (1024.0 * 1024.0); // Convert to MB
             
-            LOGGER.fine("Fog Node " + nodeId + " received " + dataPackets.size() + 
+            PACKET_LOG.log(() -> "Fog Node " + nodeId + " received " + dataPackets.size() + 
                     " data packets from Edge Node " + edgeId);
         } else {
-            LOGGER.warning("Fog Node " + nodeId + " received data from unassigned Edge Node " + edgeId);
+            ROUTING_LOG.log(() -> "Fog Node " + nodeId + " received data from unassigned Edge Node " + edgeId);
         }
     }
     
+    /**
+     * Adds a packet to the aggregation window of its data type once the fog processing stage of its
+     * pipeline has run, opening a window if none is open for the type
+     * 
+     * @param packet A packet an edge node forwarded to this node
+     * @param currentTime Time (in seconds) the stage finished
+     * @return The window the packet joined, null if the packet is not buffered here
+     */
+    public AggregationWindow aggregatePacket(DataPacket packet, double currentTime) {
+        boolean buffered = false;
+        for (Set<DataPacket> edgeBuffer : edgeDataBuffer.values()) {
+            if (edgeBuffer.remove(packet)) {
+                buffered = true;
+                break;
+            }
+        }
+        if (!buffered) {
+            return null;
+        }
+        AggregationWindow window = openWindows.computeIfAbsent(packet.getDataType(),
+                dataType -> new AggregationWindow(dataType, currentTime + aggregationWindow));
+        window.packets.add(packet);
+        return window;
+    }
+    
+    /**
+     * Merges the packets of a window into a single packet and forwards it to the cloud
+     * 
+     * @param window A window opened by {@link #aggregatePacket(DataPacket, double)}
+     * @param currentTime Time (in seconds) the window closes
+     * @return The packet forwarded to the cloud
+     */
+    public DataPacket closeWindow(AggregationWindow window, double currentTime) {
+        if (!openWindows.remove(window.dataType, window)) {
+            throw new IllegalStateException("The " + window.dataType + " window of Fog Node " + nodeId + " is not open");
+        }
+        FogAggregationEvent event = new FogAggregationEvent();
+        event.begin();
+        long receivedBytes = 0;
+        for (DataPacket packet : window.packets) {
+            receivedBytes += packet.getSize();
+        }
+        totalPacketsProcessed += window.packets.size();
+        
+        DataPacket aggregatedPacket = window.packets.size() > 1 ? aggregatePackets(window.packets, window.dataType)
+                : processPacket(window.packets.get(0));
+        forwardAggregatedData(Collections.singletonList(aggregatedPacket));
+        
+        event.end();
+        if (event.shouldCommit()) {
+            event.setActivity(nodeId, "Fog", (int) currentTime, window.packets.size(), receivedBytes);
+            event.setAggregated(1, aggregatedPacket.getSize());
+            event.commit();
+        }
+        return aggregatedPacket;
+    }
+    
+    /**
+     * Aggregates every buffered packet and every open window at once, outside of their pipelines
+     * 
+     * @param currentTime Time (in seconds) of the processing
+     */
     public void processData(int currentTime) {
-        LOGGER.fine("Fog Node " + nodeId + " processing data at time " + currentTime);
+        TIER_LOG.log(() -> "Fog Node " + nodeId + " processing data at time " + currentTime);
+        FogAggregationEvent event = new FogAggregationEvent();
+        event.begin();
+        int bufferedPackets = 0;
+        long bufferedBytes = 0;
         
         List<DataPacket> aggregatedPackets = new ArrayList<>();
         Map<String, List<DataPacket>> dataByType = new HashMap<>();
         
         // Process data from each edge node's buffer
-        for (String edgeId : edgeDataBuffer.keySet()) {
-            List<DataPacket> edgeBuffer = edgeDataBuffer.get(edgeId);
+        List<Collection<DataPacket>> buffers = new ArrayList<>(edgeDataBuffer.values());
+        for (AggregationWindow window : openWindows.values()) {
+            buffers.add(window.packets);
+        }
+        openWindows.clear();
+        for (Collection<DataPacket> edgeBuffer : buffers) {
             
             // Group packets by data type for aggregation
             for (DataPacket packet : edgeBuffer) {
@@ -118,6 +213,8 @@ public class FogNode {
                 }
                 dataByType.get(dataType).add(packet);
                 totalPacketsProcessed++;
+                bufferedPackets++;
+                bufferedBytes += packet.getSize();
             }
             
             // Clear the buffer after processing
@@ -141,6 +238,17 @@ public class FogNode {
         
         // Forward aggregated packets to cloud
         forwardAggregatedData(aggregatedPackets);
+        
+        event.end();
+        if (event.shouldCommit()) {
+            long aggregatedBytes = 0;
+            for (DataPacket packet : aggregatedPackets) {
+                aggregatedBytes += packet.getSize();
+            }
+            event.setActivity(nodeId, "Fog", currentTime, bufferedPackets, bufferedBytes);
+            event.setAggregated(aggregatedPackets.size(), aggregatedBytes);
+            event.commit();
+        }
     }
     
     private DataPacket aggregatePackets(List<DataPacket> packets, String dataType) {
@@ -213,7 +321,7 @@ public class FogNode {
             }
             totalBandwidthUsed += totalDataSize / (1024.0 * 1024.0); // Convert to MB
             
-            LOGGER.fine("Fog Node " + nodeId + " forwarded " + aggregatedPackets.size() + 
+            TIER_LOG.log(() -> "Fog Node " + nodeId + " forwarded " + aggregatedPackets.size() + 
                     " aggregated packets to Cloud");
         }
     }
@@ -255,10 +363,104 @@ public class FogNode {
         return totalBandwidthUsed;
     }
     
+    /**
+     * Gets the packets waiting for their processing stage, e.g. to resume their pipelines
+     * 
+     * @return Read-only view of the buffered packets by edge node ID, in arrival order
+     */
+    public Map<String, Set<DataPacket>> getBufferedPackets() {
+        return Collections.unmodifiableMap(edgeDataBuffer);
+    }
+    
+    /**
+     * Gets the aggregation windows not closed yet
+     * 
+     * @return Read-only view of the open windows
+     */
+    public Collection<AggregationWindow> getOpenWindows() {
+        return Collections.unmodifiableCollection(openWindows.values());
+    }
+    
     public double getDataReductionRatio() {
         if (totalPacketsReceived == 0) {
             return 0.0;
         }
         return 1.0 - ((double) totalPacketsForwarded / totalPacketsReceived);
     }
+    
+    /**
+     * Packets of a data type merged together once the window closes
+     */
+    public static class AggregationWindow {
+        private final String dataType;
+        private final double closeTime; // in seconds
+        private final List<DataPacket> packets;
+        
+        AggregationWindow(String dataType, double closeTime) {
+            this.dataType = dataType;
+            this.closeTime = closeTime;
+            this.packets = new ArrayList<>();
+        }
+        
+        public String getDataType() {
+            return dataType;
+        }
+        
+        public double getCloseTime() {
+            return closeTime;
+        }
+        
+        public int getPacketCount() {
+            return packets.size();
+        }
+        
+        public List<DataPacket> getPackets() {
+            return Collections.unmodifiableList(packets);
+        }
+    }
+    
+    /**
+     * Writes the buffered packets, open windows and counters for a checkpoint
+     * 
+     * @param out Checkpoint stream
+     * @throws IOException If the state cannot be written
+     */
+    public void saveState(DataOutput out) throws IOException {
+        CheckpointStreams.writePacketBuffers(out, edgeDataBuffer);
+        out.writeInt(openWindows.size());
+        for (AggregationWindow window : openWindows.values()) {
+            out.writeUTF(window.dataType);
+            out.writeDouble(window.closeTime);
+            CheckpointStreams.writePackets(out, window.packets);
+        }
+        out.writeInt(totalPacketsReceived);
+        out.writeInt(totalPacketsProcessed);
+        out.writeInt(totalPacketsForwarded);
+        out.writeDouble(totalProcessingTime);
+        out.writeDouble(totalEnergyConsumed);
+        out.writeDouble(totalBandwidthUsed);
+    }
+    
+    /**
+     * Restores the buffered packets, open windows and counters from a checkpoint
+     * 
+     * @param in Checkpoint stream
+     * @throws IOException If the state cannot be read
+     */
+    public void restoreState(DataInput in) throws IOException {
+        CheckpointStreams.readPacketBuffers(in, edgeDataBuffer);
+        openWindows.clear();
+        int windowCount = in.readInt();
+        for (int i = 0; i < windowCount; i++) {
+            AggregationWindow window = new AggregationWindow(in.readUTF(), in.readDouble());
+            CheckpointStreams.readPackets(in, window.packets);
+            openWindows.put(window.dataType, window);
+        }
+        totalPacketsReceived = in.readInt();
+        totalPacketsProcessed = in.readInt();
+        totalPacketsForwarded = in.readInt();
+        totalProcessingTime = in.readDouble();
+        totalEnergyConsumed = in.readDouble();
+        totalBandwidthUsed = in.readDouble();
+    }
 }
@@ -0,0 +1,427 @@
+package org.edgefogcloud.fog;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import org.cloudbus.cloudsim.allocationpolicies.VmAllocationPolicyAbstract;
+import org.cloudbus.cloudsim.hosts.Host;
+import org.cloudbus.cloudsim.hosts.HostSuitability;
+import org.cloudbus.cloudsim.vms.Vm;
+
+/**
+ * Power-aware VM allocation and live-migration policy for fog datacenters.
+ * VMs are packed onto the most utilized hosts that stay below the over-utilization threshold,
+ * so that under light load the remaining hosts empty out and are switched off. Hosts above the
+ * over-utilization threshold get VMs migrated away, waking idle hosts if needed.
+ * Hosts are indexed in buckets by utilization so that host selection does not scan every host.
+ * The load of every VM placed on a host is reserved on it, so VMs placed before their cloudlets
+ * run, e.g. at startup, are not all packed onto the same host.
+ * Updated to use CloudSim Plus 6.4.3 API
+ */
+public class FogPowerAwareVmAllocationPolicy extends VmAllocationPolicyAbstract {
+    private static final Logger LOGGER = Logger.getLogger(FogPowerAwareVmAllocationPolicy.class.getName());
+
+    private static final int UTILIZATION_BUCKETS = 10;
+    private static final double JOULES_PER_KWH = 3_600_000.0;
+    // Share of the host bandwidth used by live migration, as in CloudSim Plus datacenters
+    private static final double MIGRATION_BANDWIDTH_SHARE = 0.5;
+    // Share of the VM capacity lost while it is being migrated
+    private static final double MIGRATION_PERFORMANCE_DEGRADATION = 0.1;
+
+    private final double underUtilizationThreshold;
+    private final double overUtilizationThreshold;
+
+    // Active hosts bucketed by CPU utilization, and hosts switched off
+    private final List<Set<Host>> buckets;
+    private final Map<Host, Integer> bucketOfHost;
+    private final Map<Host, Double> idleSince;
+    private final Map<Vm, Reservation> reservations;
+    private final Map<Host, Double> reservedLoad; // sum of the reservations of each host's VMs
+    private boolean indexed;
+
+    // Metrics
+    private int migrations;
+    private int consolidatedHosts;
+    private int overloadedHosts;
+    private int hostsIdled;
+    private int hostsWoken;
+    private double energySaved;            // J
+    private double totalMigrationTime;     // s
+    private double migrationInducedLatency; // s of VM capacity lost
+
+    /**
+     * Creates a power-aware allocation policy
+     *
+     * @param underUtilizationThreshold CPU utilization below which a host is drained and switched off
+     * @param overUtilizationThreshold CPU utilization above which VMs are migrated away from a host
+     */
+    public FogPowerAwareVmAllocationPolicy(double underUtilizationThreshold, double overUtilizationThreshold) {
+        super();
+        if (underUtilizationThreshold < 0 || overUtilizationThreshold > 1
+                || underUtilizationThreshold >= overUtilizationThreshold) {
+            throw new IllegalArgumentException("Thresholds must satisfy 0 <= under < over <= 1");
+        }
+        this.underUtilizationThreshold = underUtilizationThreshold;
+        this.overUtilizationThreshold = overUtilizationThreshold;
+        this.buckets = new ArrayList<>(UTILIZATION_BUCKETS);
+        for (int i = 0; i < UTILIZATION_BUCKETS; i++) {
+            buckets.add(new LinkedHashSet<>());
+        }
+        this.bucketOfHost = new HashMap<>();
+        this.idleSince = new LinkedHashMap<>();
+        this.reservations = new HashMap<>();
+        this.reservedLoad = new HashMap<>();
+    }
+
+    @Override
+    protected Optional<Host> defaultFindHostForVm(Vm vm) {
+        ensureIndexed();
+        Optional<Host> host = findTargetHost(vm, Collections.emptySet(), new HashMap<>());
+        if (!host.isPresent()) {
+            host = wakeIdleHost(vm);
+        }
+        return host;
+    }
+
+    @Override
+    public HostSuitability allocateHostForVm(Vm vm, Host host) {
+        HostSuitability suitability = super.allocateHostForVm(vm, host);
+        if (suitability.fully()) {
+            reserve(vm, host);
+        }
+        reindex(host);
+        return suitability;
+    }
+
+    @Override
+    public void deallocateHostForVm(Vm vm) {
+        Host host = vm.getHost();
+        super.deallocateHostForVm(vm);
+        release(vm);
+        if (host != null && bucketOfHost.containsKey(host)) {
+            reindex(host);
+        }
+    }
+
+    @Override
+    public boolean isVmMigrationSupported() {
+        return true;
+    }
+
+    /**
+     * Called by the datacenter every scheduling interval to decide which VMs to migrate
+     */
+    @Override
+    public Map<Vm, Host> getOptimizedAllocationMap(List<? extends Vm> vmList) {
+        ensureIndexed();
+        double currentTime = getDatacenter().getSimulation().clock();
+
+        // Utilization changed since the last round
+        for (Host host : new ArrayList<>(bucketOfHost.keySet())) {
+            reindex(host);
+        }
+        idleEmptyHosts(currentTime);
+
+        Map<Vm, Host> migrationMap = new LinkedHashMap<>();
+        Map<Host, Double> plannedLoad = new HashMap<>();
+        spreadOverloadedHosts(migrationMap, plannedLoad);
+        consolidateUnderloadedHosts(migrationMap, plannedLoad);
+
+        for (Map.Entry<Vm, Host> migration : migrationMap.entrySet()) {
+            recordMigration(migration.getKey(), migration.getValue());
+        }
+        if (!migrationMap.isEmpty()) {
+            LOGGER.fine("Time " + currentTime + ": " + migrationMap.size() + " VM migrations planned");
+        }
+        return migrationMap;
+    }
+
+    /**
+     * Moves VMs away from hosts above the over-utilization threshold
+     */
+    private void spreadOverloadedHosts(Map<Vm, Host> migrationMap, Map<Host, Double> plannedLoad) {
+        int firstOverloadedBucket = bucketFor(overUtilizationThreshold);
+        for (int b = UTILIZATION_BUCKETS - 1; b >= firstOverloadedBucket; b--) {
+            for (Host source : new ArrayList<>(buckets.get(b))) {
+                if (source.isInMigration() || getCommittedUtilization(source) <= overUtilizationThreshold) {
+                    continue;
+                }
+                overloadedHosts++;
+
+                // Move the busiest VMs first until the host is back under the threshold
+                List<Vm> vms = new ArrayList<>(source.getVmList());
+                vms.sort(Comparator.comparingDouble((Vm vm) -> getLoad(vm, source)).reversed());
+                for (Vm vm : vms) {
+                    if (plannedUtilization(source, plannedLoad) <= overUtilizationThreshold) {
+                        break;
+                    }
+                    if (vm.isInMigration()) {
+                        continue;
+                    }
+                    Optional<Host> target = findTargetHost(vm, Collections.singleton(source), plannedLoad);
+                    if (!target.isPresent()) {
+                        target = wakeIdleHost(vm);
+                    }
+                    if (target.isPresent()) {
+                        plan(vm, source, target.get(), migrationMap, plannedLoad);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Drains hosts below the under-utilization threshold, least utilized first,
+     * when all of their VMs fit on other active hosts
+     */
+    private void consolidateUnderloadedHosts(Map<Vm, Host> migrationMap, Map<Host, Double> plannedLoad) {
+        Set<Host> drained = new LinkedHashSet<>();
+        int lastUnderloadedBucket = bucketFor(underUtilizationThreshold);
+        for (int b = 0; b <= lastUnderloadedBucket; b++) {
+            for (Host source : new ArrayList<>(buckets.get(b))) {
+                if (source.isInMigration() || source.getVmList().isEmpty() || plannedLoad.containsKey(source)
+                        || getCommittedUtilization(source) >= underUtilizationThreshold) {
+                    continue;
+                }
+
+                // Drained hosts are never used as targets
+                drained.add(source);
+                Map<Vm, Host> drain = new LinkedHashMap<>();
+                Map<Host, Double> drainLoad = new HashMap<>(plannedLoad);
+                for (Vm vm : source.<Vm>getVmList()) {
+                    Optional<Host> target = vm.isInMigration() ? Optional.empty() : findTargetHost(vm, drained, drainLoad);
+                    if (!target.isPresent()) {
+                        drain = null;
+                        break;
+                    }
+                    drain.put(vm, target.get());
+                    addLoad(drainLoad, target.get(), getLoad(vm, target.get()));
+                }
+
+                if (drain == null) {
+                    drained.remove(source);
+                } else {
+                    consolidatedHosts++;
+                    migrationMap.putAll(drain);
+                    plannedLoad.clear();
+                    plannedLoad.putAll(drainLoad);
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the most utilized active host that can take the VM without exceeding the
+     * over-utilization threshold, scanning the utilization buckets from the top down
+     */
+    private Optional<Host> findTargetHost(Vm vm, Set<Host> excluded, Map<Host, Double> plannedLoad) {
+        for (int b = bucketFor(overUtilizationThreshold); b >= 0; b--) {
+            for (Host host : buckets.get(b)) {
+                if (!excluded.contains(host) && host.isSuitableForVm(vm)
+                        && plannedUtilization(host, plannedLoad) + getLoad(vm, host) <= overUtilizationThreshold) {
+                    return Optional.of(host);
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Switches on an idle host able to run the VM
+     */
+    private Optional<Host> wakeIdleHost(Vm vm) {
+        double currentTime = getDatacenter().getSimulation().clock();
+        for (Host host : new ArrayList<>(idleSince.keySet())) {
+            host.setActive(true);
+            if (host.isSuitableForVm(vm)) {
+                energySaved += getStaticPower(host) * (currentTime - idleSince.remove(host));
+                hostsWoken++;
+                reindex(host);
+                LOGGER.fine("Woke up idle fog host " + host.getId() + " at time " + currentTime);
+                return Optional.of(host);
+            }
+            host.setActive(false);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Switches off active hosts left without VMs, keeping at least one host on
+     */
+    private void idleEmptyHosts(double currentTime) {
+        for (Set<Host> bucket : buckets) {
+            for (Host host : new ArrayList<>(bucket)) {
+                if (bucketOfHost.size() > 1 && host.getVmList().isEmpty() && !host.isInMigration()) {
+                    bucket.remove(host);
+                    bucketOfHost.remove(host);
+                    host.setActive(false);
+                    idleSince.put(host, currentTime);
+                    hostsIdled++;
+                }
+            }
+        }
+    }
+
+    private void plan(Vm vm, Host source, Host target, Map<Vm, Host> migrationMap, Map<Host, Double> plannedLoad) {
+        migrationMap.put(vm, target);
+        addLoad(plannedLoad, source, -getLoad(vm, source));
+        addLoad(plannedLoad, target, getLoad(vm, target));
+    }
+
+    private void reserve(Vm vm, Host host) {
+        release(vm);
+        Reservation reservation = new Reservation(host, getLoad(vm, host));
+        reservations.put(vm, reservation);
+        addLoad(reservedLoad, host, reservation.load);
+    }
+
+    private void release(Vm vm) {
+        Reservation reservation = reservations.remove(vm);
+        if (reservation != null) {
+            addLoad(reservedLoad, reservation.host, -reservation.load);
+            if (bucketOfHost.containsKey(reservation.host)) {
+                reindex(reservation.host);
+            }
+        }
+    }
+
+    private void recordMigration(Vm vm, Host target) {
+        // RAM (MB) is copied over the share of the target bandwidth (Mbps) reserved for migration
+        double migrationTime = vm.getRam().getCapacity() * 8.0
+                / (target.getBw().getCapacity() * MIGRATION_BANDWIDTH_SHARE);
+        migrations++;
+        totalMigrationTime += migrationTime;
+        migrationInducedLatency += migrationTime * MIGRATION_PERFORMANCE_DEGRADATION;
+    }
+
+    private void ensureIndexed() {
+        if (indexed) {
+            return;
+        }
+        for (Host host : getHostList()) {
+            if (host.isActive()) {
+                reindex(host);
+            } else {
+                idleSince.put(host, 0.0);
+            }
+        }
+        indexed = true;
+    }
+
+    private void reindex(Host host) {
+        if (!host.isActive()) {
+            return;
+        }
+        int bucket = bucketFor(getCommittedUtilization(host));
+        Integer previous = bucketOfHost.put(host, bucket);
+        if (previous == null || previous != bucket) {
+            if (previous != null) {
+                buckets.get(previous).remove(host);
+            }
+            buckets.get(bucket).add(host);
+        }
+    }
+
+    private static int bucketFor(double utilization) {
+        return Math.max(0, Math.min(UTILIZATION_BUCKETS - 1, (int) (utilization * UTILIZATION_BUCKETS)));
+    }
+
+    /**
+     * Gets the CPU share of a host in use, or reserved by its VMs if more
+     */
+    private double getCommittedUtilization(Host host) {
+        return Math.max(getUtilization(host), reservedLoad.getOrDefault(host, 0.0));
+    }
+
+    private static double getUtilization(Host host) {
+        if (host instanceof FogHostUtilizationHistory) {
+            return ((FogHostUtilizationHistory) host).getSmoothedCpuUtilization();
+        }
+        return host.getCpuPercentUtilization();
+    }
+
+    private double plannedUtilization(Host host, Map<Host, Double> plannedLoad) {
+        return getCommittedUtilization(host) + plannedLoad.getOrDefault(host, 0.0);
+    }
+
+    private static void addLoad(Map<Host, Double> plannedLoad, Host host, double load) {
+        plannedLoad.merge(host, load, Double::sum);
+    }
+
+    /**
+     * Gets the share of a host's CPU a VM uses, or reserves if it is still idle
+     */
+    private static double getLoad(Vm vm, Host host) {
+        double usedMips = Math.max(vm.getCpuPercentUtilization(), 1.0 / UTILIZATION_BUCKETS) * vm.getTotalMipsCapacity();
+        return usedMips / host.getTotalMipsCapacity();
+    }
+
+    private static double getStaticPower(Host host) {
+        return host.getPowerModel().getPower(0);
+    }
+
+    /**
+     * Closes the idle periods of the hosts still switched off
+     *
+     * @param currentTime The simulation time the run ended at
+     */
+    public void finish(double currentTime) {
+        for (Map.Entry<Host, Double> idle : idleSince.entrySet()) {
+            energySaved += getStaticPower(idle.getKey()) * (currentTime - idle.getValue());
+            idle.setValue(currentTime);
+        }
+    }
+
+    /**
+     * Prints the energy saved by switching hosts off against the latency the migrations induced
+     */
+    public void displayConsolidationReport() {
+        System.out.println("\n=== Fog Power-Aware Consolidation ===");
+        System.out.printf("Thresholds: under %.0f%%, over %.0f%%\n",
+                underUtilizationThreshold * 100, overUtilizationThreshold * 100);
+        System.out.printf("Hosts consolidated: %d, overloaded hosts relieved: %d\n", consolidatedHosts, overloadedHosts);
+        System.out.printf("Hosts switched off: %d, switched back on: %d, currently off: %d\n",
+                hostsIdled, hostsWoken, idleSince.size());
+        System.out.printf("VM migrations: %d, total migration time: %.4f s\n", migrations, totalMigrationTime);
+        System.out.printf("Energy saved: %.6f kWh\n", energySaved / JOULES_PER_KWH);
+        System.out.printf("Migration-induced latency: %.4f s of VM capacity lost\n", migrationInducedLatency);
+        if (migrationInducedLatency > 0) {
+            System.out.printf("Energy saved per second of migration latency: %.6f kWh/s\n",
+                    energySaved / JOULES_PER_KWH / migrationInducedLatency);
+        }
+    }
+
+    /**
+     * CPU share of a host reserved by a VM placed on it
+     */
+    private static class Reservation {
+        private final Host host;
+        private final double load;
+
+        Reservation(Host host, double load) {
+            this.host = host;
+            this.load = load;
+        }
+    }
+
+    public int getMigrations() {
+        return migrations;
+    }
+
+    public double getEnergySaved() {
+        return energySaved / JOULES_PER_KWH;
+    }
+
+    public double getMigrationInducedLatency() {
+        return migrationInducedLatency;
+    }
+}
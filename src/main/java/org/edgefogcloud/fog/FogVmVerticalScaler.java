@@ -0,0 +1,285 @@
+package org.edgefogcloud.fog;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import org.cloudbus.cloudsim.core.Simulation;
+import org.cloudbus.cloudsim.hosts.Host;
+import org.cloudbus.cloudsim.resources.Bandwidth;
+import org.cloudbus.cloudsim.resources.Pe;
+import org.cloudbus.cloudsim.resources.Ram;
+import org.cloudbus.cloudsim.resources.ResourceManageable;
+import org.cloudbus.cloudsim.vms.Vm;
+import org.cloudsimplus.autoscaling.VerticalVmScaling;
+import org.cloudsimplus.autoscaling.VerticalVmScalingSimple;
+import org.cloudsimplus.listeners.EventInfo;
+
+/**
+ * Vertical scaling of fog VMs driven by their cloudlet backlog.
+ * Every interval the scaler decides, for each VM, whether it should grow (backlog above the
+ * threshold) or shrink back toward its initial size (no backlog). The decision is applied by
+ * the CloudSim Plus vertical scaling of the VM's PEs, RAM and bandwidth, whose threshold
+ * functions trigger once per decision and never beyond the host capacity.
+ * Updated to use CloudSim Plus 6.4.3 API
+ */
+public class FogVmVerticalScaler {
+    private static final Logger LOGGER = Logger.getLogger(FogVmVerticalScaler.class.getName());
+
+    // Thresholds making CloudSim Plus always or never consider a VM over/underloaded
+    private static final double ALWAYS_OVERLOADED = 0.0;
+    private static final double NEVER_OVERLOADED = 1.0;
+    private static final double ALWAYS_UNDERLOADED = 0.99;
+    private static final double NEVER_UNDERLOADED = -1.0;
+
+    private enum Decision { NONE, GROW, SHRINK }
+
+    private final Simulation simulation;
+    private final double interval;      // in seconds
+    private final double scalingFactor; // share of the initial size added or removed per step
+    private final int growBacklog;      // cloudlets per VM
+    private final Map<Vm, VmState> states;
+
+    private double nextEvaluationTime;
+    private double lastEvaluationTime;
+
+    // Metrics
+    private int upScalings;
+    private int downScalings;
+    private double queueingDelaySaved; // s
+
+    /**
+     * Creates a vertical scaler
+     *
+     * @param simulation The CloudSim Plus simulation instance
+     * @param interval Interval (in seconds) between two scaling decisions
+     * @param scalingFactor Share of the initial VM size added or removed at each step
+     * @param growBacklog Number of unfinished cloudlets above which a VM grows
+     */
+    public FogVmVerticalScaler(Simulation simulation, double interval, double scalingFactor, int growBacklog) {
+        this.simulation = simulation;
+        this.interval = interval;
+        this.scalingFactor = scalingFactor;
+        this.growBacklog = growBacklog;
+        this.states = new LinkedHashMap<>();
+    }
+
+    /**
+     * Enables vertical scaling of a VM's PEs, RAM and bandwidth.
+     * Must be called before the VM is created.
+     *
+     * @param vm The VM to scale
+     */
+    public void attach(Vm vm) {
+        states.put(vm, new VmState(vm));
+        vm.setPeVerticalScaling(createScaling(Pe.class));
+        vm.setRamVerticalScaling(createScaling(Ram.class));
+        vm.setBwVerticalScaling(createScaling(Bandwidth.class));
+    }
+
+    private VerticalVmScaling createScaling(Class<? extends ResourceManageable> resourceClass) {
+        VerticalVmScaling scaling = new VerticalVmScalingSimple(resourceClass, scalingFactor);
+        scaling.setResourceScaling(this::getResourceAmountToScale);
+        scaling.setLowerThresholdFunction(vm -> getLowerThreshold(vm, resourceClass));
+        scaling.setUpperThresholdFunction(vm -> getUpperThreshold(vm, resourceClass));
+        return scaling;
+    }
+
+    /**
+     * Starts evaluating the attached VMs on the simulation clock
+     */
+    public void start() {
+        simulation.addOnClockTickListener(this::onClockTick);
+        LOGGER.info("Vertical scaling started for " + states.size() + " fog VMs");
+    }
+
+    private void onClockTick(EventInfo info) {
+        double currentTime = info.getTime();
+        if (currentTime < nextEvaluationTime) {
+            return;
+        }
+        double elapsed = currentTime - lastEvaluationTime;
+        lastEvaluationTime = currentTime;
+        nextEvaluationTime = currentTime + interval;
+
+        for (Map.Entry<Vm, VmState> entry : states.entrySet()) {
+            Vm vm = entry.getKey();
+            VmState state = entry.getValue();
+            int backlog = vm.getCloudletScheduler().getCloudletExecList().size()
+                    + vm.getCloudletScheduler().getCloudletWaitingList().size();
+
+            recordResize(state, vm);
+            accumulateQueueingDelaySaved(state, vm, backlog, elapsed);
+
+            if (backlog >= growBacklog) {
+                state.decide(Decision.GROW, vm);
+            } else if (backlog == 0 && state.isScaledUp(vm)) {
+                state.decide(Decision.SHRINK, vm);
+            } else {
+                state.decide(Decision.NONE, vm);
+            }
+        }
+    }
+
+    /**
+     * Counts the resources resized since the last decision, which each are at most once
+     */
+    private void recordResize(VmState state, Vm vm) {
+        recordResize(vm.getNumberOfPes(), state.pesAtDecision);
+        recordResize(vm.getRam().getCapacity(), state.ramAtDecision);
+        recordResize(vm.getBw().getCapacity(), state.bwAtDecision);
+    }
+
+    private void recordResize(long capacity, long capacityAtDecision) {
+        if (capacity > capacityAtDecision) {
+            upScalings++;
+        } else if (capacity < capacityAtDecision) {
+            downScalings++;
+        }
+    }
+
+    /**
+     * Estimates the queueing delay avoided since the last evaluation: the work processed by
+     * the PEs added over the initial allocation would have kept every queued cloudlet waiting
+     * for as long as the initial allocation takes to process it.
+     */
+    private void accumulateQueueingDelaySaved(VmState state, Vm vm, int backlog, double elapsed) {
+        long extraPes = vm.getNumberOfPes() - state.initialPes;
+        if (extraPes <= 0 || backlog == 0 || elapsed <= 0) {
+            return;
+        }
+        double extraWork = extraPes * vm.getMips() * vm.getCpuPercentUtilization() * elapsed; // MI
+        double staticCapacity = state.initialPes * vm.getMips(); // MIPS
+        queueingDelaySaved += backlog * extraWork / staticCapacity;
+    }
+
+    private double getUpperThreshold(Vm vm, Class<? extends ResourceManageable> resourceClass) {
+        VmState state = states.get(vm);
+        if (state == null || state.decision != Decision.GROW || state.isResizedSinceDecision(vm, resourceClass)) {
+            return NEVER_OVERLOADED;
+        }
+        return state.isBelowHostLimit(vm, resourceClass) ? ALWAYS_OVERLOADED : NEVER_OVERLOADED;
+    }
+
+    private double getLowerThreshold(Vm vm, Class<? extends ResourceManageable> resourceClass) {
+        VmState state = states.get(vm);
+        if (state == null || state.decision != Decision.SHRINK || state.isResizedSinceDecision(vm, resourceClass)) {
+            return NEVER_UNDERLOADED;
+        }
+        return state.getCapacity(vm, resourceClass) > state.getInitialCapacity(resourceClass)
+                ? ALWAYS_UNDERLOADED : NEVER_UNDERLOADED;
+    }
+
+    /**
+     * Resizes by a step of the initial size, never shrinking below the initial size
+     */
+    private double getResourceAmountToScale(VerticalVmScaling scaling) {
+        Vm vm = scaling.getVm();
+        VmState state = states.get(vm);
+        if (state == null) {
+            return 0;
+        }
+        Class<? extends ResourceManageable> resourceClass = scaling.getResourceClass();
+        long initial = state.getInitialCapacity(resourceClass);
+        double step = Math.max(1, Math.ceil(initial * scalingFactor));
+        if (state.decision == Decision.SHRINK) {
+            return Math.min(step, state.getCapacity(vm, resourceClass) - initial);
+        }
+        return step;
+    }
+
+    /**
+     * Prints the resizes performed and the queueing delay they saved
+     */
+    public void displayScalingReport() {
+        System.out.println("\n=== Fog VM Vertical Scaling ===");
+        System.out.printf("Scale-ups: %d, scale-downs: %d (PE, RAM and BW resizes)\n", upScalings, downScalings);
+        System.out.println("VM | PEs (initial/final) | RAM MB (initial/final) | BW Mbps (initial/final)");
+        for (Map.Entry<Vm, VmState> entry : states.entrySet()) {
+            Vm vm = entry.getKey();
+            VmState state = entry.getValue();
+            System.out.printf("%d | %d/%d | %d/%d | %d/%d\n", vm.getId(),
+                    state.initialPes, vm.getNumberOfPes(),
+                    state.initialRam, vm.getRam().getCapacity(),
+                    state.initialBw, vm.getBw().getCapacity());
+        }
+        System.out.printf("Estimated queueing delay saved vs static allocation: %.4f s\n", queueingDelaySaved);
+    }
+
+    public double getQueueingDelaySaved() {
+        return queueingDelaySaved;
+    }
+
+    /**
+     * Initial size and latest scaling decision of a VM
+     */
+    private static class VmState {
+        private final long initialPes;
+        private final long initialRam;
+        private final long initialBw;
+        private Decision decision;
+        private long pesAtDecision;
+        private long ramAtDecision;
+        private long bwAtDecision;
+
+        VmState(Vm vm) {
+            this.initialPes = vm.getNumberOfPes();
+            this.initialRam = vm.getRam().getCapacity();
+            this.initialBw = vm.getBw().getCapacity();
+            this.decision = Decision.NONE;
+            this.pesAtDecision = initialPes;
+            this.ramAtDecision = initialRam;
+            this.bwAtDecision = initialBw;
+        }
+
+        void decide(Decision decision, Vm vm) {
+            this.decision = decision;
+            this.pesAtDecision = vm.getNumberOfPes();
+            this.ramAtDecision = vm.getRam().getCapacity();
+            this.bwAtDecision = vm.getBw().getCapacity();
+        }
+
+        // A decision is applied at most once to each resource
+        boolean isResizedSinceDecision(Vm vm, Class<? extends ResourceManageable> resourceClass) {
+            if (resourceClass == Pe.class) {
+                return vm.getNumberOfPes() != pesAtDecision;
+            }
+            return resourceClass == Ram.class ? vm.getRam().getCapacity() != ramAtDecision
+                    : vm.getBw().getCapacity() != bwAtDecision;
+        }
+
+        boolean isScaledUp(Vm vm) {
+            return vm.getNumberOfPes() > initialPes
+                    || vm.getRam().getCapacity() > initialRam
+                    || vm.getBw().getCapacity() > initialBw;
+        }
+
+        boolean isBelowHostLimit(Vm vm, Class<? extends ResourceManageable> resourceClass) {
+            Host host = vm.getHost();
+            if (host == null) {
+                return false;
+            }
+            if (resourceClass == Pe.class) {
+                return host.getFreePesNumber() > 0;
+            }
+            if (resourceClass == Ram.class) {
+                return host.getRam().getAvailableResource() > 0;
+            }
+            return host.getBw().getAvailableResource() > 0;
+        }
+
+        long getCapacity(Vm vm, Class<? extends ResourceManageable> resourceClass) {
+            if (resourceClass == Pe.class) {
+                return vm.getNumberOfPes();
+            }
+            return resourceClass == Ram.class ? vm.getRam().getCapacity() : vm.getBw().getCapacity();
+        }
+
+        long getInitialCapacity(Class<? extends ResourceManageable> resourceClass) {
+            if (resourceClass == Pe.class) {
+                return initialPes;
+            }
+            return resourceClass == Ram.class ? initialRam : initialBw;
+        }
+    }
+}
@@ -0,0 +1,516 @@
+package org.edgefogcloud.mobility;
+
+import org.edgefogcloud.devices.IoTDevice;
+import org.edgefogcloud.edge.EdgeNode;
+import org.edgefogcloud.utils.CheckpointStreams;
+import org.edgefogcloud.utils.ConfigManager;
+import org.edgefogcloud.utils.IndexedMinHeap;
+import org.edgefogcloud.utils.SimulationLog;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.cloudbus.cloudsim.core.Simulation;
+
+/**
+ * Places the devices and edge nodes in a 2D area, moves the devices of the mobile types under a
+ * {@link MobilityModel} and hands them over between edge nodes as they move.
+ * <p>
+ * Devices move in straight legs, so the time a device leaves its cell of the
+ * {@link EdgeSpatialIndex}, and the time it crosses the handover boundary between its serving
+ * node and one of the cell's candidates, are solved in closed form when the device has an event.
+ * The earliest of them, or the end of its leg, waits in a queue ordered by time: a device costs
+ * nothing between two events, and a step only touches the devices with an event due, whatever
+ * the number of devices.
+ * <p>
+ * With the {@code NEAREST} policy a device hands over as soon as another node is closer. With
+ * {@code BEST_SIGNAL} it keeps its node until another node's signal, under log-distance path loss,
+ * is stronger by the hysteresis margin, i.e. until its node is farther than
+ * {@code 10^(hysteresis / (10 n))} times the nearest one. A handover re-routes the packets the
+ * previous node has not processed yet, and transmissions wait for the handover latency.
+ * <p>
+ * Device state is stored column by column in primitive arrays indexed like the device list.
+ */
+public class DeviceMobility {
+    private static final Logger LOGGER = Logger.getLogger(DeviceMobility.class.getName());
+    private static final SimulationLog.Category HANDOVER_LOG =
+            SimulationLog.category(DeviceMobility.class, "handover", Level.FINE);
+
+    // Margin (in seconds) past a cell border or handover boundary, so that the device is across it
+    private static final double EPSILON = 1e-6;
+
+    private final List<IoTDevice> devices;
+    private final List<EdgeNode> edgeNodes;
+    private final Map<EdgeNode, Integer> edgeIndices;
+    private final MobilityModel model;
+    private final EdgeSpatialIndex spatialIndex;
+    private final String policy;
+    private final double hysteresis; // in dB
+    private final double boundaryFactor; // squared distance ratio triggering a handover
+    private final double handoverLatency; // in seconds
+    private final BitSet mobile;
+    private final List<HandoverListener> onHandoverListeners;
+    private final double[] waypoint;
+    private Random random;
+
+    // Current leg of each device, by device index
+    private final double[] fromXs;
+    private final double[] fromYs;
+    private final double[] toXs;
+    private final double[] toYs;
+    private final double[] legStarts; // in seconds
+    private final double[] legArrivals; // time the destination is reached, in seconds
+    private final double[] legEnds; // end of the pause at the destination, in seconds
+    private final int[] cells;
+    private final int[] servingEdges;
+    private final IndexedMinHeap events;
+    private double time;
+
+    // Metrics
+    private final Map<String, long[]> countsByType; // mobile devices, handovers, packets re-routed
+    private double finishTime;
+
+    /**
+     * Listener notified when a device is handed over
+     */
+    @FunctionalInterface
+    public interface HandoverListener {
+        /**
+         * @param device Index of the device in the device list
+         * @param fromEdge Index of the previous edge node in the edge node list
+         * @param toEdge Index of the new edge node in the edge node list
+         */
+        void onHandover(int device, int fromEdge, int toEdge);
+    }
+
+    /**
+     * Places the edge nodes and the devices, attaching every device to its nearest edge node
+     *
+     * @param configManager Configuration of the area, the mobility model and the handovers
+     * @param devices Devices, in creation order
+     * @param edgeNodes Edge tier, in creation order
+     */
+    public DeviceMobility(ConfigManager configManager, List<IoTDevice> devices, List<EdgeNode> edgeNodes) {
+        this.devices = devices;
+        this.edgeNodes = edgeNodes;
+        this.edgeIndices = new IdentityHashMap<>();
+        for (int e = 0; e < edgeNodes.size(); e++) {
+            edgeIndices.put(edgeNodes.get(e), e);
+        }
+        this.random = configManager.createRandom("mobility");
+        this.model = MobilityModel.create(configManager, devices);
+        this.policy = configManager.getHandoverPolicy();
+        this.hysteresis = "NEAREST".equals(policy) ? 0.0 : Math.max(configManager.getHandoverHysteresis(), 0.0);
+        this.boundaryFactor = Math.pow(10.0, hysteresis / (5.0 * Math.max(configManager.getPathLossExponent(), 1.0)));
+        this.handoverLatency = Math.max(configManager.getHandoverLatency(), 0.0) / 1000.0;
+        this.onHandoverListeners = new ArrayList<>();
+        this.waypoint = new double[2];
+
+        // Edge nodes on a grid of about square cells, or uniformly at random
+        double width = model.getWidth();
+        double height = model.getHeight();
+        double[] edgeXs = new double[edgeNodes.size()];
+        double[] edgeYs = new double[edgeNodes.size()];
+        int columns = (int) Math.ceil(Math.sqrt(edgeNodes.size() * width / height));
+        int rows = (int) Math.ceil((double) edgeNodes.size() / columns);
+        boolean randomPlacement = "RANDOM".equals(configManager.getEdgePlacement());
+        for (int e = 0; e < edgeNodes.size(); e++) {
+            edgeXs[e] = randomPlacement ? random.nextDouble() * width : (e % columns + 0.5) * width / columns;
+            edgeYs[e] = randomPlacement ? random.nextDouble() * height : (e / columns + 0.5) * height / rows;
+        }
+        this.spatialIndex = new EdgeSpatialIndex(edgeXs, edgeYs, width, height, configManager.getMobilityGridCellSize());
+
+        int size = devices.size();
+        this.fromXs = new double[size];
+        this.fromYs = new double[size];
+        this.toXs = new double[size];
+        this.toYs = new double[size];
+        this.legStarts = new double[size];
+        this.legArrivals = new double[size];
+        this.legEnds = new double[size];
+        this.cells = new int[size];
+        this.servingEdges = new int[size];
+        this.events = new IndexedMinHeap(size);
+        this.mobile = new BitSet(size);
+        this.countsByType = new LinkedHashMap<>();
+
+        Set<String> mobileTypes = configManager.getMobileDeviceTypes();
+        double[] position = new double[2];
+        for (int i = 0; i < size; i++) {
+            model.initialPosition(i, random, position);
+            fromXs[i] = toXs[i] = position[0];
+            fromYs[i] = toYs[i] = position[1];
+            legEnds[i] = Double.POSITIVE_INFINITY;
+            servingEdges[i] = spatialIndex.nearest(position[0], position[1]);
+            attach(i, servingEdges[i]);
+            if (mobileTypes.contains(devices.get(i).getDeviceType())) {
+                // Draws its first leg at time 0
+                mobile.set(i);
+                getCounts(i)[0]++;
+                legEnds[i] = 0.0;
+                events.schedule(i, 0.0);
+            }
+        }
+        LOGGER.info("Mobility: " + mobile.cardinality() + " of " + size + " devices move under "
+                + configManager.getMobilityModel() + " in a " + width + " x " + height + " m area, "
+                + String.format("%.1f", spatialIndex.getAverageCandidates()) + " edge candidates per "
+                + String.format("%.1f", spatialIndex.getCellSize()) + " m cell");
+    }
+
+    private long[] getCounts(int device) {
+        return countsByType.computeIfAbsent(devices.get(device).getDeviceType(), type -> new long[3]);
+    }
+
+    /**
+     * Moves a device to an edge node without a handover, e.g. when placing it
+     */
+    private void attach(int device, int edge) {
+        IoTDevice iotDevice = devices.get(device);
+        EdgeNode target = edgeNodes.get(edge);
+        EdgeNode current = iotDevice.getAssignedEdgeNode();
+        if (current == target) {
+            return;
+        }
+        if (current != null) {
+            current.handOver(iotDevice, target);
+        } else {
+            target.addIoTDevice(iotDevice);
+        }
+        iotDevice.setAssignedEdgeNode(target);
+        Integer from = current != null ? edgeIndices.get(current) : null;
+        for (HandoverListener listener : onHandoverListeners) {
+            listener.onHandover(device, from != null ? from : edge, edge);
+        }
+    }
+
+    /**
+     * Adds a listener notified when a device is handed over, e.g. to move its pipeline
+     *
+     * @param listener The callback
+     */
+    public void addOnHandoverListener(HandoverListener listener) {
+        onHandoverListeners.add(listener);
+    }
+
+    /**
+     * Moves the devices with the simulation clock, up to the horizon.
+     * Must be called before the simulation starts.
+     *
+     * @param simulation The simulation providing the clock
+     * @param horizon Simulated time (in seconds) after which devices stop moving
+     */
+    public void start(Simulation simulation, double horizon) {
+        simulation.addOnClockTickListener(info -> advanceTo(Math.min(info.getTime(), horizon)));
+        LOGGER.info("Device mobility started, " + policy + " handovers");
+    }
+
+    /**
+     * Applies the leg changes, cell crossings and handovers due by the given time
+     *
+     * @param currentTime Simulation time (in seconds)
+     */
+    public void advanceTo(double currentTime) {
+        while (events.isDue(currentTime)) {
+            double eventTime = events.peekTime();
+            int device = events.poll();
+            update(device, eventTime);
+        }
+        time = Math.max(time, currentTime);
+    }
+
+    private void update(int device, double eventTime) {
+        if (eventTime >= legEnds[device]) {
+            startLeg(device, eventTime);
+        }
+        double x = getX(device, eventTime);
+        double y = getY(device, eventTime);
+        cells[device] = cellAhead(device, eventTime, x, y);
+
+        int nearest = spatialIndex.nearest(x, y);
+        int serving = servingEdges[device];
+        if (nearest != serving && spatialIndex.squaredDistance(serving, x, y)
+                > boundaryFactor * spatialIndex.squaredDistance(nearest, x, y)) {
+            handOver(device, nearest, eventTime);
+        }
+        schedule(device, eventTime, x, y);
+    }
+
+    private void startLeg(int device, double currentTime) {
+        double x = getX(device, currentTime);
+        double y = getY(device, currentTime);
+        double arrival = model.nextWaypoint(device, currentTime, x, y, random, waypoint);
+        fromXs[device] = x;
+        fromYs[device] = y;
+        legStarts[device] = currentTime;
+        if (arrival == Double.POSITIVE_INFINITY) {
+            // Stays where it is
+            toXs[device] = x;
+            toYs[device] = y;
+            legArrivals[device] = currentTime;
+            legEnds[device] = Double.POSITIVE_INFINITY;
+            return;
+        }
+        toXs[device] = waypoint[0];
+        toYs[device] = waypoint[1];
+        legArrivals[device] = Math.max(arrival, currentTime);
+        legEnds[device] = Math.max(legArrivals[device] + model.pauseTime(device, random), currentTime + EPSILON);
+    }
+
+    private double getX(int device, double currentTime) {
+        if (currentTime >= legArrivals[device]) {
+            return toXs[device];
+        }
+        double progress = (currentTime - legStarts[device]) / (legArrivals[device] - legStarts[device]);
+        return fromXs[device] + (toXs[device] - fromXs[device]) * progress;
+    }
+
+    private double getY(int device, double currentTime) {
+        if (currentTime >= legArrivals[device]) {
+            return toYs[device];
+        }
+        double progress = (currentTime - legStarts[device]) / (legArrivals[device] - legStarts[device]);
+        return fromYs[device] + (toYs[device] - fromYs[device]) * progress;
+    }
+
+    private double getVelocityX(int device) {
+        return (toXs[device] - fromXs[device]) / (legArrivals[device] - legStarts[device]);
+    }
+
+    private double getVelocityY(int device) {
+        return (toYs[device] - fromYs[device]) / (legArrivals[device] - legStarts[device]);
+    }
+
+    /**
+     * Cell a device is in, or entering when it stands on a border
+     */
+    private int cellAhead(int device, double currentTime, double x, double y) {
+        if (currentTime >= legArrivals[device]) {
+            return spatialIndex.cellOf(x, y);
+        }
+        return spatialIndex.cellOf(x + getVelocityX(device) * EPSILON, y + getVelocityY(device) * EPSILON);
+    }
+
+    /**
+     * Queues the next event of a device: the end of its leg, its arrival at the destination, leaving
+     * its cell or crossing the handover boundary towards one of the cell's candidates
+     */
+    private void schedule(int device, double currentTime, double x, double y) {
+        double next = legEnds[device];
+        if (currentTime < legArrivals[device]) {
+            double vx = getVelocityX(device);
+            double vy = getVelocityY(device);
+            next = Math.min(legArrivals[device], currentTime + exitTime(cells[device], x, y, vx, vy));
+            next = Math.min(next, currentTime + crossingTime(device, x, y, vx, vy));
+        }
+        if (next < Double.POSITIVE_INFINITY) {
+            events.schedule(device, next);
+        }
+    }
+
+    /**
+     * Time until a device moving at the given velocity leaves its cell
+     */
+    private double exitTime(int cell, double x, double y, double vx, double vy) {
+        double minX = spatialIndex.getCellMinX(cell);
+        double minY = spatialIndex.getCellMinY(cell);
+        double size = spatialIndex.getCellSize();
+        double exitX = vx > 0 ? (minX + size - x) / vx : vx < 0 ? (minX - x) / vx : Double.POSITIVE_INFINITY;
+        double exitY = vy > 0 ? (minY + size - y) / vy : vy < 0 ? (minY - y) / vy : Double.POSITIVE_INFINITY;
+        return Math.max(Math.min(exitX, exitY), 0.0) + EPSILON;
+    }
+
+    /**
+     * Time until a moving device first needs a handover to one of its cell's candidates, i.e. until
+     * {@code |p(t) - serving|^2 - factor |p(t) - candidate|^2}, a quadratic in t (linear for a factor
+     * of 1), turns positive
+     */
+    private double crossingTime(int device, double x, double y, double vx, double vy) {
+        int serving = servingEdges[device];
+        double servingDx = x - spatialIndex.getEdgeX(serving);
+        double servingDy = y - spatialIndex.getEdgeY(serving);
+        double speed2 = vx * vx + vy * vy;
+        double a = speed2 * (1.0 - boundaryFactor);
+        double earliest = Double.POSITIVE_INFINITY;
+        int cell = cells[device];
+        for (int i = spatialIndex.getCandidatesStart(cell); i < spatialIndex.getCandidatesEnd(cell); i++) {
+            int candidate = spatialIndex.getCandidate(i);
+            if (candidate == serving) {
+                continue;
+            }
+            double dx = x - spatialIndex.getEdgeX(candidate);
+            double dy = y - spatialIndex.getEdgeY(candidate);
+            double b = 2.0 * (vx * servingDx + vy * servingDy - boundaryFactor * (vx * dx + vy * dy));
+            double c = servingDx * servingDx + servingDy * servingDy - boundaryFactor * (dx * dx + dy * dy);
+            double root;
+            if (c > 0) {
+                root = 0.0;
+            } else if (a == 0) {
+                root = b > 0 ? -c / b : Double.POSITIVE_INFINITY;
+            } else {
+                // a < 0: positive between the roots, if any
+                double discriminant = b * b - 4.0 * a * c;
+                root = discriminant < 0 ? Double.POSITIVE_INFINITY : (-b + Math.sqrt(discriminant)) / (2.0 * a);
+                if (root < 0) {
+                    root = Double.POSITIVE_INFINITY;
+                }
+            }
+            earliest = Math.min(earliest, root);
+        }
+        return earliest + EPSILON;
+    }
+
+    private void handOver(int device, int target, double currentTime) {
+        int from = servingEdges[device];
+        servingEdges[device] = target;
+        IoTDevice iotDevice = devices.get(device);
+        int rerouted = iotDevice.handOver(edgeNodes.get(target), currentTime + handoverLatency);
+        long[] counts = getCounts(device);
+        counts[1]++;
+        counts[2] += rerouted;
+        HANDOVER_LOG.log(() -> iotDevice.getDeviceId() + " handed over from " + edgeNodes.get(from).getNodeId()
+                + " to " + edgeNodes.get(target).getNodeId() + " at time " + currentTime);
+        for (HandoverListener listener : onHandoverListeners) {
+            listener.onHandover(device, from, target);
+        }
+    }
+
+    /**
+     * Position of a device at the current time
+     *
+     * @param device Index of the device
+     * @return x and y (in meters)
+     */
+    public double[] getPosition(int device) {
+        return new double[] {getX(device, time), getY(device, time)};
+    }
+
+    /**
+     * Edge node a device is attached to
+     *
+     * @return Index of the edge node
+     */
+    public int getServingEdge(int device) {
+        return servingEdges[device];
+    }
+
+    public long getTotalHandovers() {
+        long handovers = 0;
+        for (long[] counts : countsByType.values()) {
+            handovers += counts[1];
+        }
+        return handovers;
+    }
+
+    /**
+     * Moves the devices up to the end of the run
+     *
+     * @param endTime Simulated time (in seconds) of the end of the run
+     */
+    public void finish(double endTime) {
+        advanceTo(endTime);
+        finishTime = endTime;
+    }
+
+    /**
+     * Prints the handovers by device type
+     */
+    public void displayMobilityReport() {
+        System.out.println("\n=== Device Mobility ===");
+        System.out.printf("Handover policy: %s, %.1f dB hysteresis, %.0f ms latency\n", policy, hysteresis,
+                handoverLatency * 1000.0);
+        if (!devices.isEmpty()) {
+            System.out.println("Packets delayed by handovers: "
+                    + devices.get(0).getPopulation().getPacketsDelayedByHandover());
+        }
+        System.out.println("Type | Mobile Devices | Handovers | Handovers per Device-Hour | Packets Re-routed");
+        for (Map.Entry<String, long[]> entry : countsByType.entrySet()) {
+            long[] counts = entry.getValue();
+            double deviceHours = counts[0] * finishTime / 3600.0;
+            System.out.printf("%s | %d | %d | %.2f | %d\n", entry.getKey(), counts[0], counts[1],
+                    deviceHours > 0 ? counts[1] / deviceHours : 0.0, counts[2]);
+        }
+    }
+
+    /**
+     * Writes the legs, serving edge nodes and counters for a checkpoint
+     *
+     * @param out Checkpoint stream
+     * @throws IOException If the state cannot be written
+     */
+    public void saveState(DataOutput out) throws IOException {
+        CheckpointStreams.writeRandom(out, random);
+        out.writeDouble(time);
+        out.writeInt(devices.size());
+        for (int i = 0; i < devices.size(); i++) {
+            out.writeDouble(fromXs[i]);
+            out.writeDouble(fromYs[i]);
+            out.writeDouble(toXs[i]);
+            out.writeDouble(toYs[i]);
+            out.writeDouble(legStarts[i]);
+            out.writeDouble(legArrivals[i]);
+            out.writeDouble(legEnds[i]);
+            out.writeInt(servingEdges[i]);
+        }
+        out.writeInt(countsByType.size());
+        for (Map.Entry<String, long[]> entry : countsByType.entrySet()) {
+            out.writeUTF(entry.getKey());
+            for (long count : entry.getValue()) {
+                out.writeLong(count);
+            }
+        }
+    }
+
+    /**
+     * Restores the legs, serving edge nodes and counters from a checkpoint, moving the devices
+     * to their restored edge nodes. Must be called before the edge nodes restore their buffers.
+     *
+     * @param in Checkpoint stream
+     * @throws IOException If the state cannot be read or was taken with other devices
+     */
+    public void restoreState(DataInput in) throws IOException {
+        random = CheckpointStreams.readRandom(in);
+        time = in.readDouble();
+        int count = in.readInt();
+        if (count != devices.size()) {
+            throw new IOException("Checkpoint has the mobility of " + count + " devices, expected " + devices.size());
+        }
+        events.clear();
+        for (int i = 0; i < count; i++) {
+            fromXs[i] = in.readDouble();
+            fromYs[i] = in.readDouble();
+            toXs[i] = in.readDouble();
+            toYs[i] = in.readDouble();
+            legStarts[i] = in.readDouble();
+            legArrivals[i] = in.readDouble();
+            legEnds[i] = in.readDouble();
+            servingEdges[i] = in.readInt();
+            attach(i, servingEdges[i]);
+            if (mobile.get(i)) {
+                double x = getX(i, time);
+                double y = getY(i, time);
+                cells[i] = cellAhead(i, time, x, y);
+                schedule(i, time, x, y);
+            }
+        }
+        countsByType.clear();
+        int types = in.readInt();
+        for (int i = 0; i < types; i++) {
+            long[] counts = new long[3];
+            countsByType.put(in.readUTF(), counts);
+            for (int j = 0; j < counts.length; j++) {
+                counts[j] = in.readLong();
+            }
+        }
+    }
+}
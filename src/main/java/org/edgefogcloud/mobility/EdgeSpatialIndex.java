@@ -0,0 +1,210 @@
+package org.edgefogcloud.mobility;
+
+import java.util.Arrays;
+
+/**
+ * Uniform grid over the mobility area answering nearest-edge-node queries in constant time.
+ * Every cell lists the edge nodes that are the nearest to at least one of its points: those
+ * closer to the cell than the farthest point of the cell is from its best node. A query only
+ * compares the few candidates of the cell holding the point, and a device only needs a new
+ * query when it crosses into another cell or moves past the bisector of two candidates.
+ * <p>
+ * Edge nodes do not move, so the candidate lists are built once.
+ */
+public final class EdgeSpatialIndex {
+    private static final int MAX_CELLS = 1 << 22;
+
+    private final double[] edgeXs;
+    private final double[] edgeYs;
+    private final double cellSize; // in meters
+    private final int columns;
+    private final int rows;
+    private final int[] cellOffsets; // candidates of cell c in [cellOffsets[c], cellOffsets[c + 1])
+    private final int[] candidates; // edge node indices
+
+    /**
+     * Indexes the edge nodes of an area
+     *
+     * @param edgeXs Positions of the edge nodes (in meters)
+     * @param edgeYs Positions of the edge nodes (in meters)
+     * @param width Width of the area (in meters)
+     * @param height Height of the area (in meters)
+     * @param cellSize Side of the cells (in meters), 0 to size them for about four cells per edge node
+     */
+    public EdgeSpatialIndex(double[] edgeXs, double[] edgeYs, double width, double height, double cellSize) {
+        if (edgeXs.length == 0) {
+            throw new IllegalArgumentException("No edge node to index");
+        }
+        this.edgeXs = edgeXs;
+        this.edgeYs = edgeYs;
+        if (cellSize <= 0) {
+            cellSize = Math.sqrt(width * height / (4.0 * edgeXs.length));
+        }
+        // Keeps the grid within bounds for tiny cells
+        cellSize = Math.max(cellSize, Math.sqrt(width * height / MAX_CELLS));
+        this.cellSize = cellSize;
+        this.columns = Math.max(1, (int) Math.ceil(width / cellSize));
+        this.rows = Math.max(1, (int) Math.ceil(height / cellSize));
+
+        // Edge nodes by the cell they stand in, to search the cells around each cell ring by ring
+        int cells = columns * rows;
+        int[] nodeOffsets = new int[cells + 1];
+        for (int e = 0; e < edgeXs.length; e++) {
+            nodeOffsets[cellOf(edgeXs[e], edgeYs[e]) + 1]++;
+        }
+        for (int c = 0; c < cells; c++) {
+            nodeOffsets[c + 1] += nodeOffsets[c];
+        }
+        int[] nodes = new int[edgeXs.length];
+        int[] next = Arrays.copyOf(nodeOffsets, cells);
+        for (int e = 0; e < edgeXs.length; e++) {
+            nodes[next[cellOf(edgeXs[e], edgeYs[e])]++] = e;
+        }
+
+        this.cellOffsets = new int[cells + 1];
+        int[] found = new int[16];
+        int count = 0;
+        for (int c = 0; c < cells; c++) {
+            int column = c % columns;
+            int row = c / columns;
+            double minX = column * cellSize;
+            double minY = row * cellSize;
+
+            // Smallest distance from the farthest point of the cell to an edge node, ring by ring
+            double bound = Double.POSITIVE_INFINITY;
+            for (int ring = 0; ring <= columns + rows && (ring - 1) * cellSize <= bound; ring++) {
+                for (int e : ringNodes(column, row, ring, nodeOffsets, nodes)) {
+                    bound = Math.min(bound, maxDistance(minX, minY, e));
+                }
+            }
+            // Every node closer to the cell than that bound is the nearest to some point of it
+            for (int ring = 0; ring <= columns + rows && (ring - 1) * cellSize <= bound; ring++) {
+                for (int e : ringNodes(column, row, ring, nodeOffsets, nodes)) {
+                    if (minDistance(minX, minY, e) <= bound) {
+                        if (count == found.length) {
+                            found = Arrays.copyOf(found, count * 2);
+                        }
+                        found[count++] = e;
+                    }
+                }
+            }
+            cellOffsets[c + 1] = count;
+        }
+        this.candidates = Arrays.copyOf(found, count);
+    }
+
+    /**
+     * Edge nodes standing in the cells at the given Chebyshev distance from a cell
+     */
+    private int[] ringNodes(int column, int row, int ring, int[] nodeOffsets, int[] nodes) {
+        int count = 0;
+        int[] result = new int[0];
+        for (int r = row - ring; r <= row + ring; r++) {
+            if (r < 0 || r >= rows) {
+                continue;
+            }
+            boolean edgeRow = r == row - ring || r == row + ring;
+            for (int c = column - ring; c <= column + ring; c += edgeRow || ring == 0 ? 1 : 2 * ring) {
+                if (c < 0 || c >= columns) {
+                    continue;
+                }
+                int cell = r * columns + c;
+                int size = nodeOffsets[cell + 1] - nodeOffsets[cell];
+                if (size > 0) {
+                    result = Arrays.copyOf(result, count + size);
+                    System.arraycopy(nodes, nodeOffsets[cell], result, count, size);
+                    count += size;
+                }
+            }
+        }
+        return result;
+    }
+
+    private double minDistance(double minX, double minY, int edge) {
+        double dx = Math.max(Math.max(minX - edgeXs[edge], edgeXs[edge] - (minX + cellSize)), 0.0);
+        double dy = Math.max(Math.max(minY - edgeYs[edge], edgeYs[edge] - (minY + cellSize)), 0.0);
+        return Math.hypot(dx, dy);
+    }
+
+    private double maxDistance(double minX, double minY, int edge) {
+        double dx = Math.max(Math.abs(edgeXs[edge] - minX), Math.abs(edgeXs[edge] - (minX + cellSize)));
+        double dy = Math.max(Math.abs(edgeYs[edge] - minY), Math.abs(edgeYs[edge] - (minY + cellSize)));
+        return Math.hypot(dx, dy);
+    }
+
+    /**
+     * Cell holding a point; points outside the area belong to the nearest border cell
+     */
+    public int cellOf(double x, double y) {
+        int column = Math.min(Math.max((int) Math.floor(x / cellSize), 0), columns - 1);
+        int row = Math.min(Math.max((int) Math.floor(y / cellSize), 0), rows - 1);
+        return row * columns + column;
+    }
+
+    /**
+     * Nearest edge node to a point of the area
+     *
+     * @return Index of the edge node
+     */
+    public int nearest(double x, double y) {
+        int cell = cellOf(x, y);
+        int best = candidates[cellOffsets[cell]];
+        double bestDistance = squaredDistance(best, x, y);
+        for (int i = cellOffsets[cell] + 1; i < cellOffsets[cell + 1]; i++) {
+            double distance = squaredDistance(candidates[i], x, y);
+            if (distance < bestDistance) {
+                best = candidates[i];
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    public double squaredDistance(int edge, double x, double y) {
+        double dx = x - edgeXs[edge];
+        double dy = y - edgeYs[edge];
+        return dx * dx + dy * dy;
+    }
+
+    public double getEdgeX(int edge) {
+        return edgeXs[edge];
+    }
+
+    public double getEdgeY(int edge) {
+        return edgeYs[edge];
+    }
+
+    public int getCandidatesStart(int cell) {
+        return cellOffsets[cell];
+    }
+
+    public int getCandidatesEnd(int cell) {
+        return cellOffsets[cell + 1];
+    }
+
+    /**
+     * Candidate edge node at a position between {@link #getCandidatesStart(int)} and {@link #getCandidatesEnd(int)}
+     */
+    public int getCandidate(int position) {
+        return candidates[position];
+    }
+
+    public double getCellMinX(int cell) {
+        return (cell % columns) * cellSize;
+    }
+
+    public double getCellMinY(int cell) {
+        return (cell / columns) * cellSize;
+    }
+
+    public double getCellSize() {
+        return cellSize;
+    }
+
+    /**
+     * Average number of candidate edge nodes per cell
+     */
+    public double getAverageCandidates() {
+        return (double) candidates.length / (columns * rows);
+    }
+}
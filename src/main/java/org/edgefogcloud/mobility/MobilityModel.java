@@ -0,0 +1,247 @@
+package org.edgefogcloud.mobility;
+
+import org.edgefogcloud.devices.IoTDevice;
+import org.edgefogcloud.utils.ConfigManager;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.logging.Logger;
+
+/**
+ * Moves devices from waypoint to waypoint in a rectangular area, in straight lines at constant speed.
+ * A device's movement is a sequence of legs drawn one at a time, so its position at any time
+ * follows in closed form from its current leg:
+ * <ul>
+ * <li>{@code RANDOM_WAYPOINT}: a uniform destination in the area, reached at a uniform speed
+ *     between the minimum and maximum, followed by a uniform pause up to the maximum</li>
+ * <li>{@code TRACE}: the waypoints recorded for the device, reached at their recorded times</li>
+ * </ul>
+ * Models draw from a random generator owned, and checkpointed, by their caller.
+ * Positions are in meters and times in seconds.
+ */
+public abstract class MobilityModel {
+    protected final double width;
+    protected final double height;
+
+    protected MobilityModel(double width, double height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Creates the configured mobility model
+     *
+     * @param configManager Configuration of the model
+     * @param devices Devices, whose index in the list identifies them
+     * @return A new model
+     */
+    public static MobilityModel create(ConfigManager configManager, List<IoTDevice> devices) {
+        double width = configManager.getMobilityAreaWidth();
+        double height = configManager.getMobilityAreaHeight();
+        if ("TRACE".equals(configManager.getMobilityModel())) {
+            return new Trace(width, height, configManager.getMobilityTraceFile(), devices);
+        }
+        return new RandomWaypoint(width, height, configManager.getMobilityMinSpeed(),
+                configManager.getMobilityMaxSpeed(), configManager.getMobilityMaxPause());
+    }
+
+    public double getWidth() {
+        return width;
+    }
+
+    public double getHeight() {
+        return height;
+    }
+
+    /**
+     * Draws the position of a device at time 0
+     *
+     * @param device Index of the device
+     * @param random Random generator to draw from
+     * @param position Receives x and y
+     */
+    public void initialPosition(int device, Random random, double[] position) {
+        position[0] = random.nextDouble() * width;
+        position[1] = random.nextDouble() * height;
+    }
+
+    /**
+     * Draws the next waypoint of a device
+     *
+     * @param device Index of the device
+     * @param time Current time, at which the device is at its current position
+     * @param x Current position
+     * @param y Current position
+     * @param random Random generator to draw from
+     * @param waypoint Receives the x and y of the waypoint
+     * @return Time the device reaches the waypoint, after the current time; infinite if it stays still
+     */
+    public abstract double nextWaypoint(int device, double time, double x, double y, Random random, double[] waypoint);
+
+    /**
+     * Draws the time a device stays at a waypoint it reached
+     */
+    public double pauseTime(int device, Random random) {
+        return 0.0;
+    }
+
+    static final class RandomWaypoint extends MobilityModel {
+        private final double minSpeed; // in m/s
+        private final double maxSpeed; // in m/s
+        private final double maxPause; // in seconds
+
+        RandomWaypoint(double width, double height, double minSpeed, double maxSpeed, double maxPause) {
+            super(width, height);
+            this.minSpeed = Math.max(minSpeed, 0.01);
+            this.maxSpeed = Math.max(maxSpeed, this.minSpeed);
+            this.maxPause = Math.max(maxPause, 0.0);
+        }
+
+        @Override
+        public double nextWaypoint(int device, double time, double x, double y, Random random, double[] waypoint) {
+            waypoint[0] = random.nextDouble() * width;
+            waypoint[1] = random.nextDouble() * height;
+            double speed = minSpeed + random.nextDouble() * (maxSpeed - minSpeed);
+            return time + Math.hypot(waypoint[0] - x, waypoint[1] - y) / speed;
+        }
+
+        @Override
+        public double pauseTime(int device, Random random) {
+            return random.nextDouble() * maxPause;
+        }
+    }
+
+    /**
+     * Waypoints read from a CSV trace of {@code time,device,x,y} records sorted by time, where a
+     * first line that does not start with a number is a header. The waypoints are held in memory,
+     * grouped by device, and positions outside the area are clamped to it.
+     */
+    static final class Trace extends MobilityModel {
+        private static final Logger LOGGER = Logger.getLogger(Trace.class.getName());
+
+        private final int[] offsets; // first waypoint by device, waypoints of device d in [offsets[d], offsets[d + 1])
+        private final double[] times;
+        private final double[] xs;
+        private final double[] ys;
+
+        Trace(double width, double height, String file, List<IoTDevice> devices) {
+            super(width, height);
+            Map<String, Integer> indices = new HashMap<>();
+            for (int i = 0; i < devices.size(); i++) {
+                indices.put(devices.get(i).getDeviceId(), i);
+            }
+
+            // Records in file order, then grouped by device with a counting sort that keeps their order
+            int count = 0;
+            int skipped = 0;
+            int[] recordDevices = new int[1024];
+            double[] recordTimes = new double[1024];
+            double[] recordXs = new double[1024];
+            double[] recordYs = new double[1024];
+            try (BufferedReader reader = Files.newBufferedReader(Paths.get(file))) {
+                String line;
+                boolean first = true;
+                while ((line = reader.readLine()) != null) {
+                    line = line.trim();
+                    if (line.isEmpty() || (first && !Character.isDigit(line.charAt(0)))) {
+                        first = false;
+                        continue;
+                    }
+                    first = false;
+                    String[] fields = line.split(",");
+                    if (fields.length < 4) {
+                        throw new IOException("Expected time,device,x,y in mobility trace " + file + ": " + line);
+                    }
+                    Integer device = indices.get(fields[1].trim());
+                    if (device == null) {
+                        skipped++;
+                        continue;
+                    }
+                    if (count == recordDevices.length) {
+                        recordDevices = Arrays.copyOf(recordDevices, count * 2);
+                        recordTimes = Arrays.copyOf(recordTimes, count * 2);
+                        recordXs = Arrays.copyOf(recordXs, count * 2);
+                        recordYs = Arrays.copyOf(recordYs, count * 2);
+                    }
+                    recordDevices[count] = device;
+                    recordTimes[count] = Double.parseDouble(fields[0].trim());
+                    recordXs[count] = Math.min(Math.max(Double.parseDouble(fields[2].trim()), 0.0), width);
+                    recordYs[count] = Math.min(Math.max(Double.parseDouble(fields[3].trim()), 0.0), height);
+                    count++;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read the mobility trace " + file, e);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Malformed record in the mobility trace " + file, e);
+            }
+
+            offsets = new int[devices.size() + 1];
+            for (int i = 0; i < count; i++) {
+                offsets[recordDevices[i] + 1]++;
+            }
+            for (int d = 0; d < devices.size(); d++) {
+                offsets[d + 1] += offsets[d];
+            }
+            int[] next = Arrays.copyOf(offsets, devices.size());
+            times = new double[count];
+            xs = new double[count];
+            ys = new double[count];
+            for (int i = 0; i < count; i++) {
+                int position = next[recordDevices[i]]++;
+                times[position] = recordTimes[i];
+                xs[position] = recordXs[i];
+                ys[position] = recordYs[i];
+            }
+            for (int d = 0; d < devices.size(); d++) {
+                for (int i = offsets[d] + 1; i < offsets[d + 1]; i++) {
+                    if (times[i] < times[i - 1]) {
+                        throw new IllegalArgumentException("Mobility trace " + file + " is not sorted by time");
+                    }
+                }
+            }
+            LOGGER.info("Mobility trace " + file + ": " + count + " waypoints, " + skipped
+                    + " records of unknown devices skipped");
+        }
+
+        @Override
+        public void initialPosition(int device, Random random, double[] position) {
+            if (offsets[device] == offsets[device + 1]) {
+                super.initialPosition(device, random, position);
+            } else {
+                position[0] = xs[offsets[device]];
+                position[1] = ys[offsets[device]];
+            }
+        }
+
+        @Override
+        public double nextWaypoint(int device, double time, double x, double y, Random random, double[] waypoint) {
+            // First waypoint after the current time
+            int low = offsets[device];
+            int high = offsets[device + 1];
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (times[middle] <= time) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            if (low == offsets[device + 1]) {
+                waypoint[0] = x;
+                waypoint[1] = y;
+                return Double.POSITIVE_INFINITY;
+            }
+            waypoint[0] = xs[low];
+            waypoint[1] = ys[low];
+            return times[low];
+        }
+    }
+}
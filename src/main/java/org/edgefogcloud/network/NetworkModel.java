@@ -1,7 +1,12 @@
 package org.edgefogcloud.network;
 
+import org.edgefogcloud.events.NetworkCongestionEvent;
+import org.edgefogcloud.utils.CheckpointStreams;
 import org.edgefogcloud.utils.ConfigManager;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Random;
@@ -14,6 +19,9 @@ import java.util.logging.Logger;
 public class NetworkModel {
     private static final Logger LOGGER = Logger.getLogger(NetworkModel.class.getName());
     
+    // Layers ordered along the data path
+    private static final String[] LAYERS = {"IoT", "Edge", "Fog", "Cloud"};
+    
     private ConfigManager configManager;
     private Random random;
     
@@ -29,7 +37,7 @@ public class NetworkModel {
     
     public NetworkModel(ConfigManager configManager) {
         this.configManager = configManager;
-        this.random = new Random();
+        this.random = configManager.createRandom("network");
         
         // Initialize network characteristics from configuration
         this.wirelessBaseLatency = configManager.getWirelessBaseLatency();
@@ -118,9 +126,48 @@ public class NetworkModel {
         return adjustedLatency + jitter;
     }
     
+    /**
+     * Calculates the latency of moving data between two layers, summing every hop
+     * on the IoT -> Edge -> Fog -> Cloud path between them
+     * 
+     * @param fromLayer Source layer (IoT, Edge, Fog or Cloud)
+     * @param toLayer Destination layer (IoT, Edge, Fog or Cloud)
+     * @param dataSize Size of the data in bytes
+     * @return Transfer latency in milliseconds, 0 if both layers are the same
+     */
+    public double calculateTransferLatency(String fromLayer, String toLayer, int dataSize) {
+        int from = layerIndex(fromLayer);
+        int to = layerIndex(toLayer);
+        
+        double latency = 0.0;
+        for (int hop = Math.min(from, to); hop < Math.max(from, to); hop++) {
+            switch (hop) {
+                case 0:
+                    latency += calculateIoTToEdgeLatency(dataSize);
+                    break;
+                case 1:
+                    latency += calculateEdgeToFogLatency(dataSize);
+                    break;
+                default:
+                    latency += calculateFogToCloudLatency(dataSize);
+            }
+        }
+        
+        return latency;
+    }
+    
+    private int layerIndex(String layer) {
+        for (int i = 0; i < LAYERS.length; i++) {
+            if (LAYERS[i].equals(layer)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unknown layer: " + layer);
+    }
+    
     /**
      * Simulates network conditions changing over time
-     * Call this method periodically to update network conditions
+     * Called by the co-simulation once per simulated second, before the metrics of the second are collected
      * 
      * @param currentTime Current simulation time
      */
@@ -147,6 +194,14 @@ public class NetworkModel {
             congestionFactors.put("IoT-to-Edge", congestionFactors.get("IoT-to-Edge") * 1.5);
             congestionFactors.put("Edge-to-Fog", congestionFactors.get("Edge-to-Fog") * 1.3);
             congestionFactors.put("Fog-to-Cloud", congestionFactors.get("Fog-to-Cloud") * 1.2);
+            for (String linkType : new String[] {"IoT-to-Edge", "Edge-to-Fog", "Fog-to-Cloud"}) {
+                NetworkCongestionEvent event = new NetworkCongestionEvent();
+                if (event.shouldCommit()) {
+                    event.setActivity(linkType, "Network", currentTime, 0, 0);
+                    event.setLinkState(congestionFactors.get(linkType), linkQualityFactors.get(linkType));
+                    event.commit();
+                }
+            }
         }
     }
     
@@ -178,4 +233,28 @@ public class NetworkModel {
     public Map<String, Double> getCongestionFactors() {
         return new HashMap<>(congestionFactors);
     }
+    
+    /**
+     * Writes the link factors and random generator state for a checkpoint
+     * 
+     * @param out Checkpoint stream
+     * @throws IOException If the state cannot be written
+     */
+    public void saveState(DataOutput out) throws IOException {
+        CheckpointStreams.writeDoubleMap(out, linkQualityFactors);
+        CheckpointStreams.writeDoubleMap(out, congestionFactors);
+        CheckpointStreams.writeRandom(out, random);
+    }
+    
+    /**
+     * Restores the link factors and random generator state from a checkpoint
+     * 
+     * @param in Checkpoint stream
+     * @throws IOException If the state cannot be read
+     */
+    public void restoreState(DataInput in) throws IOException {
+        CheckpointStreams.readDoubleMap(in, linkQualityFactors);
+        CheckpointStreams.readDoubleMap(in, congestionFactors);
+        random = CheckpointStreams.readRandom(in);
+    }
 }
@@ -0,0 +1,314 @@
+package org.edgefogcloud.simulation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.DoubleFunction;
+
+import org.cloudbus.cloudsim.cloudlets.Cloudlet;
+
+/**
+ * A directed acyclic graph of cloudlets. Each task declares the layer it runs at and
+ * the tasks it depends on; a task only becomes ready once the output of every
+ * predecessor has been transferred to it. Workflows are run by a {@link WorkflowScheduler}.
+ * <p>
+ * A finished task may cancel its successors, e.g. once it has dropped its data: they and the
+ * tasks depending on them are never submitted, and count as finished for the workflow.
+ * It may also hold them, e.g. while its data waits to be batched with other data, until
+ * the scheduler is told to release or cancel them.
+ */
+public class CloudletWorkflow {
+    private final String name;
+    private final List<Task> tasks;
+
+    // Execution state, maintained by the scheduler
+    private double releaseTime;
+    private double finishTime;
+    private int unfinishedTasks;
+
+    /**
+     * Creates an empty workflow
+     *
+     * @param name Name of the pipeline this workflow is an instance of
+     */
+    public CloudletWorkflow(String name) {
+        this.name = name;
+        this.tasks = new ArrayList<>();
+        this.releaseTime = -1;
+        this.finishTime = -1;
+    }
+
+    /**
+     * Adds a task to the workflow
+     *
+     * @param cloudlet The cloudlet executing the task, already bound to its VM
+     * @param layer Layer (IoT, Edge, Fog or Cloud) the task's output is produced at
+     * @return The new task
+     */
+    public Task addTask(Cloudlet cloudlet, String layer) {
+        Task task = new Task(this, cloudlet, layer);
+        tasks.add(task);
+        return task;
+    }
+
+    /**
+     * Declares that a task consumes the output of another one
+     *
+     * @param predecessor Task producing the data
+     * @param successor Task consuming the data
+     */
+    public void addDependency(Task predecessor, Task successor) {
+        if (!tasks.contains(predecessor) || !tasks.contains(successor)) {
+            throw new IllegalArgumentException("Both tasks must belong to workflow " + name);
+        }
+        predecessor.successors.add(successor);
+        successor.predecessors.add(predecessor);
+    }
+
+    /**
+     * Walks the critical path backwards from the last finished task, following
+     * the predecessor whose output arrived last at each step
+     *
+     * @return Tasks on the critical path, from the root to the sink
+     */
+    public List<Task> getCriticalPath() {
+        Task sink = null;
+        for (Task task : tasks) {
+            if (task.cancelled) {
+                continue;
+            }
+            if (sink == null || task.cloudlet.getFinishTime() > sink.cloudlet.getFinishTime()) {
+                sink = task;
+            }
+        }
+
+        List<Task> path = new ArrayList<>();
+        for (Task task = sink; task != null; task = task.criticalPredecessor) {
+            path.add(0, task);
+        }
+        return path;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<Task> getTasks() {
+        return tasks;
+    }
+
+    public double getReleaseTime() {
+        return releaseTime;
+    }
+
+    public double getFinishTime() {
+        return finishTime;
+    }
+
+    /**
+     * Gets the end-to-end latency of the workflow, i.e. the length of its critical path
+     *
+     * @return Latency in seconds, or -1 if the workflow has not finished
+     */
+    public double getCriticalPathLatency() {
+        return finishTime < 0 ? -1 : finishTime - releaseTime;
+    }
+
+    void markReleased(double time) {
+        releaseTime = time;
+        unfinishedTasks = tasks.size();
+        for (Task task : tasks) {
+            task.pendingPredecessors = task.predecessors.size();
+            task.readyTime = time;
+        }
+    }
+
+    /**
+     * Records a finished task
+     *
+     * @return true if it was the last unfinished task of the workflow
+     */
+    boolean markTaskFinished(double time) {
+        unfinishedTasks--;
+        return checkFinished(time);
+    }
+
+    /**
+     * Records the end of the workflow if no unfinished task is left, e.g. after a cancellation
+     *
+     * @return true if the workflow has just finished
+     */
+    boolean checkFinished(double time) {
+        if (unfinishedTasks == 0 && finishTime < 0) {
+            finishTime = time;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Cancels a task that was not submitted, together with the tasks depending on it.
+     * Cancelled tasks count as finished.
+     *
+     * @return Number of tasks cancelled
+     */
+    int cancel(Task task) {
+        if (task.cancelled) {
+            return 0;
+        }
+        task.cancelled = true;
+        unfinishedTasks--;
+        int cancelled = 1;
+        for (Task successor : task.successors) {
+            cancelled += cancel(successor);
+        }
+        return cancelled;
+    }
+
+    /**
+     * What becomes of the successors of a finished task
+     */
+    public enum Continuation {
+        /** The successors run once all their inputs have arrived */
+        RELEASE,
+        /** The successors wait until they are released or cancelled through the scheduler */
+        HOLD,
+        /** The successors, and the tasks depending on them, never run */
+        CANCEL
+    }
+
+    /**
+     * A cloudlet inside a workflow together with its dependencies
+     */
+    public static class Task {
+        private final CloudletWorkflow workflow;
+        private final Cloudlet cloudlet;
+        private final String layer;
+        private final List<Task> predecessors;
+        private final List<Task> successors;
+
+        // Execution state, maintained by the scheduler
+        private int pendingPredecessors;
+        private double readyTime;         // when the last input arrived
+        private double inputTransferTime; // transfer latency of the last input
+        private Task criticalPredecessor;
+        private boolean held;
+        private boolean cancelled;
+        private DoubleFunction<Continuation> onFinished;
+
+        Task(CloudletWorkflow workflow, Cloudlet cloudlet, String layer) {
+            this.workflow = workflow;
+            this.cloudlet = cloudlet;
+            this.layer = layer;
+            this.predecessors = new ArrayList<>(1);
+            this.successors = new ArrayList<>(1);
+        }
+
+        /**
+         * Registers the arrival of a predecessor's output
+         *
+         * @return true if all inputs have now arrived
+         */
+        boolean inputArrived(Task predecessor, double arrivalTime, double transferTime) {
+            if (criticalPredecessor == null || arrivalTime > readyTime) {
+                readyTime = arrivalTime;
+                inputTransferTime = transferTime;
+                criticalPredecessor = predecessor;
+            }
+            pendingPredecessors--;
+            return pendingPredecessors == 0;
+        }
+
+        /**
+         * Checks whether the output of every predecessor has arrived
+         */
+        boolean isReady() {
+            return pendingPredecessors == 0;
+        }
+
+        void setHeld(boolean held) {
+            this.held = held;
+        }
+
+        /**
+         * Runs the callback of the finished task
+         *
+         * @return What becomes of its successors
+         */
+        Continuation finish(double time) {
+            return onFinished != null ? onFinished.apply(time) : Continuation.RELEASE;
+        }
+
+        /**
+         * Sets the callback run when the task finishes, before its successors are released
+         *
+         * @param onFinished Receives the finish time and decides whether the successors run
+         */
+        public void setOnFinished(DoubleFunction<Continuation> onFinished) {
+            this.onFinished = onFinished;
+        }
+
+        public CloudletWorkflow getWorkflow() {
+            return workflow;
+        }
+
+        public Cloudlet getCloudlet() {
+            return cloudlet;
+        }
+
+        public String getLayer() {
+            return layer;
+        }
+
+        public List<Task> getPredecessors() {
+            return predecessors;
+        }
+
+        public List<Task> getSuccessors() {
+            return successors;
+        }
+
+        public double getReadyTime() {
+            return readyTime;
+        }
+
+        public double getInputTransferTime() {
+            return inputTransferTime;
+        }
+
+        /**
+         * Checks whether a predecessor held the task, which waits to be released or cancelled
+         *
+         * @return true if the task is held
+         */
+        public boolean isHeld() {
+            return held;
+        }
+
+        /**
+         * Checks whether the task was cancelled
+         *
+         * @return true if the task never runs
+         */
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * Gets the time the task waited between its inputs arriving and starting execution
+         *
+         * @return Queueing delay in seconds
+         */
+        public double getQueueingDelay() {
+            return Math.max(0.0, cloudlet.getExecStartTime() - readyTime);
+        }
+
+        /**
+         * Gets the execution time of the task
+         *
+         * @return Execution time in seconds
+         */
+        public double getExecutionTime() {
+            return cloudlet.getFinishTime() - cloudlet.getExecStartTime();
+        }
+    }
+}
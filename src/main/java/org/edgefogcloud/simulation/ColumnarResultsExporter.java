@@ -0,0 +1,175 @@
+package org.edgefogcloud.simulation;
+
+import org.edgefogcloud.data.DataPacket;
+import org.edgefogcloud.devices.IoTDevice;
+import org.edgefogcloud.utils.ColumnarTableWriter;
+import org.edgefogcloud.utils.ColumnarTableWriter.ColumnType;
+import org.edgefogcloud.utils.MetricsCollector;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.cloudbus.cloudsim.cloudlets.Cloudlet;
+import org.cloudbus.cloudsim.core.Simulation;
+
+/**
+ * Exports the per-tick metrics, the per-packet traces and the per-cloudlet records of a run as
+ * Arrow IPC files: {@code ticks.arrow}, {@code packets.arrow} and {@code cloudlets.arrow}.
+ * The tables are filled from the simulation's listeners and written by one background thread.
+ */
+public class ColumnarResultsExporter {
+    private static final Logger LOGGER = Logger.getLogger(ColumnarResultsExporter.class.getName());
+
+    // ticks.arrow
+    private static final String[] TICK_COLUMNS = {
+            "time", "clock", "latency", "energy_consumption", "bandwidth_usage", "data_reduction"};
+    private static final ColumnType[] TICK_TYPES = {
+            ColumnType.INT, ColumnType.DOUBLE, ColumnType.DOUBLE, ColumnType.DOUBLE, ColumnType.DOUBLE, ColumnType.DOUBLE};
+
+    // packets.arrow
+    private static final String[] PACKET_COLUMNS = {
+            "release_time", "device_id", "edge_node", "timestamp", "size", "data_type"};
+    private static final ColumnType[] PACKET_TYPES = {
+            ColumnType.DOUBLE, ColumnType.STRING, ColumnType.STRING, ColumnType.INT, ColumnType.INT, ColumnType.STRING};
+
+    // cloudlets.arrow
+    private static final String[] CLOUDLET_COLUMNS = {
+            "cloudlet_id", "workflow", "layer", "vm_id", "length", "pes", "file_size", "output_size",
+            "ready_time", "start_time", "finish_time", "input_transfer_time", "queueing_delay", "execution_time"};
+    private static final ColumnType[] CLOUDLET_TYPES = {
+            ColumnType.LONG, ColumnType.STRING, ColumnType.STRING, ColumnType.LONG, ColumnType.LONG, ColumnType.INT,
+            ColumnType.LONG, ColumnType.LONG, ColumnType.DOUBLE, ColumnType.DOUBLE, ColumnType.DOUBLE,
+            ColumnType.DOUBLE, ColumnType.DOUBLE, ColumnType.DOUBLE};
+
+    private final Path directory;
+    private final int batchRows;
+    private final int maxQueuedBatches;
+    private final Simulation simulation;
+    private final MetricsCollector metricsCollector;
+
+    private ExecutorService writerThread;
+    private BufferAllocator allocator;
+    private ColumnarTableWriter ticks;
+    private ColumnarTableWriter packets;
+    private ColumnarTableWriter cloudlets;
+
+    /**
+     * Creates an exporter
+     *
+     * @param directory Directory the Arrow files are written to
+     * @param batchRows Rows per record batch
+     * @param maxQueuedBatches Full batches per table allowed to wait for the writer thread
+     * @param simulation The CloudSim Plus simulation providing the clock
+     * @param metricsCollector Metrics of the processed seconds
+     */
+    public ColumnarResultsExporter(Path directory, int batchRows, int maxQueuedBatches,
+                                   Simulation simulation, MetricsCollector metricsCollector) {
+        this.directory = directory;
+        this.batchRows = batchRows;
+        this.maxQueuedBatches = maxQueuedBatches;
+        this.simulation = simulation;
+        this.metricsCollector = metricsCollector;
+    }
+
+    /**
+     * Creates the files and subscribes to the simulation.
+     * Must be called before the simulation starts.
+     *
+     * @param coSimulation Co-simulation whose processed seconds are exported as ticks
+     * @param workloadSource Source whose packets and workflows are exported
+     * @throws IOException If a file cannot be created
+     */
+    public void start(TierCoSimulation coSimulation, StreamingWorkloadSource workloadSource) throws IOException {
+        writerThread = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "results-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        allocator = new RootAllocator();
+        ticks = new ColumnarTableWriter(directory.resolve("ticks.arrow"), TICK_COLUMNS, TICK_TYPES,
+                batchRows, maxQueuedBatches, writerThread, allocator);
+        packets = new ColumnarTableWriter(directory.resolve("packets.arrow"), PACKET_COLUMNS, PACKET_TYPES,
+                batchRows, maxQueuedBatches, writerThread, allocator);
+        cloudlets = new ColumnarTableWriter(directory.resolve("cloudlets.arrow"), CLOUDLET_COLUMNS, CLOUDLET_TYPES,
+                batchRows, maxQueuedBatches, writerThread, allocator);
+
+        coSimulation.addOnStepFinishedListener(this::onStepFinished);
+        workloadSource.addOnPacketReleasedListener(this::onPacketReleased);
+        workloadSource.getWorkflowScheduler().addOnWorkflowFinishedListener(this::onWorkflowFinished);
+        LOGGER.info("Exporting columnar results to " + directory);
+    }
+
+    private void onStepFinished(int processedSeconds) {
+        int time = processedSeconds - 1;
+        ticks.set(0, time);
+        ticks.set(1, simulation.clock());
+        ticks.set(2, metricsCollector.getLatencyByTime().getOrDefault(time, 0.0));
+        ticks.set(3, metricsCollector.getEnergyConsumptionByTime().getOrDefault(time, 0.0));
+        ticks.set(4, metricsCollector.getBandwidthUsageByTime().getOrDefault(time, 0.0));
+        ticks.set(5, metricsCollector.getDataReductionByTime().getOrDefault(time, 0.0));
+        ticks.endRow();
+    }
+
+    private void onPacketReleased(IoTDevice device, DataPacket packet) {
+        packets.set(0, simulation.clock());
+        packets.set(1, device.getDeviceId());
+        packets.set(2, device.getAssignedEdgeNode() != null ? device.getAssignedEdgeNode().getNodeId() : null);
+        packets.set(3, packet.getTimestamp());
+        packets.set(4, packet.getSize());
+        packets.set(5, packet.getDataType());
+        packets.endRow();
+    }
+
+    private void onWorkflowFinished(CloudletWorkflow workflow) {
+        for (CloudletWorkflow.Task task : workflow.getTasks()) {
+            if (task.isCancelled()) {
+                // Never ran, e.g. the stages after a filtered packet
+                continue;
+            }
+            Cloudlet cloudlet = task.getCloudlet();
+            cloudlets.set(0, cloudlet.getId());
+            cloudlets.set(1, workflow.getName());
+            cloudlets.set(2, task.getLayer());
+            cloudlets.set(3, cloudlet.getVm().getId());
+            cloudlets.set(4, cloudlet.getLength());
+            cloudlets.set(5, (int) cloudlet.getNumberOfPes());
+            cloudlets.set(6, cloudlet.getFileSize());
+            cloudlets.set(7, cloudlet.getOutputSize());
+            cloudlets.set(8, task.getReadyTime());
+            cloudlets.set(9, cloudlet.getExecStartTime());
+            cloudlets.set(10, cloudlet.getFinishTime());
+            cloudlets.set(11, task.getInputTransferTime());
+            cloudlets.set(12, task.getQueueingDelay());
+            cloudlets.set(13, task.getExecutionTime());
+            cloudlets.endRow();
+        }
+    }
+
+    /**
+     * Writes the remaining rows and completes the files.
+     * Must be called once the simulation and the co-simulation have finished.
+     */
+    public void finish() {
+        for (ColumnarTableWriter table : new ColumnarTableWriter[] {ticks, packets, cloudlets}) {
+            try {
+                table.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Could not complete columnar results", e);
+            }
+        }
+        writerThread.shutdown();
+        try {
+            writerThread.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        allocator.close();
+    }
+}
@@ -2,15 +2,29 @@ package org.edgefogcloud.simulation;
 
 import org.edgefogcloud.cloud.CloudDataCenter;
 import org.edgefogcloud.data.DataGenerator;
+import org.edgefogcloud.data.PacketTraceReader;
+import org.edgefogcloud.devices.DevicePopulation;
 import org.edgefogcloud.devices.IoTDevice;
 import org.edgefogcloud.edge.EdgeNode;
+import org.edgefogcloud.fog.Controller;
+import org.edgefogcloud.fog.FogDeviceScheduler;
+import org.edgefogcloud.fog.FogHostUtilizationHistory;
+import org.edgefogcloud.fog.FogLinearPowerModel;
 import org.edgefogcloud.fog.FogNode;
+import org.edgefogcloud.fog.FogPowerAwareVmAllocationPolicy;
+import org.edgefogcloud.mobility.DeviceMobility;
 import org.edgefogcloud.network.NetworkModel;
 import org.edgefogcloud.utils.ConfigManager;
 import org.edgefogcloud.utils.MetricsCollector;
 import org.edgefogcloud.utils.ResultsVisualizer;
+import org.edgefogcloud.utils.SimulationLog;
+import org.edgefogcloud.utils.SimulationProfiler;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -19,7 +33,6 @@ import java.util.logging.Logger;
 
 // CloudSim Plus imports
 import org.cloudbus.cloudsim.brokers.DatacenterBroker;
-import org.cloudbus.cloudsim.brokers.DatacenterBrokerSimple;
 import org.cloudbus.cloudsim.cloudlets.Cloudlet;
 import org.cloudbus.cloudsim.cloudlets.CloudletSimple;
 import org.cloudbus.cloudsim.core.CloudSim;
@@ -27,15 +40,14 @@ import org.cloudbus.cloudsim.datacenters.Datacenter;
 import org.cloudbus.cloudsim.datacenters.DatacenterSimple;
 import org.cloudbus.cloudsim.hosts.Host;
 import org.cloudbus.cloudsim.hosts.HostSimple;
+import org.cloudbus.cloudsim.power.models.PowerModelHostSimple;
 import org.cloudbus.cloudsim.resources.Pe;
 import org.cloudbus.cloudsim.resources.PeSimple;
-import org.cloudbus.cloudsim.schedulers.cloudlet.CloudletSchedulerTimeShared;
 import org.cloudbus.cloudsim.schedulers.vm.VmSchedulerTimeShared;
 import org.cloudbus.cloudsim.utilizationmodels.UtilizationModel;
 import org.cloudbus.cloudsim.utilizationmodels.UtilizationModelFull;
 import org.cloudbus.cloudsim.vms.Vm;
 import org.cloudbus.cloudsim.vms.VmSimple;
-import org.cloudsimplus.builders.tables.CloudletsTableBuilder;
 
 /**
  * Main simulation class for Edge-Fog-Cloud architecture in IoT environments
@@ -48,10 +60,13 @@ public class EdgeFogCloudSimulation {
     // Configuration and metrics
     private ConfigManager configManager;
     private MetricsCollector metricsCollector;
+    private SimulationProfiler profiler;
     private ResultsVisualizer resultsVisualizer;
     
     // Custom objects for our Edge-Fog-Cloud architecture
     private List<IoTDevice> iotDevices;
+    private DevicePopulation devicePopulation;
+    private DeviceMobility deviceMobility; // null when devices do not move
     private List<EdgeNode> edgeNodes;
     private List<FogNode> fogNodes;
     private CloudDataCenter cloudDataCenter;
@@ -61,7 +76,15 @@ public class EdgeFogCloudSimulation {
     private List<org.cloudbus.cloudsim.datacenters.Datacenter> datacenters;
     private List<org.cloudbus.cloudsim.hosts.Host> hosts;
     private List<org.cloudbus.cloudsim.vms.Vm> vms;
-    private List<org.cloudbus.cloudsim.cloudlets.Cloudlet> cloudlets;
+    private StreamingWorkloadSource workloadSource;
+    private HostEnergyMeter energyMeter;
+    private FogPowerAwareVmAllocationPolicy fogAllocationPolicy;
+    private TierAutoscaler autoscaler;
+    private Controller fogController;
+    private TierCoSimulation coSimulation;
+    private SimulationCheckpointer checkpointer;
+    private LiveMetricsEndpoint metricsEndpoint;
+    private ColumnarResultsExporter resultsExporter;
     private org.cloudbus.cloudsim.brokers.DatacenterBroker broker;
     private org.cloudbus.cloudsim.core.CloudSim simulation;
     
@@ -71,13 +94,27 @@ public class EdgeFogCloudSimulation {
      * Constructor initializes the simulation environment
      */
     public EdgeFogCloudSimulation() {
+        this(new ConfigManager());
+    }
+    
+    /**
+     * Initializes the simulation environment with the given configuration,
+     * e.g. one overridden by a benchmark harness
+     * 
+     * @param configManager The configuration
+     */
+    public EdgeFogCloudSimulation(ConfigManager configManager) {
         LOGGER.info("Initializing Edge-Fog-Cloud Simulation with CloudSim Plus...");
-        this.configManager = new ConfigManager();
+        this.configManager = configManager;
+        SimulationLog.configure(configManager);
         this.metricsCollector = new MetricsCollector();
-        this.resultsVisualizer = new ResultsVisualizer();
+        this.profiler = new SimulationProfiler(configManager.isProfilerEnabled(), configManager.getProfilerInterval());
+        this.resultsVisualizer = new ResultsVisualizer(configManager.getChartRenderThreads(),
+                configManager.getChartPointsPerPixel());
         
         // Initialize our custom objects for metrics
         this.iotDevices = new ArrayList<>();
+        this.devicePopulation = new DevicePopulation(configManager, configManager.getNumIoTDevices());
         this.edgeNodes = new ArrayList<>();
         this.fogNodes = new ArrayList<>();
         
@@ -85,7 +122,6 @@ public class EdgeFogCloudSimulation {
         this.datacenters = new ArrayList<>();
         this.hosts = new ArrayList<>();
         this.vms = new ArrayList<>();
-        this.cloudlets = new ArrayList<>();
         
         // Load simulation parameters
         this.simulationTime = configManager.getSimulationTime();
@@ -101,38 +137,102 @@ public class EdgeFogCloudSimulation {
      * Sets up the simulation environment with both CloudSim Plus components
      * and our custom objects for detailed metrics
      */
-    private void setupSimulation() {
+    public void setupSimulation() throws IOException {
         LOGGER.info("Setting up CloudSim Plus simulation environment...");
         
         // Initialize CloudSim Plus library
         this.simulation = new CloudSim();
         
-        // Create broker to manage VM and cloudlet allocation
-        this.broker = new DatacenterBrokerSimple(simulation);
+        // Create broker to manage VM and cloudlet allocation.
+        // VMs must survive the idle gaps between device emissions.
+        // Returned cloudlets are not kept, as the workload is streamed.
+        this.broker = new StreamingBroker(simulation);
+        broker.setVmDestructionDelay(simulationTime);
         
-        // Create datacenters for cloud, fog, and edge layers
+        // Create datacenters for cloud, fog, and edge layers.
+        // Every host is metered for utilization-driven energy accounting.
+        this.energyMeter = new HostEnergyMeter(simulation);
         createCloudDatacenter();
         createFogDatacenter();
         createEdgeDatacenter();
+        if (configManager.isMobilityEnabled()) {
+            // Devices are placed in the area and attach to their nearest edge node
+            deviceMobility = new DeviceMobility(configManager, iotDevices, edgeNodes);
+        }
         
         // Create VMs for each layer
         createCloudVMs();
         createFogVMs();
         createEdgeVMs();
         
-        // Create cloudlets representing tasks
-        createCloudlets();
+        // Create the streaming source of cloudlets representing tasks
+        createWorkloadSource();
         
-        // Submit VMs and cloudlets to broker
+        // Submit VMs to broker; cloudlets are streamed as devices emit data
         broker.submitVmList(vms);
-        broker.submitCloudletList(cloudlets);
+        if (configManager.isAutoscalingEnabled()) {
+            createAutoscaler();
+        }
         
-        // Create custom topology for our detailed metrics
+        // Create custom topology for our detailed metrics,
+        // driven by the CloudSim Plus clock and the packets the workload releases
         createCustomTopology();
+        if (deviceMobility != null) {
+            deviceMobility.start(simulation, simulationTime);
+        }
+        coSimulation = new TierCoSimulation(simulation, simulationTime, devicePopulation, edgeNodes, fogNodes,
+                cloudDataCenter, networkModel, metricsCollector, profiler);
+        coSimulation.start(workloadSource);
+        createCheckpointer();
+        if (configManager.isMetricsEndpointEnabled()) {
+            metricsEndpoint = new LiveMetricsEndpoint(configManager.getMetricsEndpointPort(),
+                    configManager.getMetricsEndpointInterval(), devicePopulation, edgeNodes, fogNodes,
+                    cloudDataCenter, metricsCollector, workloadSource.getWorkflowScheduler());
+            metricsEndpoint.start(simulation, coSimulation);
+        }
+        if (configManager.isColumnarExportEnabled()) {
+            resultsExporter = new ColumnarResultsExporter(Paths.get(configManager.getColumnarExportDirectory()),
+                    configManager.getColumnarExportBatchRows(), configManager.getColumnarExportQueuedBatches(),
+                    simulation, metricsCollector);
+            resultsExporter.start(coSimulation, workloadSource);
+        }
+        
+        workloadSource.start();
+        energyMeter.start();
         
         LOGGER.info("Simulation environment setup completed.");
     }
     
+    /**
+     * Creates the checkpointer saving the simulation state periodically, and restores
+     * the configured checkpoint or warm-start snapshot before the workload starts
+     */
+    private void createCheckpointer() throws IOException {
+        String resumeFile = configManager.getCheckpointResumeFile();
+        if (!configManager.isCheckpointEnabled() && resumeFile.isEmpty() && !configManager.isWarmStartEnabled()) {
+            return;
+        }
+        
+        checkpointer = new SimulationCheckpointer(Paths.get(configManager.getCheckpointDirectory()),
+                configManager.getCheckpointInterval(), iotDevices, edgeNodes, fogNodes,
+                cloudDataCenter, networkModel, metricsCollector, workloadSource, deviceMobility);
+        if (!resumeFile.isEmpty()) {
+            coSimulation.resumeAt(checkpointer.restore(Paths.get(resumeFile)));
+        } else if (configManager.isWarmStartEnabled()) {
+            WarmStartSnapshot snapshot = new WarmStartSnapshot(Paths.get(configManager.getWarmStartDirectory()),
+                    configManager.getFingerprint(), configManager.getWarmUpTime(),
+                    configManager.getWarmStartSnapshotInterval(), checkpointer, metricsCollector);
+            if (snapshot.exists()) {
+                coSimulation.resumeAt(snapshot.restore());
+            } else {
+                snapshot.record(coSimulation);
+            }
+        }
+        if (configManager.isCheckpointEnabled()) {
+            checkpointer.start(coSimulation);
+        }
+    }
+    
     /**
      * Creates the Cloud datacenter with high-performance hosts
      */
@@ -155,6 +255,10 @@ public class EdgeFogCloudSimulation {
         org.cloudbus.cloudsim.hosts.Host host = new org.cloudbus.cloudsim.hosts.HostSimple(ram, bw, storage, peList);
         host.setId(hostId);
         host.setVmScheduler(new org.cloudbus.cloudsim.schedulers.vm.VmSchedulerTimeShared());
+        host.setPowerModel(new PowerModelHostSimple(
+                configManager.getCloudHostMaxPower(), configManager.getCloudHostStaticPower()));
+        host.enableUtilizationStats();
+        energyMeter.addHost(host, "Cloud");
         
         // Create a list to hold hosts
         List<org.cloudbus.cloudsim.hosts.Host> hostList = new ArrayList<>();
@@ -186,30 +290,40 @@ public class EdgeFogCloudSimulation {
     private void createFogDatacenter() {
         LOGGER.info("Creating Fog datacenter...");
         
-        // Create PEs (Processing Elements, i.e., CPU cores)
-        List<org.cloudbus.cloudsim.resources.Pe> peList = new ArrayList<>();
         int fogPes = configManager.getFogHostPes();
         int mips = configManager.getFogHostMips();
-        for (int i = 0; i < fogPes; i++) {
-            peList.add(new org.cloudbus.cloudsim.resources.PeSimple(mips));
-        }
-        
-        // Create Host
-        int hostId = 1; // Use a different ID than cloud host
         long ram = configManager.getFogHostRam(); // in MB
         long storage = configManager.getFogHostStorage(); // in MB
         long bw = configManager.getFogHostBw(); // in Mbps
+        double consolidationInterval = configManager.getFogConsolidationInterval();
         
-        org.cloudbus.cloudsim.hosts.Host host = new org.cloudbus.cloudsim.hosts.HostSimple(ram, bw, storage, peList);
-        host.setId(hostId);
-        host.setVmScheduler(new org.cloudbus.cloudsim.schedulers.vm.VmSchedulerTimeShared());
-                
+        // Create Hosts, each with its own PEs (Processing Elements, i.e., CPU cores)
         List<org.cloudbus.cloudsim.hosts.Host> hostList = new ArrayList<>();
-        hostList.add(host);
+        int numFogHosts = configManager.getFogHostCount();
+        for (int h = 0; h < numFogHosts; h++) {
+            List<org.cloudbus.cloudsim.resources.Pe> peList = new ArrayList<>();
+            for (int i = 0; i < fogPes; i++) {
+                peList.add(new org.cloudbus.cloudsim.resources.PeSimple(mips));
+            }
+            
+            org.cloudbus.cloudsim.hosts.Host host = new FogHostUtilizationHistory(ram, bw, storage, peList,
+                    new org.cloudbus.cloudsim.schedulers.vm.VmSchedulerTimeShared(),
+                    new FogLinearPowerModel(configManager.getFogHostMaxPower(), configManager.getFogHostStaticPower()),
+                    consolidationInterval);
+            host.setId(1 + h); // After the cloud host
+            energyMeter.addHost(host, "Fog");
+            hostList.add(host);
+        }
         
-        // Create Datacenter
-        org.cloudbus.cloudsim.datacenters.Datacenter datacenter = new org.cloudbus.cloudsim.datacenters.DatacenterSimple(simulation, hostList);
+        // Create Datacenter with power-aware VM consolidation,
+        // re-evaluated every consolidation interval
+        fogAllocationPolicy = new FogPowerAwareVmAllocationPolicy(
+                configManager.getFogUnderUtilizationThreshold(), configManager.getFogOverUtilizationThreshold());
+        org.cloudbus.cloudsim.datacenters.Datacenter datacenter = new FogDeviceScheduler(simulation, hostList, fogAllocationPolicy);
         datacenter.setName("FogDatacenter");
+        datacenter.setSchedulingInterval(consolidationInterval);
+        datacenter.enableMigrations();
+        fogController = new Controller("FogController", Collections.singletonList(datacenter), broker, simulation);
         
         // Set datacenter characteristics
         datacenter.getCharacteristics()
@@ -219,8 +333,8 @@ public class EdgeFogCloudSimulation {
             .setCostPerBw(0.0005);
         
         datacenters.add(datacenter);
-        hosts.add(host);
-        LOGGER.info("Fog Datacenter created with " + fogPes + " PEs, " + ram + "MB RAM");
+        hosts.addAll(hostList);
+        LOGGER.info("Fog Datacenter created with " + numFogHosts + " hosts of " + fogPes + " PEs, " + ram + "MB RAM");
         
         // Create our custom Fog nodes for metrics
         int numFogNodes = configManager.getNumFogNodes();
@@ -246,7 +360,7 @@ private void createEdgeDatacenter() {
     }
 
     // Create Host
-    int hostId = 2; // Use a different ID than cloud and fog hosts
+    int hostId = 1 + configManager.getFogHostCount(); // Use a different ID than cloud and fog hosts
     long ram = configManager.getEdgeHostRam(); // in MB
     long storage = configManager.getEdgeHostStorage(); // in MB
     long bw = configManager.getEdgeHostBw(); // in Mbps
@@ -254,6 +368,10 @@ private void createEdgeDatacenter() {
     org.cloudbus.cloudsim.hosts.Host host = new org.cloudbus.cloudsim.hosts.HostSimple(ram, bw, storage, peList);
     host.setId(hostId);
     host.setVmScheduler(new org.cloudbus.cloudsim.schedulers.vm.VmSchedulerTimeShared());
+    host.setPowerModel(new PowerModelHostSimple(
+            configManager.getEdgeHostMaxPower(), configManager.getEdgeHostStaticPower()));
+    host.enableUtilizationStats();
+    energyMeter.addHost(host, "Edge");
 
     List<org.cloudbus.cloudsim.hosts.Host> hostList = new ArrayList<>();
     hostList.add(host);
@@ -283,7 +401,7 @@ private void createEdgeDatacenter() {
         int devicesPerEdge = configManager.getNumIoTDevices() / configManager.getNumEdgeNodes();
         for (int j = 0; j < devicesPerEdge; j++) {
             int deviceId = i * devicesPerEdge + j;
-            IoTDevice device = new IoTDevice("IoT-Device-" + deviceId, configManager);
+            IoTDevice device = devicePopulation.createDevice("IoT-Device-" + deviceId);
             device.setAssignedEdgeNode(edgeNode);
             edgeNode.addAssignedDevice(device);
             iotDevices.add(device);
@@ -299,8 +417,23 @@ private void createEdgeDatacenter() {
     private void createCloudVMs() {
         LOGGER.info("Creating Cloud VMs...");
         
-        // Cloud VM characteristics
         int vmId = 0;
+        org.cloudbus.cloudsim.vms.Vm cloudVm = createCloudVm(vmId);
+        
+        vms.add(cloudVm);
+        broker.submitVm(cloudVm);
+        
+        LOGGER.info("Created Cloud VM with ID: " + vmId + ", MIPS: " + cloudVm.getMips() + ", Cores: " + cloudVm.getNumberOfPes());
+    }
+    
+    /**
+     * Creates a high-performance Cloud VM
+     * 
+     * @param vmId The VM ID
+     * @return A new VM, not yet submitted
+     */
+    private org.cloudbus.cloudsim.vms.Vm createCloudVm(long vmId) {
+        // Cloud VM characteristics
         int mips = 50000; // High MIPS for cloud
         long size = 100000; // 100 GB VM image size
         long ram = 16384; // 16 GB RAM
@@ -308,16 +441,11 @@ private void createEdgeDatacenter() {
         int pesNumber = 8; // 8 CPU cores
         
         // Create Cloud VM with CloudSim Plus
-        org.cloudbus.cloudsim.vms.Vm cloudVm = new org.cloudbus.cloudsim.vms.VmSimple(vmId, mips, pesNumber)
+        return new org.cloudbus.cloudsim.vms.VmSimple(vmId, mips, pesNumber)
             .setRam(ram)
             .setBw(bw)
             .setSize(size)
-            .setCloudletScheduler(new org.cloudbus.cloudsim.schedulers.cloudlet.CloudletSchedulerTimeShared());
-        
-        vms.add(cloudVm);
-        broker.submitVm(cloudVm);
-        
-        LOGGER.info("Created Cloud VM with ID: " + vmId + ", MIPS: " + mips + ", Cores: " + pesNumber);
+            .setCloudletScheduler(new StreamingCloudletScheduler());
     }
     
     /**
@@ -326,53 +454,56 @@ private void createEdgeDatacenter() {
     private void createFogVMs() {
         LOGGER.info("Creating Fog VMs...");
         
-        // Fog VM characteristics
-        int startVmId = vms.size();
-        int mips = 20000; // Medium MIPS for fog
-        long size = 50000; // 50 GB VM image size
-        long ram = 8192; // 8 GB RAM
-        long bw = 1000; // 1 Gbps
-        int pesNumber = 4; // 4 CPU cores
-        
         // Create Fog VMs
+        int startVmId = vms.size();
+        List<org.cloudbus.cloudsim.vms.Vm> fogVms = new ArrayList<>();
         for (int i = 0; i < fogNodes.size(); i++) {
-            int vmId = startVmId + i;
-            org.cloudbus.cloudsim.vms.Vm fogVm = new org.cloudbus.cloudsim.vms.VmSimple(vmId, mips, pesNumber)
-                .setRam(ram)
-                .setBw(bw)
-                .setSize(size)
-                .setCloudletScheduler(new org.cloudbus.cloudsim.schedulers.cloudlet.CloudletSchedulerTimeShared());
-            
+            org.cloudbus.cloudsim.vms.Vm fogVm = createFogVm(startVmId + i);
             vms.add(fogVm);
+            fogVms.add(fogVm);
             broker.submitVm(fogVm);
         }
         
+        // Fog VMs grow under load, within the capacity of their host
+        if (configManager.isFogVerticalScalingEnabled()) {
+            fogController.enableVerticalScaling(fogVms, configManager.getFogVerticalScalingInterval(),
+                    configManager.getFogVerticalScalingFactor(), configManager.getFogVerticalScalingBacklog());
+        }
+        
         LOGGER.info("Created " + fogNodes.size() + " Fog VMs");
     }
     
+    /**
+     * Creates a medium-performance Fog VM
+     * 
+     * @param vmId The VM ID
+     * @return A new VM, not yet submitted
+     */
+    private org.cloudbus.cloudsim.vms.Vm createFogVm(long vmId) {
+        // Fog VM characteristics
+        int mips = 20000; // Medium MIPS for fog
+        long size = 50000; // 50 GB VM image size
+        long ram = 8192; // 8 GB RAM
+        long bw = 1000; // 1 Gbps
+        int pesNumber = 4; // 4 CPU cores
+        
+        return new org.cloudbus.cloudsim.vms.VmSimple(vmId, mips, pesNumber)
+            .setRam(ram)
+            .setBw(bw)
+            .setSize(size)
+            .setCloudletScheduler(new StreamingCloudletScheduler());
+    }
+    
     /**
      * Creates VMs for Edge nodes
      */
     private void createEdgeVMs() {
         LOGGER.info("Creating Edge VMs...");
         
-        // Edge VM characteristics
-        int startVmId = vms.size();
-        int mips = 8000; // Lower MIPS for edge
-        long size = 20000; // 20 GB VM image size
-        long ram = 4096; // 4 GB RAM
-        long bw = 100; // 100 Mbps
-        int pesNumber = 2; // 2 CPU cores
-        
         // Create Edge VMs
+        int startVmId = vms.size();
         for (int i = 0; i < edgeNodes.size(); i++) {
-            int vmId = startVmId + i;
-            org.cloudbus.cloudsim.vms.Vm edgeVm = new org.cloudbus.cloudsim.vms.VmSimple(vmId, mips, pesNumber)
-                .setRam(ram)
-                .setBw(bw)
-                .setSize(size)
-                .setCloudletScheduler(new org.cloudbus.cloudsim.schedulers.cloudlet.CloudletSchedulerTimeShared());
-            
+            org.cloudbus.cloudsim.vms.Vm edgeVm = createEdgeVm(startVmId + i);
             vms.add(edgeVm);
             broker.submitVm(edgeVm);
         }
@@ -381,17 +512,35 @@ private void createEdgeDatacenter() {
     }
     
     /**
-     * Creates cloudlets representing tasks at different layers
+     * Creates a low-performance Edge VM
+     * 
+     * @param vmId The VM ID
+     * @return A new VM, not yet submitted
      */
-    private void createCloudlets() {
-        LOGGER.info("Creating cloudlets (tasks)...");
+    private org.cloudbus.cloudsim.vms.Vm createEdgeVm(long vmId) {
+        // Edge VM characteristics
+        int mips = 8000; // Lower MIPS for edge
+        long size = 20000; // 20 GB VM image size
+        long ram = 4096; // 4 GB RAM
+        long bw = 100; // 100 Mbps
+        int pesNumber = 2; // 2 CPU cores
         
-        // Create utilization model for cloudlets
-        org.cloudbus.cloudsim.utilizationmodels.UtilizationModel utilizationModel = 
-            new org.cloudbus.cloudsim.utilizationmodels.UtilizationModelFull();
+        return new org.cloudbus.cloudsim.vms.VmSimple(vmId, mips, pesNumber)
+            .setRam(ram)
+            .setBw(bw)
+            .setSize(size)
+            .setCloudletScheduler(new StreamingCloudletScheduler());
+    }
+    
+    /**
+     * Creates the streaming workload source that releases each device's pipeline
+     * (data generation -> filtering -> processing -> analytics) as a workflow whenever
+     * the device emits data, or replays the configured packet trace
+     */
+    private void createWorkloadSource() throws IOException {
+        LOGGER.info("Creating streaming workload source...");
         
-        // Create cloudlets for IoT data processing
-        int cloudletId = 0;
+        workloadSource = new StreamingWorkloadSource(broker, networkModel, simulationTime, profiler);
         
         // Assign VMs for each layer
         org.cloudbus.cloudsim.vms.Vm cloudVm = vms.get(0); // First VM is cloud VM
@@ -410,85 +559,71 @@ private void createEdgeDatacenter() {
             edgeVms.add(vms.get(i));
         }
         
-        for (int i = 0; i < iotDevices.size(); i++) {
-            IoTDevice device = iotDevices.get(i);
+        for (IoTDevice device : iotDevices) {
             EdgeNode assignedEdge = device.getAssignedEdgeNode();
             int edgeIndex = edgeNodes.indexOf(assignedEdge);
             int fogIndex = edgeIndex % fogNodes.size(); // Simple assignment strategy
             
-            org.cloudbus.cloudsim.vms.Vm edgeVm = edgeVms.get(edgeIndex);
-            org.cloudbus.cloudsim.vms.Vm fogVm = fogVms.get(fogIndex);
-            
-            // Data generation cloudlet (IoT device)
-            int pesNumber = 1;
-            long length = 1000; // Instructions
-            long fileSize = 1000; // Input file size (bytes)
-            long outputSize = 2000; // Output file size (bytes)
-            
-            org.cloudbus.cloudsim.cloudlets.Cloudlet dataGenCloudlet = 
-                new org.cloudbus.cloudsim.cloudlets.CloudletSimple(cloudletId++, length, pesNumber)
-                    .setFileSize(fileSize)
-                    .setOutputSize(outputSize)
-                    .setUtilizationModelCpu(utilizationModel)
-                    .setUtilizationModelRam(utilizationModel)
-                    .setUtilizationModelBw(utilizationModel);
-            
-            cloudlets.add(dataGenCloudlet);
-            broker.bindCloudletToVm(dataGenCloudlet, edgeVm);
-            
-            // Data filtering cloudlet (Edge)
-            pesNumber = 2;
-            length = 3000; // More instructions for filtering
-            fileSize = 2000; // Input file size (bytes)
-            outputSize = 1000; // Output file size (bytes)
-            
-            org.cloudbus.cloudsim.cloudlets.Cloudlet filterCloudlet = 
-                new org.cloudbus.cloudsim.cloudlets.CloudletSimple(cloudletId++, length, pesNumber)
-                    .setFileSize(fileSize)
-                    .setOutputSize(outputSize)
-                    .setUtilizationModelCpu(utilizationModel)
-                    .setUtilizationModelRam(utilizationModel)
-                    .setUtilizationModelBw(utilizationModel);
-            
-            cloudlets.add(filterCloudlet);
-            broker.bindCloudletToVm(filterCloudlet, edgeVm);
-            
-            // Data processing cloudlet (Fog)
-            pesNumber = 4;
-            length = 5000; // More instructions for processing
-            fileSize = 1000; // Input file size (bytes)
-            outputSize = 500; // Output file size (bytes)
-            
-            org.cloudbus.cloudsim.cloudlets.Cloudlet processCloudlet = 
-                new org.cloudbus.cloudsim.cloudlets.CloudletSimple(cloudletId++, length, pesNumber)
-                    .setFileSize(fileSize)
-                    .setOutputSize(outputSize)
-                    .setUtilizationModelCpu(utilizationModel)
-                    .setUtilizationModelRam(utilizationModel)
-                    .setUtilizationModelBw(utilizationModel);
-            
-            cloudlets.add(processCloudlet);
-            broker.bindCloudletToVm(processCloudlet, fogVm);
-            
-            // Data analytics cloudlet (Cloud)
-            pesNumber = 8;
-            length = 10000; // Most instructions for analytics
-            fileSize = 500; // Input file size (bytes)
-            outputSize = 200; // Output file size (bytes)
-            
-            org.cloudbus.cloudsim.cloudlets.Cloudlet analyticsCloudlet = 
-                new org.cloudbus.cloudsim.cloudlets.CloudletSimple(cloudletId++, length, pesNumber)
-                    .setFileSize(fileSize)
-                    .setOutputSize(outputSize)
-                    .setUtilizationModelCpu(utilizationModel)
-                    .setUtilizationModelRam(utilizationModel)
-                    .setUtilizationModelBw(utilizationModel);
-            
-            cloudlets.add(analyticsCloudlet);
-            broker.bindCloudletToVm(analyticsCloudlet, cloudVm);
+            workloadSource.addDevice(device, edgeVms.get(edgeIndex), fogVms.get(fogIndex), cloudVm);
         }
         
-        LOGGER.info("Created " + cloudlets.size() + " cloudlets");
+        LOGGER.info("Registered " + iotDevices.size() + " device pipelines");
+        
+        if (deviceMobility != null) {
+            // A handed-over device runs its next pipelines on the VMs of its new edge node
+            deviceMobility.addOnHandoverListener((device, fromEdge, toEdge) -> workloadSource.reassignDevice(device,
+                    edgeVms.get(toEdge), fogVms.get(toEdge % fogNodes.size())));
+        }
+        
+        String traceFile = configManager.getTraceFile();
+        if (!traceFile.isEmpty()) {
+            Path tracePath = Paths.get(traceFile);
+            PacketTraceReader reader = new PacketTraceReader(tracePath, PacketTraceReader.Format.of(tracePath),
+                    configManager.getTraceChunkSize());
+            TraceReplay traceReplay = new TraceReplay(reader, configManager.getTraceTimeScale(),
+                    configManager.isTraceRebaseEnabled(),
+                    TraceReplay.DeviceMapping.valueOf(configManager.getTraceDeviceMapping()),
+                    configManager.getTraceDeviceMap());
+            workloadSource.replay(traceReplay, configManager.getTraceLookahead());
+        }
+    }
+    
+    /**
+     * Creates the autoscaler growing and shrinking the VM pool of each tier, and of each edge node,
+     * during the run, seeded with the VMs created at setup
+     */
+    private void createAutoscaler() {
+        LOGGER.info("Creating tier autoscaler...");
+        
+        autoscaler = new TierAutoscaler(broker, simulationTime, vms.size(),
+                configManager.getAutoscalingInterval(),
+                configManager.getAutoscalingCooldown(),
+                configManager.getScaleOutBacklog(),
+                configManager.getScaleInBacklog(),
+                configManager.getScaleOutUtilization(),
+                configManager.getScaleInUtilization(),
+                configManager.getLatencySlo());
+        
+        double bootTime = configManager.getVmBootTime();
+        int fogVmCount = fogNodes.size();
+        VmPool cloudPool = new VmPool("Cloud", broker, this::createCloudVm, 1, configManager.getCloudVmMax(), bootTime);
+        VmPool fogPool = new VmPool("Fog", broker, this::createFogVm, fogVmCount, configManager.getFogVmMax(), bootTime);
+        
+        // VMs are ordered cloud, fog, edge; an edge VM per edge node, which scales on its own
+        cloudPool.addInitialVm(vms.get(0));
+        for (int i = 1; i <= fogVmCount; i++) {
+            fogPool.addInitialVm(vms.get(i));
+        }
+        for (int i = 0; i < edgeNodes.size(); i++) {
+            VmPool edgePool = new VmPool(edgeNodes.get(i).getNodeId(), broker, this::createEdgeVm, 1,
+                    configManager.getEdgeVmMax(), bootTime);
+            edgePool.addInitialVm(vms.get(1 + fogVmCount + i));
+            autoscaler.addPool(edgePool);
+        }
+        
+        autoscaler.addPool(fogPool);
+        autoscaler.addPool(cloudPool);
+        autoscaler.start(workloadSource.getWorkflowScheduler());
     }
     
     /**
@@ -522,14 +657,39 @@ private void createEdgeDatacenter() {
         try {
             // Start the CloudSim Plus simulation
             LOGGER.info("Starting CloudSim Plus simulation...");
+            profiler.beginEventLoop();
             broker.getSimulation().start();
-            
-            // Print the CloudSim Plus results
-            List<org.cloudbus.cloudsim.cloudlets.Cloudlet> finishedCloudlets = broker.getCloudletFinishedList();
-            new org.cloudsimplus.builders.tables.CloudletsTableBuilder(finishedCloudlets).build();
-            
-            // Run our custom simulation logic for additional metrics
-            runCustomSimulation();
+            profiler.endEventLoop();
+            coSimulation.finish();
+            if (checkpointer != null) {
+                checkpointer.finish();
+            }
+            if (metricsEndpoint != null) {
+                metricsEndpoint.stop();
+            }
+            if (resultsExporter != null) {
+                resultsExporter.finish();
+            }
+            workloadSource.logSummary();
+            devicePopulation.finish(simulationTime);
+            devicePopulation.displayLifecycleReport();
+            devicePopulation.displayEnergyReport();
+            if (deviceMobility != null) {
+                deviceMobility.finish(simulationTime);
+                deviceMobility.displayMobilityReport();
+            }
+            workloadSource.getWorkflowScheduler().displayCriticalPathReport();
+            workloadSource.getWorkflowScheduler().displayCloudletReport();
+            energyMeter.finish();
+            energyMeter.displayEnergyReport();
+            fogAllocationPolicy.finish(simulation.clock());
+            fogAllocationPolicy.displayConsolidationReport();
+            fogController.displayVerticalScalingReport();
+            if (autoscaler != null) {
+                autoscaler.displayScalingReport();
+            }
+            profiler.displayProfile();
+            profiler.exportTimeSeries(Paths.get("results", "profile_timeseries.csv"));
             
             LOGGER.info("Simulation completed successfully.");
         } catch (Exception e) {
@@ -538,43 +698,12 @@ private void createEdgeDatacenter() {
     }
     
     /**
-     * Runs our custom simulation logic for detailed metrics collection
+     * Gets the CloudSim Plus simulation, available once the simulation is set up
+     * 
+     * @return The simulation instance
      */
-    private void runCustomSimulation() {
-        LOGGER.info("Running custom simulation for " + simulationTime + " seconds...");
-        
-        // Initialize data generators for each IoT device
-        for (IoTDevice device : iotDevices) {
-            device.initializeDataGenerator();
-        }
-        
-        // Main simulation loop
-        for (int currentTime = 0; currentTime < simulationTime; currentTime++) {
-            LOGGER.fine("Simulation time: " + currentTime + " seconds");
-            
-            // Generate data from IoT devices
-            for (IoTDevice device : iotDevices) {
-                device.generateData(currentTime);
-            }
-            
-            // Process data at edge nodes
-            for (EdgeNode edgeNode : edgeNodes) {
-                edgeNode.processData(currentTime);
-            }
-            
-            // Process data at fog nodes
-            for (FogNode fogNode : fogNodes) {
-                fogNode.processData(currentTime);
-            }
-            
-            // Process data at cloud
-            cloudDataCenter.processData(currentTime);
-            
-            // Collect metrics for this time step
-            metricsCollector.collectMetrics(currentTime, iotDevices, edgeNodes, fogNodes, cloudDataCenter);
-        }
-        
-        LOGGER.info("Custom simulation completed.");
+    public org.cloudbus.cloudsim.core.CloudSim getSimulation() {
+        return simulation;
     }
     
     /**
@@ -588,11 +717,11 @@ private void createEdgeDatacenter() {
         metricsCollector.displayMetrics();
         
         // Generate visualizations
-        resultsVisualizer.generateLatencyGraph(metricsCollector);
-        resultsVisualizer.generateDataReductionGraph(metricsCollector);
-        resultsVisualizer.generateEnergyConsumptionGraph(metricsCollector);
-        resultsVisualizer.generateBandwidthUsageGraph(metricsCollector);
-        resultsVisualizer.generateProcessingDistributionGraph(metricsCollector);
+        if (configManager.isChartRenderingEnabled()) {
+            resultsVisualizer.generateAllGraphs(metricsCollector);
+        } else {
+            LOGGER.info("Chart rendering disabled, skipping visualizations");
+        }
         
         LOGGER.info("Results analysis completed.");
     }
@@ -0,0 +1,171 @@
+package org.edgefogcloud.simulation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import org.cloudbus.cloudsim.core.Simulation;
+import org.cloudbus.cloudsim.hosts.Host;
+import org.cloudsimplus.listeners.EventInfo;
+import org.cloudsimplus.listeners.EventListener;
+
+/**
+ * Integrates the energy drawn by CloudSim Plus hosts over their actual CPU utilization.
+ * On every simulation clock tick the power of each host is obtained from its power model
+ * and accumulated with the trapezoidal rule, so only the last sample of each host is kept
+ * instead of its full utilization history.
+ */
+public class HostEnergyMeter {
+    private static final Logger LOGGER = Logger.getLogger(HostEnergyMeter.class.getName());
+
+    private static final double JOULES_PER_KWH = 3_600_000.0;
+
+    private final Simulation simulation;
+    private final List<Host> hosts;
+    private final List<String> layers;
+    private final EventListener<EventInfo> clockTickListener;
+
+    // Per-host integration state, indexed like the hosts list
+    private double[] lastPower;       // W
+    private double[] lastUtilization; // [0, 1]
+    private double[] energy;          // J
+    private double[] utilizationArea; // utilization x seconds, for the time-weighted mean
+    private double startTime;
+    private double lastSampleTime;
+    private boolean started;
+
+    public HostEnergyMeter(Simulation simulation) {
+        this.simulation = simulation;
+        this.hosts = new ArrayList<>();
+        this.layers = new ArrayList<>();
+        this.clockTickListener = info -> sample(info.getTime());
+        this.lastPower = new double[0];
+        this.lastUtilization = new double[0];
+        this.energy = new double[0];
+        this.utilizationArea = new double[0];
+    }
+
+    /**
+     * Registers a host whose power model must already be set.
+     * Must be called before the simulation starts.
+     *
+     * @param host The host to meter
+     * @param layer Layer (Edge, Fog or Cloud) the host belongs to
+     */
+    public void addHost(Host host, String layer) {
+        hosts.add(host);
+        layers.add(layer);
+    }
+
+    /**
+     * Starts sampling the registered hosts on every clock tick
+     */
+    public void start() {
+        int count = hosts.size();
+        lastPower = new double[count];
+        lastUtilization = new double[count];
+        energy = new double[count];
+        utilizationArea = new double[count];
+        startTime = simulation.clock();
+        lastSampleTime = startTime;
+        for (int i = 0; i < count; i++) {
+            lastUtilization[i] = getUtilization(hosts.get(i));
+            lastPower[i] = getPower(hosts.get(i), lastUtilization[i]);
+        }
+
+        started = true;
+        simulation.addOnClockTickListener(clockTickListener);
+        LOGGER.info("Energy metering started for " + count + " hosts");
+    }
+
+    private void sample(double time) {
+        double elapsed = time - lastSampleTime;
+        if (elapsed <= 0) {
+            return;
+        }
+
+        for (int i = 0; i < hosts.size(); i++) {
+            Host host = hosts.get(i);
+            double utilization = getUtilization(host);
+            double power = getPower(host, utilization);
+            // Trapezoidal rule between the previous and the current sample
+            energy[i] += (lastPower[i] + power) / 2.0 * elapsed;
+            utilizationArea[i] += (lastUtilization[i] + utilization) / 2.0 * elapsed;
+            lastPower[i] = power;
+            lastUtilization[i] = utilization;
+        }
+        lastSampleTime = time;
+    }
+
+    private static double getUtilization(Host host) {
+        return Math.min(1.0, Math.max(0.0, host.getCpuPercentUtilization()));
+    }
+
+    private static double getPower(Host host, double utilization) {
+        // Hosts switched off draw no power
+        return host.isActive() ? host.getPowerModel().getPower(utilization) : 0.0;
+    }
+
+    /**
+     * Closes the integration at the current simulation time.
+     * Must be called once the simulation has finished.
+     */
+    public void finish() {
+        if (started) {
+            sample(simulation.clock());
+            simulation.removeOnClockTickListener(clockTickListener);
+            started = false;
+        }
+    }
+
+    /**
+     * Gets the energy consumed by a registered host
+     *
+     * @param host The host
+     * @return Energy in kWh
+     */
+    public double getHostEnergy(Host host) {
+        int index = hosts.indexOf(host);
+        return index < 0 || index >= energy.length ? 0.0 : energy[index] / JOULES_PER_KWH;
+    }
+
+    /**
+     * Gets the energy consumed by every host of each layer
+     *
+     * @return Energy in kWh, by layer, in registration order
+     */
+    public Map<String, Double> getEnergyByLayer() {
+        Map<String, Double> energyByLayer = new LinkedHashMap<>();
+        for (int i = 0; i < energy.length; i++) {
+            energyByLayer.merge(layers.get(i), energy[i] / JOULES_PER_KWH, Double::sum);
+        }
+        return energyByLayer;
+    }
+
+    public double getTotalEnergy() {
+        return Arrays.stream(energy).sum() / JOULES_PER_KWH;
+    }
+
+    /**
+     * Prints the energy consumed per layer and per host
+     */
+    public void displayEnergyReport() {
+        System.out.println("\n=== Utilization-Driven Energy Consumption ===");
+
+        double duration = lastSampleTime - startTime;
+        System.out.println("Layer | Host | Avg CPU Utilization | Energy");
+        for (int i = 0; i < energy.length; i++) {
+            double meanUtilization = duration > 0 ? utilizationArea[i] / duration : 0.0;
+            System.out.printf("%s | %d | %.2f%% | %.6f kWh\n",
+                    layers.get(i), hosts.get(i).getId(), meanUtilization * 100, energy[i] / JOULES_PER_KWH);
+        }
+
+        for (Map.Entry<String, Double> entry : getEnergyByLayer().entrySet()) {
+            System.out.printf("%s Layer: %.6f kWh\n", entry.getKey(), entry.getValue());
+        }
+        System.out.printf("Total Energy: %.6f kWh over %.2f s\n", getTotalEnergy(), duration);
+    }
+}
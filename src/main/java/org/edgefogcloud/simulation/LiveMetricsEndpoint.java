@@ -0,0 +1,274 @@
+package org.edgefogcloud.simulation;
+
+import org.edgefogcloud.cloud.CloudDataCenter;
+import org.edgefogcloud.devices.DevicePopulation;
+import org.edgefogcloud.edge.EdgeNode;
+import org.edgefogcloud.fog.FogNode;
+import org.edgefogcloud.utils.MetricsCollector;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Logger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.cloudbus.cloudsim.core.Simulation;
+
+/**
+ * Serves the live counters of a running simulation in the Prometheus text format on
+ * {@code http://localhost:<port>/metrics}.
+ * The simulation thread publishes an immutable snapshot every interval of processed seconds;
+ * requests are answered from the latest snapshot by the server's own thread, so scraping never
+ * waits for, nor blocks, the simulation.
+ */
+public class LiveMetricsEndpoint {
+    private static final Logger LOGGER = Logger.getLogger(LiveMetricsEndpoint.class.getName());
+
+    private final int port;
+    private final int interval; // in processed seconds
+    private final DevicePopulation devicePopulation;
+    private final List<EdgeNode> edgeNodes;
+    private final List<FogNode> fogNodes;
+    private final CloudDataCenter cloudDataCenter;
+    private final MetricsCollector metricsCollector;
+    private final WorkflowScheduler workflowScheduler;
+
+    private Simulation simulation;
+    private HttpServer server;
+    private ExecutorService executor;
+    private volatile Snapshot snapshot;
+
+    // Written by the simulation thread only
+    private long events;
+    private long lastEvents;
+    private long lastPublishNanos;
+    private int edgeQueueDepth;
+
+    /**
+     * Creates a metrics endpoint
+     *
+     * @param port Port bound on the loopback interface
+     * @param interval Processed seconds between two snapshots
+     * @param devicePopulation Devices
+     * @param edgeNodes Edge tier
+     * @param fogNodes Fog tier
+     * @param cloudDataCenter Cloud tier
+     * @param metricsCollector Metrics of the processed seconds
+     * @param workflowScheduler Scheduler holding the cloudlets in flight
+     */
+    public LiveMetricsEndpoint(int port, int interval, DevicePopulation devicePopulation, List<EdgeNode> edgeNodes,
+                               List<FogNode> fogNodes, CloudDataCenter cloudDataCenter,
+                               MetricsCollector metricsCollector, WorkflowScheduler workflowScheduler) {
+        this.port = port;
+        this.interval = Math.max(1, interval);
+        this.devicePopulation = devicePopulation;
+        this.edgeNodes = edgeNodes;
+        this.fogNodes = fogNodes;
+        this.cloudDataCenter = cloudDataCenter;
+        this.metricsCollector = metricsCollector;
+        this.workflowScheduler = workflowScheduler;
+    }
+
+    /**
+     * Starts serving and publishing snapshots.
+     * Must be called before the simulation starts.
+     *
+     * @param simulation The CloudSim Plus simulation whose events are counted
+     * @param coSimulation Co-simulation whose processed seconds trigger the snapshots
+     * @throws IOException If the port cannot be bound
+     */
+    public void start(Simulation simulation, TierCoSimulation coSimulation) throws IOException {
+        this.simulation = simulation;
+        simulation.addOnEventProcessingListener(event -> events++);
+        coSimulation.addOnStepStartedListener(this::onStepStarted);
+        coSimulation.addOnStepFinishedListener(this::onStepFinished);
+        lastPublishNanos = System.nanoTime();
+        snapshot = new Snapshot(this, 0, 0.0);
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", this::handle);
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-endpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.start();
+        LOGGER.info("Live metrics served on http://localhost:" + server.getAddress().getPort() + "/metrics");
+    }
+
+    private void onStepStarted(int currentTime) {
+        // Packets awaiting their filtering stage, counted by each edge node
+        if ((currentTime + 1) % interval == 0) {
+            int depth = 0;
+            for (EdgeNode edgeNode : edgeNodes) {
+                depth += edgeNode.getBufferedPacketCount();
+            }
+            edgeQueueDepth = depth;
+        }
+    }
+
+    private void onStepFinished(int processedSeconds) {
+        if (processedSeconds % interval != 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        double eventsPerSecond = (events - lastEvents) * 1e9 / Math.max(1, now - lastPublishNanos);
+        lastEvents = events;
+        lastPublishNanos = now;
+        snapshot = new Snapshot(this, processedSeconds, eventsPerSecond);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        byte[] body = snapshot.format().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Stops serving. Must be called once the simulation has finished.
+     */
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdown();
+            server = null;
+        }
+    }
+
+    /**
+     * Counters of the simulation at the end of a processed second
+     */
+    private static final class Snapshot {
+        private final double simulatedTime;
+        private final int processedSeconds;
+        private final long events;
+        private final double eventsPerSecond;
+        private final long iotPacketsGenerated;
+        private final long iotPacketsTransmitted;
+        private final long edgePacketsReceived;
+        private final long edgePacketsForwarded;
+        private final long fogPacketsReceived;
+        private final long fogPacketsForwarded;
+        private final long cloudPacketsReceived;
+        private final long cloudPacketsProcessed;
+        private final int edgeQueueDepth;
+        private final int inFlightCloudlets;
+        private final int runningWorkflows;
+        private final double latency;
+        private final double energyConsumption;
+        private final double bandwidthUsage;
+
+        Snapshot(LiveMetricsEndpoint endpoint, int processedSeconds, double eventsPerSecond) {
+            this.simulatedTime = endpoint.simulation.clock();
+            this.processedSeconds = processedSeconds;
+            this.events = endpoint.events;
+            this.eventsPerSecond = eventsPerSecond;
+
+            // Only the active devices are summed, the inactive ones are totaled by the population
+            DevicePopulation.Totals deviceTotals = endpoint.devicePopulation.getTotals();
+            long edgeReceived = 0;
+            long edgeForwarded = 0;
+            for (EdgeNode edgeNode : endpoint.edgeNodes) {
+                edgeReceived += edgeNode.getTotalPacketsReceived();
+                edgeForwarded += edgeNode.getTotalPacketsForwarded();
+            }
+            long fogReceived = 0;
+            long fogForwarded = 0;
+            for (FogNode fogNode : endpoint.fogNodes) {
+                fogReceived += fogNode.getTotalPacketsReceived();
+                fogForwarded += fogNode.getTotalPacketsForwarded();
+            }
+            this.iotPacketsGenerated = deviceTotals.getPacketsGenerated();
+            this.iotPacketsTransmitted = deviceTotals.getPacketsTransmitted();
+            this.edgePacketsReceived = edgeReceived;
+            this.edgePacketsForwarded = edgeForwarded;
+            this.fogPacketsReceived = fogReceived;
+            this.fogPacketsForwarded = fogForwarded;
+            this.cloudPacketsReceived = endpoint.cloudDataCenter.getTotalPacketsReceived();
+            this.cloudPacketsProcessed = endpoint.cloudDataCenter.getTotalPacketsProcessed();
+            this.edgeQueueDepth = endpoint.edgeQueueDepth;
+            this.inFlightCloudlets = endpoint.workflowScheduler.getInFlightCloudlets();
+            this.runningWorkflows = endpoint.workflowScheduler.getRunningWorkflows();
+
+            int lastSecond = processedSeconds - 1;
+            MetricsCollector metrics = endpoint.metricsCollector;
+            this.latency = metrics.getLatencyByTime().getOrDefault(lastSecond, 0.0);
+            this.energyConsumption = metrics.getEnergyConsumptionByTime().getOrDefault(lastSecond, 0.0);
+            this.bandwidthUsage = metrics.getBandwidthUsageByTime().getOrDefault(lastSecond, 0.0);
+        }
+
+        /**
+         * Formats the snapshot, adding the current heap usage
+         */
+        String format() {
+            StringBuilder text = new StringBuilder(2048);
+            gauge(text, "efc_simulated_time_seconds", "CloudSim Plus clock", simulatedTime);
+            gauge(text, "efc_processed_seconds", "Seconds processed by the custom tiers", processedSeconds);
+            counter(text, "efc_events_total", "CloudSim Plus events processed", events);
+            gauge(text, "efc_events_per_second", "CloudSim Plus events processed per wall-clock second", eventsPerSecond);
+
+            header(text, "efc_packets_received_total", "Packets received per tier, generated for IoT", "counter");
+            sample(text, "efc_packets_received_total", "IoT", iotPacketsGenerated);
+            sample(text, "efc_packets_received_total", "Edge", edgePacketsReceived);
+            sample(text, "efc_packets_received_total", "Fog", fogPacketsReceived);
+            sample(text, "efc_packets_received_total", "Cloud", cloudPacketsReceived);
+            header(text, "efc_packets_forwarded_total", "Packets forwarded or processed per tier", "counter");
+            sample(text, "efc_packets_forwarded_total", "IoT", iotPacketsTransmitted);
+            sample(text, "efc_packets_forwarded_total", "Edge", edgePacketsForwarded);
+            sample(text, "efc_packets_forwarded_total", "Fog", fogPacketsForwarded);
+            sample(text, "efc_packets_forwarded_total", "Cloud", cloudPacketsProcessed);
+
+            header(text, "efc_queue_depth", "Work waiting in each queue", "gauge");
+            sample(text, "efc_queue_depth", "Edge", edgeQueueDepth);
+            text.append("efc_queue_depth{tier=\"CloudSim\"} ").append(inFlightCloudlets).append('\n');
+            gauge(text, "efc_running_workflows", "Device pipelines in flight", runningWorkflows);
+
+            gauge(text, "efc_latency_ms", "Average latency of the last processed second", latency);
+            gauge(text, "efc_energy_consumption", "Energy consumption of the last processed second", energyConsumption);
+            gauge(text, "efc_bandwidth_usage", "Bandwidth usage of the last processed second", bandwidthUsage);
+
+            MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+            gauge(text, "efc_heap_used_bytes", "Heap in use", heap.getUsed());
+            gauge(text, "efc_heap_committed_bytes", "Heap committed", heap.getCommitted());
+            gauge(text, "efc_heap_max_bytes", "Maximum heap", heap.getMax());
+            return text.toString();
+        }
+
+        private static void header(StringBuilder text, String name, String help, String type) {
+            text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+            text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        }
+
+        private static void gauge(StringBuilder text, String name, String help, double value) {
+            header(text, name, help, "gauge");
+            text.append(name).append(' ').append(String.format(Locale.ROOT, "%.6g", value)).append('\n');
+        }
+
+        private static void gauge(StringBuilder text, String name, String help, long value) {
+            header(text, name, help, "gauge");
+            text.append(name).append(' ').append(value).append('\n');
+        }
+
+        private static void counter(StringBuilder text, String name, String help, long value) {
+            header(text, name, help, "counter");
+            text.append(name).append(' ').append(value).append('\n');
+        }
+
+        private static void sample(StringBuilder text, String name, String tier, long value) {
+            text.append(name).append("{tier=\"").append(tier).append("\"} ").append(value).append('\n');
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package org.edgefogcloud.simulation;
+
+import org.edgefogcloud.data.DataPacket;
+
+import org.cloudbus.cloudsim.utilizationmodels.UtilizationModel;
+import org.cloudbus.cloudsim.utilizationmodels.UtilizationModelDynamic;
+
+/**
+ * Processing demand of each data type produced by the {@link org.edgefogcloud.data.DataGenerator}.
+ * Sensor readings are light to process and transfer, while video is heavy on CPU, RAM and bandwidth.
+ * The utilization models are shared by every cloudlet processing the same data type.
+ */
+public enum PacketWorkloadProfile {
+    SENSOR_DATA(0.2, 10.0, 0.2, 0.1, 0.05),
+    TEXT_DATA(0.3, 5.0, 0.3, 0.1, 0.1),
+    AUDIO_DATA(0.6, 2.0, 0.5, 0.3, 0.4),
+    IMAGE_DATA(0.8, 4.0, 0.7, 0.5, 0.6),
+    VIDEO_DATA(1.0, 8.0, 1.0, 0.8, 0.9);
+
+    private final double complexity;       // Share of a stage's base length
+    private final double instructionsPerKb; // MI per KB of stage input
+    private final UtilizationModel cpuModel;
+    private final UtilizationModel ramModel;
+    private final UtilizationModel bwModel;
+
+    PacketWorkloadProfile(double complexity, double instructionsPerKb,
+                          double cpuUtilization, double ramUtilization, double bwUtilization) {
+        this.complexity = complexity;
+        this.instructionsPerKb = instructionsPerKb;
+        this.cpuModel = new UtilizationModelDynamic(cpuUtilization);
+        this.ramModel = new UtilizationModelDynamic(ramUtilization);
+        this.bwModel = new UtilizationModelDynamic(bwUtilization);
+    }
+
+    /**
+     * Gets the profile of a packet's data type
+     *
+     * @param packet The data packet
+     * @return The profile, SENSOR_DATA for unknown data types
+     */
+    public static PacketWorkloadProfile of(DataPacket packet) {
+        try {
+            return valueOf(packet.getDataType());
+        } catch (IllegalArgumentException e) {
+            return SENSOR_DATA;
+        }
+    }
+
+    /**
+     * Gets the length of a stage processing the given input
+     *
+     * @param baseLength Length (in MI) of the stage for a reference packet
+     * @param intensity Processing the stage applies per unit of input
+     * @param inputSize Stage input (in bytes)
+     * @return The length in MI, at least 1
+     */
+    public long getLength(long baseLength, double intensity, long inputSize) {
+        double inputKb = inputSize / 1000.0;
+        return Math.max(1, Math.round(baseLength * complexity + intensity * instructionsPerKb * inputKb));
+    }
+
+    public UtilizationModel getCpuModel() {
+        return cpuModel;
+    }
+
+    public UtilizationModel getRamModel() {
+        return ramModel;
+    }
+
+    public UtilizationModel getBwModel() {
+        return bwModel;
+    }
+}
@@ -0,0 +1,91 @@
+package org.edgefogcloud.simulation;
+
+import org.cloudbus.cloudsim.cloudlets.Cloudlet;
+import org.cloudbus.cloudsim.cloudlets.CloudletSimple;
+
+/**
+ * Stages of the per-device IoT processing pipeline
+ * (data generation -> edge filtering -> fog processing -> cloud analytics)
+ */
+public enum PipelineStage {
+    DATA_GENERATION("IoT", 1, 1000, 0.1, 1.0),
+    FILTER("Edge", 2, 3000, 0.5, 0.5),
+    PROCESS("Fog", 4, 5000, 1.0, 0.2),
+    ANALYTICS("Cloud", 8, 10000, 2.0, 0.05);
+
+    private static final PipelineStage[] STAGES = values();
+
+    private final String layer;         // Layer the stage's data is produced at
+    private final int pesNumber;
+    private final long baseLength;      // Instructions for a reference packet
+    private final double intensity;     // Processing applied per unit of input
+    private final double forwardRatio;  // Share of the input forwarded to the next stage
+
+    PipelineStage(String layer, int pesNumber, long baseLength, double intensity, double forwardRatio) {
+        this.layer = layer;
+        this.pesNumber = pesNumber;
+        this.baseLength = baseLength;
+        this.intensity = intensity;
+        this.forwardRatio = forwardRatio;
+    }
+
+    /**
+     * Creates the cloudlet that executes this stage on the data of a packet
+     *
+     * @param id The cloudlet ID
+     * @param inputSize Stage input (in bytes), see {@link #getOutputSize(long)}
+     * @param profile Processing demand of the packet's data type
+     * @return A new cloudlet, not yet bound to a VM
+     */
+    public Cloudlet createCloudlet(long id, long inputSize, PacketWorkloadProfile profile) {
+        Cloudlet cloudlet = new CloudletSimple(id, 1, pesNumber)
+                .setUtilizationModelCpu(profile.getCpuModel())
+                .setUtilizationModelRam(profile.getRamModel())
+                .setUtilizationModelBw(profile.getBwModel());
+        resizeCloudlet(cloudlet, inputSize, profile);
+        return cloudlet;
+    }
+
+    /**
+     * Sizes a cloudlet of this stage for another input, e.g. the data of several packets merged together.
+     * The cloudlet must not have been submitted yet.
+     *
+     * @param cloudlet A cloudlet created by this stage
+     * @param inputSize Stage input (in bytes)
+     * @param profile Processing demand of the input's data type
+     */
+    public void resizeCloudlet(Cloudlet cloudlet, long inputSize, PacketWorkloadProfile profile) {
+        cloudlet.setLength(profile.getLength(baseLength, intensity, inputSize));
+        cloudlet.setFileSize(Math.max(1, inputSize));
+        cloudlet.setOutputSize(Math.max(1, getOutputSize(inputSize)));
+    }
+
+    /**
+     * Gets the data this stage forwards to the next one
+     *
+     * @param inputSize Stage input (in bytes)
+     * @return Stage output (in bytes)
+     */
+    public long getOutputSize(long inputSize) {
+        return Math.round(inputSize * forwardRatio);
+    }
+
+    /**
+     * Gets the layer (IoT, Edge, Fog or Cloud) this stage belongs to
+     *
+     * @return The layer name
+     */
+    public String getLayer() {
+        return layer;
+    }
+
+    /**
+     * Gets the stage released when this one finishes
+     *
+     * @return The next stage, or null if this is the last one
+     */
+    public PipelineStage next() {
+        int nextOrdinal = ordinal() + 1;
+        return nextOrdinal < STAGES.length ? STAGES[nextOrdinal] : null;
+    }
+}
@@ -0,0 +1,284 @@
+package org.edgefogcloud.simulation;
+
+import org.edgefogcloud.cloud.CloudDataCenter;
+import org.edgefogcloud.devices.IoTDevice;
+import org.edgefogcloud.edge.EdgeNode;
+import org.edgefogcloud.fog.FogNode;
+import org.edgefogcloud.mobility.DeviceMobility;
+import org.edgefogcloud.network.NetworkModel;
+import org.edgefogcloud.utils.MetricsCollector;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Periodic checkpoints of the simulation state, so a long run can be resumed after a crash.
+ * The state of devices, edge/fog buffers, the cloud data store, the network model, the random
+ * generators and the metrics series is encoded in memory on the simulation thread, then compressed
+ * and written by a background thread. A checkpoint file only appears once completely written.
+ * <p>
+ * CloudSim Plus cannot serialize its event queue, so cloudlets in flight when a checkpoint is
+ * taken are not part of it: a resumed run restarts device emissions from their next emission time,
+ * and submits again the remaining stages of the packets buffered in the tiers or being generated
+ * (see {@link TierCoSimulation#resumeAt(int)}).
+ */
+public class SimulationCheckpointer {
+    private static final Logger LOGGER = Logger.getLogger(SimulationCheckpointer.class.getName());
+
+    private static final int MAGIC = 0x45464343; // "EFCC"
+    private static final int VERSION = 9;
+
+    private final Path directory;
+    private final int interval; // in seconds
+    private final List<IoTDevice> iotDevices;
+    private final List<EdgeNode> edgeNodes;
+    private final List<FogNode> fogNodes;
+    private final CloudDataCenter cloudDataCenter;
+    private final NetworkModel networkModel;
+    private final MetricsCollector metricsCollector;
+    private final StreamingWorkloadSource workloadSource;
+    private final DeviceMobility deviceMobility;
+    private final ExecutorService writer;
+
+    // Metrics
+    private int checkpointsWritten;
+    private long bytesWritten;
+
+    /**
+     * Creates a checkpointer
+     *
+     * @param directory Directory the checkpoint files are written to
+     * @param interval Simulated time (in seconds) between two checkpoints
+     * @param iotDevices Devices, in creation order
+     * @param edgeNodes Edge tier, in creation order
+     * @param fogNodes Fog tier, in creation order
+     * @param cloudDataCenter Cloud tier
+     * @param networkModel Network model with its link factors
+     * @param metricsCollector Metrics series collected so far
+     * @param workloadSource Source of the devices' emissions
+     * @param deviceMobility Movement of the devices, null if they do not move
+     */
+    public SimulationCheckpointer(Path directory, int interval, List<IoTDevice> iotDevices,
+                                  List<EdgeNode> edgeNodes, List<FogNode> fogNodes,
+                                  CloudDataCenter cloudDataCenter, NetworkModel networkModel,
+                                  MetricsCollector metricsCollector, StreamingWorkloadSource workloadSource,
+                                  DeviceMobility deviceMobility) {
+        this.directory = directory;
+        this.interval = Math.max(1, interval);
+        this.iotDevices = iotDevices;
+        this.edgeNodes = edgeNodes;
+        this.fogNodes = fogNodes;
+        this.cloudDataCenter = cloudDataCenter;
+        this.networkModel = networkModel;
+        this.metricsCollector = metricsCollector;
+        this.workloadSource = workloadSource;
+        this.deviceMobility = deviceMobility;
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "checkpoint-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Takes a checkpoint every interval of processed seconds
+     *
+     * @param coSimulation Co-simulation whose processed seconds trigger the checkpoints
+     */
+    public void start(TierCoSimulation coSimulation) {
+        coSimulation.addOnStepFinishedListener(this::onStepFinished);
+        LOGGER.info("Checkpointing every " + interval + " s to " + directory);
+    }
+
+    private void onStepFinished(int processedSeconds) {
+        if (processedSeconds % interval == 0) {
+            checkpoint(processedSeconds);
+        }
+    }
+
+    /**
+     * Encodes the current state and hands it to the writer thread
+     *
+     * @param processedSeconds Number of seconds processed so far
+     */
+    public void checkpoint(int processedSeconds) {
+        byte[] state;
+        try {
+            state = encodeState(processedSeconds);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not encode checkpoint at " + processedSeconds + " s", e);
+            return;
+        }
+
+        writer.execute(() -> write(processedSeconds, state));
+    }
+
+    /**
+     * Encodes the current state of every checkpointed component
+     *
+     * @param processedSeconds Number of seconds processed so far
+     * @return The encoded state
+     * @throws IOException If a component cannot be encoded
+     */
+    public byte[] encodeState(int processedSeconds) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(processedSeconds);
+        out.writeInt(iotDevices.size());
+        out.writeInt(edgeNodes.size());
+        out.writeInt(fogNodes.size());
+        // State shared by the devices, e.g. their random generator, comes before their own
+        if (!iotDevices.isEmpty()) {
+            iotDevices.get(0).getPopulation().saveState(out);
+        }
+        for (IoTDevice device : iotDevices) {
+            device.saveState(out);
+        }
+        // Moves the devices between edge nodes, so comes before the edge buffers
+        out.writeBoolean(deviceMobility != null);
+        if (deviceMobility != null) {
+            deviceMobility.saveState(out);
+        }
+        for (EdgeNode edgeNode : edgeNodes) {
+            edgeNode.saveState(out);
+        }
+        for (FogNode fogNode : fogNodes) {
+            fogNode.saveState(out);
+        }
+        cloudDataCenter.saveState(out);
+        networkModel.saveState(out);
+        metricsCollector.saveState(out);
+        workloadSource.saveState(out);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private void write(int processedSeconds, byte[] state) {
+        Path target = getCheckpointPath(directory, processedSeconds);
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(directory);
+            try (OutputStream out = new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                out.write(state);
+            }
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            checkpointsWritten++;
+            bytesWritten += Files.size(target);
+            LOGGER.info("Checkpoint written to " + target);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not write checkpoint " + target, e);
+        }
+    }
+
+    /**
+     * Restores the state saved in a checkpoint.
+     * Must be called after the simulation is set up and before it starts.
+     *
+     * @param file The checkpoint file
+     * @return Number of seconds processed when the checkpoint was taken
+     * @throws IOException If the file cannot be read or was taken with another topology
+     */
+    public int restore(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file))))) {
+            int processedSeconds = restoreState(in);
+            LOGGER.info("Restored checkpoint " + file + " taken at " + processedSeconds + " s");
+            return processedSeconds;
+        }
+    }
+
+    /**
+     * Restores a state produced by {@link #encodeState(int)}
+     *
+     * @param in The encoded state
+     * @return Number of seconds processed when the state was encoded
+     * @throws IOException If the state cannot be read or was taken with another topology
+     */
+    public int restoreState(DataInput in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a simulation checkpoint");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported checkpoint version " + version);
+        }
+        int processedSeconds = in.readInt();
+        int devices = in.readInt();
+        int edges = in.readInt();
+        int fogs = in.readInt();
+        if (devices != iotDevices.size() || edges != edgeNodes.size() || fogs != fogNodes.size()) {
+            throw new IOException("Checkpoint was taken with " + devices + " devices, " + edges
+                    + " edge nodes and " + fogs + " fog nodes");
+        }
+
+        if (!iotDevices.isEmpty()) {
+            iotDevices.get(0).getPopulation().restoreState(in);
+        }
+        for (IoTDevice device : iotDevices) {
+            device.restoreState(in);
+        }
+        if (in.readBoolean() != (deviceMobility != null)) {
+            throw new IOException("Checkpoint was taken " + (deviceMobility != null ? "without" : "with") + " device mobility");
+        }
+        if (deviceMobility != null) {
+            deviceMobility.restoreState(in);
+        }
+        for (EdgeNode edgeNode : edgeNodes) {
+            edgeNode.restoreState(in);
+        }
+        for (FogNode fogNode : fogNodes) {
+            fogNode.restoreState(in);
+        }
+        cloudDataCenter.restoreState(in);
+        networkModel.restoreState(in);
+        metricsCollector.restoreState(in);
+        workloadSource.restoreState(in);
+        return processedSeconds;
+    }
+
+    /**
+     * Waits for the pending checkpoints to be written.
+     * Must be called once the simulation has finished.
+     */
+    public void finish() {
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(1, TimeUnit.MINUTES)) {
+                LOGGER.warning("Pending checkpoints were not written within 1 minute");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        LOGGER.info(checkpointsWritten + " checkpoints written, " + bytesWritten + " bytes");
+    }
+
+    /**
+     * Gets the file of the checkpoint taken after the given number of seconds
+     *
+     * @param directory Checkpoint directory
+     * @param processedSeconds Number of seconds processed when the checkpoint was taken
+     * @return The checkpoint file
+     */
+    public static Path getCheckpointPath(Path directory, int processedSeconds) {
+        return directory.resolve(String.format("checkpoint_%08d.bin.gz", processedSeconds));
+    }
+}
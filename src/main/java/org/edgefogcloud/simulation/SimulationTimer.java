@@ -0,0 +1,53 @@
+package org.edgefogcloud.simulation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.cloudbus.cloudsim.core.CloudSimEntity;
+import org.cloudbus.cloudsim.core.Simulation;
+import org.cloudbus.cloudsim.core.events.SimEvent;
+
+/**
+ * Runs actions at given simulation times. Each action is an event of the timer in the CloudSim Plus
+ * event queue, so the clock reaches its time even if no cloudlet finishes then.
+ * Actions scheduled before the simulation starts are queued until it does.
+ */
+public class SimulationTimer extends CloudSimEntity {
+    private static final int RUN_ACTION = 990_001; // outside the CloudSimTags range
+
+    private final List<Runnable> pendingSchedules; // actions scheduled before the start
+    private boolean started;
+
+    public SimulationTimer(Simulation simulation) {
+        super(simulation);
+        this.pendingSchedules = new ArrayList<>();
+    }
+
+    /**
+     * Runs an action once the clock reaches a time
+     *
+     * @param time Simulation time (in seconds), the action runs at once if it has passed
+     * @param action The action
+     */
+    public void runAt(double time, Runnable action) {
+        if (!started) {
+            pendingSchedules.add(() -> runAt(time, action));
+            return;
+        }
+        schedule(Math.max(0.0, time - getSimulation().clock()), RUN_ACTION, action);
+    }
+
+    @Override
+    protected void startInternal() {
+        started = true;
+        pendingSchedules.forEach(Runnable::run);
+        pendingSchedules.clear();
+    }
+
+    @Override
+    public void processEvent(SimEvent evt) {
+        if (evt.getTag() == RUN_ACTION) {
+            ((Runnable) evt.getData()).run();
+        }
+    }
+}
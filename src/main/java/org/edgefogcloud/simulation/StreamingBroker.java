@@ -0,0 +1,74 @@
+package org.edgefogcloud.simulation;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import org.cloudbus.cloudsim.brokers.DatacenterBrokerSimple;
+import org.cloudbus.cloudsim.cloudlets.Cloudlet;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.CloudSimTags;
+import org.cloudbus.cloudsim.core.events.SimEvent;
+import org.cloudbus.cloudsim.vms.Vm;
+import org.cloudbus.cloudsim.vms.VmSimple;
+
+/**
+ * Broker of a streamed workload, which forgets the cloudlets it submitted once they return.
+ * {@link DatacenterBrokerSimple} records every returned cloudlet in a finished list it only exposes
+ * copies of, so it would keep every cloudlet of the run. Returned cloudlets are counted instead,
+ * and dropped from the submitted and created lists on the next clock tick.
+ * <p>
+ * Idle VMs are destroyed after the broker's destruction delay, but not once every submitted cloudlet
+ * has returned: a streamed workload submits more cloudlets after such gaps.
+ */
+public class StreamingBroker extends DatacenterBrokerSimple {
+    private final Set<Cloudlet> returnedCloudlets; // since the last clock tick
+    private long totalCloudletsReturned;
+
+    public StreamingBroker(CloudSim simulation) {
+        super(simulation);
+        this.returnedCloudlets = Collections.newSetFromMap(new IdentityHashMap<>());
+        simulation.addOnClockTickListener(info -> dropReturnedCloudlets());
+    }
+
+    @Override
+    public void processEvent(SimEvent evt) {
+        if (evt.getTag() == CloudSimTags.CLOUDLET_RETURN) {
+            onCloudletReturned((Cloudlet) evt.getData());
+            return;
+        }
+        super.processEvent(evt);
+    }
+
+    private void onCloudletReturned(Cloudlet cloudlet) {
+        // What the parent broker does with a returned cloudlet, except recording it
+        Vm vm = cloudlet.getVm();
+        ((VmSimple) vm).addExpectedFreePesNumber(cloudlet.getNumberOfPes());
+        if (vm.getCloudletScheduler().isEmpty()) {
+            requestIdleVmDestruction(vm);
+        }
+        returnedCloudlets.add(cloudlet);
+        totalCloudletsReturned++;
+    }
+
+    /**
+     * Removes the cloudlets returned since the last tick from the lists the broker keeps
+     */
+    private void dropReturnedCloudlets() {
+        if (returnedCloudlets.isEmpty()) {
+            return;
+        }
+        getCloudletSubmittedList().removeIf(returnedCloudlets::contains);
+        getCloudletCreatedList().removeIf(returnedCloudlets::contains);
+        returnedCloudlets.clear();
+    }
+
+    /**
+     * Gets the number of cloudlets returned by the datacenters since the broker started
+     *
+     * @return Number of finished cloudlets
+     */
+    public long getTotalCloudletsReturned() {
+        return totalCloudletsReturned;
+    }
+}
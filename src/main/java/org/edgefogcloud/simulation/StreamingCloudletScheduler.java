@@ -0,0 +1,17 @@
+package org.edgefogcloud.simulation;
+
+import org.cloudbus.cloudsim.cloudlets.Cloudlet;
+import org.cloudbus.cloudsim.schedulers.cloudlet.CloudletSchedulerTimeShared;
+
+/**
+ * Time-shared cloudlet scheduler that forgets a finished cloudlet once its datacenter has returned
+ * it to the broker. {@link CloudletSchedulerTimeShared} keeps the execution of every finished
+ * cloudlet, and every returned cloudlet, for the lifetime of the VM.
+ */
+public class StreamingCloudletScheduler extends CloudletSchedulerTimeShared {
+    @Override
+    public void addCloudletToReturnedList(Cloudlet cloudlet) {
+        // The datacenter returns the finished executions still listed, so this one is not returned again
+        getCloudletFinishedList().removeIf(execution -> execution.getCloudlet() == cloudlet);
+    }
+}
@@ -0,0 +1,493 @@
+package org.edgefogcloud.simulation;
+
+import org.edgefogcloud.data.DataPacket;
+import org.edgefogcloud.devices.IoTDevice;
+import org.edgefogcloud.events.PacketGenerationEvent;
+import org.edgefogcloud.network.NetworkModel;
+import org.edgefogcloud.utils.CheckpointStreams;
+import org.edgefogcloud.utils.SimulationProfiler;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.logging.Logger;
+
+import org.cloudbus.cloudsim.brokers.DatacenterBroker;
+import org.cloudbus.cloudsim.cloudlets.Cloudlet;
+import org.cloudbus.cloudsim.vms.Vm;
+
+/**
+ * Streams the IoT processing pipeline into the CloudSim Plus broker.
+ * Every time a device emits data, a {@link CloudletWorkflow} chaining its data generation,
+ * filtering, processing and analytics stages is released through a {@link WorkflowScheduler}.
+ * With a {@link StreamingBroker}, finished cloudlets are not kept, so the heap follows the work in
+ * flight rather than the total work of the run. The cloudlets' length, file
+ * sizes and utilization are derived from the size and data type of the packet each emission carries.
+ * <p>
+ * Devices emit synthetic packets timed by their arrival process and lifecycle, each emission being
+ * a {@link SimulationTimer} event at the time the arrival process gives, or replay a
+ * recorded trace given to {@link #replay(TraceReplay, double)}: its records are read as the clock advances, so only the next
+ * lookahead seconds of the trace are ever submitted to the broker.
+ */
+public class StreamingWorkloadSource {
+    private static final Logger LOGGER = Logger.getLogger(StreamingWorkloadSource.class.getName());
+
+    private final DatacenterBroker broker;
+    private final WorkflowScheduler workflowScheduler;
+    private final double horizon; // in seconds
+    private final List<DevicePipeline> pipelines;
+    private final Map<String, DevicePipeline> pipelinesByDevice;
+    private final Map<DataPacket, DevicePipeline> generatingPackets; // emitted, data not generated yet
+    private final Map<DataPacket, DevicePipeline> restoredEmissions; // generating when the checkpoint was taken
+    private final List<BiConsumer<IoTDevice, DataPacket>> onPacketReleasedListeners;
+    private StageHandler stageHandler;
+    private final SimulationProfiler profiler;
+    private SimulationTimer emissionTimer;
+
+    private long nextCloudletId;
+    private int activeDevices;
+
+    // Trace replay
+    private TraceReplay traceReplay;
+    private double traceLookahead; // in seconds
+    private boolean traceRecordPending; // read but not emitted yet
+    private boolean traceExhausted;
+    private double lastTraceRelease;
+    private long tracePacketsOffline;
+
+    /**
+     * Creates a streaming workload source
+     *
+     * @param broker The broker the cloudlets are submitted to
+     * @param networkModel Network model pricing the transfers between pipeline stages
+     * @param horizon Simulated time (in seconds) after which devices stop emitting data
+     * @param profiler Measures the time and allocations of packet generation
+     */
+    public StreamingWorkloadSource(DatacenterBroker broker, NetworkModel networkModel, double horizon,
+                                   SimulationProfiler profiler) {
+        this.broker = broker;
+        this.workflowScheduler = new WorkflowScheduler(broker, networkModel);
+        this.workflowScheduler.addOnWorkflowFinishedListener(this::onWorkflowFinished);
+        this.horizon = horizon;
+        this.pipelines = new ArrayList<>();
+        this.pipelinesByDevice = new HashMap<>();
+        this.generatingPackets = new LinkedHashMap<>();
+        this.restoredEmissions = new LinkedHashMap<>();
+        this.onPacketReleasedListeners = new ArrayList<>();
+        this.profiler = profiler;
+    }
+
+    /**
+     * Registers a device together with the VMs that run each tier of its pipeline
+     *
+     * @param device The IoT device emitting data
+     * @param edgeVm VM running the data generation and filtering stages
+     * @param fogVm VM running the processing stage
+     * @param cloudVm VM running the analytics stage
+     */
+    public void addDevice(IoTDevice device, Vm edgeVm, Vm fogVm, Vm cloudVm) {
+        DevicePipeline pipeline = new DevicePipeline(pipelines.size(), device, edgeVm, fogVm, cloudVm);
+        pipelines.add(pipeline);
+        pipelinesByDevice.put(device.getDeviceId(), pipeline);
+    }
+
+    /**
+     * Moves the edge and fog tiers of a device's pipeline, e.g. after a handover to another edge node.
+     * Emissions from then on run on the new VMs; workflows already released keep theirs.
+     *
+     * @param device Index of the device, in registration order
+     * @param edgeVm VM running the data generation and filtering stages
+     * @param fogVm VM running the processing stage
+     */
+    public void reassignDevice(int device, Vm edgeVm, Vm fogVm) {
+        DevicePipeline pipeline = pipelines.get(device);
+        pipeline.edgeVm = edgeVm;
+        pipeline.fogVm = fogVm;
+    }
+
+    /**
+     * Adds a listener notified when a packet leaves its device, i.e. when the cloudlet
+     * generating its data finishes
+     *
+     * @param listener Receives the device and the packet it released
+     */
+    public void addOnPacketReleasedListener(BiConsumer<IoTDevice, DataPacket> listener) {
+        onPacketReleasedListeners.add(listener);
+    }
+
+    /**
+     * Sets the handler called when the cloudlet of a filtering, processing or analytics stage
+     * finishes, so that the tier running the stage handles the packet then, and decides whether
+     * the next stages run
+     *
+     * @param stageHandler Receives the task and stage, the device and the packet the stage processed
+     */
+    public void setStageHandler(StageHandler stageHandler) {
+        this.stageHandler = stageHandler;
+    }
+
+    /**
+     * Replays a recorded trace instead of the devices' synthetic emissions.
+     * Must be called once every device is registered, before a checkpoint is restored.
+     *
+     * @param traceReplay The trace, mapped to the registered devices
+     * @param lookahead Seconds of the trace submitted ahead of the clock
+     */
+    public void replay(TraceReplay traceReplay, double lookahead) {
+        List<String> deviceIds = new ArrayList<>();
+        for (DevicePipeline pipeline : pipelines) {
+            deviceIds.add(pipeline.device.getDeviceId());
+        }
+        traceReplay.bind(deviceIds);
+        this.traceReplay = traceReplay;
+        this.traceLookahead = lookahead;
+    }
+
+    /**
+     * Submits the first emission of every registered device, or the beginning of the trace.
+     * Must be called before the simulation starts.
+     */
+    public void start() {
+        // Peak heap is measured from here on
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+        if (traceReplay != null) {
+            broker.getSimulation().addOnClockTickListener(info -> pullTrace(info.getTime()));
+            pullTrace(broker.getSimulation().clock());
+            LOGGER.info("Trace replay started for " + pipelines.size() + " devices");
+            return;
+        }
+        emissionTimer = new SimulationTimer(broker.getSimulation());
+        for (DevicePipeline pipeline : pipelines) {
+            if (pipeline.nextEmissionTime < horizon) {
+                activeDevices++;
+                scheduleEmission(pipeline);
+            }
+        }
+        LOGGER.info("Streaming workload started for " + activeDevices + " devices");
+    }
+
+    /**
+     * Emits the trace records up to the lookahead, and at least the next one so that the clock
+     * reaches it across gaps in the trace
+     */
+    private void pullTrace(double currentTime) {
+        if (traceExhausted) {
+            return;
+        }
+        try {
+            while (traceRecordPending || traceReplay.advance()) {
+                double time = traceReplay.getTime();
+                if (time >= horizon) {
+                    break;
+                }
+                if (time > currentTime + traceLookahead && lastTraceRelease > currentTime) {
+                    traceRecordPending = true;
+                    return;
+                }
+                traceRecordPending = false;
+                DevicePipeline pipeline = pipelines.get(traceReplay.getDeviceIndex());
+                if (!pipeline.device.isEmittingAt(time)) {
+                    // Depleted or recharging devices do not send their traced packets
+                    tracePacketsOffline++;
+                    continue;
+                }
+                emit(pipeline, traceReplay.createDataPacket(), Math.max(0.0, time - currentTime));
+                lastTraceRelease = time;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read the packet trace", e);
+        }
+        traceRecordPending = false;
+        traceExhausted = true;
+        traceReplay.finish();
+    }
+
+    /**
+     * Releases the workflow of an emission
+     *
+     * @param pipeline The emitting device's pipeline
+     * @param givenPacket Packet to emit, e.g. replayed from the trace, null to generate one
+     * @param delay Delay (in seconds) from the current simulation time until the emission
+     */
+    private void emit(DevicePipeline pipeline, DataPacket givenPacket, double delay) {
+        profiler.begin();
+        PacketGenerationEvent event = new PacketGenerationEvent();
+        event.begin();
+        DataPacket packet = givenPacket != null ? givenPacket
+                : pipeline.device.createDataPacket((int) (broker.getSimulation().clock() + delay));
+        CloudletWorkflow workflow = createWorkflow(pipeline, packet, PipelineStage.DATA_GENERATION);
+        generatingPackets.put(packet, pipeline);
+        workflowScheduler.submit(workflow, delay);
+        profiler.end(SimulationProfiler.Phase.GENERATION);
+        
+        event.end();
+        if (event.shouldCommit()) {
+            event.setActivity(pipeline.device.getDeviceId(), "IoT", packet.getTimestamp(), 1, packet.getSize());
+            event.setDataType(packet.getDataType());
+            event.setCloudletCount(workflow.getTasks().size());
+            event.commit();
+        }
+    }
+
+    /**
+     * Chains the stages of a packet's pipeline, from a given stage to the analytics
+     */
+    private CloudletWorkflow createWorkflow(DevicePipeline pipeline, DataPacket packet, PipelineStage firstStage) {
+        CloudletWorkflow workflow = new CloudletWorkflow(pipeline.device.getDeviceId());
+        PacketWorkloadProfile profile = PacketWorkloadProfile.of(packet);
+
+        // Each stage processes the data forwarded by the previous one
+        long inputSize = packet.getSize();
+        CloudletWorkflow.Task previous = null;
+        for (PipelineStage stage = firstStage; stage != null; stage = stage.next()) {
+            Cloudlet cloudlet = stage.createCloudlet(nextCloudletId++, inputSize, profile);
+            inputSize = stage.getOutputSize(inputSize);
+            cloudlet.setVm(pipeline.getVm(stage));
+            
+            CloudletWorkflow.Task task = workflow.addTask(cloudlet, stage.getLayer());
+            if (stage == PipelineStage.DATA_GENERATION) {
+                // The packet is released once its data has been generated
+                task.setOnFinished(time -> {
+                    generatingPackets.remove(packet);
+                    releasePacket(pipeline.device, packet);
+                    return CloudletWorkflow.Continuation.RELEASE;
+                });
+            } else {
+                PipelineStage finishedStage = stage;
+                task.setOnFinished(time -> finishStage(task, finishedStage, pipeline.device, packet, time));
+            }
+            if (previous != null) {
+                workflow.addDependency(previous, task);
+            }
+            previous = task;
+        }
+        return workflow;
+    }
+
+    /**
+     * Releases the remaining stages of a packet's pipeline, e.g. for a packet a tier buffered when
+     * the checkpoint a run resumes from was taken, as the cloudlets in flight are not part of it
+     *
+     * @param deviceId ID of the device that emitted the packet; packets merged by a fog node run
+     * on the VMs of the first device's pipeline
+     * @param packet The packet, as buffered by the tier running the first stage
+     * @param firstStage First stage to run
+     * @param time Simulation time (in seconds) the stages are released at
+     * @param held Whether the first stage waits to be released or cancelled through the scheduler
+     * @return The workflow of the remaining stages
+     */
+    public CloudletWorkflow resubmit(String deviceId, DataPacket packet, PipelineStage firstStage, double time,
+                                     boolean held) {
+        DevicePipeline pipeline = pipelinesByDevice.getOrDefault(deviceId, pipelines.get(0));
+        CloudletWorkflow workflow = createWorkflow(pipeline, packet, firstStage);
+        workflow.getTasks().get(0).setHeld(held);
+        workflowScheduler.submit(workflow, Math.max(0.0, time - broker.getSimulation().clock()));
+        return workflow;
+    }
+
+    /**
+     * Emits again the packets whose data was being generated when the checkpoint the run
+     * resumes from was taken. Must be called once the checkpoint is restored.
+     *
+     * @param time Simulation time (in seconds) the emissions are released at
+     */
+    public void resumeEmissions(double time) {
+        for (Map.Entry<DataPacket, DevicePipeline> emission : restoredEmissions.entrySet()) {
+            emit(emission.getValue(), emission.getKey(), Math.max(0.0, time - broker.getSimulation().clock()));
+        }
+        restoredEmissions.clear();
+    }
+
+    private void releasePacket(IoTDevice device, DataPacket packet) {
+        for (BiConsumer<IoTDevice, DataPacket> listener : onPacketReleasedListeners) {
+            listener.accept(device, packet);
+        }
+    }
+
+    private CloudletWorkflow.Continuation finishStage(CloudletWorkflow.Task task, PipelineStage stage, IoTDevice device,
+                                                      DataPacket packet, double time) {
+        return stageHandler != null ? stageHandler.onStageFinished(task, stage, device, packet, time)
+                : CloudletWorkflow.Continuation.RELEASE;
+    }
+
+    /**
+     * Emits at the device's next emission time, whether or not its previous data has been generated,
+     * and schedules the emission after it
+     */
+    private void scheduleEmission(DevicePipeline pipeline) {
+        emissionTimer.runAt(pipeline.nextEmissionTime, () -> {
+            if (pipeline.device.isEmittingAt(pipeline.nextEmissionTime)) {
+                emit(pipeline, null, 0.0);
+            }
+            pipeline.nextEmissionTime = pipeline.device.getNextEmissionTime(pipeline.nextEmissionTime);
+            if (pipeline.nextEmissionTime < horizon) {
+                scheduleEmission(pipeline);
+            } else {
+                activeDevices--;
+            }
+        });
+    }
+
+    private void onWorkflowFinished(CloudletWorkflow workflow) {
+        if (workflowScheduler.getRunningWorkflows() == 0 && activeDevices == 0
+                && (traceReplay == null || traceExhausted)) {
+            LOGGER.info("Streaming workload drained at time " + workflow.getFinishTime());
+            broker.getSimulation().terminateAt(workflow.getFinishTime() + 1.0);
+        }
+    }
+
+    /**
+     * Logs the streaming statistics of the run
+     */
+    public void logSummary() {
+        LOGGER.info("Streaming workload: " + workflowScheduler.getTotalCloudletsSubmitted() + " cloudlets submitted, "
+                + workflowScheduler.getTotalCloudletsFinished() + " finished, "
+                + workflowScheduler.getTotalCloudletsCancelled() + " cancelled, peak in flight: "
+                + workflowScheduler.getPeakInFlightCloudlets() + ", peak heap: " + getPeakHeapUsage() / (1024 * 1024) + " MB");
+        if (traceReplay != null) {
+            LOGGER.info("Trace packets skipped while their device was offline: " + tracePacketsOffline);
+        }
+    }
+
+    /**
+     * Gets the peak heap usage since the workload started, summed over the heap memory pools
+     *
+     * @return Peak heap usage in bytes
+     */
+    public long getPeakHeapUsage() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    /**
+     * Writes the next emission time of every device, the packets whose data is being generated,
+     * and the trace position, for a checkpoint
+     *
+     * @param out Checkpoint stream
+     * @throws IOException If the state cannot be written
+     */
+    public void saveState(DataOutput out) throws IOException {
+        out.writeInt(pipelines.size());
+        for (DevicePipeline pipeline : pipelines) {
+            out.writeDouble(pipeline.nextEmissionTime);
+        }
+        out.writeInt(generatingPackets.size());
+        for (Map.Entry<DataPacket, DevicePipeline> emission : generatingPackets.entrySet()) {
+            out.writeInt(emission.getValue().index);
+            CheckpointStreams.writePacket(out, emission.getKey());
+        }
+        out.writeBoolean(traceReplay != null);
+        if (traceReplay != null) {
+            traceReplay.saveState(out, !traceRecordPending);
+        }
+    }
+
+    /**
+     * Restores the next emission time of every device, the packets whose data was being generated,
+     * and the trace position, from a checkpoint. Must be called before {@link #start()}; the packets
+     * are emitted again by {@link #resumeEmissions(double)}.
+     *
+     * @param in Checkpoint stream
+     * @throws IOException If the state cannot be read or was taken with other devices
+     */
+    public void restoreState(DataInput in) throws IOException {
+        int count = in.readInt();
+        if (count != pipelines.size()) {
+            throw new IOException("Checkpoint has " + count + " device pipelines, expected " + pipelines.size());
+        }
+        for (DevicePipeline pipeline : pipelines) {
+            pipeline.nextEmissionTime = in.readDouble();
+        }
+        restoredEmissions.clear();
+        int emissions = in.readInt();
+        for (int i = 0; i < emissions; i++) {
+            int device = in.readInt();
+            if (device < 0 || device >= pipelines.size()) {
+                throw new IOException("Checkpoint has an emission of unknown device " + device);
+            }
+            restoredEmissions.put(CheckpointStreams.readPacket(in), pipelines.get(device));
+        }
+        if (in.readBoolean() != (traceReplay != null)) {
+            throw new IOException("Checkpoint was taken " + (traceReplay != null ? "without" : "with") + " a trace replay");
+        }
+        if (traceReplay != null) {
+            traceReplay.restoreState(in);
+        }
+    }
+
+    public WorkflowScheduler getWorkflowScheduler() {
+        return workflowScheduler;
+    }
+
+    /**
+     * Handler of the pipeline stages a packet goes through
+     */
+    @FunctionalInterface
+    public interface StageHandler {
+        /**
+         * Called when the cloudlet of a stage finishes, before the next stage is submitted
+         *
+         * @param task The finished task, whose successors run the next stage
+         * @param stage The finished stage
+         * @param device The device that emitted the packet
+         * @param packet The packet the stage processed
+         * @param time Simulation time (in seconds) the stage finished
+         * @return RELEASE to run the next stages, HOLD if the handler releases or cancels them later through
+         * the scheduler, CANCEL if the packet goes no further, e.g. once filtered out
+         */
+        CloudletWorkflow.Continuation onStageFinished(CloudletWorkflow.Task task, PipelineStage stage, IoTDevice device,
+                                                      DataPacket packet, double time);
+    }
+
+    /**
+     * Emission state and VM placement of a single device's pipeline
+     */
+    private static class DevicePipeline {
+        private final int index; // in registration order
+        private final IoTDevice device;
+        private Vm edgeVm;
+        private Vm fogVm;
+        private final Vm cloudVm;
+        private double nextEmissionTime;
+
+        DevicePipeline(int index, IoTDevice device, Vm edgeVm, Vm fogVm, Vm cloudVm) {
+            this.index = index;
+            this.device = device;
+            this.edgeVm = edgeVm;
+            this.fogVm = fogVm;
+            this.cloudVm = cloudVm;
+            this.nextEmissionTime = device.getFirstEmissionTime();
+        }
+
+        Vm getVm(PipelineStage stage) {
+            switch (stage) {
+                case DATA_GENERATION:
+                case FILTER:
+                    return edgeVm;
+                case PROCESS:
+                    return fogVm;
+                default:
+                    return cloudVm;
+            }
+        }
+    }
+}
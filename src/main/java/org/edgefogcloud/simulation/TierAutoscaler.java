@@ -0,0 +1,178 @@
+package org.edgefogcloud.simulation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import org.cloudbus.cloudsim.brokers.DatacenterBroker;
+import org.cloudbus.cloudsim.vms.Vm;
+import org.cloudsimplus.listeners.EventInfo;
+
+/**
+ * Horizontal autoscaler for the VM pools of each tier, the edge tier having a pool per edge node.
+ * Every evaluation interval, a pool whose backlog or utilization is above the scale-out
+ * thresholds gets a new VM, and a pool below both scale-in thresholds retires one,
+ * each pool waiting for its cooldown between two scaling actions.
+ */
+public class TierAutoscaler {
+    private static final Logger LOGGER = Logger.getLogger(TierAutoscaler.class.getName());
+
+    private final DatacenterBroker broker;
+    private final List<VmPool> pools;
+    private final Map<Vm, VmPool> poolsByInitialVm;
+    private final Map<VmPool, Double> lastScalingTime;
+    private final double horizon; // in seconds
+
+    // Policy
+    private final double evaluationInterval;
+    private final double cooldown;
+    private final double scaleOutBacklog;
+    private final double scaleInBacklog;
+    private final double scaleOutUtilization;
+    private final double scaleInUtilization;
+    private final double latencySlo;
+
+    private long nextVmId;
+    private double nextEvaluationTime;
+
+    // Metrics
+    private long workflowsWithinSlo;
+    private long workflowsFinished;
+
+    /**
+     * Creates an autoscaler
+     *
+     * @param broker Broker the VMs are submitted to
+     * @param horizon Destruction delay of idle VMs that are not retired, in seconds
+     * @param firstVmId ID of the first VM created by the autoscaler
+     * @param evaluationInterval Interval (in seconds) between two evaluations of the pools
+     * @param cooldown Minimum time (in seconds) between two scaling actions of a pool
+     * @param scaleOutBacklog Average cloudlets per VM above which a pool scales out
+     * @param scaleInBacklog Average cloudlets per VM below which a pool may scale in
+     * @param scaleOutUtilization Average CPU utilization above which a pool scales out
+     * @param scaleInUtilization Average CPU utilization below which a pool may scale in
+     * @param latencySlo Pipeline latency (in seconds) the SLO attainment is measured against
+     */
+    public TierAutoscaler(DatacenterBroker broker, double horizon, long firstVmId,
+                          double evaluationInterval, double cooldown,
+                          double scaleOutBacklog, double scaleInBacklog,
+                          double scaleOutUtilization, double scaleInUtilization,
+                          double latencySlo) {
+        this.broker = broker;
+        this.horizon = horizon;
+        this.nextVmId = firstVmId;
+        this.evaluationInterval = evaluationInterval;
+        this.cooldown = cooldown;
+        this.scaleOutBacklog = scaleOutBacklog;
+        this.scaleInBacklog = scaleInBacklog;
+        this.scaleOutUtilization = scaleOutUtilization;
+        this.scaleInUtilization = scaleInUtilization;
+        this.latencySlo = latencySlo;
+        this.pools = new ArrayList<>();
+        this.poolsByInitialVm = new HashMap<>();
+        this.lastScalingTime = new HashMap<>();
+    }
+
+    public void addPool(VmPool pool) {
+        pools.add(pool);
+        for (Vm vm : pool.getInitialVms()) {
+            poolsByInitialVm.put(vm, pool);
+        }
+        lastScalingTime.put(pool, Double.NEGATIVE_INFINITY);
+    }
+
+    /**
+     * Attaches the autoscaler to the simulation and to the workflows it serves.
+     * Must be called before the simulation starts.
+     *
+     * @param workflowScheduler Scheduler whose tasks are bound to the pools' VMs
+     */
+    public void start(WorkflowScheduler workflowScheduler) {
+        // Retired VMs are destroyed as soon as they are idle, the others survive emission gaps
+        broker.setVmDestructionDelayFunction(vm -> isRetired(vm) ? 0.0 : horizon);
+        workflowScheduler.setVmSelector(this::selectVm);
+        workflowScheduler.addOnWorkflowFinishedListener(this::onWorkflowFinished);
+        broker.getSimulation().addOnClockTickListener(this::onClockTick);
+        LOGGER.info("Autoscaler started for " + pools.size() + " VM pools");
+    }
+
+    private Vm selectVm(CloudletWorkflow.Task task) {
+        // The VM the task was built with identifies the tier, or edge node, it runs at
+        Vm home = task.getCloudlet().getVm();
+        VmPool pool = poolsByInitialVm.get(home);
+        return pool != null ? pool.bind(task.getCloudlet()) : home;
+    }
+
+    private boolean isRetired(Vm vm) {
+        for (VmPool pool : pools) {
+            if (pool.isRetired(vm)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void onWorkflowFinished(CloudletWorkflow workflow) {
+        workflowsFinished++;
+        if (workflow.getCriticalPathLatency() <= latencySlo) {
+            workflowsWithinSlo++;
+        }
+    }
+
+    private void onClockTick(EventInfo info) {
+        double currentTime = info.getTime();
+        if (currentTime < nextEvaluationTime) {
+            return;
+        }
+        nextEvaluationTime = currentTime + evaluationInterval;
+
+        for (VmPool pool : pools) {
+            if (currentTime - lastScalingTime.get(pool) < cooldown) {
+                continue;
+            }
+
+            double backlog = pool.getAverageBacklog();
+            double utilization = pool.getAverageUtilization();
+            boolean scaled = false;
+            if (backlog > scaleOutBacklog || utilization > scaleOutUtilization) {
+                scaled = pool.scaleOut(currentTime, nextVmId);
+                if (scaled) {
+                    nextVmId++;
+                }
+            } else if (backlog < scaleInBacklog && utilization < scaleInUtilization) {
+                scaled = pool.scaleIn(currentTime);
+            }
+
+            if (scaled) {
+                lastScalingTime.put(pool, currentTime);
+            }
+        }
+    }
+
+    /**
+     * Prints the VM-seconds consumed by each tier against the latency SLO attainment
+     */
+    public void displayScalingReport() {
+        double currentTime = broker.getSimulation().clock();
+        System.out.println("\n=== Autoscaling Report ===");
+        System.out.println("Pool | VMs (final/peak) | Scale-outs | Scale-ins | VM-seconds");
+
+        double totalVmSeconds = 0.0;
+        for (VmPool pool : pools) {
+            double vmSeconds = pool.getVmSeconds(currentTime);
+            totalVmSeconds += vmSeconds;
+            System.out.printf("%s | %d/%d | %d | %d | %.2f\n", pool.getName(), pool.size(), pool.getPeakVms(),
+                    pool.getScaleOuts(), pool.getScaleIns(), vmSeconds);
+        }
+        System.out.printf("Total VM-seconds: %.2f\n", totalVmSeconds);
+
+        double attainment = workflowsFinished > 0 ? (double) workflowsWithinSlo / workflowsFinished * 100 : 0.0;
+        System.out.printf("Latency SLO (%.3f s) attainment: %.2f%% of %d pipelines\n",
+                latencySlo, attainment, workflowsFinished);
+        if (workflowsWithinSlo > 0) {
+            System.out.printf("VM-seconds per pipeline within SLO: %.4f\n", totalVmSeconds / workflowsWithinSlo);
+        }
+    }
+}
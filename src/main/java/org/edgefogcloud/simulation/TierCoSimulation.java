@@ -0,0 +1,359 @@
+package org.edgefogcloud.simulation;
+
+import org.edgefogcloud.cloud.CloudDataCenter;
+import org.edgefogcloud.data.DataPacket;
+import org.edgefogcloud.devices.DevicePopulation;
+import org.edgefogcloud.devices.IoTDevice;
+import org.edgefogcloud.edge.EdgeNode;
+import org.edgefogcloud.fog.FogNode;
+import org.edgefogcloud.network.NetworkModel;
+import org.edgefogcloud.utils.MetricsCollector;
+import org.edgefogcloud.utils.SimulationLog;
+import org.edgefogcloud.utils.SimulationProfiler;
+import org.edgefogcloud.utils.SimulationProfiler.Phase;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.cloudbus.cloudsim.core.Simulation;
+import org.cloudsimplus.listeners.EventInfo;
+import org.cloudsimplus.listeners.EventListener;
+
+/**
+ * Drives the custom IoT, edge, fog and cloud tiers from the CloudSim Plus clock.
+ * Devices release their packets when the cloudlet generating the data finishes, and each tier
+ * handles a packet when the cloudlet of its stage finishes: the edge node filters it after the
+ * filtering stage, the fog node aggregates it after the processing stage and the cloud analyzes it
+ * after the analytics stage. A packet the edge node filters out goes no further: the fog and cloud
+ * stages of its pipeline are cancelled. Each tier forwards a new packet, so the packet a device sent
+ * is never modified. The fog node merges the packets of a data type within an
+ * aggregation window, so the analytics stages of the window's packets are held until it closes:
+ * a single analytics cloudlet, sized for the merged data, runs then and the others are cancelled,
+ * ending their pipelines at the window's close. The cloudlets and the windows alone time the tiers,
+ * so both models share a single clock and event queue. Once the clock has passed a second, the
+ * network conditions are updated and the metrics of the second are collected.
+ */
+public class TierCoSimulation {
+    private static final Logger LOGGER = Logger.getLogger(TierCoSimulation.class.getName());
+    private static final SimulationLog.Category TIER_LOG =
+            SimulationLog.category(TierCoSimulation.class, "tier", Level.FINE);
+
+    private final Simulation simulation;
+    private final int horizon; // in seconds
+    private final DevicePopulation devicePopulation;
+    private final List<EdgeNode> edgeNodes;
+    private final List<FogNode> fogNodes;
+    private final CloudDataCenter cloudDataCenter;
+    private final NetworkModel networkModel;
+    private final MetricsCollector metricsCollector;
+    private final SimulationProfiler profiler;
+    private final EventListener<EventInfo> clockTickListener;
+    private final List<IntConsumer> onStepStartedListeners;
+    private final List<IntConsumer> onStepFinishedListeners;
+    private final Map<DataPacket, ForwardedPacket> packetsAtFog; // the device may hand over before the processing stage
+    private final Map<FogNode.AggregationWindow, PendingWindow> pendingWindows; // in closing order
+    private final Map<DataPacket, DataPacket> packetsAtCloud; // the packet a window merged its packets into
+    private StreamingWorkloadSource workloadSource;
+    private WorkflowScheduler workflowScheduler;
+    private SimulationTimer windowTimer;
+
+    private int nextStep; // first second not processed yet
+    private boolean started;
+
+    /**
+     * Creates a co-simulation of the custom tiers
+     *
+     * @param simulation The CloudSim Plus simulation providing the clock
+     * @param horizon Number of seconds processed by the tiers
+     * @param devicePopulation Devices whose packets enter the tiers
+     * @param edgeNodes Edge tier
+     * @param fogNodes Fog tier
+     * @param cloudDataCenter Cloud tier
+     * @param networkModel Network model whose link conditions change every second
+     * @param metricsCollector Collects the metrics of every processed second
+     * @param profiler Measures the time and allocations of each tier
+     */
+    public TierCoSimulation(Simulation simulation, int horizon, DevicePopulation devicePopulation,
+                            List<EdgeNode> edgeNodes, List<FogNode> fogNodes,
+                            CloudDataCenter cloudDataCenter, NetworkModel networkModel,
+                            MetricsCollector metricsCollector, SimulationProfiler profiler) {
+        this.simulation = simulation;
+        this.horizon = horizon;
+        this.devicePopulation = devicePopulation;
+        this.edgeNodes = edgeNodes;
+        this.fogNodes = fogNodes;
+        this.cloudDataCenter = cloudDataCenter;
+        this.networkModel = networkModel;
+        this.metricsCollector = metricsCollector;
+        this.profiler = profiler;
+        this.clockTickListener = info -> advanceTo(info.getTime());
+        this.onStepStartedListeners = new ArrayList<>();
+        this.onStepFinishedListeners = new ArrayList<>();
+        this.packetsAtFog = new IdentityHashMap<>();
+        this.pendingWindows = new LinkedHashMap<>();
+        this.packetsAtCloud = new IdentityHashMap<>();
+    }
+
+    /**
+     * Adds a listener notified before the metrics of each second are collected, while the edge
+     * buffers hold the packets awaiting their filtering stage
+     *
+     * @param listener Receives the second about to be processed
+     */
+    public void addOnStepStartedListener(IntConsumer listener) {
+        onStepStartedListeners.add(listener);
+    }
+
+    /**
+     * Adds a listener notified after each processed second
+     *
+     * @param listener Receives the number of seconds processed so far
+     */
+    public void addOnStepFinishedListener(IntConsumer listener) {
+        onStepFinishedListeners.add(listener);
+    }
+
+    /**
+     * Continues a run restored from a checkpoint, skipping the seconds already processed.
+     * The cloudlets in flight are not part of a checkpoint, so the remaining stages of every packet
+     * restored in the tiers' buffers are submitted again at the resume time: the filtering stage of
+     * the packets at the edge, the processing stage of those at the fog, the held analytics stages of
+     * the open aggregation windows and the analytics stage of the packets at the cloud. The packets
+     * whose data was being generated are emitted again. Must be called once the tiers and the workload
+     * source are restored, after {@link #start(StreamingWorkloadSource)} and before the simulation starts.
+     *
+     * @param processedSeconds Number of seconds processed when the checkpoint was taken
+     */
+    public void resumeAt(int processedSeconds) {
+        nextStep = processedSeconds;
+        for (EdgeNode edgeNode : edgeNodes) {
+            for (Set<DataPacket> packets : edgeNode.getBufferedPackets().values()) {
+                for (DataPacket packet : packets) {
+                    workloadSource.resubmit(packet.getSourceId(), packet, PipelineStage.FILTER, processedSeconds,
+                            false);
+                }
+            }
+        }
+        for (FogNode fogNode : fogNodes) {
+            for (Set<DataPacket> packets : fogNode.getBufferedPackets().values()) {
+                for (DataPacket packet : packets) {
+                    packetsAtFog.put(packet, new ForwardedPacket(fogNode, packet));
+                    workloadSource.resubmit(packet.getSourceId(), packet, PipelineStage.PROCESS, processedSeconds,
+                            false);
+                }
+            }
+            for (FogNode.AggregationWindow window : fogNode.getOpenWindows()) {
+                for (DataPacket packet : window.getPackets()) {
+                    CloudletWorkflow workflow = workloadSource.resubmit(packet.getSourceId(), packet,
+                            PipelineStage.ANALYTICS, processedSeconds, true);
+                    holdUntilClosed(fogNode, window, workflow.getTasks(), packet);
+                }
+            }
+        }
+        for (Set<DataPacket> packets : cloudDataCenter.getStoredPackets().values()) {
+            for (DataPacket packet : packets) {
+                packetsAtCloud.put(packet, packet);
+                workloadSource.resubmit(packet.getSourceId(), packet, PipelineStage.ANALYTICS, processedSeconds,
+                        false);
+            }
+        }
+        workloadSource.resumeEmissions(processedSeconds);
+        LOGGER.info("Resumed the pipelines of the packets buffered at " + processedSeconds + " seconds");
+    }
+
+    /**
+     * Couples the tiers to the workload source and the simulation clock.
+     * Must be called before the simulation starts.
+     *
+     * @param workloadSource Source whose emissions carry the devices' packets
+     */
+    public void start(StreamingWorkloadSource workloadSource) {
+        this.workloadSource = workloadSource;
+        workloadSource.addOnPacketReleasedListener(IoTDevice::releaseDataPacket);
+        workloadSource.setStageHandler(this::onStageFinished);
+        setWorkflowScheduler(workloadSource.getWorkflowScheduler());
+        windowTimer = new SimulationTimer(simulation);
+        simulation.addOnClockTickListener(clockTickListener);
+        started = true;
+        LOGGER.info("Co-simulation of the custom tiers started for " + horizon + " seconds");
+    }
+
+    /**
+     * Sets the scheduler releasing and cancelling the analytics stages held by the aggregation windows
+     */
+    void setWorkflowScheduler(WorkflowScheduler workflowScheduler) {
+        this.workflowScheduler = workflowScheduler;
+    }
+
+    /**
+     * Hands a packet to the tier that ran its finished stage
+     *
+     * @return Whether the next stages of the packet's pipeline run
+     */
+    CloudletWorkflow.Continuation onStageFinished(CloudletWorkflow.Task task, PipelineStage stage, IoTDevice device,
+                                                  DataPacket packet, double time) {
+        switch (stage) {
+            case FILTER:
+                profiler.begin();
+                EdgeNode edgeNode = device.getAssignedEdgeNode();
+                DataPacket processedPacket = edgeNode == null ? null : edgeNode.filterPacket(packet, device, time);
+                if (processedPacket != null) {
+                    packetsAtFog.put(packet, new ForwardedPacket(edgeNode.getAssignedFogNode(), processedPacket));
+                }
+                profiler.end(Phase.EDGE);
+                // A filtered packet loads neither the fog nor the cloud
+                return processedPacket != null ? CloudletWorkflow.Continuation.RELEASE
+                        : CloudletWorkflow.Continuation.CANCEL;
+            case PROCESS:
+                profiler.begin();
+                ForwardedPacket forwarded = packetsAtFog.remove(packet);
+                FogNode.AggregationWindow window = forwarded == null ? null
+                        : forwarded.fogNode.aggregatePacket(forwarded.packet, time);
+                if (window != null) {
+                    holdUntilClosed(forwarded.fogNode, window, task.getSuccessors(), packet);
+                }
+                profiler.end(Phase.FOG);
+                return window != null ? CloudletWorkflow.Continuation.HOLD : CloudletWorkflow.Continuation.CANCEL;
+            case ANALYTICS:
+                profiler.begin();
+                DataPacket aggregatedPacket = packetsAtCloud.remove(packet);
+                if (aggregatedPacket != null) {
+                    cloudDataCenter.analyzePacket(aggregatedPacket, time);
+                }
+                profiler.end(Phase.CLOUD);
+                return CloudletWorkflow.Continuation.RELEASE;
+            default:
+                // The packet was released into its edge node's buffer
+                return CloudletWorkflow.Continuation.RELEASE;
+        }
+    }
+
+    private void holdUntilClosed(FogNode fogNode, FogNode.AggregationWindow window,
+                                 List<CloudletWorkflow.Task> analyticsTasks, DataPacket packet) {
+        PendingWindow pending = pendingWindows.get(window);
+        if (pending == null) {
+            pending = new PendingWindow(fogNode);
+            pendingWindows.put(window, pending);
+            if (windowTimer != null) {
+                // The clock reaches the close even if no cloudlet finishes then
+                windowTimer.runAt(window.getCloseTime(), () -> closeAggregationWindows(window.getCloseTime()));
+            }
+        }
+        pending.analyticsTasks.addAll(analyticsTasks);
+        pending.packets.add(packet);
+    }
+
+    /**
+     * Closes the aggregation windows due by a time, releasing a single analytics stage
+     * for the packet each window merged its packets into
+     *
+     * @param time Simulation time (in seconds)
+     */
+    void closeAggregationWindows(double time) {
+        Iterator<Map.Entry<FogNode.AggregationWindow, PendingWindow>> windows = pendingWindows.entrySet().iterator();
+        while (windows.hasNext()) {
+            Map.Entry<FogNode.AggregationWindow, PendingWindow> entry = windows.next();
+            FogNode.AggregationWindow window = entry.getKey();
+            if (window.getCloseTime() > time) {
+                // Windows restored from a checkpoint may close before the ones opened since
+                continue;
+            }
+            windows.remove();
+            PendingWindow pending = entry.getValue();
+            profiler.begin();
+            DataPacket aggregatedPacket = pending.fogNode.closeWindow(window, window.getCloseTime());
+            profiler.end(Phase.FOG);
+
+            // The first analytics stage runs on the data of the whole window
+            long inputSize = 0;
+            for (CloudletWorkflow.Task analytics : pending.analyticsTasks) {
+                inputSize += analytics.getCloudlet().getFileSize();
+            }
+            CloudletWorkflow.Task analytics = pending.analyticsTasks.get(0);
+            PipelineStage.ANALYTICS.resizeCloudlet(analytics.getCloudlet(), inputSize,
+                    PacketWorkloadProfile.of(aggregatedPacket));
+            packetsAtCloud.put(pending.packets.get(0), aggregatedPacket);
+            workflowScheduler.release(analytics);
+            for (CloudletWorkflow.Task merged : pending.analyticsTasks.subList(1, pending.analyticsTasks.size())) {
+                workflowScheduler.cancel(merged);
+            }
+        }
+    }
+
+    /**
+     * Applies the devices' lifecycle transitions due by the current time, closes the aggregation windows
+     * due and collects the metrics of every second the clock has fully passed
+     */
+    private void advanceTo(double time) {
+        devicePopulation.advanceTo(time);
+        closeAggregationWindows(time);
+        while (nextStep < horizon && nextStep + 1 <= time) {
+            step(nextStep++);
+        }
+    }
+
+    private void step(int currentTime) {
+        TIER_LOG.log(() -> "Simulation time: " + currentTime + " seconds");
+        for (IntConsumer listener : onStepStartedListeners) {
+            listener.accept(currentTime);
+        }
+
+        networkModel.updateNetworkConditions(currentTime);
+        profiler.begin();
+        metricsCollector.collectMetrics(currentTime, devicePopulation, edgeNodes, fogNodes, cloudDataCenter);
+        profiler.end(Phase.METRICS);
+        profiler.onStepFinished(currentTime + 1);
+        for (IntConsumer listener : onStepFinishedListeners) {
+            listener.accept(currentTime + 1);
+        }
+    }
+
+    /**
+     * Processes the seconds left up to the horizon, e.g. after the workload drained.
+     * Must be called once the simulation has finished.
+     */
+    public void finish() {
+        if (started) {
+            simulation.removeOnClockTickListener(clockTickListener);
+            advanceTo(horizon);
+            started = false;
+            LOGGER.info("Co-simulation of the custom tiers completed.");
+        }
+    }
+
+    /**
+     * Packet an edge node forwarded after processing the packet a device sent
+     */
+    private static class ForwardedPacket {
+        private final FogNode fogNode;
+        private final DataPacket packet;
+
+        ForwardedPacket(FogNode fogNode, DataPacket packet) {
+            this.fogNode = fogNode;
+            this.packet = packet;
+        }
+    }
+
+    /**
+     * Analytics stages held by an aggregation window, and the packets they analyze
+     */
+    private static class PendingWindow {
+        private final FogNode fogNode;
+        private final List<CloudletWorkflow.Task> analyticsTasks;
+        private final List<DataPacket> packets; // as sent by the devices
+
+        PendingWindow(FogNode fogNode) {
+            this.fogNode = fogNode;
+            this.analyticsTasks = new ArrayList<>();
+            this.packets = new ArrayList<>();
+        }
+    }
+}
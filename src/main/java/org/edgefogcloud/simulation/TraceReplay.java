@@ -0,0 +1,211 @@
+package org.edgefogcloud.simulation;
+
+import org.edgefogcloud.data.DataPacket;
+import org.edgefogcloud.data.PacketTraceReader;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Turns the records of a packet trace into emissions of the simulated devices.
+ * Trace timestamps are shifted so that the first record is at time 0 (unless disabled) and
+ * multiplied by a time scale; records are taken in file order, so a record older than the one
+ * before it is replayed at the time of its predecessor. Trace devices are mapped to simulated
+ * devices by an explicit map, then by the {@link DeviceMapping}.
+ */
+public class TraceReplay {
+    private static final Logger LOGGER = Logger.getLogger(TraceReplay.class.getName());
+
+    /**
+     * How trace devices without an explicit mapping are assigned to simulated devices
+     */
+    public enum DeviceMapping {
+        /** Only trace devices named like a simulated device are replayed */
+        BY_ID,
+        /** Trace devices are assigned in order of first appearance, wrapping around */
+        ROUND_ROBIN,
+        /** Trace devices are assigned by the hash of their name */
+        HASH
+    }
+
+    private final PacketTraceReader reader;
+    private final double timeScale;
+    private final boolean rebase;
+    private final DeviceMapping deviceMapping;
+    private final Map<String, String> deviceMap;
+    private final Map<String, Integer> deviceIndexByTraceDevice;
+
+    private List<String> deviceIds;
+    private Map<String, Integer> deviceIndexById;
+    private boolean started;
+    private double baseTimestamp;
+    private double time;
+    private int deviceIndex;
+    private long recordPosition;
+
+    // Statistics
+    private long packetsReplayed;
+    private long packetsUnmapped;
+    private long packetsOutOfOrder;
+
+    /**
+     * Creates a replay
+     *
+     * @param reader The trace
+     * @param timeScale Simulated seconds per trace second, e.g. 0.5 to replay twice as fast
+     * @param rebase Whether the first record is replayed at time 0 rather than at its timestamp
+     * @param deviceMapping Assignment of the trace devices missing from the device map
+     * @param deviceMap Simulated device ID by trace device
+     */
+    public TraceReplay(PacketTraceReader reader, double timeScale, boolean rebase,
+                       DeviceMapping deviceMapping, Map<String, String> deviceMap) {
+        this.reader = reader;
+        this.timeScale = timeScale;
+        this.rebase = rebase;
+        this.deviceMapping = deviceMapping;
+        this.deviceMap = deviceMap;
+        this.deviceIndexByTraceDevice = new HashMap<>();
+    }
+
+    /**
+     * Sets the simulated devices, in the order the workload source registered them
+     *
+     * @param deviceIds The devices' IDs
+     */
+    void bind(List<String> deviceIds) {
+        this.deviceIds = deviceIds;
+        this.deviceIndexById = new HashMap<>();
+        for (int i = 0; i < deviceIds.size(); i++) {
+            deviceIndexById.put(deviceIds.get(i), i);
+        }
+    }
+
+    /**
+     * Moves to the next record of a simulated device
+     *
+     * @return false once the trace is exhausted
+     * @throws IOException If the trace is malformed
+     */
+    boolean advance() throws IOException {
+        while (true) {
+            recordPosition = reader.getPosition();
+            if (!reader.next()) {
+                return false;
+            }
+            int index = mapDevice(reader.getDevice());
+            if (index < 0) {
+                packetsUnmapped++;
+                continue;
+            }
+
+            if (!started) {
+                baseTimestamp = rebase ? reader.getTimestamp() : 0.0;
+                started = true;
+            }
+            double recordTime = (reader.getTimestamp() - baseTimestamp) * timeScale;
+            if (recordTime < time) {
+                packetsOutOfOrder++;
+            } else {
+                time = recordTime;
+            }
+            deviceIndex = index;
+            packetsReplayed++;
+            return true;
+        }
+    }
+
+    private int mapDevice(String traceDevice) {
+        Integer index = deviceIndexByTraceDevice.get(traceDevice);
+        if (index == null) {
+            String deviceId = deviceMap.get(traceDevice);
+            if (deviceId != null) {
+                index = deviceIndexById.getOrDefault(deviceId, -1);
+            } else {
+                switch (deviceMapping) {
+                    case BY_ID:
+                        index = deviceIndexById.getOrDefault(traceDevice, -1);
+                        break;
+                    case HASH:
+                        index = Math.floorMod(traceDevice.hashCode(), deviceIds.size());
+                        break;
+                    default:
+                        index = deviceIndexByTraceDevice.size() % deviceIds.size();
+                }
+            }
+            deviceIndexByTraceDevice.put(traceDevice, index);
+        }
+        return index;
+    }
+
+    /**
+     * Simulated time of the current record
+     */
+    double getTime() {
+        return time;
+    }
+
+    /**
+     * Index of the simulated device of the current record
+     */
+    int getDeviceIndex() {
+        return deviceIndex;
+    }
+
+    /**
+     * Creates the packet of the current record
+     *
+     * @return A new data packet sent by the simulated device
+     */
+    DataPacket createDataPacket() {
+        return new DataPacket(deviceIds.get(deviceIndex), (int) time, reader.getSize(), reader.getDataType(), "RAW");
+    }
+
+    /**
+     * Writes the replay position for a checkpoint
+     *
+     * @param out Checkpoint stream
+     * @param currentRecordReplayed Whether the current record was already emitted
+     * @throws IOException If the state cannot be written
+     */
+    void saveState(DataOutput out, boolean currentRecordReplayed) throws IOException {
+        out.writeLong(currentRecordReplayed ? reader.getPosition() : recordPosition);
+        out.writeBoolean(started);
+        out.writeDouble(baseTimestamp);
+        out.writeDouble(time);
+    }
+
+    /**
+     * Restores the replay position from a checkpoint.
+     * The trace is read up to the position so that its devices are mapped as in the original run.
+     *
+     * @param in Checkpoint stream
+     * @throws IOException If the state cannot be read
+     */
+    void restoreState(DataInput in) throws IOException {
+        long position = in.readLong();
+        started = in.readBoolean();
+        baseTimestamp = in.readDouble();
+        time = in.readDouble();
+        while (reader.getPosition() < position && reader.next()) {
+            mapDevice(reader.getDevice());
+        }
+    }
+
+    /**
+     * Logs the replay statistics and closes the trace
+     */
+    void finish() {
+        LOGGER.info("Trace replay: " + packetsReplayed + " packets replayed up to time " + time + ", "
+                + packetsUnmapped + " from unmapped devices skipped, " + packetsOutOfOrder + " out of order");
+        try {
+            reader.close();
+        } catch (IOException e) {
+            LOGGER.warning("Could not close the packet trace: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package org.edgefogcloud.simulation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.LongFunction;
+import java.util.logging.Logger;
+
+import org.cloudbus.cloudsim.brokers.DatacenterBroker;
+import org.cloudbus.cloudsim.cloudlets.Cloudlet;
+import org.cloudbus.cloudsim.vms.Vm;
+
+/**
+ * Elastic pool of the VMs running one tier, or the part of a tier at one edge node.
+ * The pool serves the tasks built with one of its initial VMs. Cloudlets are bound to the running
+ * VM with the smallest backlog; VMs are added at runtime through the broker, becoming usable only
+ * after their boot latency, and retired VMs stop receiving cloudlets and are destroyed
+ * by the broker as soon as they are idle. The pool forgets a retired VM once it is destroyed.
+ */
+public class VmPool {
+    private static final Logger LOGGER = Logger.getLogger(VmPool.class.getName());
+
+    private final String name;
+    private final DatacenterBroker broker;
+    private final LongFunction<Vm> vmFactory;
+    private final int minVms;
+    private final int maxVms;
+    private final double bootTime; // in seconds
+
+    private final Set<Vm> initialVms;          // the VMs the served tasks are built with
+    private final List<Vm> vms;                // booting or running, not retired
+    private final Map<Vm, Integer> backlog;    // cloudlets bound and not finished, of the VMs in vms
+    private final Map<Vm, Double> activeSince; // when each VM was requested
+    private final Set<Vm> retired;             // not destroyed yet
+
+    // Metrics
+    private double vmSeconds;
+    private int peakVms;
+    private int scaleOuts;
+    private int scaleIns;
+
+    /**
+     * Creates a pool
+     *
+     * @param name Name of the pool in the logs, e.g. the layer (Edge, Fog or Cloud) or edge node its VMs serve
+     * @param broker Broker the VMs are submitted to
+     * @param vmFactory Creates a VM with the given ID
+     * @param minVms Minimum number of VMs kept in the pool
+     * @param maxVms Maximum number of VMs the pool may grow to
+     * @param bootTime Delay (in seconds) between requesting a VM and it accepting cloudlets
+     */
+    public VmPool(String name, DatacenterBroker broker, LongFunction<Vm> vmFactory,
+                  int minVms, int maxVms, double bootTime) {
+        this.name = name;
+        this.broker = broker;
+        this.vmFactory = vmFactory;
+        this.minVms = minVms;
+        this.maxVms = Math.max(minVms, maxVms);
+        this.bootTime = bootTime;
+        this.initialVms = new HashSet<>();
+        this.vms = new ArrayList<>();
+        this.backlog = new HashMap<>();
+        this.activeSince = new HashMap<>();
+        this.retired = new HashSet<>();
+    }
+
+    /**
+     * Adds a VM created outside the pool, e.g. at simulation setup
+     *
+     * @param vm The VM, already submitted to the broker
+     */
+    public void addInitialVm(Vm vm) {
+        vm.addOnHostDeallocationListener(info -> retired.remove(info.getVm()));
+        initialVms.add(vm);
+        vms.add(vm);
+        backlog.put(vm, 0);
+        activeSince.put(vm, 0.0);
+        peakVms = Math.max(peakVms, vms.size());
+    }
+
+    /**
+     * Gets the VMs the tasks the pool serves are built with, even if they were retired since
+     *
+     * @return Read-only view of the initial VMs
+     */
+    public Set<Vm> getInitialVms() {
+        return Collections.unmodifiableSet(initialVms);
+    }
+
+    /**
+     * Binds a cloudlet to the running VM with the smallest backlog.
+     * If no VM is running yet, booting VMs are considered as well.
+     *
+     * @param cloudlet The cloudlet to bind
+     * @return The VM chosen
+     */
+    public Vm bind(Cloudlet cloudlet) {
+        Vm selected = null;
+        boolean selectedRunning = false;
+        for (Vm vm : vms) {
+            boolean running = vm.isCreated();
+            if (selected == null || (running && !selectedRunning)
+                    || (running == selectedRunning && backlog.get(vm) < backlog.get(selected))) {
+                selected = vm;
+                selectedRunning = running;
+            }
+        }
+
+        Vm vm = selected;
+        backlog.merge(vm, 1, Integer::sum);
+        cloudlet.addOnFinishListener(info -> backlog.computeIfPresent(vm, (bound, count) -> count - 1));
+        return vm;
+    }
+
+    /**
+     * Requests a new VM from the broker, available after the boot time
+     *
+     * @param currentTime Current simulation time
+     * @param vmId ID of the new VM
+     * @return true if the pool was below its maximum size
+     */
+    public boolean scaleOut(double currentTime, long vmId) {
+        if (vms.size() >= maxVms) {
+            return false;
+        }
+        Vm vm = vmFactory.apply(vmId);
+        vm.setSubmissionDelay(bootTime);
+        vm.addOnHostDeallocationListener(info -> retired.remove(info.getVm()));
+        broker.submitVm(vm);
+
+        vms.add(vm);
+        backlog.put(vm, 0);
+        activeSince.put(vm, currentTime);
+        peakVms = Math.max(peakVms, vms.size());
+        scaleOuts++;
+        LOGGER.info(name + " pool scaled out to " + vms.size() + " VMs at time " + currentTime);
+        return true;
+    }
+
+    /**
+     * Retires a running VM without backlog; the broker destroys it once idle
+     *
+     * @param currentTime Current simulation time
+     * @return true if a VM was retired
+     */
+    public boolean scaleIn(double currentTime) {
+        if (vms.size() <= minVms) {
+            return false;
+        }
+        for (int i = vms.size() - 1; i >= 0; i--) {
+            Vm vm = vms.get(i);
+            if (vm.isCreated() && backlog.get(vm) == 0) {
+                vms.remove(i);
+                backlog.remove(vm);
+                retired.add(vm);
+                vmSeconds += currentTime - activeSince.remove(vm);
+                scaleIns++;
+                LOGGER.info(name + " pool scaled in to " + vms.size() + " VMs at time " + currentTime);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isRetired(Vm vm) {
+        return retired.contains(vm);
+    }
+
+    /**
+     * Gets the average number of unfinished cloudlets per VM
+     *
+     * @return The average backlog
+     */
+    public double getAverageBacklog() {
+        int total = 0;
+        for (Vm vm : vms) {
+            total += backlog.get(vm);
+        }
+        return vms.isEmpty() ? 0.0 : (double) total / vms.size();
+    }
+
+    /**
+     * Gets the average CPU utilization of the running VMs
+     *
+     * @return Utilization between 0 and 1
+     */
+    public double getAverageUtilization() {
+        double total = 0.0;
+        int running = 0;
+        for (Vm vm : vms) {
+            if (vm.isCreated()) {
+                total += vm.getCpuPercentUtilization();
+                running++;
+            }
+        }
+        return running == 0 ? 0.0 : total / running;
+    }
+
+    /**
+     * Gets the VM-seconds consumed by the pool
+     *
+     * @param currentTime Current simulation time, closing the periods of the VMs still active
+     * @return VM-seconds of retired and active VMs
+     */
+    public double getVmSeconds(double currentTime) {
+        double total = vmSeconds;
+        for (double since : activeSince.values()) {
+            total += Math.max(0.0, currentTime - since);
+        }
+        return total;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int size() {
+        return vms.size();
+    }
+
+    public int getPeakVms() {
+        return peakVms;
+    }
+
+    public int getScaleOuts() {
+        return scaleOuts;
+    }
+
+    public int getScaleIns() {
+        return scaleIns;
+    }
+}
@@ -0,0 +1,178 @@
+package org.edgefogcloud.simulation;
+
+import org.edgefogcloud.utils.MetricsCollector;
+import org.edgefogcloud.utils.SteadyStateDetector;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Steady-state snapshot letting runs skip the warm-up transient.
+ * The first run of a configuration writes a state candidate every snapshot interval of the warm-up
+ * next to the snapshot, so the candidates are not held in memory; at the end of the warm-up, MSER-5
+ * over the latency series picks the truncation point and the first candidate past it becomes the
+ * snapshot named after the configuration fingerprint, the others are deleted. Later runs with the
+ * same fingerprint start from that state.
+ * <p>
+ * Only the state a checkpoint holds is warm: devices, tier buffers and aggregation windows, the cloud
+ * data store, the network model and the workload source. The cloudlets queued or running on the VMs
+ * are not part of it: a warm run submits again the remaining stages of every buffered packet (see
+ * {@link TierCoSimulation#resumeAt(int)}), which start from scratch on idle VMs, and the hosts'
+ * utilization history starts empty.
+ */
+public class WarmStartSnapshot {
+    private static final Logger LOGGER = Logger.getLogger(WarmStartSnapshot.class.getName());
+
+    private final Path snapshotFile;
+    private final int warmUpTime;       // in seconds
+    private final int snapshotInterval; // in seconds
+    private final SimulationCheckpointer stateCodec;
+    private final MetricsCollector metricsCollector;
+    private final TreeMap<Integer, Path> candidates; // files written during the warm-up
+
+    /**
+     * Creates a warm-start snapshot
+     *
+     * @param directory Directory the snapshots are stored in
+     * @param fingerprint Fingerprint of the configuration and topology the snapshot is valid for
+     * @param warmUpTime Simulated time (in seconds) run before choosing the truncation point
+     * @param snapshotInterval Simulated time (in seconds) between two state candidates
+     * @param stateCodec Encodes and restores the simulation state
+     * @param metricsCollector Metrics whose latency series decides the truncation point
+     */
+    public WarmStartSnapshot(Path directory, String fingerprint, int warmUpTime, int snapshotInterval,
+                             SimulationCheckpointer stateCodec, MetricsCollector metricsCollector) {
+        this.snapshotFile = directory.resolve("warmstart_" + fingerprint + ".snap");
+        this.warmUpTime = warmUpTime;
+        this.snapshotInterval = Math.max(1, snapshotInterval);
+        this.stateCodec = stateCodec;
+        this.metricsCollector = metricsCollector;
+        this.candidates = new TreeMap<>();
+    }
+
+    public boolean exists() {
+        return Files.isRegularFile(snapshotFile);
+    }
+
+    /**
+     * Restores the steady state and discards the warm-up series it was collected with.
+     * Must be called before the simulation starts.
+     *
+     * @return Number of seconds the steady state was reached after
+     * @throws IOException If the snapshot cannot be read
+     */
+    public int restore() throws IOException {
+        try (FileChannel channel = FileChannel.open(snapshotFile, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int processedSeconds = stateCodec.restoreState(new DataInputStream(new ByteBufferInputStream(buffer)));
+            metricsCollector.clearTimeSeries();
+            LOGGER.info("Warm start from " + snapshotFile + " at " + processedSeconds + " s");
+            return processedSeconds;
+        }
+    }
+
+    /**
+     * Records state candidates during the warm-up of this run, persisting the snapshot at its end
+     *
+     * @param coSimulation Co-simulation whose processed seconds drive the warm-up
+     */
+    public void record(TierCoSimulation coSimulation) {
+        coSimulation.addOnStepFinishedListener(this::onStepFinished);
+        LOGGER.info("Recording warm-up of " + warmUpTime + " s for " + snapshotFile);
+    }
+
+    private void onStepFinished(int processedSeconds) {
+        if (processedSeconds > warmUpTime) {
+            return;
+        }
+        if (processedSeconds % snapshotInterval == 0 || processedSeconds == warmUpTime) {
+            try {
+                Path candidate = snapshotFile.resolveSibling(snapshotFile.getFileName() + "." + processedSeconds);
+                write(candidate, stateCodec.encodeState(processedSeconds));
+                candidates.put(processedSeconds, candidate);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Could not encode warm-up state at " + processedSeconds + " s", e);
+            }
+        }
+        if (processedSeconds == warmUpTime) {
+            persist();
+        }
+    }
+
+    private void persist() {
+        int truncationTime = SteadyStateDetector.getTruncationTime(metricsCollector.getLatencyByTime());
+        Map.Entry<Integer, Path> candidate = candidates.ceilingEntry(truncationTime);
+        if (candidate == null) {
+            candidate = candidates.lastEntry();
+        }
+        if (candidate != null) {
+            try {
+                Files.move(candidate.getValue(), snapshotFile, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+                LOGGER.info("MSER-5 truncation at " + truncationTime + " s, steady state of " + candidate.getKey()
+                        + " s saved to " + snapshotFile);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Could not save warm-start snapshot " + snapshotFile, e);
+            }
+        }
+        for (Path file : candidates.values()) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Could not delete warm-up state " + file, e);
+            }
+        }
+        candidates.clear();
+    }
+
+    /**
+     * Writes a state to a memory-mapped file
+     */
+    private static void write(Path file, byte[] state) throws IOException {
+        Files.createDirectories(file.getParent());
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, state.length);
+            buffer.put(state);
+            buffer.force();
+        }
+    }
+
+    /**
+     * Reads a memory-mapped snapshot without copying it
+     */
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+    }
+}
@@ -0,0 +1,360 @@
+package org.edgefogcloud.simulation;
+
+import org.edgefogcloud.network.NetworkModel;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+import org.cloudbus.cloudsim.brokers.DatacenterBroker;
+import org.cloudbus.cloudsim.cloudlets.Cloudlet;
+import org.cloudbus.cloudsim.vms.Vm;
+
+/**
+ * Runs {@link CloudletWorkflow}s on top of a CloudSim Plus broker.
+ * Root tasks are submitted when the workflow is released; every other task is submitted
+ * from the finish events of its predecessors, delayed by the time the {@link NetworkModel}
+ * needs to move the predecessor's output to the layer the task runs at, unless the predecessor
+ * cancelled or held it when finishing; held tasks are then submitted by {@link #release(CloudletWorkflow.Task)}
+ * or dropped by {@link #cancel(CloudletWorkflow.Task)}.
+ * <p>
+ * Finished cloudlets are only aggregated by layer. With a {@link StreamingBroker} whose VMs run a
+ * {@link StreamingCloudletScheduler}, nothing else keeps them, so memory follows the cloudlets in flight
+ * rather than the total work.
+ */
+public class WorkflowScheduler {
+    private static final Logger LOGGER = Logger.getLogger(WorkflowScheduler.class.getName());
+
+    private static final int SLOWEST_PIPELINES_REPORTED = 10;
+
+    private final DatacenterBroker broker;
+    private final NetworkModel networkModel;
+    private final Map<String, PipelineLatency> latencyByPipeline;
+    private final List<Consumer<CloudletWorkflow>> onWorkflowFinishedListeners;
+    private final Map<String, LayerTotals> totalsByLayer;
+    private Function<CloudletWorkflow.Task, Vm> vmSelector;
+
+    // Metrics
+    private int runningWorkflows;
+    private long finishedWorkflows;
+    private long totalCloudletsSubmitted;
+    private long totalCloudletsFinished;
+    private long totalCloudletsCancelled;
+    private int inFlightCloudlets;
+    private int peakInFlightCloudlets;
+
+    public WorkflowScheduler(DatacenterBroker broker, NetworkModel networkModel) {
+        this.broker = broker;
+        this.networkModel = networkModel;
+        this.latencyByPipeline = new HashMap<>();
+        this.onWorkflowFinishedListeners = new ArrayList<>();
+        this.totalsByLayer = new LinkedHashMap<>();
+    }
+
+    /**
+     * Releases a workflow, submitting its root tasks unless they are held
+     *
+     * @param workflow The workflow to run
+     * @param delay Delay (in seconds) from the current simulation time until the workflow starts
+     */
+    public void submit(CloudletWorkflow workflow, double delay) {
+        workflow.markReleased(broker.getSimulation().clock() + delay);
+        runningWorkflows++;
+
+        for (CloudletWorkflow.Task task : workflow.getTasks()) {
+            task.getCloudlet().addOnFinishListener(info -> onTaskFinished(workflow, task, info.getTime()));
+            if (task.getPredecessors().isEmpty() && !task.isHeld()) {
+                submitTask(task, delay);
+            }
+        }
+    }
+
+    private void submitTask(CloudletWorkflow.Task task, double delay) {
+        Cloudlet cloudlet = task.getCloudlet();
+        if (vmSelector != null) {
+            // Late binding: the VM is chosen only once the task's inputs are ready
+            cloudlet.setVm(vmSelector.apply(task));
+        }
+        cloudlet.setSubmissionDelay(delay);
+        broker.submitCloudlet(cloudlet);
+
+        totalCloudletsSubmitted++;
+        inFlightCloudlets++;
+        peakInFlightCloudlets = Math.max(peakInFlightCloudlets, inFlightCloudlets);
+    }
+
+    void onTaskFinished(CloudletWorkflow workflow, CloudletWorkflow.Task task, double currentTime) {
+        inFlightCloudlets--;
+        totalCloudletsFinished++;
+        totalsByLayer.computeIfAbsent(task.getLayer(), LayerTotals::new).add(task);
+        CloudletWorkflow.Continuation continuation = task.finish(currentTime);
+
+        // Release every successor whose inputs have now all arrived
+        for (CloudletWorkflow.Task successor : task.getSuccessors()) {
+            if (successor.isCancelled()) {
+                continue;
+            }
+            if (continuation == CloudletWorkflow.Continuation.CANCEL) {
+                totalCloudletsCancelled += workflow.cancel(successor);
+                continue;
+            }
+            if (continuation == CloudletWorkflow.Continuation.HOLD) {
+                successor.setHeld(true);
+            }
+            double transferTime = calculateTransferTime(task, successor);
+            if (successor.inputArrived(task, currentTime + transferTime, transferTime) && !successor.isHeld()) {
+                submitTask(successor, successor.getReadyTime() - currentTime);
+            }
+        }
+
+        if (workflow.markTaskFinished(currentTime)) {
+            finishWorkflow(workflow);
+        }
+    }
+
+    /**
+     * Submits a task its predecessor held, as soon as its inputs have all arrived
+     *
+     * @param task A held task
+     */
+    public void release(CloudletWorkflow.Task task) {
+        if (!task.isHeld()) {
+            throw new IllegalStateException("Only held tasks can be released");
+        }
+        task.setHeld(false);
+        if (task.isReady()) {
+            double currentTime = broker.getSimulation().clock();
+            submitTask(task, Math.max(0.0, task.getReadyTime() - currentTime));
+        }
+    }
+
+    /**
+     * Cancels a task its predecessor held, together with the tasks depending on it
+     *
+     * @param task A held task
+     */
+    public void cancel(CloudletWorkflow.Task task) {
+        if (!task.isHeld()) {
+            throw new IllegalStateException("Only held tasks can be cancelled");
+        }
+        task.setHeld(false);
+        CloudletWorkflow workflow = task.getWorkflow();
+        totalCloudletsCancelled += workflow.cancel(task);
+        if (workflow.checkFinished(broker.getSimulation().clock())) {
+            finishWorkflow(workflow);
+        }
+    }
+
+    private void finishWorkflow(CloudletWorkflow workflow) {
+        runningWorkflows--;
+        finishedWorkflows++;
+        recordLatency(workflow);
+        for (Consumer<CloudletWorkflow> listener : onWorkflowFinishedListeners) {
+            listener.accept(workflow);
+        }
+    }
+
+    private double calculateTransferTime(CloudletWorkflow.Task from, CloudletWorkflow.Task to) {
+        int dataSize = (int) Math.min(Integer.MAX_VALUE, from.getCloudlet().getOutputSize());
+        // NetworkModel latencies are in ms
+        return networkModel.calculateTransferLatency(from.getLayer(), to.getLayer(), dataSize) / 1000.0;
+    }
+
+    private void recordLatency(CloudletWorkflow workflow) {
+        PipelineLatency latency = latencyByPipeline.get(workflow.getName());
+        if (latency == null) {
+            latency = new PipelineLatency(workflow.getName());
+            latencyByPipeline.put(workflow.getName(), latency);
+        }
+        latency.add(workflow);
+    }
+
+    /**
+     * Adds a callback invoked every time a workflow finishes
+     *
+     * @param listener The callback
+     */
+    public void addOnWorkflowFinishedListener(Consumer<CloudletWorkflow> listener) {
+        onWorkflowFinishedListeners.add(listener);
+    }
+
+    /**
+     * Sets the function choosing the VM of each task when it is submitted.
+     * Without it, tasks run on the VM their cloudlet was bound to when the workflow was built.
+     *
+     * @param vmSelector Function returning the VM to run a task on
+     */
+    public void setVmSelector(Function<CloudletWorkflow.Task, Vm> vmSelector) {
+        this.vmSelector = vmSelector;
+    }
+
+    /**
+     * Prints the critical-path latency of the pipelines, overall and for the slowest ones
+     */
+    public void displayCriticalPathReport() {
+        System.out.println("\n=== Pipeline Critical-Path Latency ===");
+
+        PipelineLatency overall = new PipelineLatency("All pipelines");
+        List<PipelineLatency> pipelines = new ArrayList<>(latencyByPipeline.values());
+        for (PipelineLatency pipeline : pipelines) {
+            overall.merge(pipeline);
+        }
+
+        System.out.printf("Workflows finished: %d (%d still running)\n", finishedWorkflows, runningWorkflows);
+        if (overall.count == 0) {
+            System.out.println("No pipeline finished");
+            return;
+        }
+
+        System.out.println("Pipeline | Runs | Avg Latency | Max Latency | Avg Queueing | Avg Execution | Avg Transfer");
+        printLatency(overall);
+
+        pipelines.sort((a, b) -> Double.compare(b.getAverageLatency(), a.getAverageLatency()));
+        int reported = Math.min(SLOWEST_PIPELINES_REPORTED, pipelines.size());
+        System.out.println("Slowest " + reported + " of " + pipelines.size() + " pipelines:");
+        for (int i = 0; i < reported; i++) {
+            printLatency(pipelines.get(i));
+        }
+
+        LOGGER.info("Critical-path report generated for " + pipelines.size() + " pipelines");
+    }
+
+    /**
+     * Prints the finished cloudlets aggregated by layer
+     */
+    public void displayCloudletReport() {
+        System.out.println("\n=== Finished Cloudlets by Layer ===");
+        if (totalsByLayer.isEmpty()) {
+            System.out.println("No cloudlet finished");
+            return;
+        }
+
+        System.out.println("Layer | Cloudlets | Total Length (MI) | Avg Queueing | Avg Execution | Max Execution");
+        for (LayerTotals totals : totalsByLayer.values()) {
+            System.out.printf("%s | %d | %d | %.4f s | %.4f s | %.4f s\n",
+                    totals.layer,
+                    totals.count,
+                    totals.totalLength,
+                    totals.totalQueueing / totals.count,
+                    totals.totalExecution / totals.count,
+                    totals.maxExecution);
+        }
+    }
+
+    private void printLatency(PipelineLatency latency) {
+        System.out.printf("%s | %d | %.4f s | %.4f s | %.4f s | %.4f s | %.4f s\n",
+                latency.name,
+                latency.count,
+                latency.getAverageLatency(),
+                latency.maxLatency,
+                latency.totalQueueing / latency.count,
+                latency.totalExecution / latency.count,
+                latency.totalTransfer / latency.count);
+    }
+
+    public int getRunningWorkflows() {
+        return runningWorkflows;
+    }
+
+    public long getFinishedWorkflows() {
+        return finishedWorkflows;
+    }
+
+    public long getTotalCloudletsSubmitted() {
+        return totalCloudletsSubmitted;
+    }
+
+    public long getTotalCloudletsFinished() {
+        return totalCloudletsFinished;
+    }
+
+    /**
+     * Gets the number of tasks that never ran because a predecessor cancelled them
+     *
+     * @return Number of cancelled cloudlets
+     */
+    public long getTotalCloudletsCancelled() {
+        return totalCloudletsCancelled;
+    }
+
+    public int getInFlightCloudlets() {
+        return inFlightCloudlets;
+    }
+
+    public int getPeakInFlightCloudlets() {
+        return peakInFlightCloudlets;
+    }
+
+    /**
+     * Finished cloudlets of one layer
+     */
+    private static class LayerTotals {
+        private final String layer;
+        private long count;
+        private long totalLength; // in MI
+        private double totalQueueing;
+        private double totalExecution;
+        private double maxExecution;
+
+        LayerTotals(String layer) {
+            this.layer = layer;
+        }
+
+        void add(CloudletWorkflow.Task task) {
+            double execution = task.getExecutionTime();
+            count++;
+            totalLength += task.getCloudlet().getLength();
+            totalQueueing += task.getQueueingDelay();
+            totalExecution += execution;
+            maxExecution = Math.max(maxExecution, execution);
+        }
+    }
+
+    /**
+     * Critical-path latency accumulated over every run of one pipeline
+     */
+    private static class PipelineLatency {
+        private final String name;
+        private long count;
+        private double totalLatency;
+        private double maxLatency;
+        private double totalQueueing;
+        private double totalExecution;
+        private double totalTransfer;
+
+        PipelineLatency(String name) {
+            this.name = name;
+        }
+
+        void add(CloudletWorkflow workflow) {
+            double latency = workflow.getCriticalPathLatency();
+            count++;
+            totalLatency += latency;
+            maxLatency = Math.max(maxLatency, latency);
+
+            for (CloudletWorkflow.Task task : workflow.getCriticalPath()) {
+                totalQueueing += task.getQueueingDelay();
+                totalExecution += task.getExecutionTime();
+                totalTransfer += task.getInputTransferTime();
+            }
+        }
+
+        void merge(PipelineLatency other) {
+            count += other.count;
+            totalLatency += other.totalLatency;
+            maxLatency = Math.max(maxLatency, other.maxLatency);
+            totalQueueing += other.totalQueueing;
+            totalExecution += other.totalExecution;
+            totalTransfer += other.totalTransfer;
+        }
+
+        double getAverageLatency() {
+            return count > 0 ? totalLatency / count : 0.0;
+        }
+    }
+}
@@ -171,9 +171,11 @@ public class FinalOptimizedSimulationRunner {
         double costPerStorage = Double.parseDouble(config.getProperty("cost.per.storage", "0.01"));
         double costPerBw = Double.parseDouble(config.getProperty("cost.per.bw", "0.02"));
         
-        double edgeCost = calculateLayerCost(edgeCloudlets, finishedCloudlets, costPerCpu, costPerRam, costPerStorage, costPerBw);
-        double fogCost = calculateLayerCost(fogCloudlets, finishedCloudlets, costPerCpu, costPerRam, costPerStorage, costPerBw);
-        double cloudCost = calculateLayerCost(cloudCloudlets, finishedCloudlets, costPerCpu, costPerRam, costPerStorage, costPerBw);
+        double[] layerCosts = SimulationStatistics.calculateLayerCosts(edgeCloudlets, fogCloudlets, cloudCloudlets,
+                finishedCloudlets, costPerCpu, costPerRam, costPerStorage, costPerBw);
+        double edgeCost = layerCosts[0];
+        double fogCost = layerCosts[1];
+        double cloudCost = layerCosts[2];
         
         System.out.println("\n=== Cost Analysis by Layer ===");
         System.out.printf("Edge Layer: $%.4f%n", edgeCost);
@@ -182,9 +184,9 @@ public class FinalOptimizedSimulationRunner {
         System.out.printf("Total Cost: $%.4f%n", edgeCost + fogCost + cloudCost);
         
         // Count finished cloudlets by layer
-        int edgeFinished = countFinishedCloudlets(edgeCloudlets, finishedCloudlets);
-        int fogFinished = countFinishedCloudlets(fogCloudlets, finishedCloudlets);
-        int cloudFinished = countFinishedCloudlets(cloudCloudlets, finishedCloudlets);
+        int edgeFinished = SimulationStatistics.countFinishedCloudlets(edgeCloudlets, finishedCloudlets);
+        int fogFinished = SimulationStatistics.countFinishedCloudlets(fogCloudlets, finishedCloudlets);
+        int cloudFinished = SimulationStatistics.countFinishedCloudlets(cloudCloudlets, finishedCloudlets);
         
         // Print processing distribution
         System.out.println("\n=== Processing Distribution ===");
@@ -294,37 +296,6 @@ public class FinalOptimizedSimulationRunner {
         }
     }
     
-    private static int countFinishedCloudlets(List<Cloudlet> layerCloudlets, List<Cloudlet> finishedCloudlets) {
-        int count = 0;
-        for (Cloudlet layerCloudlet : layerCloudlets) {
-            for (Cloudlet finishedCloudlet : finishedCloudlets) {
-                if (layerCloudlet.getId() == finishedCloudlet.getId()) {
-                    count++;
-                    break;
-                }
-            }
-        }
-        return count;
-    }
-    
-    private static double calculateLayerCost(List<Cloudlet> layerCloudlets, List<Cloudlet> finishedCloudlets, 
-                                           double costPerCpu, double costPerRam, double costPerStorage, double costPerBw) {
-        double totalCost = 0;
-        for (Cloudlet layerCloudlet : layerCloudlets) {
-            for (Cloudlet finishedCloudlet : finishedCloudlets) {
-                if (layerCloudlet.getId() == finishedCloudlet.getId()) {
-                    double cpuCost = finishedCloudlet.getActualCpuTime() * costPerCpu * finishedCloudlet.getNumberOfPes();
-                    double ramCost = finishedCloudlet.getVm().getRam().getCapacity() / 1024.0 * costPerRam * (finishedCloudlet.getActualCpuTime() / 3600.0);
-                    double storageCost = finishedCloudlet.getVm().getStorage().getCapacity() / 1024.0 * costPerStorage * (finishedCloudlet.getActualCpuTime() / 3600.0);
-                    double bwCost = finishedCloudlet.getVm().getBw().getCapacity() / 1000.0 * costPerBw * (finishedCloudlet.getActualCpuTime() / 3600.0);
-                    totalCost += cpuCost + ramCost + storageCost + bwCost;
-                    break;
-                }
-            }
-        }
-        return totalCost;
-    }
-    
     private static Datacenter createDatacenter(CloudSim simulation, String name, int hostPes, 
                                               int mips, int ram, int storage, int bw, double costPerSec) {
         List<Host> hostList = new ArrayList<>();
@@ -127,9 +127,11 @@ public class FixedMediumSimulationRunner {
         new CloudletsTableBuilder(finishedCloudlets).build();
         
         // Calculate and display costs by layer
-        double edgeCost = calculateLayerCost(edgeCloudlets, finishedCloudlets);
-        double fogCost = calculateLayerCost(fogCloudlets, finishedCloudlets);
-        double cloudCost = calculateLayerCost(cloudCloudlets, finishedCloudlets);
+        double[] layerCosts = SimulationStatistics.calculateLayerCosts(edgeCloudlets, fogCloudlets, cloudCloudlets,
+                finishedCloudlets, COST_PER_CPU, COST_PER_RAM, COST_PER_STORAGE, COST_PER_BW);
+        double edgeCost = layerCosts[0];
+        double fogCost = layerCosts[1];
+        double cloudCost = layerCosts[2];
         
         System.out.println("\n=== Cost Analysis by Layer ===");
         System.out.printf("Edge Layer: $%.4f%n", edgeCost);
@@ -138,9 +140,9 @@ public class FixedMediumSimulationRunner {
         System.out.printf("Total Cost: $%.4f%n", edgeCost + fogCost + cloudCost);
         
         // Count finished cloudlets by layer
-        int edgeFinished = countFinishedCloudlets(edgeCloudlets, finishedCloudlets);
-        int fogFinished = countFinishedCloudlets(fogCloudlets, finishedCloudlets);
-        int cloudFinished = countFinishedCloudlets(cloudCloudlets, finishedCloudlets);
+        int edgeFinished = SimulationStatistics.countFinishedCloudlets(edgeCloudlets, finishedCloudlets);
+        int fogFinished = SimulationStatistics.countFinishedCloudlets(fogCloudlets, finishedCloudlets);
+        int cloudFinished = SimulationStatistics.countFinishedCloudlets(cloudCloudlets, finishedCloudlets);
         
         // Print processing distribution
         System.out.println("\n=== Processing Distribution ===");
@@ -156,36 +158,6 @@ public class FixedMediumSimulationRunner {
         System.out.println("\nFixed Medium simulation completed successfully!");
     }
     
-    private static int countFinishedCloudlets(List<Cloudlet> layerCloudlets, List<Cloudlet> finishedCloudlets) {
-        int count = 0;
-        for (Cloudlet layerCloudlet : layerCloudlets) {
-            for (Cloudlet finishedCloudlet : finishedCloudlets) {
-                if (layerCloudlet.getId() == finishedCloudlet.getId()) {
-                    count++;
-                    break;
-                }
-            }
-        }
-        return count;
-    }
-    
-    private static double calculateLayerCost(List<Cloudlet> layerCloudlets, List<Cloudlet> finishedCloudlets) {
-        double totalCost = 0;
-        for (Cloudlet layerCloudlet : layerCloudlets) {
-            for (Cloudlet finishedCloudlet : finishedCloudlets) {
-                if (layerCloudlet.getId() == finishedCloudlet.getId()) {
-                    double cpuCost = finishedCloudlet.getActualCpuTime() * COST_PER_CPU * finishedCloudlet.getNumberOfPes();
-                    double ramCost = finishedCloudlet.getVm().getRam().getCapacity() / 1024.0 * COST_PER_RAM * (finishedCloudlet.getActualCpuTime() / 3600.0);
-                    double storageCost = finishedCloudlet.getVm().getStorage().getCapacity() / 1024.0 * COST_PER_STORAGE * (finishedCloudlet.getActualCpuTime() / 3600.0);
-                    double bwCost = finishedCloudlet.getVm().getBw().getCapacity() / 1000.0 * COST_PER_BW * (finishedCloudlet.getActualCpuTime() / 3600.0);
-                    totalCost += cpuCost + ramCost + storageCost + bwCost;
-                    break;
-                }
-            }
-        }
-        return totalCost;
-    }
-    
     private static Datacenter createDatacenter(CloudSim simulation, String name, int hostPes, 
                                               int mips, int ram, int storage, int bw, double costPerSec) {
         List<Host> hostList = new ArrayList<>();
@@ -4,6 +4,7 @@ import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.datacenters.Datacenter;
 import org.cloudbus.cloudsim.hosts.Host;
 import org.cloudbus.cloudsim.hosts.HostSimple;
+import org.cloudbus.cloudsim.power.models.PowerModelHostSimple;
 import org.cloudbus.cloudsim.resources.Pe;
 import org.cloudbus.cloudsim.resources.PeSimple;
 import org.cloudbus.cloudsim.vms.Vm;
@@ -19,6 +20,7 @@ import org.cloudbus.cloudsim.brokers.DatacenterBroker;
 import org.cloudbus.cloudsim.brokers.DatacenterBrokerSimple;
 import org.cloudbus.cloudsim.utilizationmodels.UtilizationModelDynamic;
 import org.cloudsimplus.builders.tables.CloudletsTableBuilder;
+import org.edgefogcloud.simulation.HostEnergyMeter;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -39,10 +41,11 @@ public class OptimizedStatisticsRunner {
         // Create the simulation
         CloudSim simulation = new CloudSim();
         
-        // Create Datacenters
-        Datacenter edgeDatacenter = createDatacenter(simulation, "Edge", 4, 8000, 8192, 100000, 10000, 0.003);
-        Datacenter fogDatacenter = createDatacenter(simulation, "Fog", 8, 20000, 32768, 500000, 50000, 0.005);
-        Datacenter cloudDatacenter = createDatacenter(simulation, "Cloud", 16, 50000, 65536, 1000000, 100000, 0.01);
+        // Create Datacenters, metering the energy of their hosts
+        HostEnergyMeter energyMeter = new HostEnergyMeter(simulation);
+        Datacenter edgeDatacenter = createDatacenter(simulation, energyMeter, "Edge", 4, 8000, 8192, 100000, 10000, 0.003, 60, 20);
+        Datacenter fogDatacenter = createDatacenter(simulation, energyMeter, "Fog", 8, 20000, 32768, 500000, 50000, 0.005, 250, 100);
+        Datacenter cloudDatacenter = createDatacenter(simulation, energyMeter, "Cloud", 16, 50000, 65536, 1000000, 100000, 0.01, 1000, 300);
         
         // Create brokers for each layer
         DatacenterBrokerSimple edgeBroker = new DatacenterBrokerSimple(simulation);
@@ -108,7 +111,9 @@ public class OptimizedStatisticsRunner {
         
         // Start the simulation
         System.out.println("Starting simulation...");
+        energyMeter.start();
         simulation.start();
+        energyMeter.finish();
         
         // Get finished cloudlets from all brokers
         List<Cloudlet> finishedCloudlets = new ArrayList<>();
@@ -127,14 +132,16 @@ public class OptimizedStatisticsRunner {
             edgeCloudlets, fogCloudlets, cloudCloudlets,
             finishedCloudlets, 
             edgeVms, fogVms, cloudVms,
-            edgeDatacenter, fogDatacenter, cloudDatacenter
+            edgeDatacenter, fogDatacenter, cloudDatacenter,
+            energyMeter
         );
         
         System.out.println("\nOptimized simulation with enhanced statistics finished successfully!");
     }
     
-    private static Datacenter createDatacenter(CloudSim simulation, String name, int hostPes, 
-                                              int mips, int ram, int storage, int bw, double costPerSec) {
+    private static Datacenter createDatacenter(CloudSim simulation, HostEnergyMeter energyMeter, String name, int hostPes, 
+                                              int mips, int ram, int storage, int bw, double costPerSec,
+                                              double maxPower, double staticPower) {
         List<Host> hostList = new ArrayList<>();
         
         List<Pe> peList = new ArrayList<>();
@@ -146,6 +153,9 @@ public class OptimizedStatisticsRunner {
         host.setVmScheduler(new VmSchedulerTimeShared());
         host.setRamProvisioner(new ResourceProvisionerSimple());
         host.setBwProvisioner(new ResourceProvisionerSimple());
+        host.setPowerModel(new PowerModelHostSimple(maxPower, staticPower));
+        host.enableUtilizationStats();
+        energyMeter.addHost(host, name);
         
         hostList.add(host);
         
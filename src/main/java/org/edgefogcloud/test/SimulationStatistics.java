@@ -3,7 +3,10 @@ package org.edgefogcloud.test;
 import org.cloudbus.cloudsim.cloudlets.Cloudlet;
 import org.cloudbus.cloudsim.vms.Vm;
 import org.cloudbus.cloudsim.datacenters.Datacenter;
+import org.edgefogcloud.simulation.HostEnergyMeter;
+import org.edgefogcloud.utils.LongIntHashMap;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
@@ -17,6 +20,11 @@ import java.util.Date;
  */
 public class SimulationStatistics {
     
+    private static final int EDGE = 0;
+    private static final int FOG = 1;
+    private static final int CLOUD = 2;
+    private static final int NOT_INDEXED = -1;
+    
     /**
      * Calculates and prints enhanced statistics for the simulation
      * 
@@ -30,26 +38,31 @@ public class SimulationStatistics {
      * @param edgeDatacenter Edge datacenter
      * @param fogDatacenter Fog datacenter
      * @param cloudDatacenter Cloud datacenter
+     * @param energyMeter Meter that integrated the energy of the hosts, registered with the Edge, Fog and Cloud layers
      */
     public static void printEnhancedStatistics(
             List<Cloudlet> edgeCloudlets, List<Cloudlet> fogCloudlets, List<Cloudlet> cloudCloudlets,
             List<Cloudlet> finishedCloudlets, 
             List<Vm> edgeVms, List<Vm> fogVms, List<Vm> cloudVms,
-            Datacenter edgeDatacenter, Datacenter fogDatacenter, Datacenter cloudDatacenter) {
-        
-        // Count finished cloudlets by layer
-        int edgeFinished = countFinishedCloudlets(edgeCloudlets, finishedCloudlets);
-        int fogFinished = countFinishedCloudlets(fogCloudlets, finishedCloudlets);
-        int cloudFinished = countFinishedCloudlets(cloudCloudlets, finishedCloudlets);
+            Datacenter edgeDatacenter, Datacenter fogDatacenter, Datacenter cloudDatacenter,
+            HostEnergyMeter energyMeter) {
         
-        // Calculate costs
+        // Processing cost per second of each layer
         double edgeCostPerSec = 0.003;
         double fogCostPerSec = 0.005;
         double cloudCostPerSec = 0.01;
         
-        double edgeCost = calculateDetailedCost(edgeCloudlets, finishedCloudlets, edgeCostPerSec);
-        double fogCost = calculateDetailedCost(fogCloudlets, finishedCloudlets, fogCostPerSec);
-        double cloudCost = calculateDetailedCost(cloudCloudlets, finishedCloudlets, cloudCostPerSec);
+        // Aggregate every finished cloudlet into its layer in a single pass
+        LayerStatistics[] layers = computeLayerStatistics(edgeCloudlets, fogCloudlets, cloudCloudlets,
+                finishedCloudlets, new double[] {edgeCostPerSec, fogCostPerSec, cloudCostPerSec});
+        
+        int edgeFinished = layers[EDGE].count;
+        int fogFinished = layers[FOG].count;
+        int cloudFinished = layers[CLOUD].count;
+        
+        double edgeCost = layers[EDGE].cost;
+        double fogCost = layers[FOG].cost;
+        double cloudCost = layers[CLOUD].cost;
         
         // Print basic statistics
         System.out.println("\n=== Enhanced Simulation Statistics ===");
@@ -91,21 +104,18 @@ public class SimulationStatistics {
         printResourceUtilization(fogVms, "Fog");
         printResourceUtilization(cloudVms, "Cloud");
         
-        // Estimated energy consumption
-        System.out.println("\n=== Estimated Energy Consumption ===");
-        double edgeEnergy = estimateEnergyConsumption(edgeVms, 0.1); // kWh
-        double fogEnergy = estimateEnergyConsumption(fogVms, 0.2);   // kWh
-        double cloudEnergy = estimateEnergyConsumption(cloudVms, 0.5); // kWh
-        System.out.printf("Edge Layer: %.4f kWh%n", edgeEnergy);
-        System.out.printf("Fog Layer: %.4f kWh%n", fogEnergy);
-        System.out.printf("Cloud Layer: %.4f kWh%n", cloudEnergy);
-        System.out.printf("Total Energy: %.4f kWh%n", edgeEnergy + fogEnergy + cloudEnergy);
+        // Energy consumption integrated over the host utilization, per host and per layer
+        energyMeter.displayEnergyReport();
+        Map<String, Double> energyByLayer = energyMeter.getEnergyByLayer();
+        double edgeEnergy = energyByLayer.getOrDefault("Edge", 0.0); // kWh
+        double fogEnergy = energyByLayer.getOrDefault("Fog", 0.0);   // kWh
+        double cloudEnergy = energyByLayer.getOrDefault("Cloud", 0.0); // kWh
         
         // Network traffic analysis
         System.out.println("\n=== Network Traffic Analysis ===");
-        double edgeTraffic = estimateNetworkTraffic(edgeCloudlets, finishedCloudlets);
-        double fogTraffic = estimateNetworkTraffic(fogCloudlets, finishedCloudlets);
-        double cloudTraffic = estimateNetworkTraffic(cloudCloudlets, finishedCloudlets);
+        double edgeTraffic = layers[EDGE].traffic;
+        double fogTraffic = layers[FOG].traffic;
+        double cloudTraffic = layers[CLOUD].traffic;
         System.out.printf("Edge Layer: %.2f MB%n", edgeTraffic);
         System.out.printf("Fog Layer: %.2f MB%n", fogTraffic);
         System.out.printf("Cloud Layer: %.2f MB%n", cloudTraffic);
@@ -113,9 +123,9 @@ public class SimulationStatistics {
         
         // Response time analysis
         System.out.println("\n=== Response Time Analysis ===");
-        printResponseTimeAnalysis(edgeCloudlets, finishedCloudlets, "Edge");
-        printResponseTimeAnalysis(fogCloudlets, finishedCloudlets, "Fog");
-        printResponseTimeAnalysis(cloudCloudlets, finishedCloudlets, "Cloud");
+        System.out.println(layers[EDGE].formatResponseTimes("Edge"));
+        System.out.println(layers[FOG].formatResponseTimes("Fog"));
+        System.out.println(layers[CLOUD].formatResponseTimes("Cloud"));
         
         // Latency metrics
         System.out.println("\n=== Latency Metrics ===");
@@ -126,7 +136,7 @@ public class SimulationStatistics {
         // Save all statistics to file
         saveEnhancedStatisticsToFile(
             edgeCloudlets, fogCloudlets, cloudCloudlets, finishedCloudlets,
-            edgeVms, fogVms, cloudVms, 
+            edgeVms, fogVms, cloudVms, layers,
             edgeFinished, fogFinished, cloudFinished,
             edgeCost, fogCost, cloudCost,
             edgeEnergy, fogEnergy, cloudEnergy,
@@ -145,62 +155,6 @@ public class SimulationStatistics {
                 layer, processingCost, memoryCost, storageCost, bwCost, totalCost);
     }
     
-    private static void printResponseTimeAnalysis(List<Cloudlet> layerCloudlets, List<Cloudlet> finishedCloudlets, String layer) {
-        double totalResponseTime = 0;
-        int count = 0;
-        double minResponseTime = Double.MAX_VALUE;
-        double maxResponseTime = 0;
-        
-        for (Cloudlet layerCloudlet : layerCloudlets) {
-            for (Cloudlet finishedCloudlet : finishedCloudlets) {
-                if (layerCloudlet.getId() == finishedCloudlet.getId()) {
-                    double responseTime = finishedCloudlet.getFinishTime() - finishedCloudlet.getExecStartTime();
-                    totalResponseTime += responseTime;
-                    count++;
-                    
-                    if (responseTime < minResponseTime) {
-                        minResponseTime = responseTime;
-                    }
-                    
-                    if (responseTime > maxResponseTime) {
-                        maxResponseTime = responseTime;
-                    }
-                    
-                    break;
-                }
-            }
-        }
-        
-        if (count > 0) {
-            double avgResponseTime = totalResponseTime / count;
-            System.out.printf("%s Layer - Avg: %.4f sec, Min: %.4f sec, Max: %.4f sec%n", 
-                    layer, avgResponseTime, minResponseTime, maxResponseTime);
-        } else {
-            System.out.printf("%s Layer - No completed cloudlets%n", layer);
-        }
-    }
-    
-    private static double estimateEnergyConsumption(List<Vm> vms, double energyFactorPerVm) {
-        // Simple estimation based on VM count and a factor
-        return vms.size() * energyFactorPerVm;
-    }
-    
-    private static double estimateNetworkTraffic(List<Cloudlet> layerCloudlets, List<Cloudlet> finishedCloudlets) {
-        double totalTraffic = 0;
-        
-        for (Cloudlet layerCloudlet : layerCloudlets) {
-            for (Cloudlet finishedCloudlet : finishedCloudlets) {
-                if (layerCloudlet.getId() == finishedCloudlet.getId()) {
-                    // Estimate traffic based on cloudlet file size and output size
-                    totalTraffic += (finishedCloudlet.getFileSize() + finishedCloudlet.getOutputSize()) / (1024.0 * 1024.0); // Convert to MB
-                    break;
-                }
-            }
-        }
-        
-        return totalTraffic;
-    }
-    
     private static void printResourceUtilization(List<Vm> vms, String layer) {
         double totalCpuUtilization = 0;
         double totalRamUtilization = 0;
@@ -235,40 +189,11 @@ public class SimulationStatistics {
         }
     }
     
-    private static double calculateDetailedCost(List<Cloudlet> layerCloudlets, List<Cloudlet> finishedCloudlets, double costPerSec) {
-        double totalCost = 0;
-        
-        for (Cloudlet layerCloudlet : layerCloudlets) {
-            for (Cloudlet finishedCloudlet : finishedCloudlets) {
-                if (layerCloudlet.getId() == finishedCloudlet.getId()) {
-                    // Calculate cost based on execution time
-                    double executionTime = finishedCloudlet.getActualCpuTime();
-                    totalCost += executionTime * costPerSec;
-                    break;
-                }
-            }
-        }
-        
-        return totalCost;
-    }
-    
-    private static int countFinishedCloudlets(List<Cloudlet> layerCloudlets, List<Cloudlet> finishedCloudlets) {
-        int count = 0;
-        for (Cloudlet layerCloudlet : layerCloudlets) {
-            for (Cloudlet finishedCloudlet : finishedCloudlets) {
-                if (layerCloudlet.getId() == finishedCloudlet.getId()) {
-                    count++;
-                    break;
-                }
-            }
-        }
-        return count;
-    }
-    
     private static void saveEnhancedStatisticsToFile(
             List<Cloudlet> edgeCloudlets, List<Cloudlet> fogCloudlets, List<Cloudlet> cloudCloudlets,
             List<Cloudlet> finishedCloudlets, 
             List<Vm> edgeVms, List<Vm> fogVms, List<Vm> cloudVms,
+            LayerStatistics[] layers,
             int edgeFinished, int fogFinished, int cloudFinished,
             double edgeCost, double fogCost, double cloudCost,
             double edgeEnergy, double fogEnergy, double cloudEnergy,
@@ -320,7 +245,7 @@ public class SimulationStatistics {
             writeResourceUtilizationSummary(writer, cloudVms, "Cloud");
             
             // Energy consumption
-            writer.println("\n=== Estimated Energy Consumption ===");
+            writer.println("\n=== Energy Consumption ===");
             writer.printf("Edge Layer: %.4f kWh%n", edgeEnergy);
             writer.printf("Fog Layer: %.4f kWh%n", fogEnergy);
             writer.printf("Cloud Layer: %.4f kWh%n", cloudEnergy);
@@ -335,9 +260,9 @@ public class SimulationStatistics {
             
             // Response time analysis
             writer.println("\n=== Response Time Analysis ===");
-            writeResponseTimeAnalysis(writer, edgeCloudlets, finishedCloudlets, "Edge");
-            writeResponseTimeAnalysis(writer, fogCloudlets, finishedCloudlets, "Fog");
-            writeResponseTimeAnalysis(writer, cloudCloudlets, finishedCloudlets, "Cloud");
+            writer.println(layers[EDGE].formatResponseTimes("Edge"));
+            writer.println(layers[FOG].formatResponseTimes("Fog"));
+            writer.println(layers[CLOUD].formatResponseTimes("Cloud"));
             
             // Latency metrics
             writer.println("\n=== Latency Metrics ===");
@@ -415,38 +340,157 @@ public class SimulationStatistics {
         }
     }
     
-    private static void writeResponseTimeAnalysis(PrintWriter writer, List<Cloudlet> layerCloudlets, List<Cloudlet> finishedCloudlets, String layer) {
-        double totalResponseTime = 0;
+    /**
+     * Indexes the layer cloudlets by ID, then aggregates every finished cloudlet
+     * into its layer in a single streaming pass
+     * 
+     * @param edgeCloudlets List of edge cloudlets
+     * @param fogCloudlets List of fog cloudlets
+     * @param cloudCloudlets List of cloud cloudlets
+     * @param finishedCloudlets List of all finished cloudlets
+     * @param costPerSec Processing cost per second of each layer (edge, fog, cloud)
+     * @return Statistics of the edge, fog and cloud layers, in that order
+     */
+    private static LayerStatistics[] computeLayerStatistics(
+            List<Cloudlet> edgeCloudlets, List<Cloudlet> fogCloudlets, List<Cloudlet> cloudCloudlets,
+            List<Cloudlet> finishedCloudlets, double[] costPerSec) {
+        
+        LongIntHashMap layerById = indexLayers(edgeCloudlets, fogCloudlets, cloudCloudlets);
+        
+        LayerStatistics[] layers = {
+            new LayerStatistics(edgeCloudlets.size()),
+            new LayerStatistics(fogCloudlets.size()),
+            new LayerStatistics(cloudCloudlets.size())
+        };
+        
+        for (Cloudlet cloudlet : finishedCloudlets) {
+            int layer = layerById.get(cloudlet.getId());
+            if (layer != NOT_INDEXED) {
+                layers[layer].add(cloudlet, costPerSec[layer]);
+            }
+        }
+        return layers;
+    }
+    
+    private static LongIntHashMap indexLayers(
+            List<Cloudlet> edgeCloudlets, List<Cloudlet> fogCloudlets, List<Cloudlet> cloudCloudlets) {
+        LongIntHashMap layerById = new LongIntHashMap(
+                edgeCloudlets.size() + fogCloudlets.size() + cloudCloudlets.size(), NOT_INDEXED);
+        indexLayer(layerById, edgeCloudlets, EDGE);
+        indexLayer(layerById, fogCloudlets, FOG);
+        indexLayer(layerById, cloudCloudlets, CLOUD);
+        return layerById;
+    }
+    
+    private static void indexLayer(LongIntHashMap layerById, List<Cloudlet> layerCloudlets, int layer) {
+        for (Cloudlet cloudlet : layerCloudlets) {
+            layerById.put(cloudlet.getId(), layer);
+        }
+    }
+    
+    /**
+     * Counts how many cloudlets of a layer are among the finished ones
+     * 
+     * @param layerCloudlets Cloudlets of the layer
+     * @param finishedCloudlets List of all finished cloudlets
+     * @return Number of finished cloudlets of the layer
+     */
+    public static int countFinishedCloudlets(List<Cloudlet> layerCloudlets, List<Cloudlet> finishedCloudlets) {
+        LongIntHashMap layerIds = new LongIntHashMap(layerCloudlets.size(), NOT_INDEXED);
+        indexLayer(layerIds, layerCloudlets, 0);
+        
         int count = 0;
-        double minResponseTime = Double.MAX_VALUE;
-        double maxResponseTime = 0;
+        for (Cloudlet cloudlet : finishedCloudlets) {
+            if (layerIds.containsKey(cloudlet.getId())) {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Calculates the resource cost of the finished cloudlets of each layer in a single pass,
+     * charging CPU time per PE and the VM's RAM, storage and bandwidth per hour of CPU time
+     * 
+     * @param edgeCloudlets List of edge cloudlets
+     * @param fogCloudlets List of fog cloudlets
+     * @param cloudCloudlets List of cloud cloudlets
+     * @param finishedCloudlets List of all finished cloudlets
+     * @param costPerCpu Cost per second of CPU time per PE
+     * @param costPerRam Cost per GB of RAM per hour
+     * @param costPerStorage Cost per GB of storage per hour
+     * @param costPerBw Cost per Gbps of bandwidth per hour
+     * @return Cost of the edge, fog and cloud layers, in that order
+     */
+    public static double[] calculateLayerCosts(
+            List<Cloudlet> edgeCloudlets, List<Cloudlet> fogCloudlets, List<Cloudlet> cloudCloudlets,
+            List<Cloudlet> finishedCloudlets,
+            double costPerCpu, double costPerRam, double costPerStorage, double costPerBw) {
         
-        for (Cloudlet layerCloudlet : layerCloudlets) {
-            for (Cloudlet finishedCloudlet : finishedCloudlets) {
-                if (layerCloudlet.getId() == finishedCloudlet.getId()) {
-                    double responseTime = finishedCloudlet.getFinishTime() - finishedCloudlet.getExecStartTime();
-                    totalResponseTime += responseTime;
-                    count++;
-                    
-                    if (responseTime < minResponseTime) {
-                        minResponseTime = responseTime;
-                    }
-                    
-                    if (responseTime > maxResponseTime) {
-                        maxResponseTime = responseTime;
-                    }
-                    
-                    break;
-                }
+        LongIntHashMap layerById = indexLayers(edgeCloudlets, fogCloudlets, cloudCloudlets);
+        double[] costs = new double[3];
+        for (Cloudlet cloudlet : finishedCloudlets) {
+            int layer = layerById.get(cloudlet.getId());
+            if (layer == NOT_INDEXED) {
+                continue;
             }
+            double cpuTime = cloudlet.getActualCpuTime();
+            double hours = cpuTime / 3600.0;
+            double cpuCost = cpuTime * costPerCpu * cloudlet.getNumberOfPes();
+            double ramCost = cloudlet.getVm().getRam().getCapacity() / 1024.0 * costPerRam * hours;
+            double storageCost = cloudlet.getVm().getStorage().getCapacity() / 1024.0 * costPerStorage * hours;
+            double bwCost = cloudlet.getVm().getBw().getCapacity() / 1000.0 * costPerBw * hours;
+            costs[layer] += cpuCost + ramCost + storageCost + bwCost;
+        }
+        return costs;
+    }
+    
+    /**
+     * Aggregates of the finished cloudlets of one layer
+     */
+    private static class LayerStatistics {
+        private int count;
+        private double cost;    // $
+        private double traffic; // MB
+        private double[] responseTimes;
+        
+        LayerStatistics(int layerSize) {
+            this.responseTimes = new double[Math.max(1, layerSize)];
+        }
+        
+        void add(Cloudlet cloudlet, double costPerSec) {
+            // Cost is based on execution time
+            cost += cloudlet.getActualCpuTime() * costPerSec;
+            // Traffic is estimated from the cloudlet file size and output size
+            traffic += (cloudlet.getFileSize() + cloudlet.getOutputSize()) / (1024.0 * 1024.0);
+            
+            if (count == responseTimes.length) {
+                responseTimes = Arrays.copyOf(responseTimes, count * 2);
+            }
+            responseTimes[count++] = cloudlet.getFinishTime() - cloudlet.getExecStartTime();
+        }
+        
+        String formatResponseTimes(String layer) {
+            if (count == 0) {
+                return String.format("%s Layer - No completed cloudlets", layer);
+            }
+            
+            double[] sorted = Arrays.copyOf(responseTimes, count);
+            Arrays.sort(sorted);
+            double total = 0;
+            for (double responseTime : sorted) {
+                total += responseTime;
+            }
+            
+            return String.format("%s Layer - Avg: %.4f sec, Min: %.4f sec, Max: %.4f sec, P50: %.4f sec, P95: %.4f sec, P99: %.4f sec",
+                    layer, total / count, sorted[0], sorted[count - 1],
+                    percentile(sorted, 0.50), percentile(sorted, 0.95), percentile(sorted, 0.99));
         }
         
-        if (count > 0) {
-            double avgResponseTime = totalResponseTime / count;
-            writer.printf("%s Layer - Avg: %.4f sec, Min: %.4f sec, Max: %.4f sec%n", 
-                    layer, avgResponseTime, minResponseTime, maxResponseTime);
-        } else {
-            writer.printf("%s Layer - No completed cloudlets%n", layer);
+        private static double percentile(double[] sorted, double p) {
+            // Nearest-rank percentile
+            int rank = (int) Math.ceil(p * sorted.length);
+            return sorted[Math.max(0, rank - 1)];
         }
     }
 }
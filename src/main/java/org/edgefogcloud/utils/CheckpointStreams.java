@@ -0,0 +1,185 @@
+package org.edgefogcloud.utils;
+
+import org.edgefogcloud.data.DataPacket;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Binary encoding of the values shared by the checkpointed simulation components.
+ * Collections are written as their size followed by their elements.
+ */
+public final class CheckpointStreams {
+    private static final int MAX_RANDOM_STATE_BYTES = 1024;
+    private static final ObjectInputFilter RANDOM_FILTER = ObjectInputFilter.Config.createFilter(
+            "java.util.Random;maxdepth=1;maxrefs=8;maxarray=0;maxbytes=" + MAX_RANDOM_STATE_BYTES + ";!*");
+
+    private CheckpointStreams() {
+    }
+
+    public static void writePacket(DataOutput out, DataPacket packet) throws IOException {
+        out.writeUTF(packet.getSourceId());
+        out.writeInt(packet.getTimestamp());
+        out.writeInt(packet.getSize());
+        out.writeUTF(packet.getDataType());
+        out.writeUTF(packet.getProcessingStatus());
+    }
+
+    public static DataPacket readPacket(DataInput in) throws IOException {
+        return new DataPacket(in.readUTF(), in.readInt(), in.readInt(), in.readUTF(), in.readUTF());
+    }
+
+    public static void writePackets(DataOutput out, Collection<DataPacket> packets) throws IOException {
+        out.writeInt(packets.size());
+        for (DataPacket packet : packets) {
+            writePacket(out, packet);
+        }
+    }
+
+    /**
+     * Adds the packets read to a collection
+     */
+    public static void readPackets(DataInput in, Collection<DataPacket> packets) throws IOException {
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            packets.add(readPacket(in));
+        }
+    }
+
+    /**
+     * Writes packet buffers keyed by the ID of the node or device they were received from
+     */
+    public static void writePacketBuffers(DataOutput out, Map<String, Set<DataPacket>> buffers) throws IOException {
+        out.writeInt(buffers.size());
+        for (Map.Entry<String, Set<DataPacket>> entry : buffers.entrySet()) {
+            out.writeUTF(entry.getKey());
+            writePackets(out, entry.getValue());
+        }
+    }
+
+    /**
+     * Replaces the content of packet buffers with the buffers read, in their original order
+     */
+    public static void readPacketBuffers(DataInput in, Map<String, Set<DataPacket>> buffers) throws IOException {
+        buffers.clear();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            String key = in.readUTF();
+            Set<DataPacket> packets = new LinkedHashSet<>();
+            readPackets(in, packets);
+            buffers.put(key, packets);
+        }
+    }
+
+    public static void writeDoubleMap(DataOutput out, Map<String, Double> map) throws IOException {
+        out.writeInt(map.size());
+        for (Map.Entry<String, Double> entry : map.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeDouble(entry.getValue());
+        }
+    }
+
+    public static void readDoubleMap(DataInput in, Map<String, Double> map) throws IOException {
+        map.clear();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            map.put(in.readUTF(), in.readDouble());
+        }
+    }
+
+    public static void writeIntMap(DataOutput out, Map<String, Integer> map) throws IOException {
+        out.writeInt(map.size());
+        for (Map.Entry<String, Integer> entry : map.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeInt(entry.getValue());
+        }
+    }
+
+    public static void readIntMap(DataInput in, Map<String, Integer> map) throws IOException {
+        map.clear();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            map.put(in.readUTF(), in.readInt());
+        }
+    }
+
+    /**
+     * Writes a time series indexed by simulation second
+     */
+    public static void writeSeries(DataOutput out, Map<Integer, Double> series) throws IOException {
+        out.writeInt(series.size());
+        for (Map.Entry<Integer, Double> entry : series.entrySet()) {
+            out.writeInt(entry.getKey());
+            out.writeDouble(entry.getValue());
+        }
+    }
+
+    public static void readSeries(DataInput in, Map<Integer, Double> series) throws IOException {
+        series.clear();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            series.put(in.readInt(), in.readDouble());
+        }
+    }
+
+    public static void writeDoubles(DataOutput out, List<Double> values) throws IOException {
+        out.writeInt(values.size());
+        for (double value : values) {
+            out.writeDouble(value);
+        }
+    }
+
+    public static void readDoubles(DataInput in, List<Double> values) throws IOException {
+        values.clear();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            values.add(in.readDouble());
+        }
+    }
+
+    /**
+     * Writes the state of a random number generator, so a restored generator
+     * continues the same sequence
+     */
+    public static void writeRandom(DataOutput out, Random random) throws IOException {
+        // java.util.Random only exposes its seed through serialization
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream objects = new ObjectOutputStream(bytes)) {
+            objects.writeObject(random);
+        }
+        out.writeInt(bytes.size());
+        out.write(bytes.toByteArray());
+    }
+
+    /**
+     * Reads the state of a random number generator written by {@link #writeRandom(DataOutput, Random)}.
+     * The stream may only hold a {@link Random}, so a tampered checkpoint cannot instantiate other classes.
+     */
+    public static Random readRandom(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_RANDOM_STATE_BYTES) {
+            throw new IOException("Invalid random generator state of " + length + " bytes");
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        try (ObjectInputStream objects = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            objects.setObjectInputFilter(RANDOM_FILTER);
+            return (Random) objects.readObject();
+        } catch (ClassNotFoundException | ClassCastException | InvalidClassException e) {
+            throw new IOException("Invalid random generator state", e);
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package org.edgefogcloud.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowFileWriter;
+import org.apache.arrow.vector.types.FloatingPointPrecision;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.Schema;
+
+/**
+ * Streams the rows of one table into an Arrow IPC file (Feather v2), readable by pandas
+ * ({@code pd.read_feather}) and DuckDB without conversion.
+ * Rows are buffered column by column into batches on the caller's thread; full batches are
+ * encoded and written to a {@link FileChannel} by the writer thread. At most a fixed number of
+ * batches wait for it, so memory stays bounded and a slow disk applies back-pressure.
+ * <p>
+ * A writer is filled by a single thread: set the columns of a row, then call {@link #endRow()}.
+ */
+public class ColumnarTableWriter implements Closeable {
+    private static final Logger LOGGER = Logger.getLogger(ColumnarTableWriter.class.getName());
+
+    /**
+     * Column types, stored as Arrow int32, int64, float64 and utf8
+     */
+    public enum ColumnType {
+        INT, LONG, DOUBLE, STRING
+    }
+
+    private final Path file;
+    private final ColumnType[] types;
+    private final int batchRows;
+    private final ExecutorService writerThread;
+    private final Semaphore queuedBatches;
+    private final VectorSchemaRoot root;
+    private final FileChannel channel;
+    private final ArrowFileWriter arrowWriter;
+
+    private Batch batch;
+    private long rowsWritten;
+    private volatile IOException failure;
+
+    /**
+     * Creates the file and writes its schema
+     *
+     * @param file The Arrow file
+     * @param names Column names
+     * @param types Column types
+     * @param batchRows Rows per record batch
+     * @param maxQueuedBatches Full batches allowed to wait for the writer thread
+     * @param writerThread Single thread writing the batches, possibly shared by several tables
+     * @param allocator Arrow allocator of the encoded batches
+     * @throws IOException If the file cannot be created
+     */
+    public ColumnarTableWriter(Path file, String[] names, ColumnType[] types, int batchRows, int maxQueuedBatches,
+                               ExecutorService writerThread, BufferAllocator allocator) throws IOException {
+        this.file = file;
+        this.types = types.clone();
+        this.batchRows = Math.max(1, batchRows);
+        this.writerThread = writerThread;
+        this.queuedBatches = new Semaphore(Math.max(1, maxQueuedBatches));
+
+        List<Field> fields = new ArrayList<>();
+        for (int i = 0; i < names.length; i++) {
+            fields.add(Field.nullable(names[i], toArrowType(types[i])));
+        }
+        this.root = VectorSchemaRoot.create(new Schema(fields), allocator);
+
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.arrowWriter = new ArrowFileWriter(root, null, channel);
+        this.arrowWriter.start();
+        this.batch = new Batch(this.types, this.batchRows);
+    }
+
+    private static ArrowType toArrowType(ColumnType type) {
+        switch (type) {
+            case INT:
+                return new ArrowType.Int(32, true);
+            case LONG:
+                return new ArrowType.Int(64, true);
+            case DOUBLE:
+                return new ArrowType.FloatingPoint(FloatingPointPrecision.DOUBLE);
+            default:
+                return ArrowType.Utf8.INSTANCE;
+        }
+    }
+
+    public void set(int column, int value) {
+        batch.longs[column][batch.rows] = value;
+    }
+
+    public void set(int column, long value) {
+        batch.longs[column][batch.rows] = value;
+    }
+
+    public void set(int column, double value) {
+        batch.doubles[column][batch.rows] = value;
+    }
+
+    public void set(int column, String value) {
+        batch.strings[column][batch.rows] = value;
+    }
+
+    /**
+     * Completes the current row, handing the batch to the writer thread once full
+     */
+    public void endRow() {
+        batch.rows++;
+        if (batch.rows == batchRows) {
+            flush();
+        }
+    }
+
+    /**
+     * Hands the buffered rows to the writer thread, waiting if too many batches are queued
+     */
+    public void flush() {
+        if (batch.rows == 0) {
+            return;
+        }
+        Batch full = batch;
+        batch = new Batch(types, batchRows);
+        try {
+            queuedBatches.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        writerThread.execute(() -> {
+            try {
+                write(full);
+            } finally {
+                queuedBatches.release();
+            }
+        });
+    }
+
+    /**
+     * Encodes a batch as an Arrow record batch. Runs on the writer thread.
+     */
+    private void write(Batch full) {
+        if (failure != null) {
+            return;
+        }
+        try {
+            root.allocateNew();
+            for (int column = 0; column < types.length; column++) {
+                for (int row = 0; row < full.rows; row++) {
+                    switch (types[column]) {
+                        case INT:
+                            ((IntVector) root.getVector(column)).setSafe(row, (int) full.longs[column][row]);
+                            break;
+                        case LONG:
+                            ((BigIntVector) root.getVector(column)).setSafe(row, full.longs[column][row]);
+                            break;
+                        case DOUBLE:
+                            ((Float8Vector) root.getVector(column)).setSafe(row, full.doubles[column][row]);
+                            break;
+                        default:
+                            String value = full.strings[column][row];
+                            if (value == null) {
+                                ((VarCharVector) root.getVector(column)).setNull(row);
+                            } else {
+                                ((VarCharVector) root.getVector(column)).setSafe(row,
+                                        value.getBytes(StandardCharsets.UTF_8));
+                            }
+                    }
+                }
+            }
+            root.setRowCount(full.rows);
+            arrowWriter.writeBatch();
+            rowsWritten += full.rows;
+        } catch (IOException e) {
+            failure = e;
+            LOGGER.log(Level.WARNING, "Could not write " + file, e);
+        }
+    }
+
+    /**
+     * Writes the remaining rows and the file footer. Blocks until the file is complete.
+     *
+     * @throws IOException If a batch or the footer could not be written
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+        // The writer thread runs the batches in order, so the footer is written after them
+        Semaphore closed = new Semaphore(0);
+        writerThread.execute(() -> {
+            try {
+                arrowWriter.end();
+                LOGGER.info(rowsWritten + " rows written to " + file);
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            } finally {
+                arrowWriter.close();
+                root.close();
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "Could not close " + file, e);
+                }
+                closed.release();
+            }
+        });
+        closed.acquireUninterruptibly();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Rows buffered column by column; integers of both widths share the long columns
+     */
+    private static final class Batch {
+        private final long[][] longs;
+        private final double[][] doubles;
+        private final String[][] strings;
+        private int rows;
+
+        Batch(ColumnType[] types, int capacity) {
+            longs = new long[types.length][];
+            doubles = new double[types.length][];
+            strings = new String[types.length][];
+            for (int column = 0; column < types.length; column++) {
+                switch (types[column]) {
+                    case INT:
+                    case LONG:
+                        longs[column] = new long[capacity];
+                        break;
+                    case DOUBLE:
+                        doubles[column] = new double[capacity];
+                        break;
+                    default:
+                        strings[column] = new String[capacity];
+                }
+            }
+        }
+    }
+}
@@ -2,8 +2,15 @@ package org.edgefogcloud.utils;
 
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -27,7 +34,6 @@ public class ConfigManager {
     
     public ConfigManager() {
         properties = new Properties();
-        random = new Random();
         
         // Try to load configuration from file
         try {
@@ -39,6 +45,16 @@ public class ConfigManager {
         }
     }
     
+    /**
+     * Overrides a configuration value, e.g. for a parameter sweep
+     * 
+     * @param key The property key
+     * @param value The new value
+     */
+    public void setProperty(String key, String value) {
+        properties.setProperty(key, value);
+    }
+    
     private void setDefaultProperties() {
         // Simulation parameters
         properties.setProperty("simulation.time", String.valueOf(DEFAULT_SIMULATION_TIME));
@@ -146,6 +162,10 @@ public class ConfigManager {
         return Double.parseDouble(properties.getProperty("fog.aggregation_ratio", "0.5"));
     }
     
+    public double getFogAggregationWindow() {
+        return Double.parseDouble(properties.getProperty("fog.aggregation.window", "1.0")); // seconds
+    }
+    
     // Cloud parameters
     public double getCloudProcessingCapacity() {
         return Double.parseDouble(properties.getProperty("cloud.processing_capacity", "50000.0"));
@@ -164,7 +184,26 @@ public class ConfigManager {
     }
     
     // Helper methods
+    /**
+     * Creates the random number generator of a component. With simulation.seed set, the generator
+     * is seeded from it and the component's name, so that runs are reproducible.
+     * 
+     * @param component Name of the component, unique among the generators of a run
+     * @return A new random number generator
+     */
+    public Random createRandom(String component) {
+        String seed = properties.getProperty("simulation.seed", "").trim();
+        if (seed.isEmpty()) {
+            return new Random();
+        }
+        return new Random(Long.parseLong(seed) * 31 + component.hashCode());
+    }
+    
     public String getRandomIoTDeviceType() {
+        if (random == null) {
+            // Seeded once the configuration is set
+            random = createRandom("device-types");
+        }
         int index = random.nextInt(DEVICE_TYPES.length);
         return DEVICE_TYPES[index];
     }
@@ -229,4 +268,485 @@ public class ConfigManager {
     public int getEdgeHostBw() {
         return Integer.parseInt(properties.getProperty("edge.host.bw", "10000"));
     }
+    
+    // Host power models (W)
+    public double getCloudHostMaxPower() {
+        return Double.parseDouble(properties.getProperty("cloud.host.power.max", "1000.0"));
+    }
+    
+    public double getCloudHostStaticPower() {
+        return Double.parseDouble(properties.getProperty("cloud.host.power.static", "300.0"));
+    }
+    
+    public double getFogHostMaxPower() {
+        return Double.parseDouble(properties.getProperty("fog.host.power.max", "250.0"));
+    }
+    
+    public double getFogHostStaticPower() {
+        return Double.parseDouble(properties.getProperty("fog.host.power.static", "100.0"));
+    }
+    
+    public double getEdgeHostMaxPower() {
+        return Double.parseDouble(properties.getProperty("edge.host.power.max", "60.0"));
+    }
+    
+    public double getEdgeHostStaticPower() {
+        return Double.parseDouble(properties.getProperty("edge.host.power.static", "20.0"));
+    }
+    
+    // Fog power-aware consolidation
+    public int getFogHostCount() {
+        return Integer.parseInt(properties.getProperty("fog.host.count", String.valueOf(getNumFogNodes())));
+    }
+    
+    public double getFogUnderUtilizationThreshold() {
+        return Double.parseDouble(properties.getProperty("fog.consolidation.under_threshold", "0.2"));
+    }
+    
+    public double getFogOverUtilizationThreshold() {
+        return Double.parseDouble(properties.getProperty("fog.consolidation.over_threshold", "0.8"));
+    }
+    
+    public double getFogConsolidationInterval() {
+        return Double.parseDouble(properties.getProperty("fog.consolidation.interval", "5.0")); // seconds
+    }
+    
+    // Autoscaling of the VM pools
+    public boolean isAutoscalingEnabled() {
+        return Boolean.parseBoolean(properties.getProperty("autoscaling.enabled", "false"));
+    }
+    
+    public double getAutoscalingInterval() {
+        return Double.parseDouble(properties.getProperty("autoscaling.interval", "1.0")); // seconds
+    }
+    
+    public double getAutoscalingCooldown() {
+        return Double.parseDouble(properties.getProperty("autoscaling.cooldown", "10.0")); // seconds
+    }
+    
+    public double getScaleOutBacklog() {
+        return Double.parseDouble(properties.getProperty("autoscaling.scale_out.backlog", "4.0")); // cloudlets per VM
+    }
+    
+    public double getScaleInBacklog() {
+        return Double.parseDouble(properties.getProperty("autoscaling.scale_in.backlog", "1.0")); // cloudlets per VM
+    }
+    
+    public double getScaleOutUtilization() {
+        return Double.parseDouble(properties.getProperty("autoscaling.scale_out.utilization", "0.8"));
+    }
+    
+    public double getScaleInUtilization() {
+        return Double.parseDouble(properties.getProperty("autoscaling.scale_in.utilization", "0.3"));
+    }
+    
+    public double getVmBootTime() {
+        return Double.parseDouble(properties.getProperty("autoscaling.vm.boot_time", "10.0")); // seconds
+    }
+    
+    public double getLatencySlo() {
+        return Double.parseDouble(properties.getProperty("autoscaling.latency_slo", "0.5")); // seconds
+    }
+    
+    public int getEdgeVmMax() {
+        return Integer.parseInt(properties.getProperty("edge.vm.max", "8"));
+    }
+    
+    public int getFogVmMax() {
+        return Integer.parseInt(properties.getProperty("fog.vm.max", "6"));
+    }
+    
+    public int getCloudVmMax() {
+        return Integer.parseInt(properties.getProperty("cloud.vm.max", "4"));
+    }
+    
+    // Vertical scaling of the fog VMs
+    public boolean isFogVerticalScalingEnabled() {
+        return Boolean.parseBoolean(properties.getProperty("fog.vertical_scaling.enabled", "false"));
+    }
+    
+    public double getFogVerticalScalingInterval() {
+        return Double.parseDouble(properties.getProperty("fog.vertical_scaling.interval", "5.0")); // seconds
+    }
+    
+    public double getFogVerticalScalingFactor() {
+        return Double.parseDouble(properties.getProperty("fog.vertical_scaling.factor", "0.5"));
+    }
+    
+    public int getFogVerticalScalingBacklog() {
+        return Integer.parseInt(properties.getProperty("fog.vertical_scaling.scale_up.backlog", "4")); // cloudlets per VM
+    }
+    
+    // Checkpoint and resume
+    public boolean isCheckpointEnabled() {
+        return Boolean.parseBoolean(properties.getProperty("checkpoint.enabled", "false"));
+    }
+    
+    public int getCheckpointInterval() {
+        return Integer.parseInt(properties.getProperty("checkpoint.interval", "3600")); // seconds
+    }
+    
+    public String getCheckpointDirectory() {
+        return properties.getProperty("checkpoint.directory", "checkpoints");
+    }
+    
+    public String getCheckpointResumeFile() {
+        return properties.getProperty("checkpoint.resume", "").trim();
+    }
+    
+    // Warm start from a steady-state snapshot
+    public boolean isWarmStartEnabled() {
+        return Boolean.parseBoolean(properties.getProperty("warmstart.enabled", "false"));
+    }
+    
+    public String getWarmStartDirectory() {
+        return properties.getProperty("warmstart.directory", "warmstart");
+    }
+    
+    public int getWarmUpTime() {
+        return Integer.parseInt(properties.getProperty("warmstart.time", "600")); // seconds
+    }
+    
+    public int getWarmStartSnapshotInterval() {
+        return Integer.parseInt(properties.getProperty("warmstart.snapshot_interval", "60")); // seconds
+    }
+    
+    // Profiler
+    public boolean isProfilerEnabled() {
+        return Boolean.parseBoolean(properties.getProperty("profiler.enabled", "false"));
+    }
+    
+    public int getProfilerInterval() {
+        return Integer.parseInt(properties.getProperty("profiler.interval", "60")); // seconds
+    }
+    
+    // Live metrics endpoint
+    public boolean isMetricsEndpointEnabled() {
+        return Boolean.parseBoolean(properties.getProperty("metrics.endpoint.enabled", "false"));
+    }
+    
+    public int getMetricsEndpointPort() {
+        return Integer.parseInt(properties.getProperty("metrics.endpoint.port", "9464"));
+    }
+    
+    public int getMetricsEndpointInterval() {
+        return Integer.parseInt(properties.getProperty("metrics.endpoint.interval", "1")); // seconds
+    }
+    
+    // Columnar results export
+    public boolean isColumnarExportEnabled() {
+        return Boolean.parseBoolean(properties.getProperty("results.columnar.enabled", "false"));
+    }
+    
+    public String getColumnarExportDirectory() {
+        return properties.getProperty("results.columnar.directory", "results/columnar");
+    }
+    
+    public int getColumnarExportBatchRows() {
+        return Integer.parseInt(properties.getProperty("results.columnar.batch_rows", "65536"));
+    }
+    
+    public int getColumnarExportQueuedBatches() {
+        return Integer.parseInt(properties.getProperty("results.columnar.queued_batches", "4"));
+    }
+    
+    // Arrival processes
+    public String getArrivalProcess() {
+        return properties.getProperty("iot.arrival.process", "DETERMINISTIC").trim().toUpperCase();
+    }
+    
+    public double getMmppBurstRatio() {
+        return Double.parseDouble(properties.getProperty("iot.arrival.mmpp.burst_ratio", "10.0"));
+    }
+    
+    public double getMmppBurstFraction() {
+        return Double.parseDouble(properties.getProperty("iot.arrival.mmpp.burst_fraction", "0.1"));
+    }
+    
+    public double getMmppMeanBurstDuration() {
+        return Double.parseDouble(properties.getProperty("iot.arrival.mmpp.mean_burst", "30.0")); // seconds
+    }
+    
+    public double getDiurnalAmplitude() {
+        return Double.parseDouble(properties.getProperty("iot.arrival.diurnal.amplitude", "0.5"));
+    }
+    
+    public double getDiurnalPeriod() {
+        return Double.parseDouble(properties.getProperty("iot.arrival.diurnal.period", "86400")); // seconds
+    }
+    
+    public double getDiurnalPeakTime() {
+        return Double.parseDouble(properties.getProperty("iot.arrival.diurnal.peak_time", "50400")); // seconds
+    }
+    
+    public double getOnOffShape() {
+        return Double.parseDouble(properties.getProperty("iot.arrival.on_off.shape", "1.5"));
+    }
+    
+    public double getOnOffMeanOnTime() {
+        return Double.parseDouble(properties.getProperty("iot.arrival.on_off.mean_on", "10.0")); // seconds
+    }
+    
+    public double getOnOffMeanOffTime() {
+        return Double.parseDouble(properties.getProperty("iot.arrival.on_off.mean_off", "30.0")); // seconds
+    }
+    
+    // Device lifecycle
+    public double getLowPowerThreshold() {
+        return Double.parseDouble(properties.getProperty("iot.lifecycle.low_power_threshold", "0.2")); // share of battery capacity
+    }
+    
+    public double getLowPowerDutyCycle() {
+        return Double.parseDouble(properties.getProperty("iot.lifecycle.low_power_duty_cycle", "0.5"));
+    }
+    
+    public double getRechargeTime() {
+        return Double.parseDouble(properties.getProperty("iot.lifecycle.recharge_time", "0")); // seconds, 0: never recharged
+    }
+    
+    public double getChurnMeanSession() {
+        return Double.parseDouble(properties.getProperty("iot.lifecycle.churn.mean_session", "0")); // seconds, 0: no churn
+    }
+    
+    public double getChurnMeanAbsence() {
+        return Double.parseDouble(properties.getProperty("iot.lifecycle.churn.mean_absence", "300")); // seconds
+    }
+    
+    // Energy harvesting and duty cycles
+    /**
+     * Gets the device types that harvest energy and follow the sleep/wake duty cycle
+     * 
+     * @return Device types, e.g. SENSOR and WEARABLE
+     */
+    public Set<String> getEnergyModelTypes() {
+        Set<String> types = new TreeSet<>();
+        for (String type : properties.getProperty("iot.energy.types", "SENSOR,WEARABLE").split(",")) {
+            if (!type.trim().isEmpty()) {
+                types.add(type.trim().toUpperCase());
+            }
+        }
+        return types;
+    }
+    
+    public String getHarvestProfile() {
+        return properties.getProperty("iot.energy.harvest.profile", "NONE").trim().toUpperCase();
+    }
+    
+    public double getHarvestPeakPower() {
+        return Double.parseDouble(properties.getProperty("iot.energy.harvest.peak_power", "5.0")); // mW
+    }
+    
+    public double getHarvestPeriod() {
+        return Double.parseDouble(properties.getProperty("iot.energy.harvest.period", "86400")); // seconds
+    }
+    
+    public double getHarvestSunrise() {
+        return Double.parseDouble(properties.getProperty("iot.energy.harvest.sunrise", "21600")); // seconds
+    }
+    
+    public double getHarvestWakeLevel() {
+        return Double.parseDouble(properties.getProperty("iot.energy.harvest.wake_level", "0.2")); // share of battery capacity
+    }
+    
+    public double getDutyCyclePeriod() {
+        return Double.parseDouble(properties.getProperty("iot.energy.duty_cycle.period", "60")); // seconds
+    }
+    
+    public double getDutyCycleAwakeFraction() {
+        return Double.parseDouble(properties.getProperty("iot.energy.duty_cycle.awake_fraction", "1.0"));
+    }
+    
+    public double getAwakePower() {
+        return Double.parseDouble(properties.getProperty("iot.energy.duty_cycle.awake_power", "0")); // mW
+    }
+    
+    public double getSleepPower() {
+        return Double.parseDouble(properties.getProperty("iot.energy.duty_cycle.sleep_power", "0")); // mW
+    }
+    
+    // Mobility and handover
+    
+    /**
+     * Gets the mobility model of the mobile device types
+     * 
+     * @return NONE, RANDOM_WAYPOINT or TRACE
+     */
+    public String getMobilityModel() {
+        return properties.getProperty("iot.mobility.model", "NONE").trim().toUpperCase();
+    }
+    
+    public boolean isMobilityEnabled() {
+        return !"NONE".equals(getMobilityModel());
+    }
+    
+    /**
+     * Gets the device types that move
+     * 
+     * @return Device types, e.g. SMARTPHONE and WEARABLE
+     */
+    public Set<String> getMobileDeviceTypes() {
+        Set<String> types = new TreeSet<>();
+        for (String type : properties.getProperty("iot.mobility.types", "SMARTPHONE,WEARABLE").split(",")) {
+            if (!type.trim().isEmpty()) {
+                types.add(type.trim().toUpperCase());
+            }
+        }
+        return types;
+    }
+    
+    public double getMobilityAreaWidth() {
+        return Double.parseDouble(properties.getProperty("iot.mobility.area.width", "1000")); // meters
+    }
+    
+    public double getMobilityAreaHeight() {
+        return Double.parseDouble(properties.getProperty("iot.mobility.area.height", "1000")); // meters
+    }
+    
+    public double getMobilityMinSpeed() {
+        return Double.parseDouble(properties.getProperty("iot.mobility.speed.min", "0.5")); // m/s
+    }
+    
+    public double getMobilityMaxSpeed() {
+        return Double.parseDouble(properties.getProperty("iot.mobility.speed.max", "2.0")); // m/s
+    }
+    
+    public double getMobilityMaxPause() {
+        return Double.parseDouble(properties.getProperty("iot.mobility.pause.max", "60")); // seconds
+    }
+    
+    public String getMobilityTraceFile() {
+        return properties.getProperty("iot.mobility.trace_file", "").trim();
+    }
+    
+    /**
+     * Gets how edge nodes are placed in the mobility area
+     * 
+     * @return GRID or RANDOM
+     */
+    public String getEdgePlacement() {
+        return properties.getProperty("iot.mobility.edge_placement", "GRID").trim().toUpperCase();
+    }
+    
+    public double getMobilityGridCellSize() {
+        return Double.parseDouble(properties.getProperty("iot.mobility.grid.cell_size", "0")); // meters, 0: automatic
+    }
+    
+    /**
+     * Gets how devices choose the edge node they hand over to
+     * 
+     * @return NEAREST or BEST_SIGNAL
+     */
+    public String getHandoverPolicy() {
+        return properties.getProperty("iot.mobility.handover.policy", "BEST_SIGNAL").trim().toUpperCase();
+    }
+    
+    public double getHandoverHysteresis() {
+        return Double.parseDouble(properties.getProperty("iot.mobility.handover.hysteresis", "3.0")); // dB
+    }
+    
+    public double getPathLossExponent() {
+        return Double.parseDouble(properties.getProperty("iot.mobility.handover.path_loss_exponent", "3.0"));
+    }
+    
+    public double getHandoverLatency() {
+        return Double.parseDouble(properties.getProperty("iot.mobility.handover.latency", "50")); // ms
+    }
+    
+    // Trace replay
+    public String getTraceFile() {
+        return properties.getProperty("workload.trace.file", "").trim(); // empty: synthetic packets
+    }
+    
+    public double getTraceTimeScale() {
+        return Double.parseDouble(properties.getProperty("workload.trace.time_scale", "1.0"));
+    }
+    
+    public boolean isTraceRebaseEnabled() {
+        return Boolean.parseBoolean(properties.getProperty("workload.trace.rebase", "true"));
+    }
+    
+    public String getTraceDeviceMapping() {
+        return properties.getProperty("workload.trace.device_mapping", "ROUND_ROBIN").trim().toUpperCase();
+    }
+    
+    /**
+     * Gets the explicit device mapping of the trace replay
+     * 
+     * @return Simulated device ID by trace device, from "traceDevice=simulatedDevice" pairs
+     */
+    public Map<String, String> getTraceDeviceMap() {
+        Map<String, String> deviceMap = new LinkedHashMap<>();
+        for (String pair : properties.getProperty("workload.trace.device_map", "").split(",")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0) {
+                deviceMap.put(pair.substring(0, separator).trim(), pair.substring(separator + 1).trim());
+            }
+        }
+        return deviceMap;
+    }
+    
+    public int getTraceChunkSize() {
+        return Integer.parseInt(properties.getProperty("workload.trace.chunk_mb", "64")) << 20; // in bytes
+    }
+    
+    public double getTraceLookahead() {
+        return Double.parseDouble(properties.getProperty("workload.trace.lookahead", "10.0")); // seconds
+    }
+    
+    // Charts
+    public boolean isChartRenderingEnabled() {
+        return Boolean.parseBoolean(properties.getProperty("results.charts.enabled", "true"));
+    }
+    
+    public int getChartRenderThreads() {
+        return Integer.parseInt(properties.getProperty("results.charts.threads", "0")); // 0: one per chart, up to the CPU count
+    }
+    
+    public int getChartPointsPerPixel() {
+        return Integer.parseInt(properties.getProperty("results.charts.points_per_pixel", "2"));
+    }
+    
+    // Hot-path logging
+    public int getLoggingSampleRate(String category) {
+        return Integer.parseInt(properties.getProperty("logging.sample." + category, "1")); // one message out of N
+    }
+    
+    public int getLoggingRateLimit(String category) {
+        return Integer.parseInt(properties.getProperty("logging.rate_limit." + category, "0")); // messages per second
+    }
+    
+    public boolean isAsyncLoggingEnabled() {
+        return Boolean.parseBoolean(properties.getProperty("logging.async", "false"));
+    }
+    
+    /**
+     * Gets a fingerprint of the configuration, ignoring the checkpoint, profiler, logging, metrics
+     * endpoint and export settings, and the warm-start switch and directory, that do not change the
+     * simulated state. The warm-up time and snapshot interval do, as they decide the state snapshotted.
+     * 
+     * @return Hexadecimal SHA-256 prefix of the sorted properties
+     */
+    public String getFingerprint() {
+        StringBuilder canonical = new StringBuilder();
+        for (String key : new TreeSet<>(properties.stringPropertyNames())) {
+            if (!key.startsWith("checkpoint.") && !key.equals("warmstart.enabled")
+                    && !key.equals("warmstart.directory")
+                    && !key.startsWith("profiler.") && !key.startsWith("logging.")
+                    && !key.startsWith("metrics.endpoint.") && !key.startsWith("results.")) {
+                canonical.append(key).append('=').append(properties.getProperty(key).trim()).append('\n');
+            }
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(canonical.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (int i = 0; i < 8; i++) {
+                hex.append(String.format("%02x", digest[i]));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform provides SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
 }
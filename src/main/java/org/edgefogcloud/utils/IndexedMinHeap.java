@@ -0,0 +1,146 @@
+package org.edgefogcloud.utils;
+
+import java.util.Arrays;
+
+/**
+ * Indexed binary min-heap of event times keyed by a dense int index (e.g. a device index),
+ * holding at most one time per index so that an index can be rescheduled in place.
+ * Used to wake simulation entities at their next timed event without scanning all of them.
+ */
+public final class IndexedMinHeap {
+    private int[] heap; // indices
+    private int[] positions; // heap position by index, -1 when not queued
+    private double[] times; // by index
+    private int size;
+
+    /**
+     * Creates an empty heap
+     *
+     * @param capacity Number of indices, from 0
+     */
+    public IndexedMinHeap(int capacity) {
+        heap = new int[16];
+        positions = new int[0];
+        times = new double[0];
+        grow(capacity);
+    }
+
+    /**
+     * Makes room for more indices
+     *
+     * @param capacity New number of indices, not less than the current one
+     */
+    public void grow(int capacity) {
+        int previous = positions.length;
+        positions = Arrays.copyOf(positions, capacity);
+        times = Arrays.copyOf(times, capacity);
+        Arrays.fill(positions, previous, capacity, -1);
+    }
+
+    /**
+     * Queues an index at the given time, replacing its pending time if any
+     */
+    public void schedule(int index, double time) {
+        times[index] = time;
+        int position = positions[index];
+        if (position < 0) {
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, size * 2);
+            }
+            position = size++;
+            heap[position] = index;
+            positions[index] = position;
+        }
+        siftDown(siftUp(position));
+    }
+
+    /**
+     * Whether the earliest pending time is not after the given one
+     */
+    public boolean isDue(double time) {
+        return size > 0 && times[heap[0]] <= time;
+    }
+
+    /**
+     * Earliest pending time; the heap must not be empty
+     */
+    public double peekTime() {
+        return times[heap[0]];
+    }
+
+    /**
+     * Removes the index with the earliest pending time; the heap must not be empty
+     *
+     * @return The index
+     */
+    public int poll() {
+        int index = heap[0];
+        positions[index] = -1;
+        size--;
+        if (size > 0) {
+            move(heap[size], 0);
+            siftDown(0);
+        }
+        return index;
+    }
+
+    public boolean isScheduled(int index) {
+        return positions[index] >= 0;
+    }
+
+    /**
+     * Pending time of an index, infinite if none
+     */
+    public double getTime(int index) {
+        return positions[index] >= 0 ? times[index] : Double.POSITIVE_INFINITY;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            positions[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    private int siftUp(int position) {
+        int index = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (times[heap[parent]] <= times[index]) {
+                break;
+            }
+            move(heap[parent], position);
+            position = parent;
+        }
+        move(index, position);
+        return position;
+    }
+
+    private void siftDown(int position) {
+        int index = heap[position];
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && times[heap[child + 1]] < times[heap[child]]) {
+                child++;
+            }
+            if (times[index] <= times[heap[child]]) {
+                break;
+            }
+            move(heap[child], position);
+            position = child;
+        }
+        move(index, position);
+    }
+
+    private void move(int index, int position) {
+        heap[position] = index;
+        positions[index] = position;
+    }
+}
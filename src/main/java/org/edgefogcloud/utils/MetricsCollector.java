@@ -1,14 +1,20 @@
 package org.edgefogcloud.utils;
 
 import org.edgefogcloud.cloud.CloudDataCenter;
+import org.edgefogcloud.devices.DevicePopulation;
 import org.edgefogcloud.devices.IoTDevice;
 import org.edgefogcloud.edge.EdgeNode;
+import org.edgefogcloud.events.MetricsSampleEvent;
 import org.edgefogcloud.fog.FogNode;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -16,6 +22,8 @@ import java.util.logging.Logger;
  */
 public class MetricsCollector {
     private static final Logger LOGGER = Logger.getLogger(MetricsCollector.class.getName());
+    private static final SimulationLog.Category TIER_LOG =
+            SimulationLog.category(MetricsCollector.class, "tier", Level.FINE);
     
     // Time series metrics
     private Map<Integer, Double> latencyByTime;
@@ -64,9 +72,28 @@ public class MetricsCollector {
     
     public void collectMetrics(int currentTime, List<IoTDevice> iotDevices, List<EdgeNode> edgeNodes, 
                               List<FogNode> fogNodes, CloudDataCenter cloudDataCenter) {
+        collectMetrics(currentTime, DevicePopulation.Totals.of(iotDevices), iotDevices.size(),
+                edgeNodes, fogNodes, cloudDataCenter);
+    }
+    
+    /**
+     * Collects the metrics of a time step, summing the IoT tier over the devices of a population,
+     * which only iterates the devices still emitting
+     */
+    public void collectMetrics(int currentTime, DevicePopulation devicePopulation, List<EdgeNode> edgeNodes,
+                              List<FogNode> fogNodes, CloudDataCenter cloudDataCenter) {
+        collectMetrics(currentTime, devicePopulation.getTotals(), devicePopulation.size(),
+                edgeNodes, fogNodes, cloudDataCenter);
+    }
+    
+    private void collectMetrics(int currentTime, DevicePopulation.Totals iotTotals, int deviceCount,
+                                List<EdgeNode> edgeNodes, List<FogNode> fogNodes, CloudDataCenter cloudDataCenter) {
+        MetricsSampleEvent event = new MetricsSampleEvent();
+        event.begin();
+        
         // Calculate metrics for current time step
-        double currentLatency = calculateCurrentLatency(iotDevices, edgeNodes, fogNodes, cloudDataCenter);
-        double currentEnergyConsumption = calculateCurrentEnergyConsumption(iotDevices, edgeNodes, fogNodes, cloudDataCenter);
+        double currentLatency = calculateCurrentLatency(iotTotals, edgeNodes, fogNodes, cloudDataCenter);
+        double currentEnergyConsumption = calculateCurrentEnergyConsumption(iotTotals, edgeNodes, fogNodes, cloudDataCenter);
         double currentBandwidthUsage = calculateCurrentBandwidthUsage(fogNodes, cloudDataCenter);
         double currentDataReduction = calculateCurrentDataReduction(edgeNodes, fogNodes);
         
@@ -77,24 +104,28 @@ public class MetricsCollector {
         dataReductionByTime.put(currentTime, currentDataReduction);
         
         // Update layer-specific metrics
-        updateLayerMetrics(iotDevices, edgeNodes, fogNodes, cloudDataCenter);
+        updateLayerMetrics(iotTotals, edgeNodes, fogNodes, cloudDataCenter);
+        
+        TIER_LOG.log(() -> "Metrics collected for time " + currentTime);
         
-        LOGGER.fine("Metrics collected for time " + currentTime);
+        event.end();
+        if (event.shouldCommit()) {
+            event.setActivity("MetricsCollector", "Metrics", currentTime, cloudDataCenter.getTotalPacketsReceived(),
+                    (long) (cloudDataCenter.getTotalBandwidthUsed() * 1024 * 1024 * 1024));
+            event.setSample(deviceCount + edgeNodes.size() + fogNodes.size() + 1, currentLatency);
+            event.commit();
+        }
     }
     
-    private double calculateCurrentLatency(List<IoTDevice> iotDevices, List<EdgeNode> edgeNodes, 
+    private double calculateCurrentLatency(DevicePopulation.Totals iotTotals, List<EdgeNode> edgeNodes, 
                                          List<FogNode> fogNodes, CloudDataCenter cloudDataCenter) {
         // Calculate average latency across all devices and nodes
         double totalLatency = 0.0;
         int count = 0;
         
         // IoT device transmission latency
-        for (IoTDevice device : iotDevices) {
-            if (device.getTotalPacketsTransmitted() > 0) {
-                totalLatency += device.getAverageTransmissionLatency();
-                count++;
-            }
-        }
+        totalLatency += iotTotals.getAverageLatencySum();
+        count += iotTotals.getTransmittingDevices();
         
         // Edge processing latency
         for (EdgeNode edge : edgeNodes) {
@@ -121,14 +152,12 @@ public class MetricsCollector {
         return count > 0 ? totalLatency / count : 0.0;
     }
     
-    private double calculateCurrentEnergyConsumption(List<IoTDevice> iotDevices, List<EdgeNode> edgeNodes, 
+    private double calculateCurrentEnergyConsumption(DevicePopulation.Totals iotTotals, List<EdgeNode> edgeNodes, 
                                                   List<FogNode> fogNodes, CloudDataCenter cloudDataCenter) {
         double totalEnergy = 0.0;
         
         // IoT device energy consumption (in mWh, convert to Wh)
-        for (IoTDevice device : iotDevices) {
-            totalEnergy += device.getTotalEnergyConsumed() / 1000.0;
-        }
+        totalEnergy += iotTotals.getEnergyConsumed() / 1000.0;
         
         // Edge node energy consumption (in Wh)
         for (EdgeNode edge : edgeNodes) {
@@ -183,15 +212,11 @@ public class MetricsCollector {
         return count > 0 ? totalReduction / count : 0.0;
     }
     
-    private void updateLayerMetrics(List<IoTDevice> iotDevices, List<EdgeNode> edgeNodes, 
+    private void updateLayerMetrics(DevicePopulation.Totals iotTotals, List<EdgeNode> edgeNodes, 
                                   List<FogNode> fogNodes, CloudDataCenter cloudDataCenter) {
         // IoT layer metrics
-        double iotEnergy = 0.0;
-        int iotPackets = 0;
-        for (IoTDevice device : iotDevices) {
-            iotEnergy += device.getTotalEnergyConsumed() / 1000.0; // Convert mWh to Wh
-            iotPackets += device.getTotalPacketsGenerated();
-        }
+        double iotEnergy = iotTotals.getEnergyConsumed() / 1000.0; // Convert mWh to Wh
+        int iotPackets = (int) iotTotals.getPacketsGenerated();
         energyConsumptionByLayer.put("IoT", energyConsumptionByLayer.get("IoT") + iotEnergy);
         packetsByLayer.put("IoT", iotPackets);
         
@@ -354,4 +379,46 @@ public class MetricsCollector {
     public Map<String, Double> getProcessingTimeByLayer() {
         return new HashMap<>(processingTimeByLayer);
     }
+    
+    /**
+     * Discards the time series collected so far, e.g. the warm-up transient
+     */
+    public void clearTimeSeries() {
+        latencyByTime.clear();
+        energyConsumptionByTime.clear();
+        bandwidthUsageByTime.clear();
+        dataReductionByTime.clear();
+    }
+    
+    /**
+     * Writes the collected series and layer metrics for a checkpoint
+     * 
+     * @param out Checkpoint stream
+     * @throws IOException If the state cannot be written
+     */
+    public void saveState(DataOutput out) throws IOException {
+        CheckpointStreams.writeSeries(out, latencyByTime);
+        CheckpointStreams.writeSeries(out, energyConsumptionByTime);
+        CheckpointStreams.writeSeries(out, bandwidthUsageByTime);
+        CheckpointStreams.writeSeries(out, dataReductionByTime);
+        CheckpointStreams.writeDoubleMap(out, processingTimeByLayer);
+        CheckpointStreams.writeDoubleMap(out, energyConsumptionByLayer);
+        CheckpointStreams.writeIntMap(out, packetsByLayer);
+    }
+    
+    /**
+     * Restores the collected series and layer metrics from a checkpoint
+     * 
+     * @param in Checkpoint stream
+     * @throws IOException If the state cannot be read
+     */
+    public void restoreState(DataInput in) throws IOException {
+        CheckpointStreams.readSeries(in, latencyByTime);
+        CheckpointStreams.readSeries(in, energyConsumptionByTime);
+        CheckpointStreams.readSeries(in, bandwidthUsageByTime);
+        CheckpointStreams.readSeries(in, dataReductionByTime);
+        CheckpointStreams.readDoubleMap(in, processingTimeByLayer);
+        CheckpointStreams.readDoubleMap(in, energyConsumptionByLayer);
+        CheckpointStreams.readIntMap(in, packetsByLayer);
+    }
 }
@@ -10,13 +10,21 @@ import org.jfree.data.xy.XYSeriesCollection;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
- * Generates visualizations of simulation results
+ * Generates visualizations of simulation results.
+ * {@link #generateAllGraphs(MetricsCollector)} renders the charts concurrently; time series
+ * longer than the chart's point budget are downsampled with LTTB before being plotted.
  */
 public class ResultsVisualizer {
     private static final Logger LOGGER = Logger.getLogger(ResultsVisualizer.class.getName());
@@ -24,8 +32,26 @@ public class ResultsVisualizer {
     private static final String RESULTS_DIRECTORY = "results";
     private static final int CHART_WIDTH = 800;
     private static final int CHART_HEIGHT = 600;
+    private static final int CHART_COUNT = 5;
+    
+    private final int renderThreads;
+    private final int maxSeriesPoints;
     
     public ResultsVisualizer() {
+        this(0, 2);
+    }
+    
+    /**
+     * Creates a visualizer
+     * 
+     * @param renderThreads Threads rendering the charts, 0 for one per chart up to the CPU count
+     * @param pointsPerPixel Points plotted per horizontal pixel of a time series chart
+     */
+    public ResultsVisualizer(int renderThreads, int pointsPerPixel) {
+        this.renderThreads = renderThreads > 0 ? renderThreads
+                : Math.min(CHART_COUNT, Runtime.getRuntime().availableProcessors());
+        this.maxSeriesPoints = Math.max(3, pointsPerPixel * CHART_WIDTH);
+        
         // Create results directory if it doesn't exist
         File resultsDir = new File(RESULTS_DIRECTORY);
         if (!resultsDir.exists()) {
@@ -34,20 +60,43 @@ public class ResultsVisualizer {
         }
     }
     
+    /**
+     * Renders all charts concurrently and waits for them. The metrics must no longer change.
+     * 
+     * @param metricsCollector The metrics collector containing simulation data
+     */
+    public void generateAllGraphs(MetricsCollector metricsCollector) {
+        ExecutorService executor = Executors.newFixedThreadPool(renderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "chart-renderer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> charts = new ArrayList<>();
+            charts.add(executor.submit(() -> generateLatencyGraph(metricsCollector)));
+            charts.add(executor.submit(() -> generateDataReductionGraph(metricsCollector)));
+            charts.add(executor.submit(() -> generateEnergyConsumptionGraph(metricsCollector)));
+            charts.add(executor.submit(() -> generateBandwidthUsageGraph(metricsCollector)));
+            charts.add(executor.submit(() -> generateProcessingDistributionGraph(metricsCollector)));
+            for (Future<?> chart : charts) {
+                try {
+                    chart.get();
+                } catch (ExecutionException e) {
+                    LOGGER.log(Level.SEVERE, "Error generating chart", e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
     public void generateLatencyGraph(MetricsCollector metricsCollector) {
         try {
             // Create dataset for latency over time
             XYSeriesCollection dataset = new XYSeriesCollection();
-            XYSeries series = new XYSeries("End-to-End Latency");
-            
-            // Sort time points for proper visualization
-            Map<Integer, Double> sortedLatencyData = new TreeMap<>(metricsCollector.getLatencyByTime());
-            
-            for (Map.Entry<Integer, Double> entry : sortedLatencyData.entrySet()) {
-                series.add(entry.getKey(), entry.getValue());
-            }
-            
-            dataset.addSeries(series);
+            dataset.addSeries(toSeries("End-to-End Latency", metricsCollector.getLatencyByTime()));
             
             // Create chart
             JFreeChart chart = ChartFactory.createXYLineChart(
@@ -150,16 +199,7 @@ public class ResultsVisualizer {
         try {
             // Create dataset for bandwidth usage over time
             XYSeriesCollection dataset = new XYSeriesCollection();
-            XYSeries series = new XYSeries("Bandwidth Usage");
-            
-            // Sort time points for proper visualization
-            Map<Integer, Double> sortedBandwidthData = new TreeMap<>(metricsCollector.getBandwidthUsageByTime());
-            
-            for (Map.Entry<Integer, Double> entry : sortedBandwidthData.entrySet()) {
-                series.add(entry.getKey(), entry.getValue());
-            }
-            
-            dataset.addSeries(series);
+            dataset.addSeries(toSeries("Bandwidth Usage", metricsCollector.getBandwidthUsageByTime()));
             
             // Create chart
             JFreeChart chart = ChartFactory.createXYLineChart(
@@ -229,4 +269,72 @@ public class ResultsVisualizer {
             LOGGER.log(Level.SEVERE, "Error generating processing distribution chart", e);
         }
     }
+    
+    /**
+     * Builds a time series, downsampled with LTTB (largest-triangle-three-buckets) when it has
+     * more points than the chart can show. LTTB keeps the first and last points and, from each
+     * bucket in between, the point forming the largest triangle with the point kept before it
+     * and the average of the next bucket, so peaks and drops survive the reduction.
+     * 
+     * @param key Series name
+     * @param data Values by simulation time
+     * @return The series, sorted by time
+     */
+    XYSeries toSeries(String key, Map<Integer, Double> data) {
+        // Sort time points for proper visualization
+        Map<Integer, Double> sorted = new TreeMap<>(data);
+        int count = sorted.size();
+        double[] x = new double[count];
+        double[] y = new double[count];
+        int i = 0;
+        for (Map.Entry<Integer, Double> entry : sorted.entrySet()) {
+            x[i] = entry.getKey();
+            y[i] = entry.getValue();
+            i++;
+        }
+        
+        // Already sorted, so neither sorting nor change events are needed while filling
+        XYSeries series = new XYSeries(key, false, true);
+        if (count <= maxSeriesPoints) {
+            for (i = 0; i < count; i++) {
+                series.add(x[i], y[i], false);
+            }
+            return series;
+        }
+        
+        double bucketSize = (double) (count - 2) / (maxSeriesPoints - 2);
+        int selected = 0;
+        series.add(x[0], y[0], false);
+        for (int bucket = 0; bucket < maxSeriesPoints - 2; bucket++) {
+            // Average of the next bucket, the last point for the last bucket
+            int nextStart = (int) ((bucket + 1) * bucketSize) + 1;
+            int nextEnd = Math.min((int) ((bucket + 2) * bucketSize) + 1, count);
+            double averageX = 0.0;
+            double averageY = 0.0;
+            for (int j = nextStart; j < nextEnd; j++) {
+                averageX += x[j];
+                averageY += y[j];
+            }
+            averageX /= nextEnd - nextStart;
+            averageY /= nextEnd - nextStart;
+            
+            int start = (int) (bucket * bucketSize) + 1;
+            int end = (int) ((bucket + 1) * bucketSize) + 1;
+            double maxArea = -1.0;
+            int next = start;
+            for (int j = start; j < end; j++) {
+                // Twice the triangle's area, enough for the comparison
+                double area = Math.abs((x[selected] - averageX) * (y[j] - y[selected])
+                        - (x[selected] - x[j]) * (averageY - y[selected]));
+                if (area > maxArea) {
+                    maxArea = area;
+                    next = j;
+                }
+            }
+            series.add(x[next], y[next], false);
+            selected = next;
+        }
+        series.add(x[count - 1], y[count - 1], true);
+        return series;
+    }
 }
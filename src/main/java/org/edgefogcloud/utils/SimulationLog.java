@@ -0,0 +1,192 @@
+package org.edgefogcloud.utils;
+
+import java.text.MessageFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import org.apache.logging.log4j.LogManager;
+
+/**
+ * Logging for the per-packet and per-second paths of the simulation.
+ * Messages are built by a supplier only once their level is enabled, then sampled and
+ * rate limited per category, so a disabled category costs a single level check:
+ * <pre>
+ * private static final SimulationLog.Category PACKET_LOG = SimulationLog.category(EdgeNode.class, "packet", Level.FINE);
+ * PACKET_LOG.log(() -&gt; "Edge Node " + nodeId + " received data packet from " + deviceId);
+ * </pre>
+ * Category sampling ({@code logging.sample.<category>}, one message out of N) and rate limits
+ * ({@code logging.rate_limit.<category>}, messages per wall-clock second) are read by
+ * {@link #configure(ConfigManager)}. With {@code logging.async}, java.util.logging records are
+ * handed to the asynchronous log4j2 appender of log4j2.xml instead of being written on the
+ * simulation thread.
+ * <p>
+ * Categories are meant for the single simulation thread and are not synchronized.
+ */
+public final class SimulationLog {
+    private static final Map<String, Category> CATEGORIES = new ConcurrentHashMap<>();
+    private static volatile ConfigManager configManager;
+
+    private SimulationLog() {
+    }
+
+    /**
+     * Gets the category of a class, creating it on first use
+     *
+     * @param owner Class logging the messages, naming the java.util.logging logger
+     * @param name Category name, shared by all classes logging the same kind of messages
+     * @param level Level the category logs at
+     * @return The category
+     */
+    public static Category category(Class<?> owner, String name, Level level) {
+        return CATEGORIES.computeIfAbsent(owner.getName() + "#" + name,
+                key -> new Category(Logger.getLogger(owner.getName()), name, level));
+    }
+
+    /**
+     * Applies the sampling and rate limits of the configuration to every category,
+     * including those created later, and installs the asynchronous appender if enabled
+     *
+     * @param config The configuration
+     */
+    public static void configure(ConfigManager config) {
+        configManager = config;
+        for (Category category : CATEGORIES.values()) {
+            category.configure(config);
+        }
+        if (config.isAsyncLoggingEnabled()) {
+            installAsyncAppender();
+        }
+    }
+
+    /**
+     * Routes the records of the simulation loggers to the "org.edgefogcloud" log4j2 logger,
+     * whose asynchronous appender formats and writes them on a background thread
+     */
+    public static void installAsyncAppender() {
+        Logger simulationLogger = Logger.getLogger("org.edgefogcloud");
+        for (Handler handler : simulationLogger.getHandlers()) {
+            if (handler instanceof Log4j2Handler) {
+                return;
+            }
+        }
+        simulationLogger.addHandler(new Log4j2Handler());
+        simulationLogger.setUseParentHandlers(false);
+    }
+
+    /**
+     * Kind of message logged at a fixed level, with its own sampling and rate limit
+     */
+    public static final class Category {
+        private static final long WINDOW = 1_000_000_000L; // in ns
+
+        private final Logger logger;
+        private final String name;
+        private final Level level;
+        private int sampleEvery;
+        private int maxPerSecond; // 0 for unlimited
+
+        private long count;
+        private long windowStart;
+        private int windowCount;
+        private long suppressed;
+
+        Category(Logger logger, String name, Level level) {
+            this.logger = logger;
+            this.name = name;
+            this.level = level;
+            this.sampleEvery = 1;
+            if (configManager != null) {
+                configure(configManager);
+            }
+        }
+
+        void configure(ConfigManager config) {
+            sampleEvery = Math.max(1, config.getLoggingSampleRate(name));
+            maxPerSecond = Math.max(0, config.getLoggingRateLimit(name));
+        }
+
+        public boolean isEnabled() {
+            return logger.isLoggable(level);
+        }
+
+        /**
+         * Logs a message if its level is enabled and the sampling and rate limit let it through.
+         * The number of messages suppressed since the last one logged is appended to it.
+         *
+         * @param message Builds the message, only called if it is logged
+         */
+        public void log(Supplier<String> message) {
+            if (!logger.isLoggable(level)) {
+                return;
+            }
+            if (count++ % sampleEvery != 0) {
+                suppressed++;
+                return;
+            }
+            if (maxPerSecond > 0) {
+                long now = System.nanoTime();
+                if (now - windowStart >= WINDOW) {
+                    windowStart = now;
+                    windowCount = 0;
+                }
+                if (windowCount >= maxPerSecond) {
+                    suppressed++;
+                    return;
+                }
+                windowCount++;
+            }
+
+            String text = message.get();
+            if (suppressed > 0) {
+                text += " (" + suppressed + " similar " + name + " messages suppressed)";
+                suppressed = 0;
+            }
+            logger.log(level, text);
+        }
+    }
+
+    /**
+     * Hands java.util.logging records to log4j2
+     */
+    private static class Log4j2Handler extends Handler {
+        @Override
+        public void publish(LogRecord record) {
+            if (record == null || !isLoggable(record)) {
+                return;
+            }
+            String message = record.getMessage();
+            if (record.getParameters() != null && record.getParameters().length > 0) {
+                message = MessageFormat.format(message, record.getParameters());
+            }
+            LogManager.getLogger(record.getLoggerName()).log(toLog4jLevel(record.getLevel()), message, record.getThrown());
+        }
+
+        private static org.apache.logging.log4j.Level toLog4jLevel(Level level) {
+            int value = level.intValue();
+            if (value >= Level.SEVERE.intValue()) {
+                return org.apache.logging.log4j.Level.ERROR;
+            } else if (value >= Level.WARNING.intValue()) {
+                return org.apache.logging.log4j.Level.WARN;
+            } else if (value >= Level.INFO.intValue()) {
+                return org.apache.logging.log4j.Level.INFO;
+            } else if (value >= Level.FINE.intValue()) {
+                return org.apache.logging.log4j.Level.DEBUG;
+            }
+            return org.apache.logging.log4j.Level.TRACE;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+            LogManager.shutdown();
+        }
+    }
+}
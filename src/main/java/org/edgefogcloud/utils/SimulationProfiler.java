@@ -0,0 +1,292 @@
+package org.edgefogcloud.utils;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Profiles where the wall time and the allocations of a run go.
+ * Each phase of the simulation thread (packet generation, the edge, fog and cloud tiers, the
+ * metrics collection) is timed with {@link System#nanoTime()} and its allocations are read from
+ * the thread's allocation counter; whatever the CloudSim Plus event loop spends outside of these
+ * phases is attributed to CloudSim itself. Totals are reported as a table and per interval of
+ * processed seconds as a time series.
+ * <p>
+ * A disabled profiler returns from every call after a single field check.
+ */
+public class SimulationProfiler {
+    private static final Logger LOGGER = Logger.getLogger(SimulationProfiler.class.getName());
+
+    /**
+     * Profiled phases, with the layer they belong to
+     */
+    public enum Phase {
+        GENERATION("IoT"),
+        EDGE("Edge"),
+        FOG("Fog"),
+        CLOUD("Cloud"),
+        METRICS("Metrics"),
+        CLOUDSIM("CloudSim");
+
+        private final String layer;
+
+        Phase(String layer) {
+            this.layer = layer;
+        }
+
+        public String getLayer() {
+            return layer;
+        }
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private final boolean enabled;
+    private final int interval; // in processed seconds
+    private final com.sun.management.ThreadMXBean threadBean;
+
+    // Totals per phase
+    private final long[] calls;
+    private final long[] nanos;
+    private final long[] bytes;
+
+    // Start of the phase being measured; tier phases never nest
+    private long phaseStartNanos;
+    private long phaseStartBytes;
+
+    // Event loop, whose time outside of the tier phases is CloudSim's own
+    private long loopStartNanos;
+    private long loopStartBytes;
+    private long loopNanos;
+    private long loopBytes;
+    private boolean inLoop;
+
+    // Time series: processed seconds, then nanos and bytes of every phase since the previous row
+    private final List<long[]> timeSeries;
+    private long intervalStartNanos;
+    private long intervalStartBytes;
+    private final long[] intervalStartPhaseNanos;
+    private final long[] intervalStartPhaseBytes;
+
+    /**
+     * Creates a profiler
+     *
+     * @param enabled Whether the phases are measured at all
+     * @param interval Processed seconds covered by each row of the time series
+     */
+    public SimulationProfiler(boolean enabled, int interval) {
+        this.interval = Math.max(1, interval);
+        this.calls = new long[PHASES.length];
+        this.nanos = new long[PHASES.length];
+        this.bytes = new long[PHASES.length];
+        this.timeSeries = new ArrayList<>();
+        this.intervalStartPhaseNanos = new long[PHASES.length];
+        this.intervalStartPhaseBytes = new long[PHASES.length];
+
+        com.sun.management.ThreadMXBean bean = null;
+        if (enabled && ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean) {
+            bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            if (bean.isThreadAllocatedMemorySupported()) {
+                bean.setThreadAllocatedMemoryEnabled(true);
+            } else {
+                bean = null;
+            }
+        }
+        if (enabled && bean == null) {
+            LOGGER.warning("Thread allocation counters are not supported by this JVM, only wall time is profiled");
+        }
+        this.threadBean = bean;
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts measuring a tier phase
+     */
+    public void begin() {
+        if (!enabled) {
+            return;
+        }
+        phaseStartBytes = allocatedBytes();
+        phaseStartNanos = System.nanoTime();
+    }
+
+    /**
+     * Stops measuring a tier phase started with {@link #begin()}
+     *
+     * @param phase The phase measured
+     */
+    public void end(Phase phase) {
+        if (!enabled) {
+            return;
+        }
+        long elapsed = System.nanoTime() - phaseStartNanos;
+        int index = phase.ordinal();
+        calls[index]++;
+        nanos[index] += elapsed;
+        bytes[index] += allocatedBytes() - phaseStartBytes;
+    }
+
+    /**
+     * Starts measuring the CloudSim Plus event loop, i.e. {@code simulation.start()}
+     */
+    public void beginEventLoop() {
+        if (!enabled) {
+            return;
+        }
+        inLoop = true;
+        loopStartBytes = allocatedBytes();
+        loopStartNanos = System.nanoTime();
+        intervalStartBytes = loopStartBytes;
+        intervalStartNanos = loopStartNanos;
+    }
+
+    /**
+     * Stops measuring the event loop, attributing its time outside of the tier phases to CloudSim
+     */
+    public void endEventLoop() {
+        if (!enabled || !inLoop) {
+            return;
+        }
+        loopNanos += System.nanoTime() - loopStartNanos;
+        loopBytes += allocatedBytes() - loopStartBytes;
+        inLoop = false;
+
+        int cloudSim = Phase.CLOUDSIM.ordinal();
+        calls[cloudSim]++;
+        nanos[cloudSim] = loopNanos - sumOtherPhases(nanos);
+        bytes[cloudSim] = loopBytes - sumOtherPhases(bytes);
+    }
+
+    /**
+     * Adds a row to the time series every interval of processed seconds
+     *
+     * @param processedSeconds Number of seconds processed so far
+     */
+    public void onStepFinished(int processedSeconds) {
+        if (!enabled || !inLoop || processedSeconds % interval != 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        long allocated = allocatedBytes();
+
+        long[] row = new long[1 + 2 * PHASES.length];
+        row[0] = processedSeconds;
+        long tierNanos = 0;
+        long tierBytes = 0;
+        for (Phase phase : PHASES) {
+            int index = phase.ordinal();
+            if (phase != Phase.CLOUDSIM) {
+                row[1 + 2 * index] = nanos[index] - intervalStartPhaseNanos[index];
+                row[2 + 2 * index] = bytes[index] - intervalStartPhaseBytes[index];
+                tierNanos += row[1 + 2 * index];
+                tierBytes += row[2 + 2 * index];
+                intervalStartPhaseNanos[index] = nanos[index];
+                intervalStartPhaseBytes[index] = bytes[index];
+            }
+        }
+        int cloudSim = Phase.CLOUDSIM.ordinal();
+        row[1 + 2 * cloudSim] = Math.max(0, now - intervalStartNanos - tierNanos);
+        row[2 + 2 * cloudSim] = Math.max(0, allocated - intervalStartBytes - tierBytes);
+        timeSeries.add(row);
+
+        intervalStartNanos = now;
+        intervalStartBytes = allocated;
+    }
+
+    private long sumOtherPhases(long[] totals) {
+        long sum = 0;
+        for (Phase phase : PHASES) {
+            if (phase != Phase.CLOUDSIM) {
+                sum += totals[phase.ordinal()];
+            }
+        }
+        return sum;
+    }
+
+    private long allocatedBytes() {
+        return threadBean != null ? threadBean.getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+    }
+
+    public long getPhaseNanos(Phase phase) {
+        return nanos[phase.ordinal()];
+    }
+
+    public long getPhaseAllocatedBytes(Phase phase) {
+        return bytes[phase.ordinal()];
+    }
+
+    /**
+     * Displays the wall time and allocations of every phase
+     */
+    public void displayProfile() {
+        if (!enabled) {
+            return;
+        }
+        long totalNanos = 0;
+        long totalBytes = 0;
+        for (Phase phase : PHASES) {
+            totalNanos += nanos[phase.ordinal()];
+            totalBytes += bytes[phase.ordinal()];
+        }
+
+        System.out.println("\n=== Simulation Profile ===");
+        System.out.printf("%-12s %-9s %10s %12s %7s %14s %12s\n",
+                "Phase", "Layer", "Calls", "Wall (ms)", "Wall %", "Allocated (MB)", "Bytes/call");
+        for (Phase phase : PHASES) {
+            int index = phase.ordinal();
+            System.out.printf("%-12s %-9s %10d %12.1f %6.1f%% %14.1f %12d\n",
+                    phase, phase.getLayer(), calls[index], nanos[index] / 1e6,
+                    totalNanos > 0 ? nanos[index] * 100.0 / totalNanos : 0.0,
+                    bytes[index] / (1024.0 * 1024.0), calls[index] > 0 ? bytes[index] / calls[index] : 0);
+        }
+        System.out.printf("%-12s %-9s %10s %12.1f %6.1f%% %14.1f\n",
+                "Total", "", "", totalNanos / 1e6, 100.0, totalBytes / (1024.0 * 1024.0));
+        System.out.printf("Time series: %d intervals of %d s\n", timeSeries.size(), interval);
+    }
+
+    /**
+     * Writes the per-interval time series as CSV
+     *
+     * @param file The CSV file
+     */
+    public void exportTimeSeries(Path file) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file))) {
+                StringBuilder header = new StringBuilder("processed_seconds");
+                for (Phase phase : PHASES) {
+                    String name = phase.name().toLowerCase();
+                    header.append(',').append(name).append("_ms,").append(name).append("_bytes");
+                }
+                writer.println(header);
+                for (long[] row : timeSeries) {
+                    StringBuilder line = new StringBuilder().append(row[0]);
+                    for (int index = 0; index < PHASES.length; index++) {
+                        line.append(',').append(String.format(Locale.ROOT, "%.3f", row[1 + 2 * index] / 1e6))
+                                .append(',').append(row[2 + 2 * index]);
+                    }
+                    writer.println(line);
+                }
+            }
+            LOGGER.info("Profile time series written to " + file);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not write profile time series " + file, e);
+        }
+    }
+}
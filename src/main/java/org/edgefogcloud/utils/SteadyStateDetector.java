@@ -0,0 +1,81 @@
+package org.edgefogcloud.utils;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Detects the end of the warm-up transient of a metric series with MSER-5
+ * (Marginal Standard Error Rule on batch means of 5 observations).
+ * The truncation point minimizes the squared standard error of the mean of the
+ * remaining batches; only the first half of the series is considered, as a
+ * truncation point beyond it means the run is too short to reach steady state.
+ */
+public final class SteadyStateDetector {
+    private static final int BATCH_SIZE = 5;
+
+    private SteadyStateDetector() {
+    }
+
+    /**
+     * Gets the MSER-5 truncation point of a series
+     *
+     * @param series Observations in time order
+     * @return Number of leading observations to discard
+     */
+    public static int getTruncationPoint(double[] series) {
+        int batches = series.length / BATCH_SIZE;
+        if (batches < 2) {
+            return 0;
+        }
+
+        double[] batchMeans = new double[batches];
+        for (int b = 0; b < batches; b++) {
+            double sum = 0.0;
+            for (int i = b * BATCH_SIZE; i < (b + 1) * BATCH_SIZE; i++) {
+                sum += series[i];
+            }
+            batchMeans[b] = sum / BATCH_SIZE;
+        }
+
+        // Suffix sums give the mean and variance of batches d..end in O(1) per candidate
+        double[] suffixSum = new double[batches + 1];
+        double[] suffixSquares = new double[batches + 1];
+        for (int b = batches - 1; b >= 0; b--) {
+            suffixSum[b] = suffixSum[b + 1] + batchMeans[b];
+            suffixSquares[b] = suffixSquares[b + 1] + batchMeans[b] * batchMeans[b];
+        }
+
+        int bestBatch = 0;
+        double bestStatistic = Double.POSITIVE_INFINITY;
+        for (int d = 0; d <= batches / 2; d++) {
+            int remaining = batches - d;
+            double mean = suffixSum[d] / remaining;
+            double squaredDeviations = Math.max(0.0, suffixSquares[d] - remaining * mean * mean);
+            double statistic = squaredDeviations / ((double) remaining * remaining);
+            if (statistic < bestStatistic) {
+                bestStatistic = statistic;
+                bestBatch = d;
+            }
+        }
+        return bestBatch * BATCH_SIZE;
+    }
+
+    /**
+     * Gets the MSER-5 truncation time of a series indexed by simulation second
+     *
+     * @param seriesByTime Observations by second, as collected by the {@link MetricsCollector}
+     * @return First second of the steady state
+     */
+    public static int getTruncationTime(Map<Integer, Double> seriesByTime) {
+        TreeMap<Integer, Double> ordered = new TreeMap<>(seriesByTime);
+        double[] series = new double[ordered.size()];
+        int[] times = new int[ordered.size()];
+        int i = 0;
+        for (Map.Entry<Integer, Double> entry : ordered.entrySet()) {
+            times[i] = entry.getKey();
+            series[i++] = entry.getValue();
+        }
+        int truncation = getTruncationPoint(series);
+        return series.length == 0 ? 0 : times[Math.min(truncation, times.length - 1)];
+    }
+}
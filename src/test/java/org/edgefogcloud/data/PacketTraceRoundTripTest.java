@@ -0,0 +1,95 @@
+package org.edgefogcloud.data;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PacketTraceRoundTripTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsBackEveryPacketWritten() throws IOException {
+        Path file = directory.resolve("traffic.trace");
+        // Enough packets to span several mapped chunks
+        int count = 20_000;
+        Random random = new Random(7);
+        double[] timestamps = new double[count];
+        String[] devices = new String[count];
+        String[] dataTypes = new String[count];
+        int[] sizes = new int[count];
+        try (PacketTraceWriter writer = new PacketTraceWriter(file)) {
+            double time = 0.0;
+            for (int i = 0; i < count; i++) {
+                time += random.nextDouble();
+                timestamps[i] = time;
+                devices[i] = "IoT-Device-" + random.nextInt(500);
+                dataTypes[i] = PacketTraceReader.DATA_TYPES[random.nextInt(PacketTraceReader.DATA_TYPES.length)];
+                sizes[i] = random.nextInt(1 << 20);
+                writer.write(timestamps[i], devices[i], dataTypes[i], sizes[i]);
+            }
+        }
+
+        try (PacketTraceReader reader = new PacketTraceReader(file, PacketTraceReader.Format.BINARY, 0)) {
+            for (int i = 0; i < count; i++) {
+                assertTrue(reader.next());
+                assertEquals(timestamps[i], reader.getTimestamp());
+                assertEquals(devices[i], reader.getDevice());
+                assertEquals(dataTypes[i], reader.getDataType());
+                assertEquals(sizes[i], reader.getSize());
+            }
+            assertFalse(reader.next());
+            assertEquals(count, reader.getRecordsRead());
+            assertEquals(Files.size(file), reader.getPosition());
+        }
+    }
+
+    @Test
+    void convertsACsvTrace() throws IOException {
+        Path csv = directory.resolve("traffic.csv");
+        Files.write(csv, ("timestamp,device,type,size\r\n"
+                + "0.5,sensor-1,SENSOR_DATA,128\r\n"
+                + "\r\n"
+                + "1.25, camera-\u00e9 ,VIDEO_DATA,4096\n"
+                + "2,sensor-1,CUSTOM_DATA,64").getBytes(StandardCharsets.UTF_8));
+        Path binary = directory.resolve("traffic.trace");
+        PacketTraceWriter.main(new String[]{csv.toString(), binary.toString()});
+
+        try (PacketTraceReader reader = new PacketTraceReader(binary, PacketTraceReader.Format.of(binary), 0)) {
+            assertTrue(reader.next());
+            assertEquals(0.5, reader.getTimestamp());
+            assertEquals("sensor-1", reader.getDevice());
+            assertEquals("SENSOR_DATA", reader.getDataType());
+            assertEquals(128, reader.getSize());
+
+            assertTrue(reader.next());
+            assertEquals(1.25, reader.getTimestamp());
+            assertEquals("camera-\u00e9", reader.getDevice());
+            assertEquals("VIDEO_DATA", reader.getDataType());
+            assertEquals(4096, reader.getSize());
+
+            // Data types outside the known ones are not encoded
+            assertTrue(reader.next());
+            assertEquals("sensor-1", reader.getDevice());
+            assertEquals("UNKNOWN", reader.getDataType());
+            assertFalse(reader.next());
+        }
+    }
+
+    @Test
+    void rejectsFilesThatAreNotTraces() throws IOException {
+        Path file = directory.resolve("other.bin");
+        Files.write(file, "NOTATRACE-------".getBytes(StandardCharsets.US_ASCII));
+        assertThrows(IOException.class, () -> new PacketTraceReader(file, PacketTraceReader.Format.BINARY, 0));
+    }
+}
@@ -0,0 +1,103 @@
+package org.edgefogcloud.devices;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ArrivalProcessTest {
+    private static final double RATE = 2.0; // packets per second
+    private static final double HORIZON = 400_000.0; // in seconds
+
+    @Test
+    void deterministicEmitsAtFixedIntervals() {
+        ArrivalProcess process = new ArrivalProcess.Deterministic(RATE, new Random(1));
+        assertEquals(0.0, process.firstArrivalTime());
+        assertEquals(10.5, process.nextArrivalTime(10.0));
+        assertEquals(RATE, countArrivals(process, 1000.0) / 1000.0, 1e-9);
+    }
+
+    @Test
+    void poissonAveragesTheRate() {
+        ArrivalProcess process = new ArrivalProcess.Poisson(RATE, new Random(2));
+        assertEquals(RATE, countArrivals(process, HORIZON) / HORIZON, RATE * 0.01);
+    }
+
+    @Test
+    void mmppAveragesTheRateWhileBursting() {
+        ArrivalProcess process = new ArrivalProcess.Mmpp(RATE, new Random(3), 10.0, 0.1, 30.0);
+        // Long enough for thousands of bursts
+        double horizon = 10 * HORIZON;
+        assertEquals(RATE, countArrivals(process, horizon) / horizon, RATE * 0.02);
+
+        // Bursts make the counts per interval overdispersed, unlike Poisson counts
+        ArrivalProcess bursty = new ArrivalProcess.Mmpp(RATE, new Random(4), 10.0, 0.1, 30.0);
+        assertTrue(indexOfDispersion(bursty, 60.0) > 5.0);
+        ArrivalProcess poisson = new ArrivalProcess.Poisson(RATE, new Random(4));
+        assertEquals(1.0, indexOfDispersion(poisson, 60.0), 0.2);
+    }
+
+    @Test
+    void diurnalAveragesTheRateOverWholePeriods() {
+        double period = 3600.0;
+        ArrivalProcess process = new ArrivalProcess.Diurnal(RATE, new Random(5), 0.8, period, 900.0);
+        // A whole number of periods
+        double horizon = 100 * period;
+        assertEquals(RATE, countArrivals(process, horizon) / horizon, RATE * 0.01);
+
+        // Most arrivals fall in the half period around the peak
+        ArrivalProcess peaked = new ArrivalProcess.Diurnal(RATE, new Random(6), 0.8, period, 900.0);
+        long aroundPeak = 0;
+        long total = 0;
+        for (double time = peaked.firstArrivalTime(); time < horizon; time = peaked.nextArrivalTime(time)) {
+            double phase = ((time - 900.0) % period + period) % period;
+            if (phase < period / 4 || phase >= 3 * period / 4) {
+                aroundPeak++;
+            }
+            total++;
+        }
+        // 1/2 + 0.8/pi of the arrivals in expectation
+        assertEquals(0.5 + 0.8 / Math.PI, (double) aroundPeak / total, 0.01);
+    }
+
+    @Test
+    void onOffAveragesTheRateAcrossPeriods() {
+        ArrivalProcess process = new ArrivalProcess.OnOff(RATE, new Random(7), 1.9, 10.0, 30.0);
+        double horizon = 10 * HORIZON;
+        // Heavy-tailed periods converge slowly
+        assertEquals(RATE, countArrivals(process, horizon) / horizon, RATE * 0.05);
+    }
+
+    private static long countArrivals(ArrivalProcess process, double horizon) {
+        long count = 0;
+        for (double time = process.firstArrivalTime(); time < horizon; time = process.nextArrivalTime(time)) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Variance over mean of the arrival counts in consecutive intervals
+     */
+    private static double indexOfDispersion(ArrivalProcess process, double interval) {
+        int intervals = (int) (HORIZON / interval);
+        long[] counts = new long[intervals];
+        double horizon = intervals * interval;
+        for (double time = process.firstArrivalTime(); time < horizon; time = process.nextArrivalTime(time)) {
+            counts[(int) (time / interval)]++;
+        }
+        double mean = 0.0;
+        for (long count : counts) {
+            mean += count;
+        }
+        mean /= intervals;
+        double variance = 0.0;
+        for (long count : counts) {
+            variance += (count - mean) * (count - mean);
+        }
+        variance /= intervals - 1;
+        return variance / mean;
+    }
+}
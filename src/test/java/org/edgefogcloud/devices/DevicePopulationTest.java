@@ -0,0 +1,180 @@
+package org.edgefogcloud.devices;
+
+import org.edgefogcloud.data.DataPacket;
+import org.edgefogcloud.edge.EdgeNode;
+import org.edgefogcloud.utils.ConfigManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DevicePopulationTest {
+    // An actuator spends size / 36000 of its 3000 battery units per packet
+    private static final int DRAINING_PACKET_SIZE = 45_000_000;
+
+    private ConfigManager configManager;
+    private EdgeNode edgeNode;
+
+    @BeforeEach
+    void configure() {
+        configManager = new ConfigManager();
+        configManager.setProperty("network.wireless.bandwidth", "1000");
+        configManager.setProperty("iot.arrival.process", "DETERMINISTIC");
+        configManager.setProperty("iot.lifecycle.low_power_threshold", "0.2");
+        configManager.setProperty("iot.lifecycle.recharge_time", "0");
+        configManager.setProperty("iot.lifecycle.churn.mean_session", "0");
+        configManager.setProperty("iot.energy.harvest.profile", "NONE");
+        configManager.setProperty("iot.energy.duty_cycle.awake_fraction", "1.0");
+        configManager.setProperty("iot.energy.duty_cycle.awake_power", "0");
+        configManager.setProperty("iot.energy.duty_cycle.sleep_power", "0");
+        edgeNode = new EdgeNode("Edge-0", configManager);
+    }
+
+    @Test
+    void devicesGoToLowPowerThenDeplete() {
+        DevicePopulation population = new DevicePopulation(configManager, 2);
+        IoTDevice device = createDevice(population, "actuator", "ACTUATOR");
+        createDevice(population, "sensor", "SENSOR");
+
+        release(device, 0.0);
+        release(device, 1.0);
+        // 500 units left, below 20% of the capacity
+        assertEquals(DeviceState.LOW_POWER, device.getState());
+        assertEquals(2, population.getActiveDeviceCount());
+        assertEquals(1, population.getDeviceCount(DeviceState.LOW_POWER));
+
+        release(device, 2.0);
+        assertEquals(DeviceState.DEPLETED, device.getState());
+        assertEquals(0.0, device.getCurrentBatteryLevel());
+        assertEquals(1, population.getActiveDeviceCount());
+        assertEquals(1, population.getDeviceCount(DeviceState.DEPLETED));
+        assertEquals(Double.POSITIVE_INFINITY, device.getNextEmissionTime(2.0));
+
+        // Packets scheduled before the depletion are dropped
+        release(device, 3.0);
+        assertEquals(1, population.getPacketsDropped());
+        assertEquals(3, device.getTotalPacketsGenerated());
+    }
+
+    @Test
+    void lowPowerDevicesEmitAtTheirDutyCycle() {
+        configManager.setProperty("iot.lifecycle.low_power_duty_cycle", "0.5");
+        DevicePopulation population = new DevicePopulation(configManager, 1);
+        IoTDevice device = createDevice(population, "actuator", "ACTUATOR");
+
+        // Every 2 seconds at 0.5 packets per second, twice that in low power
+        assertEquals(12.0, device.getNextEmissionTime(10.0));
+        release(device, 0.0);
+        release(device, 1.0);
+        assertEquals(DeviceState.LOW_POWER, device.getState());
+        assertEquals(14.0, device.getNextEmissionTime(10.0));
+    }
+
+    @Test
+    void rechargedDevicesComeBackWithAFullBattery() {
+        configManager.setProperty("iot.lifecycle.recharge_time", "100");
+        DevicePopulation population = new DevicePopulation(configManager, 1);
+        IoTDevice device = createDevice(population, "actuator", "ACTUATOR");
+
+        release(device, 0.0);
+        release(device, 1.0);
+        release(device, 2.0);
+        assertEquals(DeviceState.RECHARGING, device.getState());
+        assertEquals(0, population.getActiveDeviceCount());
+        assertTrue(device.isEmittingAt(102.0));
+        // The next emission waits for the recharge
+        assertTrue(device.getNextEmissionTime(2.0) >= 102.0);
+
+        population.advanceTo(101.0);
+        assertEquals(DeviceState.RECHARGING, device.getState());
+        population.advanceTo(102.0);
+        assertEquals(DeviceState.ACTIVE, device.getState());
+        assertEquals(3000.0, device.getCurrentBatteryLevel());
+        assertEquals(1, population.getActiveDeviceCount());
+        assertEquals(100.0 / 3600, population.getDeviceHoursLost().get("ACTUATOR")[DeviceState.RECHARGING.ordinal()], 1e-12);
+        assertTotalsMatch(population, List.of(device));
+    }
+
+    @Test
+    void totalsMatchTheSumOfEveryDeviceThroughTheLifecycle() {
+        configManager.setProperty("iot.lifecycle.recharge_time", "30");
+        configManager.setProperty("iot.lifecycle.churn.mean_session", "60");
+        configManager.setProperty("iot.lifecycle.churn.mean_absence", "20");
+        DevicePopulation population = new DevicePopulation(configManager, 4);
+        String[] types = {"SENSOR", "ACTUATOR", "SMARTPHONE", "WEARABLE"};
+        List<IoTDevice> devices = new ArrayList<>();
+        PriorityQueue<double[]> emissions = new PriorityQueue<>((a, b) -> Double.compare(a[0], b[0]));
+        for (int i = 0; i < 200; i++) {
+            IoTDevice device = createDevice(population, "device-" + i, types[i % types.length]);
+            devices.add(device);
+            emissions.add(new double[] {device.getFirstEmissionTime(), i});
+        }
+
+        int released = 0;
+        while (!emissions.isEmpty() && emissions.peek()[0] < 2000.0) {
+            double[] emission = emissions.poll();
+            IoTDevice device = devices.get((int) emission[1]);
+            population.advanceTo(emission[0]);
+            // Big enough packets for wearables to run out within minutes
+            device.releaseDataPacket(new DataPacket(device.getDeviceId(), (int) emission[0], 1_200_000,
+                    "SENSOR_DATA", "RAW"));
+            double next = device.getNextEmissionTime(emission[0]);
+            if (next < Double.POSITIVE_INFINITY) {
+                emissions.add(new double[] {next, emission[1]});
+            }
+            if (++released % 500 == 0) {
+                assertTotalsMatch(population, devices);
+                assertStateCountsMatch(population, devices);
+            }
+        }
+        population.finish(2000.0);
+        assertTotalsMatch(population, devices);
+        assertStateCountsMatch(population, devices);
+        assertTrue(population.getDeviceCount(DeviceState.DETACHED) + population.getDeviceCount(DeviceState.RECHARGING)
+                + population.getPacketsDropped() > 0, "The lifecycle should have taken devices offline");
+    }
+
+    private IoTDevice createDevice(DevicePopulation population, String deviceId, String type) {
+        IoTDevice device = population.createDevice(deviceId, DeviceProfile.of(type));
+        device.setAssignedEdgeNode(edgeNode);
+        edgeNode.addIoTDevice(device);
+        return device;
+    }
+
+    private static void release(IoTDevice device, double time) {
+        device.getPopulation().advanceTo(time);
+        device.releaseDataPacket(new DataPacket(device.getDeviceId(), (int) time, DRAINING_PACKET_SIZE,
+                "VIDEO_DATA", "RAW"));
+    }
+
+    private static void assertTotalsMatch(DevicePopulation population, List<IoTDevice> devices) {
+        DevicePopulation.Totals totals = population.getTotals();
+        DevicePopulation.Totals expected = DevicePopulation.Totals.of(devices);
+        assertEquals(expected.getPacketsGenerated(), totals.getPacketsGenerated());
+        assertEquals(expected.getPacketsTransmitted(), totals.getPacketsTransmitted());
+        assertEquals(expected.getTransmittingDevices(), totals.getTransmittingDevices());
+        assertEquals(expected.getEnergyConsumed(), totals.getEnergyConsumed(), 1e-6 * expected.getEnergyConsumed());
+        assertEquals(expected.getAverageLatencySum(), totals.getAverageLatencySum(),
+                1e-6 * expected.getAverageLatencySum());
+    }
+
+    private static void assertStateCountsMatch(DevicePopulation population, List<IoTDevice> devices) {
+        int[] counts = new int[DeviceState.values().length];
+        int emitting = 0;
+        for (IoTDevice device : devices) {
+            counts[device.getState().ordinal()]++;
+            if (device.getState().isEmitting()) {
+                emitting++;
+            }
+        }
+        for (DeviceState state : DeviceState.values()) {
+            assertEquals(counts[state.ordinal()], population.getDeviceCount(state), state.name());
+        }
+        assertEquals(emitting, population.getActiveDeviceCount());
+    }
+}
@@ -0,0 +1,103 @@
+package org.edgefogcloud.edge;
+
+import org.edgefogcloud.data.DataPacket;
+import org.edgefogcloud.devices.DevicePopulation;
+import org.edgefogcloud.devices.IoTDevice;
+import org.edgefogcloud.fog.FogNode;
+import org.edgefogcloud.utils.ConfigManager;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EdgeNodeTest {
+    private static final int PACKETS = 5;
+
+    private final ConfigManager configManager = config();
+    private final DevicePopulation population = new DevicePopulation(configManager, 2);
+    private final EdgeNode source = new EdgeNode("Edge-0", configManager);
+    private final EdgeNode target = new EdgeNode("Edge-1", configManager);
+
+    EdgeNodeTest() {
+        FogNode fogNode = new FogNode("Fog-0", configManager);
+        for (EdgeNode edgeNode : List.of(source, target)) {
+            edgeNode.setAssignedFogNode(fogNode);
+            fogNode.addEdgeNode(edgeNode);
+        }
+    }
+
+    @Test
+    void handOverReroutesTheBufferedPackets() {
+        IoTDevice device = attach(population.createDevice("device-0"), source);
+        IoTDevice neighbour = attach(population.createDevice("device-1"), source);
+        List<DataPacket> sent = new ArrayList<>();
+        for (int i = 0; i < PACKETS; i++) {
+            DataPacket packet = device.createDataPacket(i);
+            sent.add(packet);
+            source.receiveData(packet, device);
+        }
+        source.receiveData(neighbour.createDataPacket(0), neighbour);
+
+        assertEquals(PACKETS, device.handOver(target, 0.0));
+
+        // The buffer moves in order, leaving the other device's packets behind
+        assertEquals(sent, new ArrayList<>(target.getBufferedPackets().get(device.getDeviceId())));
+        assertFalse(source.getBufferedPackets().containsKey(device.getDeviceId()));
+        assertEquals(1, source.getBufferedPacketCount());
+        assertEquals(1, source.getTotalPacketsReceived());
+        assertEquals(PACKETS, target.getBufferedPacketCount());
+        assertEquals(PACKETS, target.getTotalPacketsReceived());
+        assertEquals(List.of(neighbour), source.getAssignedDevices());
+        assertEquals(List.of(device), target.getAssignedDevices());
+        assertSame(target, device.getAssignedEdgeNode());
+
+        // The pipelines of the re-routed packets finish at the new node
+        for (DataPacket packet : sent) {
+            assertNull(source.filterPacket(packet, device, PACKETS));
+            assertNotNull(target.filterPacket(packet, device, PACKETS));
+        }
+        assertEquals(0, target.getBufferedPacketCount());
+    }
+
+    @Test
+    void packetsSentAfterAHandOverReachTheNewNode() {
+        IoTDevice device = attach(population.createDevice("device-0"), source);
+        device.handOver(target, 0.0);
+        device.releaseDataPacket(device.createDataPacket(0));
+
+        assertEquals(0, source.getTotalPacketsReceived());
+        assertEquals(1, target.getBufferedPacketCount());
+        Set<DataPacket> buffer = target.getBufferedPackets().get(device.getDeviceId());
+        assertEquals(1, buffer.size());
+    }
+
+    @Test
+    void handOverOfAnEmptyBufferReroutesNothing() {
+        IoTDevice device = attach(population.createDevice("device-0"), source);
+        assertEquals(0, source.handOver(device, target));
+        assertTrue(target.getBufferedPackets().get(device.getDeviceId()).isEmpty());
+        assertEquals(0, target.getTotalPacketsReceived());
+    }
+
+    private static IoTDevice attach(IoTDevice device, EdgeNode edgeNode) {
+        device.setAssignedEdgeNode(edgeNode);
+        edgeNode.addIoTDevice(device);
+        return device;
+    }
+
+    private static ConfigManager config() {
+        ConfigManager configManager = new ConfigManager();
+        configManager.setProperty("simulation.seed", "42");
+        // Every packet is kept, so a filtered packet is forwarded to the fog tier
+        configManager.setProperty("edge.filtering_ratio", "0.0");
+        return configManager;
+    }
+}
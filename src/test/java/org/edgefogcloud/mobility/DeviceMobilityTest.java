@@ -0,0 +1,99 @@
+package org.edgefogcloud.mobility;
+
+import org.edgefogcloud.devices.DeviceProfile;
+import org.edgefogcloud.devices.DevicePopulation;
+import org.edgefogcloud.devices.IoTDevice;
+import org.edgefogcloud.edge.EdgeNode;
+import org.edgefogcloud.utils.ConfigManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class DeviceMobilityTest {
+    // Two grid-placed edge nodes in a 1000 x 100 m area sit at (100, 50) and (300, 50)
+    private static final double FIRST_EDGE_X = 100.0;
+    private static final double SECOND_EDGE_X = 300.0;
+    // The device crosses the area at 4 m/s, from x = 0 at time 0 to x = 400 at time 100
+    private static final double SPEED = 4.0;
+    private static final double MARGIN = 0.01; // in seconds
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void nearestPolicyHandsOverHalfwayBetweenTheNodes() throws IOException {
+        Topology topology = new Topology(directory, "NEAREST");
+        assertHandoverAt((FIRST_EDGE_X + SECOND_EDGE_X) / 2 / SPEED, topology);
+    }
+
+    @Test
+    void bestSignalPolicyHandsOverPastTheHysteresisMargin() throws IOException {
+        Topology topology = new Topology(directory, "BEST_SIGNAL");
+        // Hands over once (x - 100)^2 > f (300 - x)^2, with f = 10^(3 dB / (5 * 3))
+        double ratio = Math.sqrt(Math.pow(10.0, 3.0 / 15.0));
+        double boundary = (FIRST_EDGE_X + SECOND_EDGE_X * ratio) / (1.0 + ratio);
+        assertHandoverAt(boundary / SPEED, topology);
+    }
+
+    private static void assertHandoverAt(double expected, Topology topology) {
+        List<Integer> targets = new ArrayList<>();
+        topology.mobility.addOnHandoverListener((device, fromEdge, toEdge) -> targets.add(toEdge));
+        assertEquals(0, topology.mobility.getServingEdge(0));
+
+        topology.mobility.advanceTo(expected - MARGIN);
+        assertEquals(0, topology.mobility.getServingEdge(0), "Handed over before time " + expected);
+        assertEquals(0, topology.mobility.getTotalHandovers());
+
+        topology.mobility.advanceTo(expected + MARGIN);
+        assertEquals(1, topology.mobility.getServingEdge(0), "Not handed over by time " + expected);
+        assertEquals(1, topology.mobility.getTotalHandovers());
+        assertEquals(List.of(1), targets);
+        assertSame(topology.edgeNodes.get(1), topology.device.getAssignedEdgeNode());
+
+        // Nothing else happens on the rest of the leg
+        topology.mobility.advanceTo(200.0);
+        assertEquals(1, topology.mobility.getTotalHandovers());
+    }
+
+    /**
+     * One smartphone replaying a straight trace leg past two edge nodes
+     */
+    private static final class Topology {
+        private final List<EdgeNode> edgeNodes = new ArrayList<>();
+        private final IoTDevice device;
+        private final DeviceMobility mobility;
+
+        Topology(Path directory, String policy) throws IOException {
+            Path trace = directory.resolve("trace.csv");
+            Files.write(trace, List.of("time,device,x,y", "0,phone,0,50", "100,phone,400,50"),
+                    StandardCharsets.UTF_8);
+            ConfigManager configManager = new ConfigManager();
+            configManager.setProperty("simulation.seed", "42");
+            configManager.setProperty("iot.mobility.model", "TRACE");
+            configManager.setProperty("iot.mobility.trace_file", trace.toString());
+            configManager.setProperty("iot.mobility.types", "SMARTPHONE");
+            configManager.setProperty("iot.mobility.area.width", "1000");
+            configManager.setProperty("iot.mobility.area.height", "100");
+            configManager.setProperty("iot.mobility.edge_placement", "GRID");
+            configManager.setProperty("iot.mobility.handover.policy", policy);
+            configManager.setProperty("iot.mobility.handover.hysteresis", "3.0");
+            configManager.setProperty("iot.mobility.handover.path_loss_exponent", "3.0");
+            configManager.setProperty("iot.mobility.handover.latency", "0");
+
+            DevicePopulation population = new DevicePopulation(configManager, 1);
+            device = population.createDevice("phone", DeviceProfile.of("SMARTPHONE"));
+            edgeNodes.add(new EdgeNode("Edge-0", configManager));
+            edgeNodes.add(new EdgeNode("Edge-1", configManager));
+            mobility = new DeviceMobility(configManager, List.of(device), edgeNodes);
+        }
+    }
+}
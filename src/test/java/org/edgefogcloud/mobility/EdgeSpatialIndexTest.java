@@ -0,0 +1,62 @@
+package org.edgefogcloud.mobility;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class EdgeSpatialIndexTest {
+    private static final double WIDTH = 1000.0;
+    private static final double HEIGHT = 600.0;
+    private static final int QUERIES = 20_000;
+
+    @Test
+    void nearestMatchesBruteForceForScatteredNodes() {
+        Random random = new Random(7);
+        double[] xs = new double[50];
+        double[] ys = new double[50];
+        for (int e = 0; e < xs.length; e++) {
+            xs[e] = random.nextDouble() * WIDTH;
+            ys[e] = random.nextDouble() * HEIGHT;
+        }
+        assertNearestMatchesBruteForce(new EdgeSpatialIndex(xs, ys, WIDTH, HEIGHT, 0), xs.length, random);
+        assertNearestMatchesBruteForce(new EdgeSpatialIndex(xs, ys, WIDTH, HEIGHT, 25.0), xs.length, random);
+        assertNearestMatchesBruteForce(new EdgeSpatialIndex(xs, ys, WIDTH, HEIGHT, 400.0), xs.length, random);
+    }
+
+    @Test
+    void nearestMatchesBruteForceForClusteredNodes() {
+        // Nodes packed in one corner leave most cells far from every node
+        Random random = new Random(11);
+        double[] xs = new double[20];
+        double[] ys = new double[20];
+        for (int e = 0; e < xs.length; e++) {
+            xs[e] = random.nextDouble() * 50.0;
+            ys[e] = random.nextDouble() * 50.0;
+        }
+        assertNearestMatchesBruteForce(new EdgeSpatialIndex(xs, ys, WIDTH, HEIGHT, 0), xs.length, random);
+    }
+
+    @Test
+    void singleNodeIsNearestEverywhere() {
+        EdgeSpatialIndex index = new EdgeSpatialIndex(new double[] {500.0}, new double[] {300.0}, WIDTH, HEIGHT, 0);
+        assertEquals(0, index.nearest(0.0, 0.0));
+        assertEquals(0, index.nearest(WIDTH, HEIGHT));
+    }
+
+    private static void assertNearestMatchesBruteForce(EdgeSpatialIndex index, int nodes, Random random) {
+        for (int q = 0; q < QUERIES; q++) {
+            // Points slightly outside the area belong to its border cells
+            double x = random.nextDouble() * (WIDTH + 20.0) - 10.0;
+            double y = random.nextDouble() * (HEIGHT + 20.0) - 10.0;
+            double expected = Double.POSITIVE_INFINITY;
+            for (int e = 0; e < nodes; e++) {
+                expected = Math.min(expected, index.squaredDistance(e, x, y));
+            }
+            // Ties may pick either node, so the distances are compared
+            assertEquals(expected, index.squaredDistance(index.nearest(x, y), x, y), 1e-9,
+                    "Nearest node to (" + x + ", " + y + ")");
+        }
+    }
+}
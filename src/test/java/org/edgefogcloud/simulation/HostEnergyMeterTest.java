@@ -0,0 +1,201 @@
+package org.edgefogcloud.simulation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.cloudbus.cloudsim.core.Simulation;
+import org.cloudbus.cloudsim.hosts.Host;
+import org.cloudbus.cloudsim.power.models.PowerModelHost;
+import org.cloudbus.cloudsim.power.models.PowerModelHostSimple;
+import org.cloudsimplus.listeners.EventInfo;
+import org.cloudsimplus.listeners.EventListener;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HostEnergyMeterTest {
+    private static final double JOULES_PER_KWH = 3_600_000.0;
+
+    private double clock;
+    private List<EventListener<EventInfo>> clockTickListeners;
+    private Simulation simulation;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void createSimulation() {
+        clock = 0.0;
+        clockTickListeners = new ArrayList<>();
+        simulation = proxy(Simulation.class, (name, args) -> {
+            switch (name) {
+                case "clock":
+                    return clock;
+                case "addOnClockTickListener":
+                    clockTickListeners.add((EventListener<EventInfo>) args[0]);
+                    return simulation;
+                case "removeOnClockTickListener":
+                    return clockTickListeners.remove(args[0]);
+                default:
+                    return null;
+            }
+        });
+    }
+
+    @Test
+    void integratesAConstantPowerOverTime() {
+        FakeHost host = new FakeHost(new PowerModelHostSimple(200, 100));
+        host.utilization = 0.5;
+        HostEnergyMeter meter = new HostEnergyMeter(simulation);
+        meter.addHost(host.host, "Fog");
+        meter.start();
+
+        tick(1800);
+        tick(3600);
+        meter.finish();
+
+        assertEquals(150.0 * 3600 / JOULES_PER_KWH, meter.getHostEnergy(host.host), 1e-12);
+    }
+
+    @Test
+    void integratesALinearUtilizationRampExactly() {
+        FakeHost host = new FakeHost(new PowerModelHostSimple(200, 100));
+        HostEnergyMeter meter = new HostEnergyMeter(simulation);
+        meter.addHost(host.host, "Edge");
+        meter.start();
+
+        for (int t = 1; t <= 10; t++) {
+            host.utilization = t / 10.0;
+            tick(t);
+        }
+        meter.finish();
+
+        // Power rises linearly from 100 W to 200 W over 10 s
+        assertEquals(1500.0 / JOULES_PER_KWH, meter.getHostEnergy(host.host), 1e-12);
+    }
+
+    @Test
+    void usesTheTrapezoidBetweenUnevenSamples() {
+        FakeHost host = new FakeHost(new PowerModelHostSimple(300, 100));
+        HostEnergyMeter meter = new HostEnergyMeter(simulation);
+        meter.addHost(host.host, "Cloud");
+        meter.start();
+
+        host.utilization = 1.0;
+        tick(2);
+        host.utilization = 0.0;
+        tick(10);
+        meter.finish();
+
+        // (100 + 300) / 2 * 2 + (300 + 100) / 2 * 8
+        assertEquals(2000.0 / JOULES_PER_KWH, meter.getHostEnergy(host.host), 1e-12);
+    }
+
+    @Test
+    void switchedOffHostsDrawNoPower() {
+        FakeHost host = new FakeHost(new PowerModelHostSimple(200, 100));
+        host.active = false;
+        HostEnergyMeter meter = new HostEnergyMeter(simulation);
+        meter.addHost(host.host, "Fog");
+        meter.start();
+
+        tick(100);
+        meter.finish();
+
+        assertEquals(0.0, meter.getHostEnergy(host.host));
+    }
+
+    @Test
+    void sumsTheHostsOfEachLayer() {
+        FakeHost fog1 = new FakeHost(new PowerModelHostSimple(100, 100));
+        FakeHost fog2 = new FakeHost(new PowerModelHostSimple(50, 50));
+        FakeHost cloud = new FakeHost(new PowerModelHostSimple(400, 400));
+        HostEnergyMeter meter = new HostEnergyMeter(simulation);
+        meter.addHost(cloud.host, "Cloud");
+        meter.addHost(fog1.host, "Fog");
+        meter.addHost(fog2.host, "Fog");
+        meter.start();
+
+        // The integration is closed at the clock of the end of the run, without a last tick
+        clock = 36;
+        meter.finish();
+
+        Map<String, Double> energyByLayer = meter.getEnergyByLayer();
+        assertEquals(List.of("Cloud", "Fog"), new ArrayList<>(energyByLayer.keySet()));
+        assertEquals(400.0 * 36 / JOULES_PER_KWH, energyByLayer.get("Cloud"), 1e-12);
+        assertEquals(150.0 * 36 / JOULES_PER_KWH, energyByLayer.get("Fog"), 1e-12);
+        assertEquals(550.0 * 36 / JOULES_PER_KWH, meter.getTotalEnergy(), 1e-12);
+        assertEquals(0, clockTickListeners.size());
+    }
+
+    private void tick(double time) {
+        clock = time;
+        EventInfo info = proxy(EventInfo.class, (name, args) -> "getTime".equals(name) ? time : null);
+        for (EventListener<EventInfo> listener : new ArrayList<>(clockTickListeners)) {
+            listener.update(info);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (self, method, args) -> {
+            switch (method.getName()) {
+                case "equals":
+                    return self == args[0];
+                case "hashCode":
+                    return System.identityHashCode(self);
+                case "toString":
+                    return type.getSimpleName();
+                default:
+                    Object result = handler.invoke(method.getName(), args);
+                    return result != null ? result : defaultValue(method.getReturnType());
+            }
+        });
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type == double.class) {
+            return 0.0;
+        }
+        return null;
+    }
+
+    private interface Handler {
+        Object invoke(String name, Object[] args);
+    }
+
+    /**
+     * Host whose utilization and power state are set by the test
+     */
+    private static final class FakeHost {
+        private final Host host;
+        private double utilization;
+        private boolean active = true;
+
+        FakeHost(PowerModelHost powerModel) {
+            this.host = proxy(Host.class, (name, args) -> {
+                switch (name) {
+                    case "getCpuPercentUtilization":
+                        return utilization;
+                    case "isActive":
+                        return active;
+                    case "getPowerModel":
+                        return powerModel;
+                    default:
+                        return null;
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package org.edgefogcloud.simulation;
+
+import org.edgefogcloud.cloud.CloudDataCenter;
+import org.edgefogcloud.data.DataPacket;
+import org.edgefogcloud.devices.DevicePopulation;
+import org.edgefogcloud.devices.IoTDevice;
+import org.edgefogcloud.edge.EdgeNode;
+import org.edgefogcloud.fog.FogNode;
+import org.edgefogcloud.network.NetworkModel;
+import org.edgefogcloud.utils.ConfigManager;
+import org.edgefogcloud.utils.MetricsCollector;
+import org.edgefogcloud.utils.SimulationProfiler;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.cloudbus.cloudsim.brokers.DatacenterBroker;
+import org.cloudbus.cloudsim.cloudlets.Cloudlet;
+import org.cloudbus.cloudsim.core.Simulation;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SimulationCheckpointerTest {
+    private static final int DEVICES = 8;
+    private static final int CHECKPOINT_TIME = 5;
+
+    @Test
+    void restoredStateEncodesToTheSameBytes() throws IOException {
+        Topology straight = new Topology();
+        runUntil(straight, 0, CHECKPOINT_TIME);
+        byte[] state = straight.checkpointer.encodeState(CHECKPOINT_TIME);
+
+        Topology restored = restore(state);
+        assertArrayEquals(state, restored.checkpointer.encodeState(CHECKPOINT_TIME));
+    }
+
+    @Test
+    void resumedRunMatchesAStraightRun() throws IOException {
+        Topology straight = new Topology();
+        runUntil(straight, 0, CHECKPOINT_TIME);
+        Topology resumed = restore(straight.checkpointer.encodeState(CHECKPOINT_TIME));
+
+        // The edge filter draws from the restored random generator
+        runUntil(straight, CHECKPOINT_TIME, 2 * CHECKPOINT_TIME);
+        runUntil(resumed, CHECKPOINT_TIME, 2 * CHECKPOINT_TIME);
+        assertArrayEquals(straight.checkpointer.encodeState(2 * CHECKPOINT_TIME),
+                resumed.checkpointer.encodeState(2 * CHECKPOINT_TIME));
+        assertEquals(straight.cloudDataCenter.getTotalPacketsProcessed(),
+                resumed.cloudDataCenter.getTotalPacketsProcessed());
+    }
+
+    @Test
+    void resumedRunResubmitsTheBufferedPipelines() throws IOException {
+        Topology straight = new Topology();
+        runUntil(straight, 0, CHECKPOINT_TIME);
+        Topology resumed = restore(straight.checkpointer.encodeState(CHECKPOINT_TIME));
+        int atEdge = count(resumed.edgeNode.getBufferedPackets());
+        int atFog = count(resumed.fogNode.getBufferedPackets());
+        int atCloud = count(resumed.cloudDataCenter.getStoredPackets());
+        int inWindows = 0;
+        for (FogNode.AggregationWindow window : resumed.fogNode.getOpenWindows()) {
+            inWindows += window.getPacketCount();
+        }
+        assertTrue(atEdge > 0 && atFog > 0 && inWindows > 0 && atCloud > 0, "Every tier should hold packets");
+
+        resumed.coSimulation.start(resumed.workloadSource);
+        resumed.coSimulation.resumeAt(CHECKPOINT_TIME);
+
+        // The analytics stages of the open windows wait for them to close
+        assertEquals(atEdge + atFog + atCloud, resumed.submitted.size());
+        WorkflowScheduler scheduler = resumed.workloadSource.getWorkflowScheduler();
+        assertEquals(atEdge + atFog + inWindows + atCloud, scheduler.getRunningWorkflows());
+        for (Cloudlet cloudlet : resumed.submitted) {
+            assertTrue(cloudlet.getLength() > 0);
+        }
+    }
+
+    private static Topology restore(byte[] state) throws IOException {
+        Topology topology = new Topology();
+        topology.checkpointer.restoreState(new DataInputStream(new ByteArrayInputStream(state)));
+        return topology;
+    }
+
+    /**
+     * Moves every packet one tier further each second: the cloud analyzes its stored packets,
+     * the fog closes the windows due and aggregates its buffer, the edge filters its buffer
+     * and every device emits a packet
+     */
+    private static void runUntil(Topology topology, int from, int to) {
+        for (int second = from; second < to; second++) {
+            double time = second + 0.5;
+            for (Set<DataPacket> packets : topology.cloudDataCenter.getStoredPackets().values()) {
+                for (DataPacket packet : new ArrayList<>(packets)) {
+                    topology.cloudDataCenter.analyzePacket(packet, time);
+                }
+            }
+            for (FogNode.AggregationWindow window : new ArrayList<>(topology.fogNode.getOpenWindows())) {
+                if (window.getCloseTime() <= time) {
+                    topology.fogNode.closeWindow(window, time);
+                }
+            }
+            for (Set<DataPacket> packets : new ArrayList<>(topology.fogNode.getBufferedPackets().values())) {
+                for (DataPacket packet : new ArrayList<>(packets)) {
+                    topology.fogNode.aggregatePacket(packet, time);
+                }
+            }
+            for (Set<DataPacket> packets : new ArrayList<>(topology.edgeNode.getBufferedPackets().values())) {
+                for (DataPacket packet : new ArrayList<>(packets)) {
+                    topology.edgeNode.filterPacket(packet, topology.devicesById.get(packet.getSourceId()), time);
+                }
+            }
+            topology.population.advanceTo(time);
+            for (IoTDevice device : topology.devices) {
+                device.releaseDataPacket(device.createDataPacket(second));
+            }
+        }
+    }
+
+    private static int count(Map<String, Set<DataPacket>> buffers) {
+        int packets = 0;
+        for (Set<DataPacket> buffer : buffers.values()) {
+            packets += buffer.size();
+        }
+        return packets;
+    }
+
+    /**
+     * Devices attached to an edge, fog and cloud tier, with a seeded configuration of their own
+     */
+    private static final class Topology {
+        private final ConfigManager configManager = seededConfig();
+        private final DevicePopulation population = new DevicePopulation(configManager, DEVICES);
+        private final List<IoTDevice> devices = new ArrayList<>();
+        private final Map<String, IoTDevice> devicesById = new HashMap<>();
+        private final EdgeNode edgeNode = new EdgeNode("Edge-0", configManager);
+        private final FogNode fogNode = new FogNode("Fog-0", configManager);
+        private final CloudDataCenter cloudDataCenter = new CloudDataCenter(configManager);
+        private final List<Cloudlet> submitted = new ArrayList<>();
+        private final StreamingWorkloadSource workloadSource;
+        private final TierCoSimulation coSimulation;
+        private final SimulationCheckpointer checkpointer;
+
+        Topology() {
+            edgeNode.setAssignedFogNode(fogNode);
+            fogNode.addEdgeNode(edgeNode);
+            fogNode.setCloudDataCenter(cloudDataCenter);
+            cloudDataCenter.addFogNode(fogNode);
+            Simulation simulation = proxy(Simulation.class, (name, args) -> null);
+            DatacenterBroker broker = proxy(DatacenterBroker.class, (name, args) -> {
+                switch (name) {
+                    case "getSimulation":
+                        return simulation;
+                    case "submitCloudlet":
+                        submitted.add((Cloudlet) args[0]);
+                        return null;
+                    default:
+                        return null;
+                }
+            });
+            NetworkModel networkModel = new NetworkModel(configManager);
+            workloadSource = new StreamingWorkloadSource(broker, networkModel, 2 * CHECKPOINT_TIME,
+                    new SimulationProfiler(false, 1));
+            for (int i = 0; i < DEVICES; i++) {
+                IoTDevice device = population.createDevice("device-" + i);
+                device.setAssignedEdgeNode(edgeNode);
+                edgeNode.addIoTDevice(device);
+                workloadSource.addDevice(device, null, null, null);
+                devices.add(device);
+                devicesById.put(device.getDeviceId(), device);
+            }
+            MetricsCollector metricsCollector = new MetricsCollector();
+            coSimulation = new TierCoSimulation(simulation, 2 * CHECKPOINT_TIME, population, List.of(edgeNode),
+                    List.of(fogNode), cloudDataCenter, networkModel, metricsCollector,
+                    new SimulationProfiler(false, 1));
+            checkpointer = new SimulationCheckpointer(Paths.get("checkpoints"), CHECKPOINT_TIME, devices,
+                    List.of(edgeNode), List.of(fogNode), cloudDataCenter, networkModel, metricsCollector,
+                    workloadSource, null);
+        }
+
+        private static ConfigManager seededConfig() {
+            ConfigManager configManager = new ConfigManager();
+            configManager.setProperty("simulation.seed", "42");
+            configManager.setProperty("edge.filtering_ratio", "0.3");
+            configManager.setProperty("fog.aggregation.window", "2.0");
+            return configManager;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (self, method, args) -> {
+            switch (method.getName()) {
+                case "equals":
+                    return self == args[0];
+                case "hashCode":
+                    return System.identityHashCode(self);
+                case "toString":
+                    return type.getSimpleName();
+                default:
+                    Object result = handler.invoke(method.getName(), args);
+                    return result != null ? result : defaultValue(method.getReturnType());
+            }
+        });
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type == double.class) {
+            return 0.0;
+        }
+        return null;
+    }
+
+    private interface Handler {
+        Object invoke(String name, Object[] args);
+    }
+}
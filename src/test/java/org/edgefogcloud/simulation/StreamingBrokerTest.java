@@ -0,0 +1,96 @@
+package org.edgefogcloud.simulation;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+
+import org.cloudbus.cloudsim.cloudlets.Cloudlet;
+import org.cloudbus.cloudsim.cloudlets.CloudletExecution;
+import org.cloudbus.cloudsim.cloudlets.CloudletSimple;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.CloudSimTags;
+import org.cloudbus.cloudsim.core.events.SimEvent;
+import org.cloudbus.cloudsim.vms.Vm;
+import org.cloudbus.cloudsim.vms.VmSimple;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StreamingBrokerTest {
+    private static final int CLOUDLETS = 10_000;
+
+    @Test
+    void returnedCloudletsAreCountedButNotKept() {
+        StreamingBroker broker = new StreamingBroker(new CloudSim());
+        Vm vm = new VmSimple(1000, 1).setCloudletScheduler(new StreamingCloudletScheduler());
+        for (int i = 0; i < CLOUDLETS; i++) {
+            Cloudlet cloudlet = new CloudletSimple(i, 1000, 1);
+            cloudlet.setVm(vm);
+            broker.processEvent(returnEvent(cloudlet));
+        }
+        assertEquals(CLOUDLETS, broker.getTotalCloudletsReturned());
+        assertTrue(broker.getCloudletFinishedList().isEmpty());
+    }
+
+    @Test
+    void schedulerForgetsReturnedExecutions() {
+        StreamingCloudletScheduler scheduler = new StreamingCloudletScheduler();
+        for (int i = 0; i < CLOUDLETS; i++) {
+            Cloudlet cloudlet = new CloudletSimple(i, 1000, 1);
+            scheduler.getCloudletFinishedList().add(new CloudletExecution(cloudlet));
+            // As the datacenter does once it has sent the cloudlet back to the broker
+            scheduler.addCloudletToReturnedList(cloudlet);
+        }
+        assertTrue(scheduler.getCloudletFinishedList().isEmpty());
+    }
+
+    private static SimEvent returnEvent(Cloudlet cloudlet) {
+        return proxy(SimEvent.class, (name, args) -> {
+            switch (name) {
+                case "getTag":
+                    return CloudSimTags.CLOUDLET_RETURN;
+                case "getData":
+                    return cloudlet;
+                default:
+                    return null;
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (self, method, args) -> {
+            switch (method.getName()) {
+                case "equals":
+                    return self == args[0];
+                case "hashCode":
+                    return System.identityHashCode(self);
+                case "toString":
+                    return type.getSimpleName();
+                default:
+                    Object result = handler.invoke(method.getName(), args);
+                    return result != null ? result : defaultValue(method.getReturnType());
+            }
+        });
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type == double.class) {
+            return 0.0;
+        }
+        return null;
+    }
+
+    private interface Handler {
+        Object invoke(String name, Object[] args);
+    }
+}
@@ -0,0 +1,239 @@
+package org.edgefogcloud.simulation;
+
+import org.edgefogcloud.cloud.CloudDataCenter;
+import org.edgefogcloud.data.DataPacket;
+import org.edgefogcloud.devices.DevicePopulation;
+import org.edgefogcloud.devices.DeviceProfile;
+import org.edgefogcloud.devices.IoTDevice;
+import org.edgefogcloud.edge.EdgeNode;
+import org.edgefogcloud.fog.FogNode;
+import org.edgefogcloud.network.NetworkModel;
+import org.edgefogcloud.utils.ConfigManager;
+import org.edgefogcloud.utils.MetricsCollector;
+import org.edgefogcloud.utils.SimulationProfiler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.cloudbus.cloudsim.brokers.DatacenterBroker;
+import org.cloudbus.cloudsim.cloudlets.Cloudlet;
+import org.cloudbus.cloudsim.core.Simulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WorkflowSchedulerTest {
+    private double clock;
+    private List<Cloudlet> submitted;
+    private ConfigManager configManager;
+    private WorkflowScheduler scheduler;
+
+    @BeforeEach
+    void createScheduler() {
+        clock = 0.0;
+        submitted = new ArrayList<>();
+        configManager = new ConfigManager();
+        Simulation simulation = proxy(Simulation.class, (name, args) -> "clock".equals(name) ? clock : null);
+        DatacenterBroker broker = proxy(DatacenterBroker.class, (name, args) -> {
+            switch (name) {
+                case "getSimulation":
+                    return simulation;
+                case "submitCloudlet":
+                    submitted.add((Cloudlet) args[0]);
+                    return null;
+                default:
+                    return null;
+            }
+        });
+        scheduler = new WorkflowScheduler(broker, new NetworkModel(configManager));
+    }
+
+    @Test
+    void filteredPacketSubmitsNoFogOrCloudCloudlets() {
+        configManager.setProperty("edge.filtering_ratio", "1.0");
+        Tiers tiers = new Tiers();
+        CloudletWorkflow workflow = tiers.releasePipeline();
+        List<CloudletWorkflow.Task> tasks = workflow.getTasks();
+
+        scheduler.submit(workflow, 0.0);
+        finish(workflow, tasks.get(0), 0.5);
+        finish(workflow, tasks.get(1), 1.0);
+
+        // Only the device and edge stages ran
+        assertEquals(List.of(tasks.get(0).getCloudlet(), tasks.get(1).getCloudlet()), submitted);
+        assertTrue(tasks.get(2).isCancelled());
+        assertTrue(tasks.get(3).isCancelled());
+        assertEquals(2, scheduler.getTotalCloudletsCancelled());
+        assertEquals(0, scheduler.getRunningWorkflows());
+        assertEquals(1, scheduler.getFinishedWorkflows());
+        assertEquals(1.0, workflow.getCriticalPathLatency());
+        assertEquals(0, tiers.fogNode.getTotalPacketsReceived());
+        assertEquals(0, tiers.cloudDataCenter.getTotalPacketsReceived());
+    }
+
+    @Test
+    void forwardedPacketRunsEveryStage() {
+        configManager.setProperty("edge.filtering_ratio", "0.0");
+        Tiers tiers = new Tiers();
+        CloudletWorkflow workflow = tiers.releasePipeline();
+        List<CloudletWorkflow.Task> tasks = workflow.getTasks();
+
+        scheduler.submit(workflow, 0.0);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i + 1, submitted.size());
+            finish(workflow, tasks.get(i), i + 1.0);
+        }
+        // The analytics stage waits for the aggregation window to close
+        assertTrue(tasks.get(3).isHeld());
+        assertEquals(3, submitted.size());
+        tiers.coSimulation.closeAggregationWindows(3.5);
+        assertEquals(3, submitted.size());
+        clock = 4.0;
+        tiers.coSimulation.closeAggregationWindows(4.0);
+        assertEquals(4, submitted.size());
+        finish(workflow, tasks.get(3), 5.0);
+
+        for (CloudletWorkflow.Task task : tasks) {
+            assertFalse(task.isCancelled());
+        }
+        assertEquals(0, scheduler.getTotalCloudletsCancelled());
+        assertEquals(1, scheduler.getFinishedWorkflows());
+        assertEquals(1, tiers.cloudDataCenter.getTotalPacketsProcessed());
+        // The tiers forwarded copies of the packet the device sent
+        assertEquals(4096, tiers.lastPacket.getSize());
+        assertEquals("RAW", tiers.lastPacket.getProcessingStatus());
+    }
+
+    @Test
+    void packetsOfAWindowShareOneAnalyticsCloudlet() {
+        configManager.setProperty("edge.filtering_ratio", "0.0");
+        Tiers tiers = new Tiers();
+        List<CloudletWorkflow> workflows = new ArrayList<>();
+        long analyticsInput = 0;
+        for (int i = 0; i < 3; i++) {
+            CloudletWorkflow workflow = tiers.releasePipeline();
+            workflows.add(workflow);
+            analyticsInput += workflow.getTasks().get(3).getCloudlet().getFileSize();
+            scheduler.submit(workflow, 0.0);
+            // Within the window the first packet opened at 0.5
+            for (int stage = 0; stage < 3; stage++) {
+                finish(workflow, workflow.getTasks().get(stage), 0.5 + 0.1 * i);
+            }
+        }
+        assertEquals(9, submitted.size());
+
+        clock = 1.5;
+        tiers.coSimulation.closeAggregationWindows(1.5);
+        CloudletWorkflow.Task analytics = workflows.get(0).getTasks().get(3);
+        assertEquals(List.of(analytics.getCloudlet()), submitted.subList(9, submitted.size()));
+        assertEquals(analyticsInput, analytics.getCloudlet().getFileSize());
+        assertTrue(workflows.get(1).getTasks().get(3).isCancelled());
+        assertTrue(workflows.get(2).getTasks().get(3).isCancelled());
+        // The merged packets' pipelines end with the window
+        assertEquals(2, scheduler.getFinishedWorkflows());
+        assertEquals(3, tiers.fogNode.getTotalPacketsProcessed());
+        assertEquals(1, tiers.cloudDataCenter.getTotalPacketsReceived());
+
+        finish(workflows.get(0), analytics, 2.0);
+        assertEquals(0, scheduler.getRunningWorkflows());
+        assertEquals(1, tiers.cloudDataCenter.getTotalPacketsProcessed());
+    }
+
+    private void finish(CloudletWorkflow workflow, CloudletWorkflow.Task task, double time) {
+        clock = time;
+        scheduler.onTaskFinished(workflow, task, time);
+    }
+
+    /**
+     * One device attached to an edge, fog and cloud tier driven by a co-simulation
+     */
+    private final class Tiers {
+        private final EdgeNode edgeNode = new EdgeNode("Edge-0", configManager);
+        private final FogNode fogNode = new FogNode("Fog-0", configManager);
+        private final CloudDataCenter cloudDataCenter = new CloudDataCenter(configManager);
+        private final DevicePopulation population = new DevicePopulation(configManager, 1);
+        private final IoTDevice device = population.createDevice("device-0", DeviceProfile.of("SENSOR"));
+        private final TierCoSimulation coSimulation;
+        private DataPacket lastPacket;
+
+        Tiers() {
+            edgeNode.setAssignedFogNode(fogNode);
+            fogNode.addEdgeNode(edgeNode);
+            fogNode.setCloudDataCenter(cloudDataCenter);
+            cloudDataCenter.addFogNode(fogNode);
+            device.setAssignedEdgeNode(edgeNode);
+            edgeNode.addIoTDevice(device);
+            Simulation simulation = proxy(Simulation.class, (name, args) -> "clock".equals(name) ? clock : null);
+            coSimulation = new TierCoSimulation(simulation, 10, population, List.of(edgeNode), List.of(fogNode),
+                    cloudDataCenter, new NetworkModel(configManager), new MetricsCollector(),
+                    new SimulationProfiler(false, 1));
+            coSimulation.setWorkflowScheduler(scheduler);
+        }
+
+        /**
+         * Builds the pipeline of a packet the device has sent to its edge node,
+         * the way the workload source does
+         */
+        CloudletWorkflow releasePipeline() {
+            DataPacket packet = new DataPacket(device.getDeviceId(), 0, 4096, "SENSOR_DATA", "RAW");
+            device.releaseDataPacket(packet);
+            lastPacket = packet;
+            CloudletWorkflow workflow = new CloudletWorkflow(device.getDeviceId());
+            long inputSize = packet.getSize();
+            CloudletWorkflow.Task previous = null;
+            for (PipelineStage stage = PipelineStage.DATA_GENERATION; stage != null; stage = stage.next()) {
+                Cloudlet cloudlet = stage.createCloudlet(stage.ordinal(), inputSize, PacketWorkloadProfile.of(packet));
+                inputSize = stage.getOutputSize(inputSize);
+                CloudletWorkflow.Task task = workflow.addTask(cloudlet, stage.getLayer());
+                if (previous != null) {
+                    workflow.addDependency(previous, task);
+                }
+                PipelineStage finishedStage = stage;
+                task.setOnFinished(time -> coSimulation.onStageFinished(task, finishedStage, device, packet, time));
+                previous = task;
+            }
+            return workflow;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (self, method, args) -> {
+            switch (method.getName()) {
+                case "equals":
+                    return self == args[0];
+                case "hashCode":
+                    return System.identityHashCode(self);
+                case "toString":
+                    return type.getSimpleName();
+                default:
+                    Object result = handler.invoke(method.getName(), args);
+                    return result != null ? result : defaultValue(method.getReturnType());
+            }
+        });
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type == double.class) {
+            return 0.0;
+        }
+        return null;
+    }
+
+    private interface Handler {
+        Object invoke(String name, Object[] args);
+    }
+}
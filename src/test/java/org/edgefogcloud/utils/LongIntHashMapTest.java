@@ -0,0 +1,78 @@
+package org.edgefogcloud.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LongIntHashMapTest {
+
+    @Test
+    void returnsTheMissingValueForAbsentKeys() {
+        LongIntHashMap map = new LongIntHashMap(4, -1);
+        assertEquals(-1, map.get(42));
+        assertFalse(map.containsKey(42));
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    void replacesTheValueOfAnExistingKey() {
+        LongIntHashMap map = new LongIntHashMap(4, -1);
+        map.put(7, 1);
+        map.put(7, 2);
+        assertEquals(2, map.get(7));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void keepsEveryEntryAcrossRehashes() {
+        // Sized far below the entries, so the table doubles several times
+        LongIntHashMap map = new LongIntHashMap(1, -1);
+        for (int i = 0; i < 10_000; i++) {
+            map.put(i, i * 3);
+        }
+        assertEquals(10_000, map.size());
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(i * 3, map.get(i));
+        }
+        assertFalse(map.containsKey(10_000));
+    }
+
+    @Test
+    void matchesAHashMapForArbitraryKeys() {
+        Random random = new Random(1);
+        LongIntHashMap map = new LongIntHashMap(16, Integer.MIN_VALUE);
+        Map<Long, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 5_000; i++) {
+            // Few distinct keys, negative ones and keys colliding in their low bits
+            long key = random.nextInt(2_000) * (random.nextBoolean() ? 1L << 32 : -1L);
+            int value = random.nextInt();
+            map.put(key, value);
+            expected.put(key, value);
+        }
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<Long, Integer> entry : expected.entrySet()) {
+            assertTrue(map.containsKey(entry.getKey()));
+            assertEquals(entry.getValue().intValue(), map.get(entry.getKey()));
+        }
+    }
+
+    @Test
+    void clearRemovesEveryEntry() {
+        LongIntHashMap map = new LongIntHashMap(8, -1);
+        for (int i = 0; i < 100; i++) {
+            map.put(i, i);
+        }
+        map.clear();
+        assertEquals(0, map.size());
+        assertEquals(-1, map.get(5));
+        map.put(5, 50);
+        assertEquals(50, map.get(5));
+        assertEquals(1, map.size());
+    }
+}
@@ -0,0 +1,61 @@
+package org.edgefogcloud.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.jfree.data.xy.XYSeries;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResultsVisualizerTest {
+    // One point per pixel of the 800 pixels wide charts
+    private final ResultsVisualizer visualizer = new ResultsVisualizer(1, 1);
+
+    @Test
+    void plotsShortSeriesAsIsInTimeOrder() {
+        Map<Integer, Double> data = new HashMap<>();
+        for (int t = 99; t >= 0; t--) {
+            data.put(t, t * 2.0);
+        }
+        XYSeries series = visualizer.toSeries("latency", data);
+        assertEquals(100, series.getItemCount());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, series.getX(i).intValue());
+            assertEquals(i * 2.0, series.getY(i).doubleValue());
+        }
+    }
+
+    @Test
+    void downsamplesLongSeriesToThePointBudget() {
+        Map<Integer, Double> data = new HashMap<>();
+        for (int t = 0; t < 100_000; t++) {
+            data.put(t, Math.sin(t / 500.0));
+        }
+        XYSeries series = visualizer.toSeries("energy", data);
+        assertEquals(800, series.getItemCount());
+        assertEquals(0, series.getX(0).intValue());
+        assertEquals(99_999, series.getX(799).intValue());
+        for (int i = 1; i < series.getItemCount(); i++) {
+            assertTrue(series.getX(i).doubleValue() > series.getX(i - 1).doubleValue());
+            // Every kept point is an original one
+            int time = series.getX(i).intValue();
+            assertEquals(data.get(time), series.getY(i).doubleValue());
+        }
+    }
+
+    @Test
+    void keepsIsolatedPeaksAndDrops() {
+        Map<Integer, Double> data = new HashMap<>();
+        for (int t = 0; t < 50_000; t++) {
+            data.put(t, 1.0);
+        }
+        data.put(12_345, 1000.0);
+        data.put(37_777, -1000.0);
+        XYSeries series = visualizer.toSeries("bandwidth", data);
+        assertEquals(1000.0, series.getMaxY());
+        assertEquals(-1000.0, series.getMinY());
+    }
+}
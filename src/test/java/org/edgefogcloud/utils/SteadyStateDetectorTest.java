@@ -0,0 +1,64 @@
+package org.edgefogcloud.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SteadyStateDetectorTest {
+
+    @Test
+    void keepsSeriesShorterThanTwoBatches() {
+        assertEquals(0, SteadyStateDetector.getTruncationPoint(new double[9]));
+        assertEquals(0, SteadyStateDetector.getTruncationPoint(new double[0]));
+    }
+
+    @Test
+    void keepsAStationarySeries() {
+        double[] series = new double[200];
+        for (int i = 0; i < series.length; i++) {
+            series[i] = i % 2 == 0 ? 10.0 : 12.0;
+        }
+        assertEquals(0, SteadyStateDetector.getTruncationPoint(series));
+    }
+
+    @Test
+    void truncatesTheWarmUpTransient() {
+        assertEquals(50, SteadyStateDetector.getTruncationPoint(transientThenSteady()));
+    }
+
+    @Test
+    void truncatesAtMostHalfTheSeries() {
+        // A series that never settles down
+        double[] series = new double[100];
+        for (int i = 0; i < series.length; i++) {
+            series[i] = 100.0 - i;
+        }
+        assertEquals(50, SteadyStateDetector.getTruncationPoint(series));
+    }
+
+    @Test
+    void mapsTheTruncationPointToItsSecond() {
+        double[] series = transientThenSteady();
+        Map<Integer, Double> seriesByTime = new HashMap<>();
+        for (int i = 0; i < series.length; i++) {
+            seriesByTime.put(100 + i, series[i]);
+        }
+        assertEquals(150, SteadyStateDetector.getTruncationTime(seriesByTime));
+        assertEquals(0, SteadyStateDetector.getTruncationTime(Collections.emptyMap()));
+    }
+
+    /**
+     * 50 observations far above the steady state, then 200 alternating around it
+     */
+    private static double[] transientThenSteady() {
+        double[] series = new double[250];
+        for (int i = 0; i < series.length; i++) {
+            series[i] = i < 50 ? 100.0 : i % 2 == 0 ? 10.0 : 12.0;
+        }
+        return series;
+    }
+}